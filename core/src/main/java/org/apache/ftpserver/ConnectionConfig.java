@@ -68,4 +68,23 @@ public interface ConnectionConfig {
      *         processing client requests.
      */
     int getMaxThreads();
+
+    /**
+     * Returns the number of milliseconds a session with no command running
+     * may wait for a free worker of the command executor before new connections are refused with a 421
+     * reply. 0 disables connection shedding.
+     *
+     * @return the connection shedding threshold in milliseconds
+     */
+    int getConnectionSheddingThreshold();
+
+    /**
+     * Returns the number of milliseconds a session with no command running
+     * may wait for a free worker of the command executor before new data transfer commands are refused.
+     * Transfers already in progress are not affected. 0 disables transfer
+     * shedding.
+     *
+     * @return the transfer shedding threshold in milliseconds
+     */
+    int getTransferSheddingThreshold();
 }
@@ -41,6 +41,10 @@ public class ConnectionConfigFactory {
 
     private int maxThreads = 0;
 
+    private int connectionSheddingThreshold = 0;
+
+    private int transferSheddingThreshold = 0;
+
     /**
      * Create a connection configuration instances based on the configuration on this factory
      * @return The {@link ConnectionConfig} instance
@@ -48,7 +52,8 @@ public class ConnectionConfigFactory {
     public ConnectionConfig createConnectionConfig() {
         return new DefaultConnectionConfig(anonymousLoginEnabled,
                 loginFailureDelay, maxLogins, maxAnonymousLogins,
-                maxLoginFailures, maxThreads);
+                maxLoginFailures, maxThreads, connectionSheddingThreshold,
+                transferSheddingThreshold);
     }
 
     /**
@@ -159,4 +164,49 @@ public class ConnectionConfigFactory {
         this.loginFailureDelay = loginFailureDelay;
     }
 
+    /**
+     * Returns the number of milliseconds a session with no command running
+     * may wait for a free worker of the command executor before new connections are refused.
+     * 
+     * @return the connection shedding threshold in milliseconds
+     */
+    public int getConnectionSheddingThreshold() {
+        return connectionSheddingThreshold;
+    }
+
+    /**
+     * Sets the number of milliseconds a session with no command running may
+     * wait for a free worker of the command executor before new connections
+     * are refused with a 421 reply. Set to 0 to disable connection shedding.
+     * 
+     * @param connectionSheddingThreshold
+     *            the connection shedding threshold in milliseconds
+     */
+    public void setConnectionSheddingThreshold(
+            final int connectionSheddingThreshold) {
+        this.connectionSheddingThreshold = connectionSheddingThreshold;
+    }
+
+    /**
+     * Returns the number of milliseconds a session with no command running
+     * may wait for a free worker of the command executor before new data transfer commands are refused.
+     * 
+     * @return the transfer shedding threshold in milliseconds
+     */
+    public int getTransferSheddingThreshold() {
+        return transferSheddingThreshold;
+    }
+
+    /**
+     * Sets the number of milliseconds a session with no command running may
+     * wait for a free worker of the command executor before new data transfer
+     * commands are refused. Set to 0 to disable transfer shedding.
+     * 
+     * @param transferSheddingThreshold
+     *            the transfer shedding threshold in milliseconds
+     */
+    public void setTransferSheddingThreshold(
+            final int transferSheddingThreshold) {
+        this.transferSheddingThreshold = transferSheddingThreshold;
+    }
 }
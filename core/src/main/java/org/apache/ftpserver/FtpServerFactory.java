@@ -226,4 +226,22 @@ public class FtpServerFactory {
     public void setConnectionConfig(final ConnectionConfig connectionConfig) {
         serverContext.setConnectionConfig(connectionConfig);
     }
+
+    /**
+     * Retrieve the directory listing configuration of this server
+     * 
+     * @return The {@link ListingConfig}
+     */
+    public ListingConfig getListingConfig() {
+        return serverContext.getListingConfig();
+    }
+
+    /**
+     * Set the directory listing configuration to be used with this server
+     * @param listingConfig The {@link ListingConfig} to be used
+     *  by servers created by this factory
+     */
+    public void setListingConfig(final ListingConfig listingConfig) {
+        serverContext.setListingConfig(listingConfig);
+    }
 }
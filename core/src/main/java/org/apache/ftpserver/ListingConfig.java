@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver;
+
+/**
+ * Interface for providing the configuration of directory listings.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ListingConfig {
+
+    /**
+     * The order in which directory listings are sent to the client
+     * @return The listing order
+     */
+    ListingOrder getOrder();
+
+    /**
+     * The maximum number of directory levels below the listed directory
+     * which recursive listings (LIST -R, STAT -R) descend into
+     * @return The maximum depth, 0 if recursive listings are disabled
+     */
+    int getMaxRecursionDepth();
+
+    /**
+     * The maximum number of entries sent by a recursive listing
+     * @return The maximum number of entries, 0 if unlimited
+     */
+    int getMaxRecursiveEntries();
+
+    /**
+     * The maximum time a recursive listing may take, in milliseconds
+     * @return The timeout, 0 if unlimited
+     */
+    int getRecursiveListingTimeout();
+
+    /**
+     * The number of threads shared by all sessions for walking the
+     * directories of recursive listings
+     * @return The number of threads
+     */
+    int getRecursiveListingThreads();
+
+    /**
+     * The number of entries above which a directory is listed without holding
+     * all its entries in memory
+     * @return The threshold, 0 if large directories are listed as any other
+     */
+    int getLargeDirectoryThreshold();
+
+    /**
+     * Whether a directory can be downloaded as a tar or zip archive, by
+     * retrieving its name followed by <code>.tar</code> or <code>.zip</code>
+     * @return true if archive downloads are enabled
+     */
+    boolean isArchiveDownloadEnabled();
+
+    /**
+     * The number of small files read in parallel ahead of the one being sent
+     * by archive downloads
+     * @return The number of files, 0 if the files are read one by one
+     */
+    int getArchiveReadAhead();
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver;
+
+import org.apache.ftpserver.impl.DefaultListingConfig;
+
+/**
+ * Factory for creating listing configurations
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ListingConfigFactory {
+
+    private ListingOrder order = ListingOrder.DIRECTORIES_FIRST;
+
+    private int maxRecursionDepth = 16;
+
+    private int maxRecursiveEntries = 100000;
+
+    private int recursiveListingTimeout = 60000;
+
+    private int recursiveListingThreads = 4;
+
+    private int largeDirectoryThreshold = 0;
+
+    private boolean archiveDownloadEnabled = false;
+
+    private int archiveReadAhead = 4;
+
+    /**
+     * Create a listing configuration instance based on the configuration on this factory
+     * @return The {@link ListingConfig} instance
+     */
+    public ListingConfig createListingConfig() {
+        return new DefaultListingConfig(order, maxRecursionDepth,
+                maxRecursiveEntries, recursiveListingTimeout,
+                recursiveListingThreads, largeDirectoryThreshold,
+                archiveDownloadEnabled, archiveReadAhead);
+    }
+
+    /**
+     * The order in which directory listings are sent to the client
+     * @return The listing order
+     */
+    public ListingOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Set the order in which directory listings are sent to the client.
+     * Defaults to {@link ListingOrder#DIRECTORIES_FIRST}.
+     * @param order The listing order
+     */
+    public void setOrder(final ListingOrder order) {
+        if (order == null) {
+            throw new IllegalArgumentException("order can not be null");
+        }
+        this.order = order;
+    }
+
+    /**
+     * The maximum number of directory levels below the listed directory which
+     * recursive listings descend into
+     * @return The maximum depth
+     */
+    public int getMaxRecursionDepth() {
+        return maxRecursionDepth;
+    }
+
+    /**
+     * Set the maximum number of directory levels below the listed directory
+     * which recursive listings (LIST -R, STAT -R) descend into. 0 disables
+     * recursive listings, the -R option is then ignored. Defaults to 16.
+     * @param maxRecursionDepth The maximum depth
+     */
+    public void setMaxRecursionDepth(final int maxRecursionDepth) {
+        if (maxRecursionDepth < 0) {
+            throw new IllegalArgumentException(
+                    "maxRecursionDepth can not be negative");
+        }
+        this.maxRecursionDepth = maxRecursionDepth;
+    }
+
+    /**
+     * The maximum number of entries sent by a recursive listing
+     * @return The maximum number of entries
+     */
+    public int getMaxRecursiveEntries() {
+        return maxRecursiveEntries;
+    }
+
+    /**
+     * Set the maximum number of entries sent by a recursive listing, the
+     * listing is cut short when it is reached. 0 means unlimited. Defaults
+     * to 100000.
+     * @param maxRecursiveEntries The maximum number of entries
+     */
+    public void setMaxRecursiveEntries(final int maxRecursiveEntries) {
+        if (maxRecursiveEntries < 0) {
+            throw new IllegalArgumentException(
+                    "maxRecursiveEntries can not be negative");
+        }
+        this.maxRecursiveEntries = maxRecursiveEntries;
+    }
+
+    /**
+     * The maximum time a recursive listing may take, in milliseconds
+     * @return The timeout
+     */
+    public int getRecursiveListingTimeout() {
+        return recursiveListingTimeout;
+    }
+
+    /**
+     * Set the maximum time a recursive listing may take, in milliseconds, the
+     * listing is cut short when it is reached. 0 means unlimited. Defaults to
+     * 60000.
+     * @param recursiveListingTimeout The timeout
+     */
+    public void setRecursiveListingTimeout(final int recursiveListingTimeout) {
+        if (recursiveListingTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "recursiveListingTimeout can not be negative");
+        }
+        this.recursiveListingTimeout = recursiveListingTimeout;
+    }
+
+    /**
+     * The number of threads walking the directories of recursive listings
+     * @return The number of threads
+     */
+    public int getRecursiveListingThreads() {
+        return recursiveListingThreads;
+    }
+
+    /**
+     * Set the number of threads, shared by all sessions, walking the
+     * directories of recursive listings. Defaults to 4.
+     * @param recursiveListingThreads The number of threads
+     */
+    public void setRecursiveListingThreads(final int recursiveListingThreads) {
+        if (recursiveListingThreads < 1) {
+            throw new IllegalArgumentException(
+                    "recursiveListingThreads must be positive");
+        }
+        this.recursiveListingThreads = recursiveListingThreads;
+    }
+
+    /**
+     * The number of entries above which a directory is listed without holding
+     * all its entries in memory
+     * @return The threshold
+     */
+    public int getLargeDirectoryThreshold() {
+        return largeDirectoryThreshold;
+    }
+
+    /**
+     * Set the number of entries above which a directory is listed without
+     * holding all its entries in memory. When set, directories are read
+     * lazily. Listings in {@link ListingOrder#NONE} order are then written as
+     * the directory is read, in other orders they are sorted by name, in
+     * memory up to the threshold and by merging sorted runs of that many
+     * entries written to temporary files above it. 0, the default, lists all
+     * directories in memory.
+     * @param largeDirectoryThreshold The threshold
+     */
+    public void setLargeDirectoryThreshold(final int largeDirectoryThreshold) {
+        if (largeDirectoryThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "largeDirectoryThreshold can not be negative");
+        }
+        this.largeDirectoryThreshold = largeDirectoryThreshold;
+    }
+
+    /**
+     * Whether a directory can be downloaded as an archive
+     * @return true if archive downloads are enabled
+     */
+    public boolean isArchiveDownloadEnabled() {
+        return archiveDownloadEnabled;
+    }
+
+    /**
+     * Set whether a directory can be downloaded as an archive. When enabled,
+     * retrieving a file which does not exist, named after a directory
+     * followed by <code>.tar</code> or <code>.zip</code>, sends the content
+     * of the directory as a tar or zip archive built while it is sent. The
+     * archive descends at most {@link #getMaxRecursionDepth()} levels below
+     * the directory. Defaults to false.
+     * @param archiveDownloadEnabled true to enable archive downloads
+     */
+    public void setArchiveDownloadEnabled(final boolean archiveDownloadEnabled) {
+        this.archiveDownloadEnabled = archiveDownloadEnabled;
+    }
+
+    /**
+     * The number of small files read ahead by archive downloads
+     * @return The number of files
+     */
+    public int getArchiveReadAhead() {
+        return archiveReadAhead;
+    }
+
+    /**
+     * Set the number of small files read in parallel, on the threads of
+     * recursive listings, ahead of the one being sent by archive downloads.
+     * Larger files are read while they are sent. 0 reads the files one by
+     * one. Defaults to 4.
+     * @param archiveReadAhead The number of files
+     */
+    public void setArchiveReadAhead(final int archiveReadAhead) {
+        if (archiveReadAhead < 0) {
+            throw new IllegalArgumentException(
+                    "archiveReadAhead can not be negative");
+        }
+        this.archiveReadAhead = archiveReadAhead;
+    }
+}
@@ -61,9 +61,12 @@ import org.apache.ftpserver.command.impl.RMD;
 import org.apache.ftpserver.command.impl.RNFR;
 import org.apache.ftpserver.command.impl.RNTO;
 import org.apache.ftpserver.command.impl.SITE;
+import org.apache.ftpserver.command.impl.SITE_CPFR;
+import org.apache.ftpserver.command.impl.SITE_CPTO;
 import org.apache.ftpserver.command.impl.SITE_DESCUSER;
 import org.apache.ftpserver.command.impl.SITE_HELP;
 import org.apache.ftpserver.command.impl.SITE_STAT;
+import org.apache.ftpserver.command.impl.SITE_UNTAR;
 import org.apache.ftpserver.command.impl.SITE_WHO;
 import org.apache.ftpserver.command.impl.SITE_ZONE;
 import org.apache.ftpserver.command.impl.SIZE;
@@ -125,9 +128,12 @@ public class CommandFactoryFactory {
         DEFAULT_COMMAND_MAP.put("RNTO", new RNTO());
         DEFAULT_COMMAND_MAP.put("SITE", new SITE());
         DEFAULT_COMMAND_MAP.put("SIZE", new SIZE());
+        DEFAULT_COMMAND_MAP.put("SITE_CPFR", new SITE_CPFR());
+        DEFAULT_COMMAND_MAP.put("SITE_CPTO", new SITE_CPTO());
         DEFAULT_COMMAND_MAP.put("SITE_DESCUSER", new SITE_DESCUSER());
         DEFAULT_COMMAND_MAP.put("SITE_HELP", new SITE_HELP());
         DEFAULT_COMMAND_MAP.put("SITE_STAT", new SITE_STAT());
+        DEFAULT_COMMAND_MAP.put("SITE_UNTAR", new SITE_UNTAR());
         DEFAULT_COMMAND_MAP.put("SITE_WHO", new SITE_WHO());
         DEFAULT_COMMAND_MAP.put("SITE_ZONE", new SITE_ZONE());
 
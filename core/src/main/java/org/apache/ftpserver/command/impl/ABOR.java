@@ -55,7 +55,7 @@ public class ABOR extends AbstractCommand {
         session.resetState();
 
         // and abort any data connection
-        session.getDataConnection().closeDataConnection();
+        session.getDataConnection().dispose();
         session.write(LocalizedFtpReply.translate(session, request, context,
                 FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "ABOR", null));
     }
@@ -23,10 +23,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.SocketException;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
+import org.apache.ftpserver.ftplet.DataType;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
@@ -37,6 +40,7 @@ import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
@@ -148,6 +152,7 @@ public class APPE extends AbstractCommand {
             // get data from client
             boolean failure = false;
             OutputStream os = null;
+            WritableByteChannel channel = null;
             long transSz = 0L;
             try {
 
@@ -157,16 +162,31 @@ public class APPE extends AbstractCommand {
                     offset = file.getSize();
                 }
 
-                // open streams
-                os = file.createOutputStream(offset);
-
-                // transfer data
-                transSz = dataConnection.transferFromClient(session.getFtpletSession(), os);
+                // write through a channel if the file system supports it
+                if (session.getDataType() == DataType.BINARY
+                        && dataConnection instanceof ServerDataConnection) {
+                    channel = file.openWritableChannel(offset);
+                }
 
-                // attempt to close the output stream so that errors in 
-                // closing it will return an error to the client (FTPSERVER-119) 
-                if(os != null) {
-                    os.close();
+                if (channel != null) {
+                    transSz = ((ServerDataConnection) dataConnection)
+                            .transferFromClient(session.getFtpletSession(), channel);
+
+                    // attempt to close the channel so that errors in closing it
+                    // will return an error to the client (FTPSERVER-119)
+                    channel.close();
+                } else {
+                    // open streams
+                    os = file.createOutputStream(offset);
+
+                    // transfer data
+                    transSz = dataConnection.transferFromClient(session.getFtpletSession(), os);
+
+                    // attempt to close the output stream so that errors in 
+                    // closing it will return an error to the client (FTPSERVER-119) 
+                    if(os != null) {
+                        os.close();
+                    }
                 }
 
                 LOG.info("File uploaded {}", fileName);
@@ -182,6 +202,12 @@ public class APPE extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "APPE", fileName, file));
+            } catch (QuotaExceededException e) {
+                LOG.debug("Quota exceeded during file upload", e);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "APPE", fileName, file));
             } catch (IOException e) {
                 LOG.debug("IOException during file upload", e);
                 failure = true;
@@ -196,12 +222,13 @@ public class APPE extends AbstractCommand {
             } finally {
                 // make sure we really close the output stream
                 IoUtils.close(os);
+                IoUtils.close(channel);
             }
 
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "APPE",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "APPE",
                         fileName, file, transSz));
             }
         } finally {
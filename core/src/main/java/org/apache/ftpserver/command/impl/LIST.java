@@ -23,12 +23,14 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.SocketException;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
+import org.apache.ftpserver.command.impl.listing.LargeDirectoryLister;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
-import org.apache.ftpserver.ftplet.DataConnection;
+import org.apache.ftpserver.command.impl.listing.RecursiveLister;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FtpException;
@@ -38,6 +40,7 @@ import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.slf4j.Logger;
@@ -61,8 +64,6 @@ public class LIST extends AbstractCommand {
 
     private final Logger LOG = LoggerFactory.getLogger(LIST.class);
 
-    private static final LISTFileFormater LIST_FILE_FORMATER = new LISTFileFormater();
-
     private final DirectoryLister directoryLister = new DirectoryLister();
 
     /**
@@ -110,7 +111,7 @@ public class LIST extends AbstractCommand {
             session.write(LocalizedFtpReply.translate(session, request, context,
                     FtpReply.REPLY_150_FILE_STATUS_OKAY, "LIST", null));
 
-            DataConnection dataConnection;
+            ServerDataConnection dataConnection;
             try {
                 dataConnection = session.getDataConnection().openConnection();
             } catch (Exception e) {
@@ -123,10 +124,18 @@ public class LIST extends AbstractCommand {
 
             // transfer listing data
             boolean failure = false;
-            String dirList = directoryLister.listFiles(parsedArg, 
-                session.getFileSystemView(), LIST_FILE_FORMATER);
+            long transferredSize = 0;
+            final ListingOrder order = context.getListingConfig().getOrder();
+            final RecursiveLister recursiveLister = RecursiveLister.getLister(
+                    parsedArg, context, false);
+            final LargeDirectoryLister largeDirectoryLister = LargeDirectoryLister
+                    .getLister(context);
             try {
-                dataConnection.transferToClient(session.getFtpletSession(), dirList);
+                transferredSize = dataConnection.transferToClient(session
+                        .getFtpletSession(), writer -> directoryLister.listFiles(
+                        parsedArg, session.getFileSystemView(),
+                        new LISTFileFormater(System.currentTimeMillis()), order,
+                        recursiveLister, largeDirectoryLister, writer));
             } catch (SocketException ex) {
                 LOG.debug("Socket exception during list transfer", ex);
                 failure = true;
@@ -160,8 +169,8 @@ public class LIST extends AbstractCommand {
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "LIST",
-                        null, file, dirList.length()));
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "LIST",
+                        null, file, transferredSize));
             }
         } finally {
             session.getDataConnection().closeDataConnection();
@@ -80,6 +80,7 @@ public class MDTM extends AbstractCommand {
         }
 
         // now print date
+        file = file.snapshot();
         fileName = file.getAbsolutePath();
         if (file.doesExist()) {
             String dateStr = DateUtils.getFtpDate(file.getLastModified());
@@ -23,13 +23,15 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.SocketException;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.FileFormater;
+import org.apache.ftpserver.command.impl.listing.LargeDirectoryLister;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.command.impl.listing.RecursiveLister;
 import org.apache.ftpserver.command.impl.listing.MLSTFileFormater;
-import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FtpException;
@@ -38,6 +40,8 @@ import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
+import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,7 +95,7 @@ public class MLSD extends AbstractCommand {
                     FtpReply.REPLY_150_FILE_STATUS_OKAY, "MLSD", null));
 
             // print listing data
-            DataConnection dataConnection;
+            ServerDataConnection dataConnection;
             try {
                 dataConnection = session.getDataConnection().openConnection();
             } catch (Exception e) {
@@ -111,8 +115,15 @@ public class MLSD extends AbstractCommand {
                 FileFormater formater = new MLSTFileFormater((String[]) session
                         .getAttribute("MLST.types"));
 
-                dataConnection.transferToClient(session.getFtpletSession(), directoryLister.listFiles(
-                        parsedArg, session.getFileSystemView(), formater));
+                final ListingOrder order = context.getListingConfig().getOrder();
+                final RecursiveLister recursiveLister = RecursiveLister.getLister(
+                        parsedArg, context, true);
+                final LargeDirectoryLister largeDirectoryLister = LargeDirectoryLister
+                        .getLister(context);
+                dataConnection.transferToClient(session.getFtpletSession(),
+                        writer -> directoryLister.listFiles(parsedArg, session
+                                .getFileSystemView(), formater, order,
+                                recursiveLister, largeDirectoryLister, writer));
             } catch (SocketException ex) {
                 LOG.debug("Socket exception during data transfer", ex);
                 failure = true;
@@ -148,7 +159,7 @@ public class MLSD extends AbstractCommand {
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "MLSD",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "MLSD",
                         null));
             }
         } finally {
@@ -67,6 +67,10 @@ public class MLST extends AbstractCommand {
         try {
             file = session.getFileSystemView().getFile(
                     parsedArg.getFile());
+            if (file != null) {
+                // the formater reads several attributes
+                file = file.snapshot();
+            }
             if (file != null && file.doesExist()) {
                 FileFormater formater = new MLSTFileFormater((String[]) session
                         .getAttribute("MLST.types"));
@@ -23,14 +23,16 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.SocketException;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.FileFormater;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
+import org.apache.ftpserver.command.impl.listing.LargeDirectoryLister;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.command.impl.listing.RecursiveLister;
 import org.apache.ftpserver.command.impl.listing.NLSTFileFormater;
-import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FtpException;
@@ -39,6 +41,8 @@ import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
+import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,8 +65,6 @@ public class NLST extends AbstractCommand {
 
     private static final NLSTFileFormater NLST_FILE_FORMATER = new NLSTFileFormater();
 
-    private static final LISTFileFormater LIST_FILE_FORMATER = new LISTFileFormater();
-
     private final DirectoryLister directoryLister = new DirectoryLister();
 
     /**
@@ -96,7 +98,7 @@ public class NLST extends AbstractCommand {
                     FtpReply.REPLY_150_FILE_STATUS_OKAY, "NLST", null));
 
             // print listing data
-            DataConnection dataConnection;
+            ServerDataConnection dataConnection;
             try {
                 dataConnection = session.getDataConnection().openConnection();
             } catch (Exception e) {
@@ -115,13 +117,21 @@ public class NLST extends AbstractCommand {
 
                 FileFormater formater;
                 if (parsedArg.hasOption('l')) {
-                    formater = LIST_FILE_FORMATER;
+                    // the same current time for the whole listing
+                    formater = new LISTFileFormater(System.currentTimeMillis());
                 } else {
                     formater = NLST_FILE_FORMATER;
                 }
 
-                dataConnection.transferToClient(session.getFtpletSession(), directoryLister.listFiles(
-                        parsedArg, session.getFileSystemView(), formater));
+                final ListingOrder order = context.getListingConfig().getOrder();
+                final RecursiveLister recursiveLister = RecursiveLister.getLister(
+                        parsedArg, context, false);
+                final LargeDirectoryLister largeDirectoryLister = LargeDirectoryLister
+                        .getLister(context);
+                dataConnection.transferToClient(session.getFtpletSession(),
+                        writer -> directoryLister.listFiles(parsedArg, session
+                                .getFileSystemView(), formater, order,
+                                recursiveLister, largeDirectoryLister, writer));
             } catch (SocketException ex) {
                 LOG.debug("Socket exception during data transfer", ex);
                 failure = true;
@@ -157,7 +167,7 @@ public class NLST extends AbstractCommand {
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "NLST",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "NLST",
                         null));
             }
         } finally {
@@ -38,6 +38,8 @@ import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
 import org.apache.ftpserver.usermanager.AnonymousAuthentication;
 import org.apache.ftpserver.usermanager.UsernamePasswordAuthentication;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginRequest;
 import org.apache.ftpserver.usermanager.impl.UserMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -192,7 +194,24 @@ public class PASS extends AbstractCommand {
                 }
 
                 
+                // user login limit check, USER already checked it but other
+                // sessions might have logged in since, the registry checks
+                // and counts the login at once
                 session.setUser(authenticatedUser);
+                if (!tryLogin(session, context, authenticatedUser)) {
+                    session.setUser(oldUser);
+                    LOG.debug("User logged in too many sessions, user will be disconnected");
+                    session
+                    .write(LocalizedFtpReply
+                            .translate(
+                                    session,
+                                    request,
+                                    context,
+                                    FtpReply.REPLY_421_SERVICE_NOT_AVAILABLE_CLOSING_CONTROL_CONNECTION,
+                                    "PASS.login", null));
+                    return;
+                }
+
                 session.setUserArgument(null);
                 session.setMaxIdleTime(authenticatedUser.getMaxIdleTime());
                 success = true;
@@ -254,6 +273,25 @@ public class PASS extends AbstractCommand {
         }
     }
 
+    private boolean tryLogin(final FtpIoSession session,
+            final FtpServerContext context, final User user) {
+        int maxLogins = 0;
+        int maxLoginsPerAddress = 0;
+        if (!user.getAuthorities(ConcurrentLoginPermission.class).isEmpty()) {
+            // request that always will succeed, to get the limits
+            ConcurrentLoginRequest loginRequest = (ConcurrentLoginRequest) user
+                    .authorize(new ConcurrentLoginRequest(0, 0));
+            if (loginRequest != null) {
+                maxLogins = loginRequest.getMaxConcurrentLogins();
+                maxLoginsPerAddress = loginRequest
+                        .getMaxConcurrentLoginsPerIP();
+            }
+        }
+
+        return context.getSessionRegistry().tryLogin(session, maxLogins,
+                maxLoginsPerAddress);
+    }
+
     private void delayAfterLoginFailure(final int loginFailureDelay) {
 
         if (loginFailureDelay > 0) {
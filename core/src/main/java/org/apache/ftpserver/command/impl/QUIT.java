@@ -56,7 +56,7 @@ public class QUIT extends AbstractCommand {
 
         LOG.debug("QUIT received, closing session");
         session.close(false).awaitUninterruptibly(10000);
-        session.getDataConnection().closeDataConnection();
+        session.getDataConnection().dispose();
     }
 
 }
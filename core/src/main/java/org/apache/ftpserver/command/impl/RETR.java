@@ -24,8 +24,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.SocketException;
+import java.nio.channels.ReadableByteChannel;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.ArchiveOutput;
+import org.apache.ftpserver.command.impl.archive.DirectoryArchiver;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DataType;
@@ -39,6 +43,7 @@ import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
@@ -53,6 +58,10 @@ import org.slf4j.LoggerFactory;
  * in the pathname, to the server- or user-DTP at the other end of the data
  * connection. The status and contents of the file at the server site shall be
  * unaffected.
+ * 
+ * When archive downloads are enabled, retrieving a file which does not exist,
+ * named after a directory followed by <code>.tar</code> or <code>.zip</code>,
+ * sends the directory as an archive built while it is sent.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -97,10 +106,23 @@ public class RETR extends AbstractCommand {
                         "RETR.missing", fileName, file));
                 return;
             }
+            // the checks below read several attributes
+            file = file.snapshot();
             fileName = file.getAbsolutePath();
 
             // check file existance
             if (!file.doesExist()) {
+                ArchiveFormat format = getArchiveFormat(context, file, skipLen);
+                FtpFile dir = null;
+                if (format != null) {
+                    dir = getArchivedDirectory(session, file, format);
+                }
+                if (dir != null) {
+                    retrieveArchive(session, context, request, dir, format,
+                            fileName);
+                    return;
+                }
+
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
                         "RETR.missing", fileName, file));
@@ -147,6 +169,7 @@ public class RETR extends AbstractCommand {
             // send file data to client
             boolean failure = false;
             InputStream is = null;
+            ReadableByteChannel channel = null;
 
             DataConnection dataConnection;
             try {
@@ -162,15 +185,30 @@ public class RETR extends AbstractCommand {
             long transSz = 0L;
             try {
 
-                // open streams
-                is = openInputStream(session, file, skipLen);
+                // read through a channel if the file system supports it
+                if (session.getDataType() == DataType.BINARY
+                        && dataConnection instanceof ServerDataConnection) {
+                    channel = file.openReadableChannel(skipLen);
+                }
+
+                if (channel != null) {
+                    transSz = ((ServerDataConnection) dataConnection)
+                            .transferToClient(session.getFtpletSession(), channel);
+
+                    // attempt to close the channel so that errors in closing it
+                    // will return an error to the client (FTPSERVER-119)
+                    channel.close();
+                } else {
+                    // open streams
+                    is = openInputStream(session, file, skipLen);
 
-                // transfer data
-                transSz = dataConnection.transferToClient(session.getFtpletSession(), is);
-                // attempt to close the input stream so that errors in 
-                // closing it will return an error to the client (FTPSERVER-119) 
-                if(is != null) {
-                    is.close();
+                    // transfer data
+                    transSz = dataConnection.transferToClient(session.getFtpletSession(), is);
+                    // attempt to close the input stream so that errors in 
+                    // closing it will return an error to the client (FTPSERVER-119) 
+                    if(is != null) {
+                        is.close();
+                    }
                 }
 
                 LOG.info("File downloaded {}", fileName);
@@ -202,12 +240,13 @@ public class RETR extends AbstractCommand {
             } finally {
                 // make sure we really close the input stream
                 IoUtils.close(is);
+                IoUtils.close(channel);
             }
 
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "RETR",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "RETR",
                         fileName, file, transSz));
 
             }
@@ -217,6 +256,114 @@ public class RETR extends AbstractCommand {
         }
     }
 
+    /**
+     * Get the format of the archive a missing file names, if archive
+     * downloads are enabled
+     */
+    private ArchiveFormat getArchiveFormat(final FtpServerContext context,
+            final FtpFile file, final long skipLen) {
+        if (skipLen != 0 || context.getListingConfig() == null
+                || !context.getListingConfig().isArchiveDownloadEnabled()) {
+            return null;
+        }
+        return ArchiveFormat.forFileName(file.getName());
+    }
+
+    /**
+     * Get the readable directory named by an archive name
+     */
+    private FtpFile getArchivedDirectory(final FtpIoSession session,
+            final FtpFile file, final ArchiveFormat format) {
+        String path = file.getAbsolutePath();
+        path = path.substring(0, path.length() - format.getExtension().length());
+        FtpFile dir = null;
+        try {
+            dir = session.getFileSystemView().getFile(path);
+        } catch (Exception ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+        if (dir == null || !dir.isDirectory() || !dir.isReadable()) {
+            return null;
+        }
+        return dir;
+    }
+
+    /**
+     * Send a directory as an archive, written to the data connection while
+     * the directory is walked
+     */
+    private void retrieveArchive(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request,
+            final FtpFile dir, final ArchiveFormat format,
+            final String fileName) throws IOException, FtpException {
+
+        DataConnectionFactory connFactory = session.getDataConnection();
+        if (connFactory instanceof IODataConnectionFactory) {
+            InetAddress address = ((IODataConnectionFactory) connFactory)
+                    .getInetAddress();
+            if (address == null) {
+                session.write(new DefaultFtpReply(
+                        FtpReply.REPLY_503_BAD_SEQUENCE_OF_COMMANDS,
+                        "PORT or PASV must be issued first"));
+                return;
+            }
+        }
+
+        // get data connection
+        session.write(LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_150_FILE_STATUS_OKAY, "RETR", null));
+
+        DataConnection dataConnection;
+        try {
+            dataConnection = session.getDataConnection().openConnection();
+        } catch (Exception e) {
+            LOG.debug("Exception getting the output data stream", e);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_425_CANT_OPEN_DATA_CONNECTION, "RETR",
+                    null, dir));
+            return;
+        }
+
+        long transSz = 0L;
+        try {
+            if (!(dataConnection instanceof ServerDataConnection)) {
+                throw new IOException("Archives can not be sent over "
+                        + dataConnection.getClass().getName());
+            }
+            final DirectoryArchiver archiver = DirectoryArchiver.create(context);
+            transSz = ((ServerDataConnection) dataConnection).writeToClient(
+                    session.getFtpletSession(), out -> {
+                        ArchiveOutput archive = format.createOutput(out);
+                        archiver.write(dir, archive);
+                    });
+
+            LOG.info("Directory downloaded as archive {}", fileName);
+
+            // notify the statistics component
+            ServerFtpStatistics ftpStat = (ServerFtpStatistics) context
+                    .getFtpStatistics();
+            if (ftpStat != null) {
+                ftpStat.setDownload(session, dir, transSz);
+            }
+        } catch (SocketException ex) {
+            LOG.debug("Socket exception during data transfer", ex);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
+                    "RETR", fileName, dir, transSz));
+            return;
+        } catch (IOException ex) {
+            LOG.debug("IOException during data transfer", ex);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_551_REQUESTED_ACTION_ABORTED_PAGE_TYPE_UNKNOWN,
+                    "RETR", fileName, dir, transSz));
+            return;
+        }
+
+        session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "RETR",
+                fileName, dir, transSz));
+    }
+
     /**
      * Skip length and open input stream.
      */
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFileActionFtpReply;
+import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.util.IoUtils;
+import org.apache.ftpserver.util.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE CPTO &lt;SP&gt; &lt;pathname&gt; &lt;CRLF&gt;</code><br>
+ * 
+ * This command specifies the pathname of the copy of the file given with
+ * the previous <code>SITE CPFR</code> command, and copies the file on the
+ * server, so that the client does not download and upload it again. An
+ * existing file is replaced, as with STOR.
+ * 
+ * When both files are backed by file channels, the data is copied with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets
+ * the kernel copy it without going through the server. Otherwise it is
+ * copied through streams.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_CPTO extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(SITE_CPTO.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+        try {
+
+            // argument check
+            String argument = request.getArgument();
+            int spIndex = argument.indexOf(' ');
+            if (spIndex == -1) {
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "SITE.CPTO", null, null));
+                return;
+            }
+            String fileName = argument.substring(spIndex + 1);
+
+            // get the "copy from" file object
+            FtpFile frFile = session.getCopyFrom();
+            if (frFile == null) {
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_503_BAD_SEQUENCE_OF_COMMANDS,
+                        "SITE.CPTO", null, null));
+                return;
+            }
+
+            // get target file
+            FtpFile toFile = null;
+            try {
+                toFile = session.getFileSystemView().getFile(fileName);
+            } catch (Exception ex) {
+                LOG.debug("Exception getting file object", ex);
+            }
+            if (toFile == null || toFile.isDirectory()
+                    || isSameFile(frFile, toFile)) {
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_553_REQUESTED_ACTION_NOT_TAKEN_FILE_NAME_NOT_ALLOWED,
+                        "SITE.CPTO.invalid", fileName, toFile));
+                return;
+            }
+            fileName = toFile.getAbsolutePath();
+
+            // check permission, as for STOR
+            if (!toFile.isWritable()) {
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_553_REQUESTED_ACTION_NOT_TAKEN_FILE_NAME_NOT_ALLOWED,
+                        "SITE.CPTO.permission", fileName, toFile));
+                return;
+            }
+
+            // check file existence
+            if (!frFile.isFile()) {
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_553_REQUESTED_ACTION_NOT_TAKEN_FILE_NAME_NOT_ALLOWED,
+                        "SITE.CPTO.missing", fileName, toFile));
+                return;
+            }
+
+            // now copy
+            long size;
+            try {
+                size = copy(frFile, toFile);
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded during file copy", ex);
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "SITE.CPTO", fileName, toFile));
+                return;
+            } catch (IOException ex) {
+                LOG.debug("IOException during file copy", ex);
+                session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_451_REQUESTED_ACTION_ABORTED,
+                        "SITE.CPTO", fileName, toFile));
+                return;
+            }
+
+            LOG.info("File copy from \"{}\" to \"{}\"", frFile.getAbsolutePath(),
+                    fileName);
+
+            // notify the statistics component, the copy is stored as an upload
+            ServerFtpStatistics ftpStat = (ServerFtpStatistics) context
+                    .getFtpStatistics();
+            ftpStat.setUpload(session, toFile, size);
+
+            session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY,
+                    "SITE.CPTO", fileName, toFile));
+        } finally {
+            session.resetState();
+        }
+    }
+
+    private boolean isSameFile(final FtpFile file1, final FtpFile file2) {
+        Path path1 = PathUtils.getPhysicalPath(file1);
+        Path path2 = PathUtils.getPhysicalPath(file2);
+        if (path1 != null && path2 != null) {
+            return path1.equals(path2);
+        }
+        return file1.getAbsolutePath().equals(file2.getAbsolutePath());
+    }
+
+    /**
+     * Copy a file, through file channels if both files have one
+     * 
+     * @return The number of bytes copied
+     */
+    private long copy(final FtpFile source, final FtpFile target)
+            throws IOException {
+        ReadableByteChannel in = source.openReadableChannel(0);
+        if (in instanceof FileChannel) {
+            WritableByteChannel out = null;
+            try {
+                out = target.openWritableChannel(0);
+                if (out != null) {
+                    long size = transfer((FileChannel) in, out);
+
+                    // close here so that errors in closing are reported
+                    out.close();
+                    return size;
+                }
+            } finally {
+                IoUtils.close(out);
+                IoUtils.close(in);
+            }
+        } else {
+            IoUtils.close(in);
+        }
+
+        InputStream is = null;
+        OutputStream os = null;
+        try {
+            is = source.createInputStream(0);
+            os = target.createOutputStream(0);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                os.write(buffer, 0, count);
+                size += count;
+            }
+            os.close();
+            return size;
+        } finally {
+            IoUtils.close(is);
+            IoUtils.close(os);
+        }
+    }
+
+    private long transfer(final FileChannel in, final WritableByteChannel out)
+            throws IOException {
+        long size = in.size();
+        long position = 0;
+        while (position < size) {
+            long count = in.transferTo(position, size - position, out);
+            if (count <= 0) {
+                // the file was truncated while copying it
+                break;
+            }
+            position += count;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFileActionFtpReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE UNTAR &lt;SP&gt; &lt;pathname&gt; &lt;CRLF&gt;</code><br>
+ * 
+ * This command specifies the directory the data of the next
+ * <code>STOR</code> is extracted into, as a tar or zip archive, instead of
+ * being stored as a file. The pathname of the <code>STOR</code> is then
+ * ignored. The directory stays selected over <code>PASV</code> and
+ * <code>PORT</code>, until that <code>STOR</code> or a <code>REIN</code>.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_UNTAR extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(SITE_UNTAR.class);
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state variables
+        session.resetState();
+        session.setExtractTo(null);
+
+        // argument check
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        if (spIndex == -1) {
+            session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "SITE.UNTAR", null, null));
+            return;
+        }
+        String dirName = argument.substring(spIndex + 1);
+
+        // get directory
+        FtpFile dir = null;
+        try {
+            dir = session.getFileSystemView().getFile(dirName);
+        } catch (Exception ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+        if (dir == null || !dir.isDirectory()) {
+            session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.UNTAR.missing", dirName, dir));
+            return;
+        }
+        dirName = dir.getAbsolutePath();
+
+        // check permission
+        if (!dir.isWritable()) {
+            session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.UNTAR.permission", dirName, dir));
+            return;
+        }
+
+        session.setExtractTo(dir);
+        session.write(LocalizedFileActionFtpReply.translate(session, request, context,
+                FtpReply.REPLY_200_COMMAND_OKAY, "SITE.UNTAR", dirName, dir));
+    }
+}
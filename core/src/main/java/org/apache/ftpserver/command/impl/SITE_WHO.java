@@ -21,8 +21,7 @@ package org.apache.ftpserver.command.impl;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Collection;
 
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
@@ -36,7 +35,6 @@ import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.util.DateUtils;
 import org.apache.ftpserver.util.StringUtils;
-import org.apache.mina.core.session.IoSession;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
@@ -69,16 +67,11 @@ public class SITE_WHO extends AbstractCommand {
         // print all the connected user information
         StringBuilder sb = new StringBuilder();
 
-        Map<Long, IoSession> sessions = session.getService()
-                .getManagedSessions();
+        Collection<FtpIoSession> sessions = context.getSessionRegistry()
+                .getSessions(session.getListener());
 
         sb.append('\n');
-        Iterator<IoSession> sessionIterator = sessions.values().iterator();
-
-        while (sessionIterator.hasNext()) {
-            FtpIoSession managedSession = new FtpIoSession(sessionIterator
-                    .next(), context);
-
+        for (FtpIoSession managedSession : sessions) {
             if (!managedSession.isLoggedIn()) {
                 continue;
             }
@@ -79,6 +79,7 @@ public class SIZE extends AbstractCommand {
         }
 
         // print file size
+        file = file.snapshot();
         fileName = file.getAbsolutePath();
         if (!file.doesExist()) {
             session.write(LocalizedFtpReply.translate(session, request, context,
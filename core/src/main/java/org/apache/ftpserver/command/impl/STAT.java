@@ -20,12 +20,15 @@
 package org.apache.ftpserver.command.impl;
 
 import java.io.IOException;
+import java.io.StringWriter;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.command.impl.listing.RecursiveLister;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpReply;
@@ -48,8 +51,6 @@ import org.apache.ftpserver.impl.LocalizedFtpReply;
  */
 public class STAT extends AbstractCommand {
 
-    private static final LISTFileFormater LIST_FILE_FORMATER = new LISTFileFormater();
-
     private final DirectoryLister directoryLister = new DirectoryLister();
     
     /**
@@ -76,8 +77,13 @@ public class STAT extends AbstractCommand {
                     return;
                 }
                 
-                String dirList = directoryLister.listFiles(parsedArg, 
-                        session.getFileSystemView(), LIST_FILE_FORMATER);
+                StringWriter writer = new StringWriter();
+                directoryLister.listFiles(parsedArg,
+                        session.getFileSystemView(),
+                        new LISTFileFormater(System.currentTimeMillis()),
+                        ListingOrder.DIRECTORIES_FIRST, RecursiveLister
+                                .getLister(parsedArg, context, false), writer);
+                String dirList = writer.toString();
 
                 int replyCode;
                 if(file.isDirectory()) {
@@ -23,10 +23,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.SocketException;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.DirectoryExtractor;
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
+import org.apache.ftpserver.ftplet.DataType;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
@@ -37,6 +42,7 @@ import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
@@ -52,6 +58,9 @@ import org.slf4j.LoggerFactory;
  * file specified in the pathname exists at the server site, then its contents
  * shall be replaced by the data being transferred. A new file is created at the
  * server site if the file specified in the pathname does not already exist.
+ * 
+ * After a <code>SITE UNTAR</code>, the data is extracted as an archive into
+ * the directory it selected instead, while it is received.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -71,6 +80,10 @@ public class STOR extends AbstractCommand {
             // get state variable
             long skipLen = session.getFileOffset();
 
+            // the directory selected by SITE UNTAR is only used by this STOR
+            FtpFile extractTo = session.getExtractTo();
+            session.setExtractTo(null);
+
             // argument check
             String fileName = request.getArgument();
             if (fileName == null) {
@@ -99,6 +112,12 @@ public class STOR extends AbstractCommand {
                 }
             }
 
+            // extract into the directory selected by SITE UNTAR
+            if (extractTo != null) {
+                storeArchive(session, context, request, extractTo);
+                return;
+            }
+
             // get filename
             FtpFile file = null;
             try {
@@ -142,15 +161,31 @@ public class STOR extends AbstractCommand {
             // transfer data
             boolean failure = false;
             OutputStream outStream = null;
+            WritableByteChannel channel = null;
             long transSz = 0L;
             try {
-                outStream = file.createOutputStream(skipLen);
-                transSz = dataConnection.transferFromClient(session.getFtpletSession(), outStream);
+                // write through a channel if the file system supports it
+                if (session.getDataType() == DataType.BINARY
+                        && dataConnection instanceof ServerDataConnection) {
+                    channel = file.openWritableChannel(skipLen);
+                }
+
+                if (channel != null) {
+                    transSz = ((ServerDataConnection) dataConnection)
+                            .transferFromClient(session.getFtpletSession(), channel);
 
-                // attempt to close the output stream so that errors in 
-                // closing it will return an error to the client (FTPSERVER-119) 
-                if(outStream != null) {
-                    outStream.close();
+                    // attempt to close the channel so that errors in closing it
+                    // will return an error to the client (FTPSERVER-119)
+                    channel.close();
+                } else {
+                    outStream = file.createOutputStream(skipLen);
+                    transSz = dataConnection.transferFromClient(session.getFtpletSession(), outStream);
+
+                    // attempt to close the output stream so that errors in 
+                    // closing it will return an error to the client (FTPSERVER-119) 
+                    if(outStream != null) {
+                        outStream.close();
+                    }
                 }
 
                 LOG.info("File uploaded {}", fileName);
@@ -166,6 +201,12 @@ public class STOR extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "STOR", fileName, file));
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded during file upload", ex);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "STOR", fileName, file));
             } catch (IOException ex) {
                 LOG.debug("IOException during data transfer", ex);
                 failure = true;
@@ -180,12 +221,13 @@ public class STOR extends AbstractCommand {
             } finally {
                 // make sure we really close the output stream
                 IoUtils.close(outStream);
+                IoUtils.close(channel);
             }
 
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "STOR",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "STOR",
                         fileName, file, transSz));
 
             }
@@ -194,4 +236,73 @@ public class STOR extends AbstractCommand {
             session.getDataConnection().closeDataConnection();
         }
     }
+
+    /**
+     * Extract an archive into a directory, while it is read from the data
+     * connection
+     */
+    private void storeArchive(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request,
+            final FtpFile dir) throws IOException, FtpException {
+        String dirName = dir.getAbsolutePath();
+
+        // get data connection
+        session.write(
+                LocalizedFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_150_FILE_STATUS_OKAY, "STOR",
+                        dirName)).awaitUninterruptibly(10000);
+
+        DataConnection dataConnection;
+        try {
+            dataConnection = session.getDataConnection().openConnection();
+        } catch (Exception e) {
+            LOG.debug("Exception getting the input data stream", e);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_425_CANT_OPEN_DATA_CONNECTION, "STOR",
+                    dirName, dir));
+            return;
+        }
+
+        long transSz = 0L;
+        try {
+            if (!(dataConnection instanceof ServerDataConnection)) {
+                throw new IOException("Archives can not be received over "
+                        + dataConnection.getClass().getName());
+            }
+            ServerFtpStatistics ftpStat = (ServerFtpStatistics) context
+                    .getFtpStatistics();
+            final DirectoryExtractor extractor = new DirectoryExtractor(
+                    session, ftpStat, dir);
+            transSz = ((ServerDataConnection) dataConnection).readFromClient(
+                    session.getFtpletSession(),
+                    in -> extractor.extract(ArchiveFormat.openInput(in)));
+
+            LOG.info("Archive extracted into {} : {} files, {} directories, {} entries skipped",
+                    new Object[] { dirName, extractor.getFileCount(),
+                            extractor.getDirectoryCount(),
+                            extractor.getSkippedCount() });
+        } catch (SocketException ex) {
+            LOG.debug("Socket exception during data transfer", ex);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
+                    "STOR", dirName, dir));
+            return;
+        } catch (QuotaExceededException ex) {
+            LOG.debug("Quota exceeded during archive extraction", ex);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                    "STOR", dirName, dir));
+            return;
+        } catch (IOException ex) {
+            LOG.debug("IOException during archive extraction", ex);
+            session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_551_REQUESTED_ACTION_ABORTED_PAGE_TYPE_UNKNOWN,
+                    "STOR", dirName, dir));
+            return;
+        }
+
+        session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "STOR.extract",
+                dirName, dir, transSz));
+    }
 }
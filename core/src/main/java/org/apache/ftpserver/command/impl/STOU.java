@@ -23,10 +23,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.SocketException;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
+import org.apache.ftpserver.ftplet.DataType;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
 import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpException;
@@ -37,6 +40,7 @@ import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
+import org.apache.ftpserver.impl.ServerDataConnection;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
@@ -132,6 +136,7 @@ public class STOU extends AbstractCommand {
             // get data from client
             boolean failure = false;
             OutputStream os = null;
+            WritableByteChannel channel = null;
 
             DataConnection dataConnection;
             try {
@@ -147,16 +152,31 @@ public class STOU extends AbstractCommand {
             long transSz = 0L;
             try {
 
-                // open streams
-                os = file.createOutputStream(0L);
+                // write through a channel if the file system supports it
+                if (session.getDataType() == DataType.BINARY
+                        && dataConnection instanceof ServerDataConnection) {
+                    channel = file.openWritableChannel(0L);
+                }
+
+                if (channel != null) {
+                    transSz = ((ServerDataConnection) dataConnection)
+                            .transferFromClient(session.getFtpletSession(), channel);
+
+                    // attempt to close the channel so that errors in closing it
+                    // will return an error to the client (FTPSERVER-119)
+                    channel.close();
+                } else {
+                    // open streams
+                    os = file.createOutputStream(0L);
 
-                // transfer data
-                transSz = dataConnection.transferFromClient(session.getFtpletSession(), os);
+                    // transfer data
+                    transSz = dataConnection.transferFromClient(session.getFtpletSession(), os);
 
-                // attempt to close the output stream so that errors in 
-                // closing it will return an error to the client (FTPSERVER-119) 
-                if(os != null) {
-                    os.close();
+                    // attempt to close the output stream so that errors in 
+                    // closing it will return an error to the client (FTPSERVER-119) 
+                    if(os != null) {
+                        os.close();
+                    }
                 }
 
                 LOG.info("File uploaded {}", fileName);
@@ -174,6 +194,12 @@ public class STOU extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "STOU", fileName, file));
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded during file upload", ex);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "STOU", fileName, file));
             } catch (IOException ex) {
                 LOG.debug("IOException during data transfer", ex);
                 failure = true;
@@ -188,12 +214,13 @@ public class STOU extends AbstractCommand {
             } finally {
                 // make sure we really close the output stream
                 IoUtils.close(os);
+                IoUtils.close(channel);
             }
 
             // if data transfer ok - send transfer complete message
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "STOU",
+                        LocalizedDataTransferFtpReply.getTransferCompleteCode(session), "STOU",
                         fileName, file, transSz));
 
             }
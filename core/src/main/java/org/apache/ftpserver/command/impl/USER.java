@@ -32,6 +32,7 @@ import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.impl.SessionRegistry;
 import org.apache.ftpserver.usermanager.impl.ConcurrentLoginRequest;
 import org.apache.mina.filter.logging.MdcInjectionFilter;
 import org.slf4j.Logger;
@@ -168,9 +169,10 @@ public class USER extends AbstractCommand {
                             .getAddress();
                 }
 
+                SessionRegistry registry = context.getSessionRegistry();
                 ConcurrentLoginRequest loginRequest = new ConcurrentLoginRequest(
-                        stat.getCurrentUserLoginNumber(configUser) + 1,
-                        stat.getCurrentUserLoginNumber(configUser, address) + 1);
+                        registry.getUserLoginCount(configUser.getName()) + 1,
+                        registry.getUserLoginCount(configUser.getName(), address) + 1);
 
                 if (configUser.authorize(loginRequest) == null) {
                     LOG.debug("User logged in too many sessions, user will be disconnected");
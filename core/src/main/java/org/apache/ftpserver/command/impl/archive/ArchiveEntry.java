@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * An entry read from an archive.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ArchiveEntry {
+
+    /**
+     * The kinds of entries
+     */
+    public enum Type {
+        FILE, DIRECTORY,
+
+        /**
+         * Links and special files, which are not extracted
+         */
+        OTHER
+    }
+
+    private final String name;
+
+    private final Type type;
+
+    private final long lastModified;
+
+    public ArchiveEntry(final String name, final Type type,
+            final long lastModified) {
+        this.name = name;
+        this.type = type;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Get the path of the entry in the archive
+     * 
+     * @return The path, as recorded in the archive
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the last modification time
+     * 
+     * @return The time in milliseconds, 0 if unknown
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
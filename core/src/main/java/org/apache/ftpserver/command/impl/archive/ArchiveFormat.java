@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The formats directories can be downloaded in, named by the extension added
+ * to the name of the directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public enum ArchiveFormat {
+
+    /**
+     * POSIX tar archive
+     */
+    TAR(".tar") {
+        @Override
+        public ArchiveOutput createOutput(OutputStream out) {
+            return new TarArchiveOutput(out);
+        }
+
+        @Override
+        public ArchiveInput createInput(InputStream in) {
+            return new TarArchiveInput(in);
+        }
+    },
+
+    /**
+     * Zip archive, compressed
+     */
+    ZIP(".zip") {
+        @Override
+        public ArchiveOutput createOutput(OutputStream out) {
+            return new ZipArchiveOutput(out);
+        }
+
+        @Override
+        public ArchiveInput createInput(InputStream in) {
+            return new ZipArchiveInput(in);
+        }
+    };
+
+    private final String extension;
+
+    private ArchiveFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the extension of the archive names
+     * 
+     * @return The extension, starting with a dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Create an archive writing to a stream
+     * 
+     * @param out
+     *            The stream
+     * @return The archive
+     */
+    public abstract ArchiveOutput createOutput(OutputStream out);
+
+    /**
+     * Create an archive reading from a stream
+     * 
+     * @param in
+     *            The stream
+     * @return The archive
+     */
+    public abstract ArchiveInput createInput(InputStream in);
+
+    /**
+     * Read an archive from a stream, a zip archive if it starts with the
+     * signature of a zip entry or of an empty zip file, and a tar archive
+     * otherwise
+     * 
+     * @param in
+     *            The stream, read as the archive is
+     * @return The archive
+     * @throws IOException
+     *             If the stream can not be read
+     */
+    public static ArchiveInput openInput(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in);
+        }
+        in.mark(4);
+        boolean zip = in.read() == 'P' && in.read() == 'K';
+        if (zip) {
+            int b1 = in.read();
+            int b2 = in.read();
+            zip = b1 == 3 && b2 == 4 || b1 == 5 && b2 == 6;
+        }
+        in.reset();
+        return zip ? ZIP.createInput(in) : TAR.createInput(in);
+    }
+
+    /**
+     * Get the format of an archive name
+     * 
+     * @param fileName
+     *            The file name
+     * @return The format, null if the name does not end with the extension
+     *         of a format
+     */
+    public static ArchiveFormat forFileName(String fileName) {
+        for (ArchiveFormat format : values()) {
+            int length = fileName.length() - format.extension.length();
+            if (length > 0
+                    && fileName.regionMatches(true, length, format.extension,
+                            0, format.extension.length())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads the entries of an archive from a stream, one after the other.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ArchiveInput {
+
+    /**
+     * Move to the next entry, skipping what is left of the current one
+     * 
+     * @return The entry, null at the end of the archive
+     * @throws IOException
+     *             If the archive can not be read or is malformed
+     */
+    ArchiveEntry getNextEntry() throws IOException;
+
+    /**
+     * Read the content of the current entry
+     * 
+     * @param b
+     *            The buffer
+     * @param off
+     *            The offset in the buffer
+     * @param len
+     *            The maximum number of bytes to read
+     * @return The number of bytes read, -1 at the end of the entry
+     * @throws IOException
+     *             If the archive can not be read or is truncated
+     */
+    int read(byte[] b, int off, int len) throws IOException;
+}
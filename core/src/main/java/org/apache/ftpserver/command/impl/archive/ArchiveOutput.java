@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes the entries of an archive to a stream, one after the other, without
+ * seeking back.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ArchiveOutput {
+
+    /**
+     * Add a directory
+     * 
+     * @param path
+     *            The path of the directory in the archive, ending with a
+     *            slash
+     * @param lastModified
+     *            The last modification time in milliseconds
+     * @throws IOException
+     */
+    void putDirectory(String path, long lastModified) throws IOException;
+
+    /**
+     * Add a file
+     * 
+     * @param path
+     *            The path of the file in the archive
+     * @param size
+     *            The size of the file. Formats recording the size before the
+     *            content write exactly that many bytes, cutting or padding
+     *            the content if the file changed since
+     * @param lastModified
+     *            The last modification time in milliseconds
+     * @param in
+     *            The content of the file, not closed
+     * @throws IOException
+     */
+    void putFile(String path, long size, long lastModified, InputStream in)
+            throws IOException;
+
+    /**
+     * Write the end of the archive. The underlying stream is not closed.
+     * 
+     * @throws IOException
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.ftpserver.ListingConfig;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes a directory and its content to an archive, walking the directory
+ * depth first in name order while the archive is written. Nothing is held in
+ * memory but the directories being walked and the files read ahead.
+ * 
+ * Files of at most {@link #SMALL_FILE_SIZE} bytes are read ahead in parallel
+ * on a shared fork join pool, a bounded number of them at a time, so that the
+ * latency of opening many small files does not stall the transfer. Larger
+ * files are read while they are written. Hidden entries, as left out of
+ * directory listings, and entries which can not be read or disappear during
+ * the walk are left out.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectoryArchiver {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(DirectoryArchiver.class);
+
+    /**
+     * The size up to which files are read ahead
+     */
+    public static final int SMALL_FILE_SIZE = 64 * 1024;
+
+    private static final Comparator<FtpFile> NAME_COMPARATOR = new Comparator<FtpFile>() {
+        public int compare(FtpFile f1, FtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private final ForkJoinPool pool;
+
+    private final int readAhead;
+
+    private final int maxDepth;
+
+    /**
+     * @param pool
+     *            The pool reading the files ahead
+     * @param readAhead
+     *            The number of files read ahead, 0 to read them one by one
+     * @param maxDepth
+     *            The maximum number of levels below the directory to include
+     */
+    public DirectoryArchiver(final ForkJoinPool pool, final int readAhead,
+            final int maxDepth) {
+        this.pool = pool;
+        this.readAhead = readAhead;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Create an archiver as configured for the server, reading ahead on the
+     * pool of recursive listings
+     * 
+     * @param context
+     *            The server context
+     * @return The archiver
+     */
+    public static DirectoryArchiver create(final FtpServerContext context) {
+        ListingConfig config = context.getListingConfig();
+        return new DirectoryArchiver(context.getListingPool(), config
+                .getArchiveReadAhead(), config.getMaxRecursionDepth());
+    }
+
+    /**
+     * An entry of the archive
+     */
+    private static class Entry {
+        private final FtpFile file;
+
+        private final String path;
+
+        // the content read ahead, null for directories and large files
+        private ForkJoinTask<byte[]> content;
+
+        public Entry(FtpFile file, String path) {
+            this.file = file;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A directory being walked
+     */
+    private static class Frame {
+        private final Iterator<FtpFile> children;
+
+        private final String path;
+
+        private final int depth;
+
+        public Frame(Iterator<FtpFile> children, String path, int depth) {
+            this.children = children;
+            this.path = path;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Write a directory to an archive, and finish the archive
+     * 
+     * @param dir
+     *            The directory
+     * @param out
+     *            The archive
+     * @throws IOException
+     *             If the archive can not be written
+     */
+    public void write(final FtpFile dir, final ArchiveOutput out)
+            throws IOException {
+        Deque<Frame> stack = new ArrayDeque<>();
+        String name = dir.getName();
+        String root = name.isEmpty() || name.equals("/") ? "" : name + "/";
+        if (!root.isEmpty()) {
+            out.putDirectory(root, dir.getLastModified());
+        }
+        push(stack, dir, root, 0);
+
+        Deque<Entry> window = new ArrayDeque<>();
+        try {
+            fill(window, stack);
+            Entry entry;
+            while ((entry = window.poll()) != null) {
+                write(entry, out);
+                fill(window, stack);
+            }
+            out.finish();
+        } finally {
+            for (Entry pending : window) {
+                if (pending.content != null) {
+                    pending.content.cancel(true);
+                }
+            }
+        }
+    }
+
+    private void push(final Deque<Frame> stack, final FtpFile dir,
+            final String path, final int depth) {
+        List<? extends FtpFile> children = dir.listFiles();
+        if (children == null || children.isEmpty()) {
+            return;
+        }
+        List<FtpFile> sorted = new ArrayList<>(children);
+        Collections.sort(sorted, NAME_COMPARATOR);
+        stack.push(new Frame(sorted.iterator(), path, depth));
+    }
+
+    /**
+     * Get the next entry of the walk
+     * 
+     * @return The entry, null when the walk is complete
+     */
+    private Entry next(final Deque<Frame> stack) {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (!frame.children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            FtpFile child = frame.children.next().snapshot();
+            if (child.isHidden()) {
+                continue;
+            }
+            String path = frame.path + child.getName();
+            if (child.isDirectory()) {
+                path += "/";
+                if (frame.depth < maxDepth) {
+                    push(stack, child, path, frame.depth + 1);
+                }
+                return new Entry(child, path);
+            } else if (child.isFile() && child.isReadable()) {
+                return new Entry(child, path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walk ahead of the entry being written, starting to read small files
+     */
+    private void fill(final Deque<Entry> window, final Deque<Frame> stack) {
+        while (window.size() <= readAhead) {
+            Entry entry = next(stack);
+            if (entry == null) {
+                return;
+            }
+            final FtpFile file = entry.file;
+            if (readAhead > 0 && file.isFile()
+                    && file.getSize() <= SMALL_FILE_SIZE) {
+                entry.content = pool.submit(() -> readSmallFile(file));
+            }
+            window.add(entry);
+        }
+    }
+
+    private void write(final Entry entry, final ArchiveOutput out)
+            throws IOException {
+        FtpFile file = entry.file;
+        if (file.isDirectory()) {
+            out.putDirectory(entry.path, file.getLastModified());
+            return;
+        }
+
+        byte[] content = null;
+        if (entry.content != null) {
+            try {
+                content = entry.content.get();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                LOG.debug("Failed to read " + file.getAbsolutePath()
+                        + ", leaving it out of the archive", e.getCause());
+                return;
+            }
+        }
+        if (content != null) {
+            out.putFile(entry.path, content.length, file.getLastModified(),
+                    new ByteArrayInputStream(content));
+            return;
+        }
+
+        // not read ahead, or grown too large since
+        InputStream in;
+        try {
+            in = file.createInputStream(0);
+        } catch (IOException e) {
+            LOG.debug("Failed to open " + file.getAbsolutePath()
+                    + ", leaving it out of the archive", e);
+            return;
+        }
+        try {
+            out.putFile(entry.path, file.getSize(), file.getLastModified(),
+                    in);
+        } finally {
+            IoUtils.close(in);
+        }
+    }
+
+    /**
+     * Read a small file
+     * 
+     * @return The content, null if the file has grown larger than
+     *         {@link #SMALL_FILE_SIZE}
+     */
+    private static byte[] readSmallFile(final FtpFile file) throws IOException {
+        InputStream in = file.createInputStream(0);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream(
+                    (int) file.getSize());
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                content.write(buffer, 0, count);
+                if (content.size() > SMALL_FILE_SIZE) {
+                    return null;
+                }
+            }
+            return content.toByteArray();
+        } finally {
+            IoUtils.close(in);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Extracts an archive into a directory of the file system view of a session
+ * while the archive is read, so that nothing but the entry being written is
+ * held in memory, and no temporary copy of the archive is needed.
+ * 
+ * Each entry is resolved by the file system view as the path given to STOR
+ * would be, relative to the directory, and the same write permission checks
+ * apply. Entries with absolute paths are extracted relative to the
+ * directory. Entries which would end up outside of it, could not be written,
+ * or are neither files nor directories are skipped. Missing parent
+ * directories are created. Running out of quota, or failing to read the
+ * archive or to write a file once it is open, aborts the extraction.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectoryExtractor {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(DirectoryExtractor.class);
+
+    private final FtpIoSession session;
+
+    private final ServerFtpStatistics stats;
+
+    private final FileSystemView view;
+
+    private final String base;
+
+    private final byte[] buffer = new byte[16 * 1024];
+
+    // the last parent directory known to exist
+    private String lastParent;
+
+    private int fileCount;
+
+    private int directoryCount;
+
+    private int skippedCount;
+
+    /**
+     * @param session
+     *            The session whose file system view the archive is extracted
+     *            into
+     * @param stats
+     *            The statistics notified of the uploaded files and created
+     *            directories, may be null
+     * @param dir
+     *            The directory to extract into
+     */
+    public DirectoryExtractor(final FtpIoSession session,
+            final ServerFtpStatistics stats, final FtpFile dir) {
+        this.session = session;
+        this.stats = stats;
+        this.view = session.getFileSystemView();
+        String path = dir.getAbsolutePath();
+        this.base = path.endsWith("/") ? path : path + "/";
+    }
+
+    /**
+     * Extract all the entries of an archive
+     * 
+     * @param in
+     *            The archive
+     * @throws IOException
+     *             If the archive can not be read, or a file can not be written
+     */
+    public void extract(final ArchiveInput in) throws IOException {
+        ArchiveEntry entry;
+        while ((entry = in.getNextEntry()) != null) {
+            String path = resolve(entry.getName());
+            boolean extracted = false;
+            if (path == null) {
+                LOG.warn("Skipping archive entry outside of {} : {}", base,
+                        entry.getName());
+            } else if (entry.getType() == ArchiveEntry.Type.DIRECTORY) {
+                extracted = mkdirs(path);
+                if (extracted) {
+                    directoryCount++;
+                }
+            } else if (entry.getType() == ArchiveEntry.Type.FILE) {
+                extracted = writeFile(path, entry, in);
+                if (extracted) {
+                    fileCount++;
+                }
+            }
+            if (!extracted) {
+                LOG.debug("Skipped archive entry {}", entry.getName());
+                skippedCount++;
+            }
+        }
+    }
+
+    /**
+     * Get the number of files extracted
+     * 
+     * @return The number of files
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Get the number of directory entries extracted
+     * 
+     * @return The number of directories
+     */
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /**
+     * Get the number of entries skipped
+     * 
+     * @return The number of entries
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Get the virtual path of an entry
+     * 
+     * @return The path, null if it is not below the directory
+     */
+    private String resolve(final String name) {
+        StringBuilder path = new StringBuilder(base);
+        boolean empty = true;
+        for (String segment : name.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                return null;
+            }
+            if (!empty) {
+                path.append('/');
+            }
+            path.append(segment);
+            empty = false;
+        }
+        return empty ? null : path.toString();
+    }
+
+    private FtpFile getFile(final String path) {
+        FtpFile file = null;
+        try {
+            file = view.getFile(path);
+        } catch (FtpException ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+        // the view normalizes the path, which must stay below the directory
+        if (file == null
+                || !file.getAbsolutePath().regionMatches(true, 0, base, 0,
+                        base.length())) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Create a directory and its missing parents
+     * 
+     * @return false if a directory could not be created
+     */
+    private boolean mkdirs(final String path) {
+        int slash = path.lastIndexOf('/');
+        if (slash >= base.length() && !mkdirs(path.substring(0, slash))) {
+            return false;
+        }
+
+        FtpFile dir = getFile(path);
+        if (dir == null) {
+            return false;
+        }
+        if (dir.doesExist()) {
+            return dir.isDirectory();
+        }
+        if (!dir.isWritable() || !dir.mkdir()) {
+            return false;
+        }
+        if (stats != null) {
+            stats.setMkdir(session, dir);
+        }
+        return true;
+    }
+
+    private boolean writeFile(final String path, final ArchiveEntry entry,
+            final ArchiveInput in) throws IOException {
+        // the entries of a directory usually follow each other
+        String parent = path.substring(0, path.lastIndexOf('/'));
+        if (parent.length() >= base.length() && !parent.equals(lastParent)) {
+            if (!mkdirs(parent)) {
+                return false;
+            }
+            lastParent = parent;
+        }
+
+        FtpFile file = getFile(path);
+        if (file == null || file.isDirectory() || !file.isWritable()) {
+            return false;
+        }
+
+        OutputStream out;
+        try {
+            out = file.createOutputStream(0);
+        } catch (QuotaExceededException e) {
+            throw e;
+        } catch (IOException e) {
+            LOG.debug("Failed to open " + path + " for writing", e);
+            return false;
+        }
+        long size = 0;
+        try {
+            int count;
+            while ((count = in.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, count);
+                size += count;
+            }
+            out.close();
+        } finally {
+            IoUtils.close(out);
+        }
+
+        if (entry.getLastModified() > 0) {
+            file.setLastModified(entry.getLastModified());
+        }
+        if (stats != null) {
+            stats.setUpload(session, file, size);
+        }
+        return true;
+    }
+}
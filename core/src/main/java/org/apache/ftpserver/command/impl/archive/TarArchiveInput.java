@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads a tar archive as it is received. Reads POSIX (ustar) archives with
+ * pax extended headers, GNU long names, and the old V7 format.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TarArchiveInput implements ArchiveInput {
+
+    private static final int BLOCK_SIZE = 512;
+
+    // the largest pax header or GNU long name read
+    private static final int MAX_EXTENDED_HEADER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+
+    private final byte[] header = new byte[BLOCK_SIZE];
+
+    // the bytes left in the current entry, and the padding after them
+    private long remaining;
+
+    private int padding;
+
+    private boolean finished;
+
+    public TarArchiveInput(final InputStream in) {
+        this.in = in;
+    }
+
+    public ArchiveEntry getNextEntry() throws IOException {
+        skipEntry();
+
+        String longName = null;
+        long longSize = -1;
+        while (!finished) {
+            if (!readHeader()) {
+                finished = true;
+                return null;
+            }
+
+            String name = getString(0, 100);
+            if (getString(257, 5).equals("ustar")) {
+                String prefix = getString(345, 155);
+                if (!prefix.isEmpty()) {
+                    name = prefix + "/" + name;
+                }
+            }
+            long size = getNumber(124, 12);
+            if (size < 0) {
+                throw new IOException("Invalid tar entry size");
+            }
+            long mtime = getNumber(136, 12);
+            byte type = header[156];
+            startEntry(size);
+
+            switch (type) {
+            case 'x':
+                String records = readExtendedHeader(size);
+                String path = getRecord(records, "path");
+                if (path != null) {
+                    longName = path;
+                }
+                String sizeRecord = getRecord(records, "size");
+                if (sizeRecord != null) {
+                    try {
+                        longSize = Long.parseLong(sizeRecord);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid size in pax header: "
+                                + sizeRecord);
+                    }
+                    if (longSize < 0) {
+                        throw new IOException("Invalid size in pax header: "
+                                + sizeRecord);
+                    }
+                }
+                continue;
+            case 'L':
+                longName = readExtendedHeader(size);
+                int end = longName.indexOf('\0');
+                if (end != -1) {
+                    longName = longName.substring(0, end);
+                }
+                continue;
+            case 'g':
+            case 'K':
+                skipEntry();
+                continue;
+            default:
+                break;
+            }
+
+            if (longName != null) {
+                name = longName;
+            }
+            if (longSize >= 0) {
+                size = longSize;
+                startEntry(size);
+            }
+
+            ArchiveEntry.Type entryType;
+            if (type == '5' || (type == '0' || type == 0) && name.endsWith("/")) {
+                entryType = ArchiveEntry.Type.DIRECTORY;
+            } else if (type == '0' || type == 0 || type == '7') {
+                entryType = ArchiveEntry.Type.FILE;
+            } else {
+                entryType = ArchiveEntry.Type.OTHER;
+            }
+            if (entryType != ArchiveEntry.Type.FILE) {
+                // the content of directories and links is not read
+                skipEntry();
+            }
+            return new ArchiveEntry(name, entryType, mtime * 1000);
+        }
+        return null;
+    }
+
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int count = in.read(b, off, (int) Math.min(len, remaining));
+        if (count == -1) {
+            throw new EOFException("Truncated tar archive");
+        }
+        remaining -= count;
+        return count;
+    }
+
+    private void startEntry(final long size) {
+        remaining = size;
+        int remainder = (int) (size % BLOCK_SIZE);
+        padding = remainder == 0 ? 0 : BLOCK_SIZE - remainder;
+    }
+
+    private void skipEntry() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    private void skipFully(long count) throws IOException {
+        byte[] buffer = header;
+        while (count > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (read == -1) {
+                throw new EOFException("Truncated tar archive");
+            }
+            count -= read;
+        }
+    }
+
+    /**
+     * Read the next header block
+     * 
+     * @return false at the end of the archive, an empty block or the end of
+     *         the stream
+     */
+    private boolean readHeader() throws IOException {
+        int offset = 0;
+        while (offset < BLOCK_SIZE) {
+            int count = in.read(header, offset, BLOCK_SIZE - offset);
+            if (count == -1) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated tar archive");
+            }
+            offset += count;
+        }
+
+        long checksum = 0;
+        boolean empty = true;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (header[i] != 0) {
+                empty = false;
+            }
+            checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+        }
+        if (empty) {
+            return false;
+        }
+        if (checksum != getNumber(148, 8)) {
+            throw new IOException("Not a tar archive, invalid header checksum");
+        }
+        return true;
+    }
+
+    private String readExtendedHeader(final long size) throws IOException {
+        if (size > MAX_EXTENDED_HEADER_SIZE) {
+            throw new IOException("Extended tar header too large: " + size);
+        }
+        byte[] content = new byte[(int) size];
+        int offset = 0;
+        while (offset < content.length) {
+            int count = read(content, offset, content.length - offset);
+            if (count == -1) {
+                throw new EOFException("Truncated tar archive");
+            }
+            offset += count;
+        }
+        skipEntry();
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the value of a pax record, "length key=value\n"
+     */
+    private static String getRecord(final String records, final String key) {
+        int start = 0;
+        while (start < records.length()) {
+            int space = records.indexOf(' ', start);
+            int end = records.indexOf('\n', start);
+            if (space == -1 || end == -1 || space > end) {
+                return null;
+            }
+            int equals = records.indexOf('=', space);
+            if (equals != -1 && equals < end
+                    && records.substring(space + 1, equals).equals(key)) {
+                return records.substring(equals + 1, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    private String getString(final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get a number, in octal digits, or in base 256 when the first byte has
+     * its high bit set. Base 256 values which do not fit in a positive long,
+     * including the negative ones, are rejected.
+     */
+    private long getNumber(final int offset, final int length)
+            throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                if ((value >>> 55) != 0) {
+                    throw new IOException("Not a tar archive, invalid number");
+                }
+                value = (value << 8) | (header[i] & 0xff);
+            }
+            return value;
+        }
+
+        // octal digits, possibly surrounded by spaces and NULs
+        long value = 0;
+        boolean digits = false;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (digits) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Not a tar archive, invalid number");
+            }
+            value = (value << 3) + (b - '0');
+            digits = true;
+        }
+        return value;
+    }
+}
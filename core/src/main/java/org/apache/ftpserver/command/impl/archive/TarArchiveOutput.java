@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes a POSIX (ustar) tar archive. Names which do not fit in the header,
+ * or are not plain ASCII, and sizes of 8 GiB and more are recorded in a pax
+ * extended header before the entry.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TarArchiveOutput implements ArchiveOutput {
+
+    private static final int BLOCK_SIZE = 512;
+
+    private static final int NAME_LENGTH = 100;
+
+    // the largest size which fits in the 11 octal digits of the header
+    private static final long MAX_HEADER_SIZE = 077777777777L;
+
+    private static final byte TYPE_FILE = '0';
+
+    private static final byte TYPE_DIRECTORY = '5';
+
+    private static final byte TYPE_PAX_HEADER = 'x';
+
+    private final OutputStream out;
+
+    private final byte[] header = new byte[BLOCK_SIZE];
+
+    private final byte[] buffer = new byte[16 * 1024];
+
+    public TarArchiveOutput(final OutputStream out) {
+        this.out = out;
+    }
+
+    public void putDirectory(final String path, final long lastModified)
+            throws IOException {
+        writeHeader(path, TYPE_DIRECTORY, 0755, 0, lastModified);
+    }
+
+    public void putFile(final String path, final long size,
+            final long lastModified, final InputStream in) throws IOException {
+        writeHeader(path, TYPE_FILE, 0644, size, lastModified);
+
+        long remaining = size;
+        while (remaining > 0) {
+            int count = in.read(buffer, 0, (int) Math.min(buffer.length,
+                    remaining));
+            if (count == -1) {
+                // the file was truncated since its size was read
+                Arrays.fill(buffer, (byte) 0);
+                while (remaining > 0) {
+                    int length = (int) Math.min(buffer.length, remaining);
+                    out.write(buffer, 0, length);
+                    remaining -= length;
+                }
+                break;
+            }
+            out.write(buffer, 0, count);
+            remaining -= count;
+        }
+        pad(size);
+    }
+
+    public void finish() throws IOException {
+        // two empty blocks mark the end of the archive
+        Arrays.fill(header, (byte) 0);
+        out.write(header);
+        out.write(header);
+        out.flush();
+    }
+
+    private void writeHeader(final String path, final byte type,
+            final int mode, final long size, final long lastModified)
+            throws IOException {
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        boolean longName = name.length > NAME_LENGTH
+                || name.length != path.length();
+        boolean largeSize = size > MAX_HEADER_SIZE;
+        if (longName || largeSize) {
+            StringBuilder records = new StringBuilder();
+            if (longName) {
+                appendRecord(records, "path", path);
+            }
+            if (largeSize) {
+                appendRecord(records, "size", Long.toString(size));
+            }
+            byte[] content = records.toString().getBytes(
+                    StandardCharsets.UTF_8);
+            writeBlock(paxName(path), TYPE_PAX_HEADER, 0644, content.length,
+                    lastModified);
+            out.write(content);
+            pad(content.length);
+        }
+
+        writeBlock(longName ? paxName(path) : path, type, mode,
+                largeSize ? 0 : size, lastModified);
+    }
+
+    private void writeBlock(final String name, final byte type,
+            final int mode, final long size, final long lastModified)
+            throws IOException {
+        Arrays.fill(header, (byte) 0);
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length,
+                NAME_LENGTH));
+        putOctal(mode, 100, 8);
+        putOctal(0, 108, 8);
+        putOctal(0, 116, 8);
+        putOctal(size, 124, 12);
+        putOctal(Math.max(0, lastModified / 1000), 136, 12);
+        header[156] = type;
+        putAscii("ustar", 257);
+        putAscii("00", 263);
+
+        // the checksum is computed with the checksum field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(checksum, 148, 7);
+        header[155] = ' ';
+
+        out.write(header);
+    }
+
+    /**
+     * Put a number as zero padded octal digits followed by a NUL
+     */
+    private void putOctal(final long value, final int offset, final int length) {
+        String digits = Long.toOctalString(value);
+        int start = offset + length - 1 - digits.length();
+        for (int i = offset; i < start; i++) {
+            header[i] = '0';
+        }
+        putAscii(digits, start);
+        header[offset + length - 1] = 0;
+    }
+
+    private void putAscii(final String value, final int offset) {
+        for (int i = 0; i < value.length(); i++) {
+            header[offset + i] = (byte) value.charAt(i);
+        }
+    }
+
+    private void pad(final long length) throws IOException {
+        int remainder = (int) (length % BLOCK_SIZE);
+        if (remainder != 0) {
+            Arrays.fill(buffer, 0, BLOCK_SIZE - remainder, (byte) 0);
+            out.write(buffer, 0, BLOCK_SIZE - remainder);
+        }
+    }
+
+    /**
+     * The ASCII name written in the header of entries with a pax header,
+     * for the tools not reading them
+     */
+    private static String paxName(final String path) {
+        StringBuilder name = new StringBuilder(NAME_LENGTH);
+        for (int i = 0; i < path.length() && name.length() < NAME_LENGTH; i++) {
+            char c = path.charAt(i);
+            name.append(c < 0x80 ? c : '_');
+        }
+        return name.toString();
+    }
+
+    /**
+     * Append a pax record, "length key=value\n", the length counting the
+     * whole record including its own digits
+     */
+    private static void appendRecord(final StringBuilder records,
+            final String key, final String value) {
+        int length = key.length() + value.getBytes(StandardCharsets.UTF_8).length + 3;
+        int total = length + Integer.toString(length).length();
+        if (Integer.toString(total).length() != Integer.toString(length)
+                .length()) {
+            total++;
+        }
+        records.append(total).append(' ').append(key).append('=')
+                .append(value).append('\n');
+    }
+}
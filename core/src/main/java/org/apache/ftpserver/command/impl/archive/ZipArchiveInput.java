@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads a zip archive as it is received, from the local headers of the
+ * entries, without the central directory at its end.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ZipArchiveInput implements ArchiveInput {
+
+    private final ZipInputStream in;
+
+    public ZipArchiveInput(final InputStream in) {
+        this.in = new ZipInputStream(in);
+    }
+
+    public ArchiveEntry getNextEntry() throws IOException {
+        ZipEntry entry = in.getNextEntry();
+        if (entry == null) {
+            return null;
+        }
+        return new ArchiveEntry(entry.getName(),
+                entry.isDirectory() ? ArchiveEntry.Type.DIRECTORY
+                        : ArchiveEntry.Type.FILE, Math.max(0, entry.getTime()));
+    }
+
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        return in.read(b, off, len);
+    }
+}
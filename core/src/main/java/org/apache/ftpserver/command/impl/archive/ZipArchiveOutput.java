@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes a zip archive, the files compressed at the fastest level. The sizes
+ * and checksums follow the content of each entry, so the content is read
+ * only once and may differ from the size read before.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ZipArchiveOutput implements ArchiveOutput {
+
+    private final ZipOutputStream out;
+
+    private final byte[] buffer = new byte[16 * 1024];
+
+    public ZipArchiveOutput(final OutputStream out) {
+        this.out = new ZipOutputStream(out);
+        this.out.setLevel(Deflater.BEST_SPEED);
+    }
+
+    public void putDirectory(final String path, final long lastModified)
+            throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        entry.setTime(lastModified);
+        out.putNextEntry(entry);
+        out.closeEntry();
+    }
+
+    public void putFile(final String path, final long size,
+            final long lastModified, final InputStream in) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        entry.setTime(lastModified);
+        out.putNextEntry(entry);
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        out.closeEntry();
+    }
+
+    public void finish() throws IOException {
+        out.finish();
+        out.flush();
+    }
+}
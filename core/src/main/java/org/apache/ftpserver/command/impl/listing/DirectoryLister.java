@@ -20,12 +20,18 @@
 package org.apache.ftpserver.command.impl.listing;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.GlobMatcher;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
@@ -36,69 +42,251 @@ import org.apache.ftpserver.ftplet.FtpFile;
  */
 public class DirectoryLister {
 
-    private String traverseFiles(final List<? extends FtpFile> files,
-            final FileFilter filter, final FileFormater formater) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append(traverseFiles(files, filter, formater, true));
-        sb.append(traverseFiles(files, filter, formater, false));
+    private static final Comparator<FtpFile> NAME_COMPARATOR = new Comparator<FtpFile>() {
+        public int compare(FtpFile f1, FtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
 
-        return sb.toString();
+    private void traverseFiles(final List<? extends FtpFile> files,
+            final FileFilter filter, final FileFormater formater,
+            final ListingOrder order, final Writer out) throws IOException {
+        switch (order) {
+        case DIRECTORIES_FIRST:
+            writeFiles(files, filter, formater, Boolean.TRUE, out);
+            writeFiles(files, filter, formater, Boolean.FALSE, out);
+            break;
+        case NAME:
+            List<FtpFile> sorted = new ArrayList<>(files.size());
+            for (FtpFile file : files) {
+                if (file != null) {
+                    sorted.add(file);
+                }
+            }
+            Collections.sort(sorted, NAME_COMPARATOR);
+            writeFiles(sorted, filter, formater, null, out);
+            break;
+        default:
+            writeFiles(files, filter, formater, null, out);
+        }
     }
 
-    private String traverseFiles(final List<? extends FtpFile> files,
+    /**
+     * Write the matching files, only the directories or only the files if
+     * matchDirs is not null
+     */
+    private void writeFiles(final List<? extends FtpFile> files,
             final FileFilter filter, final FileFormater formater,
-            boolean matchDirs) {
-        StringBuilder sb = new StringBuilder();
+            final Boolean matchDirs, final Writer out) throws IOException {
         for (FtpFile file : files) {
             if (file == null) {
                 continue;
             }
 
             if (filter == null || filter.accept(file)) {
-                if (file.isDirectory() == matchDirs) {
-                    sb.append(formater.format(file));
+                if (matchDirs == null || file.isDirectory() == matchDirs) {
+                    out.write(formater.format(file));
                 }
             }
         }
+    }
 
-        return sb.toString();
+    /**
+     * Select the files matching the filter, in the listing order
+     */
+    static List<FtpFile> selectFiles(final List<? extends FtpFile> files,
+            final FileFilter filter, final ListingOrder order) {
+        List<FtpFile> selected = new ArrayList<>(files.size());
+        switch (order) {
+        case DIRECTORIES_FIRST:
+            selectFiles(files, filter, Boolean.TRUE, selected);
+            selectFiles(files, filter, Boolean.FALSE, selected);
+            break;
+        case NAME:
+            selectFiles(files, filter, null, selected);
+            Collections.sort(selected, NAME_COMPARATOR);
+            break;
+        default:
+            selectFiles(files, filter, null, selected);
+        }
+        return selected;
+    }
+
+    /**
+     * Select the matching files, only the directories or only the files if
+     * matchDirs is not null
+     */
+    private static void selectFiles(final List<? extends FtpFile> files,
+            final FileFilter filter, final Boolean matchDirs,
+            final List<FtpFile> selected) {
+        for (FtpFile file : files) {
+            if (file == null) {
+                continue;
+            }
+
+            if (filter == null || filter.accept(file)) {
+                if (matchDirs == null || file.isDirectory() == matchDirs) {
+                    selected.add(file);
+                }
+            }
+        }
     }
 
     public String listFiles(final ListArgument argument,
             final FileSystemView fileSystemView, final FileFormater formater)
             throws IOException {
+        StringWriter writer = new StringWriter();
+        listFiles(argument, fileSystemView, formater,
+                ListingOrder.DIRECTORIES_FIRST, writer);
+        return writer.toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
+    /**
+     * Write the listing entry by entry, without building it in memory
+     * 
+     * @param argument
+     *            The parsed listing argument
+     * @param fileSystemView
+     *            The file system view of the session
+     * @param formater
+     *            The formater for the entries
+     * @param order
+     *            The order of the entries
+     * @param out
+     *            The writer to write the listing to
+     * @throws IOException
+     */
+    public void listFiles(final ListArgument argument,
+            final FileSystemView fileSystemView, final FileFormater formater,
+            final ListingOrder order, final Writer out) throws IOException {
+        listFiles(argument, fileSystemView, formater, order, null, out);
+    }
 
-        // get all the file objects
-        List<? extends FtpFile> files = listFiles(fileSystemView, argument.getFile());
-        if (files != null) {
-            FileFilter filter = null;
-            if (!argument.hasOption('a')) {
-                filter = new VisibleFileFilter();
+    /**
+     * Write the listing entry by entry, descending into the sub directories
+     * if the -R option is given and recursive listings are enabled
+     * 
+     * @param argument
+     *            The parsed listing argument
+     * @param fileSystemView
+     *            The file system view of the session
+     * @param formater
+     *            The formater for the entries
+     * @param order
+     *            The order of the entries
+     * @param recursiveLister
+     *            The lister for recursive listings, null if recursive listings
+     *            are not supported
+     * @param out
+     *            The writer to write the listing to
+     * @throws IOException
+     */
+    public void listFiles(final ListArgument argument,
+            final FileSystemView fileSystemView, final FileFormater formater,
+            final ListingOrder order, final RecursiveLister recursiveLister,
+            final Writer out) throws IOException {
+        listFiles(argument, fileSystemView, formater, order, recursiveLister,
+                null, out);
+    }
+
+    /**
+     * Write the listing entry by entry, descending into the sub directories
+     * if the -R option is given and recursive listings are enabled, and
+     * reading directories lazily if a lister for large directories is given
+     * 
+     * @param argument
+     *            The parsed listing argument
+     * @param fileSystemView
+     *            The file system view of the session
+     * @param formater
+     *            The formater for the entries
+     * @param order
+     *            The order of the entries
+     * @param recursiveLister
+     *            The lister for recursive listings, null if recursive listings
+     *            are not supported
+     * @param largeDirectoryLister
+     *            The lister for large directories, null to list all
+     *            directories in memory
+     * @param out
+     *            The writer to write the listing to
+     * @throws IOException
+     */
+    public void listFiles(final ListArgument argument,
+            final FileSystemView fileSystemView, final FileFormater formater,
+            final ListingOrder order, final RecursiveLister recursiveLister,
+            final LargeDirectoryLister largeDirectoryLister, final Writer out)
+            throws IOException {
+
+        FileFilter filter = null;
+        if (!argument.hasOption('a')) {
+            filter = new VisibleFileFilter();
+        }
+        GlobMatcher pattern = null;
+        if (argument.getPattern() != null) {
+            pattern = GlobMatcher.compile(argument.getPattern());
+        }
+
+        if (recursiveLister != null && recursiveLister.isEnabled()
+                && argument.hasOption('R')) {
+            FtpFile dir = getDirectory(fileSystemView, argument.getFile());
+            if (dir != null) {
+                recursiveLister.listFiles(dir, argument.getFile(),
+                        pattern == null ? filter : new RegexFileFilter(
+                                pattern, filter), formater, order, out);
+                return;
             }
-            if (argument.getPattern() != null) {
-                filter = new RegexFileFilter(argument.getPattern(), filter);
+        }
+
+        if (largeDirectoryLister != null) {
+            FtpFile dir = getDirectory(fileSystemView, argument.getFile());
+            if (dir != null) {
+                largeDirectoryLister.listFiles(dir, pattern, filter, formater,
+                        order, out);
+                return;
             }
+        }
 
-            sb.append(traverseFiles(files, filter, formater));
+        // get all the file objects, the pattern is already applied
+        List<? extends FtpFile> files = listFiles(fileSystemView, argument
+                .getFile(), pattern);
+        if (files != null) {
+            traverseFiles(files, filter, formater, order, out);
         }
+    }
 
-        return sb.toString();
+    /**
+     * Get the directory to list, null if the file is not a directory
+     */
+    private FtpFile getDirectory(FileSystemView fileSystemView, String file) {
+        try {
+            FtpFile dir = fileSystemView.getFile(file).snapshot();
+            if (dir.isDirectory()) {
+                return dir;
+            }
+        } catch (FtpException ex) {
+        }
+        return null;
     }
 
     /**
-     * Get the file list. Files will be listed in alphabetlical order.
+     * Get the file list. Files will be listed in alphabetlical order. The
+     * names are matched against the pattern, if any, while listing the
+     * directory so that the file system can skip the other files.
      */
-    private List<? extends FtpFile> listFiles(FileSystemView fileSystemView, String file) {
+    private List<? extends FtpFile> listFiles(FileSystemView fileSystemView,
+            String file, GlobMatcher pattern) {
         List <? extends FtpFile> files = null;
         try {
-            FtpFile virtualFile = fileSystemView.getFile(file);
+            FtpFile virtualFile = fileSystemView.getFile(file).snapshot();
             if (virtualFile.isFile()) {
                 List<FtpFile> auxFiles = new ArrayList<>();
-                auxFiles.add(virtualFile);
+                if (pattern == null || pattern.matches(virtualFile.getName())) {
+                    auxFiles.add(virtualFile);
+                }
                 files = auxFiles;
+            } else if (pattern != null) {
+                files = virtualFile.listFiles(pattern);
             } else {
                 files = virtualFile.listFiles();
             }
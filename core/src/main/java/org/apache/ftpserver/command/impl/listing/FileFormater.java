@@ -38,4 +38,19 @@ public interface FileFormater {
      */
     String format(FtpFile file);
 
+    /**
+     * Format the file under another name, used for the entries of recursive
+     * listings which name the files by their path relative to the listed
+     * directory. By default the name is ignored.
+     * 
+     * @param file
+     *            The {@link FtpFile}
+     * @param name
+     *            The name to show for the file
+     * @return The formated string based on the {@link FtpFile}
+     */
+    default String format(FtpFile file, String name) {
+        return format(file);
+    }
+
 }
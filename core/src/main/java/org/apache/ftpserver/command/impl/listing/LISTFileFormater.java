@@ -18,10 +18,11 @@
  */
 package org.apache.ftpserver.command.impl.listing;
 
-import java.util.Arrays;
+import java.util.TimeZone;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.util.DateUtils;
+import org.apache.ftpserver.util.UnixDateFormatter;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
@@ -36,66 +37,102 @@ public class LISTFileFormater implements FileFormater {
 
     private final static char[] NEWLINE = { '\r', '\n' };
 
+    // the width the size is padded to
+    private final static int SIZE_WIDTH = 12;
+
+    // null to read the current time for each file
+    private final UnixDateFormatter dateFormatter;
+
+    /**
+     * Formater reading the current time, which decides whether dates are
+     * shown with the time or the year, for each file
+     */
+    public LISTFileFormater() {
+        this.dateFormatter = null;
+    }
+
+    /**
+     * Formater for a listing, using the same current time for all the files
+     * 
+     * @param now
+     *            The time the listing is made
+     */
+    public LISTFileFormater(long now) {
+        this.dateFormatter = new UnixDateFormatter(now);
+    }
+
     /**
      * @see FileFormater#format(FtpFile)
      */
     public String format(FtpFile file) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(getPermission(file));
+        String owner = file.getOwnerName();
+        String group = file.getGroupName();
+        String name = file.getName();
+        StringBuilder sb = new StringBuilder(48 + String.valueOf(owner)
+                .length() + String.valueOf(group).length() + name.length());
+        appendPermission(sb, file);
         sb.append(DELIM);
         sb.append(DELIM);
         sb.append(DELIM);
-        sb.append(String.valueOf(file.getLinkCount()));
+        sb.append(file.getLinkCount());
         sb.append(DELIM);
-        sb.append(file.getOwnerName());
+        sb.append(owner);
         sb.append(DELIM);
-        sb.append(file.getGroupName());
+        sb.append(group);
         sb.append(DELIM);
-        sb.append(getLength(file));
+        appendLength(sb, file);
         sb.append(DELIM);
-        sb.append(getLastModified(file));
+        appendLastModified(sb, file);
         sb.append(DELIM);
-        sb.append(file.getName());
+        sb.append(name);
         sb.append(NEWLINE);
 
         return sb.toString();
     }
 
     /**
-     * Get size
+     * Append the size, padded to 12 characters
      */
-    private String getLength(FtpFile file) {
-        String initStr = "            ";
+    private void appendLength(StringBuilder sb, FtpFile file) {
         long sz = 0;
         if (file.isFile()) {
             sz = file.getSize();
         }
-        String szStr = String.valueOf(sz);
-        if (szStr.length() > initStr.length()) {
-            return szStr;
+        int digits = 1;
+        for (long rest = sz / 10; rest != 0; rest /= 10) {
+            digits++;
         }
-        return initStr.substring(0, initStr.length() - szStr.length()) + szStr;
+        if (sz < 0) {
+            digits++;
+        }
+        for (int i = digits; i < SIZE_WIDTH; i++) {
+            sb.append(DELIM);
+        }
+        sb.append(sz);
     }
 
     /**
-     * Get last modified date string.
+     * Append the last modified date.
      */
-    private String getLastModified(FtpFile file) {
-        return DateUtils.getUnixDate(file.getLastModified());
+    private void appendLastModified(StringBuilder sb, FtpFile file) {
+        if (dateFormatter != null) {
+            dateFormatter.format(sb, file.getLastModified());
+        } else {
+            DateUtils.appendUnixDate(sb, file.getLastModified(), System
+                    .currentTimeMillis(), TimeZone.getDefault());
+        }
     }
 
     /**
-     * Get permission string.
+     * Append the permission string.
      */
-    private char[] getPermission(FtpFile file) {
-        char permission[] = new char[10];
-        Arrays.fill(permission, '-');
-
-        permission[0] = file.isDirectory() ? 'd' : '-';
-        permission[1] = file.isReadable() ? 'r' : '-';
-        permission[2] = file.isWritable() ? 'w' : '-';
-        permission[3] = file.isDirectory() ? 'x' : '-'; 
-        return permission;
+    private void appendPermission(StringBuilder sb, FtpFile file) {
+        boolean directory = file.isDirectory();
+        sb.append(directory ? 'd' : '-');
+        sb.append(file.isReadable() ? 'r' : '-');
+        sb.append(file.isWritable() ? 'w' : '-');
+        sb.append(directory ? 'x' : '-');
+        sb.append("------");
     }
 
     /*
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.listing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.ftpserver.ListingOrder;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.util.GlobMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Lists directories with too many entries to hold in memory. The directory is
+ * read lazily with {@link FtpFile#iterateFiles(java.util.function.Predicate)}
+ * and each entry formated as soon as it is read, so only the formated lines
+ * are kept, and only as many as the threshold.
+ * 
+ * Unsorted listings are written as the directory is read. Sorted listings are
+ * sorted by name, the directories first for
+ * {@link ListingOrder#DIRECTORIES_FIRST}. Up to the threshold the lines are
+ * sorted in memory, above it each run of that many lines is sorted and
+ * written to a temporary file, and the runs are merged while writing the
+ * listing. At most {@link #DEFAULT_MAX_MERGE_RUNS} runs by default are
+ * merged at once, so that the open files and their buffers stay bounded. With
+ * more runs, groups of them are first merged into longer runs, in as many
+ * passes as needed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class LargeDirectoryLister {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(LargeDirectoryLister.class);
+
+    private static final Comparator<Line> NAME_COMPARATOR = new Comparator<Line>() {
+        public int compare(Line l1, Line l2) {
+            return l1.name.compareTo(l2.name);
+        }
+    };
+
+    private static final Comparator<Line> DIRECTORIES_FIRST_COMPARATOR = new Comparator<Line>() {
+        public int compare(Line l1, Line l2) {
+            if (l1.directory != l2.directory) {
+                return l1.directory ? -1 : 1;
+            }
+            return l1.name.compareTo(l2.name);
+        }
+    };
+
+    /**
+     * The default maximum number of runs merged at once
+     */
+    public static final int DEFAULT_MAX_MERGE_RUNS = 64;
+
+    private final int threshold;
+
+    private final int maxMergeRuns;
+
+    /**
+     * A formated entry, with what it is sorted by
+     */
+    private static class Line {
+        private final boolean directory;
+
+        private final String name;
+
+        private final String text;
+
+        public Line(boolean directory, String name, String text) {
+            this.directory = directory;
+            this.name = name;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Where merged lines are written
+     */
+    private interface LineWriter {
+        void write(Line line) throws IOException;
+    }
+
+    /**
+     * A sorted run of lines, in memory or read back from a temporary file
+     */
+    private static class Run {
+        private final DataInputStream in;
+
+        private final List<Line> lines;
+
+        private int index;
+
+        private Line current;
+
+        public Run(List<Line> lines) {
+            this.in = null;
+            this.lines = lines;
+        }
+
+        public Run(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            this.lines = null;
+        }
+
+        /**
+         * Move to the next line of the run
+         * 
+         * @return false if the run is exhausted
+         */
+        public boolean next() throws IOException {
+            if (lines != null) {
+                current = index < lines.size() ? lines.get(index++) : null;
+            } else {
+                try {
+                    boolean directory = in.readBoolean();
+                    current = new Line(directory, readString(in),
+                            readString(in));
+                } catch (EOFException e) {
+                    current = null;
+                }
+            }
+            return current != null;
+        }
+
+        public void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOG.debug("Failed to close listing run", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param threshold
+     *            The number of entries sorted in memory
+     */
+    public LargeDirectoryLister(final int threshold) {
+        this(threshold, DEFAULT_MAX_MERGE_RUNS);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param threshold
+     *            The number of entries sorted in memory
+     * @param maxMergeRuns
+     *            The maximum number of sorted runs merged at once, at least 2
+     */
+    public LargeDirectoryLister(final int threshold, final int maxMergeRuns) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        if (maxMergeRuns < 2) {
+            throw new IllegalArgumentException(
+                    "maxMergeRuns must be at least 2");
+        }
+        this.threshold = threshold;
+        this.maxMergeRuns = maxMergeRuns;
+    }
+
+    /**
+     * Get the lister for large directories configured for the server
+     * 
+     * @param context
+     *            The server context
+     * @return The lister, null if large directories are listed as any other
+     */
+    public static LargeDirectoryLister getLister(final FtpServerContext context) {
+        int threshold = context.getListingConfig().getLargeDirectoryThreshold();
+        return threshold > 0 ? new LargeDirectoryLister(threshold) : null;
+    }
+
+    /**
+     * Write the listing of a directory
+     * 
+     * @param dir
+     *            The directory
+     * @param pattern
+     *            The pattern the names must match, null for all entries
+     * @param filter
+     *            The filter for the entries, null for all entries
+     * @param formater
+     *            The formater for the entries
+     * @param order
+     *            The order of the entries
+     * @param out
+     *            The writer to write the listing to
+     * @throws IOException
+     */
+    public void listFiles(final FtpFile dir, final GlobMatcher pattern,
+            final FileFilter filter, final FileFormater formater,
+            final ListingOrder order, final Writer out) throws IOException {
+        FtpFileIterator files = dir.iterateFiles(pattern);
+        if (files == null) {
+            return;
+        }
+
+        try {
+            if (order == ListingOrder.NONE) {
+                while (files.hasNext()) {
+                    FtpFile file = files.next();
+                    if (file != null && (filter == null || filter.accept(file))) {
+                        out.write(formater.format(file));
+                    }
+                }
+            } else {
+                sortFiles(files, filter, formater,
+                        order == ListingOrder.DIRECTORIES_FIRST
+                                ? DIRECTORIES_FIRST_COMPARATOR
+                                : NAME_COMPARATOR, out);
+            }
+        } finally {
+            files.close();
+        }
+    }
+
+    private void sortFiles(final FtpFileIterator files,
+            final FileFilter filter, final FileFormater formater,
+            final Comparator<Line> comparator, final Writer out)
+            throws IOException {
+        List<File> spilled = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        try {
+            List<Line> lines = new ArrayList<>();
+            while (files.hasNext()) {
+                FtpFile file = files.next();
+                if (file == null || (filter != null && !filter.accept(file))) {
+                    continue;
+                }
+                lines.add(new Line(file.isDirectory(), file.getName(),
+                        formater.format(file)));
+
+                if (lines.size() >= threshold) {
+                    Collections.sort(lines, comparator);
+                    spilled.add(spill(lines));
+                    lines.clear();
+                }
+            }
+            Collections.sort(lines, comparator);
+
+            if (spilled.isEmpty()) {
+                for (Line line : lines) {
+                    out.write(line.text);
+                }
+                return;
+            }
+
+            // merge the runs on disk with the last one, still in memory
+            LOG.debug("Merging {} sorted runs of a large directory listing",
+                    spilled.size());
+            while (spilled.size() >= maxMergeRuns) {
+                List<File> merged = mergePass(spilled, comparator);
+                delete(spilled);
+                spilled.clear();
+                spilled.addAll(merged);
+            }
+            runs.add(new Run(lines));
+            for (File file : spilled) {
+                runs.add(new Run(file));
+            }
+            merge(runs, comparator, line -> out.write(line.text));
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            delete(spilled);
+        }
+    }
+
+    /**
+     * Merge groups of at most the maximum number of runs into longer runs
+     */
+    private List<File> mergePass(final List<File> files,
+            final Comparator<Line> comparator) throws IOException {
+        List<File> merged = new ArrayList<>();
+        boolean written = false;
+        try {
+            for (int start = 0; start < files.size(); start += maxMergeRuns) {
+                merged.add(mergeToFile(files.subList(start, Math.min(files
+                        .size(), start + maxMergeRuns)), comparator));
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                delete(merged);
+            }
+        }
+        return merged;
+    }
+
+    private File mergeToFile(final List<File> files,
+            final Comparator<Line> comparator) throws IOException {
+        File file = File.createTempFile("ftpserver-listing", ".tmp");
+        List<Run> runs = new ArrayList<>();
+        boolean written = false;
+        try (DataOutputStream dout = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (File run : files) {
+                runs.add(new Run(run));
+            }
+            merge(runs, comparator, line -> writeLine(dout, line));
+            written = true;
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            if (!written) {
+                file.delete();
+            }
+        }
+        return file;
+    }
+
+    private static void delete(final List<File> files) {
+        for (File file : files) {
+            if (!file.delete()) {
+                LOG.warn("Failed to delete temporary listing file {}", file);
+            }
+        }
+    }
+
+    private void merge(final List<Run> runs, final Comparator<Line> comparator,
+            final LineWriter out) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(),
+                new Comparator<Run>() {
+                    public int compare(Run r1, Run r2) {
+                        return comparator.compare(r1.current, r2.current);
+                    }
+                });
+        for (Run run : runs) {
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Run run = queue.poll();
+            out.write(run.current);
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+    }
+
+    /**
+     * Write a sorted run to a temporary file
+     */
+    private File spill(final List<Line> lines) throws IOException {
+        File file = File.createTempFile("ftpserver-listing", ".tmp");
+        boolean written = false;
+        try (DataOutputStream dout = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (Line line : lines) {
+                writeLine(dout, line);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                file.delete();
+            }
+        }
+        return file;
+    }
+
+    private static void writeLine(final DataOutputStream out,
+            final Line line) throws IOException {
+        out.writeBoolean(line.directory);
+        writeString(out, line.name);
+        writeString(out, line.text);
+    }
+
+    private static void writeString(final DataOutputStream out,
+            final String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in)
+            throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
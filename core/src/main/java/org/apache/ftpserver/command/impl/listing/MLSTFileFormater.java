@@ -51,18 +51,24 @@ public class MLSTFileFormater implements FileFormater {
      * @see FileFormater#format(FtpFile)
      */
     public String format(FtpFile file) {
+        return format(file, file.getName());
+    }
+
+    /**
+     * @see FileFormater#format(FtpFile, String)
+     */
+    public String format(FtpFile file, String name) {
         StringBuilder sb = new StringBuilder();
 
         for (int i = 0; i < selectedTypes.length; ++i) {
             String type = selectedTypes[i];
             if (type.equalsIgnoreCase("size")) {
                 sb.append("Size=");
-                sb.append(String.valueOf(file.getSize()));
+                sb.append(file.getSize());
                 sb.append(';');
             } else if (type.equalsIgnoreCase("modify")) {
-                String timeStr = DateUtils.getFtpDate(file.getLastModified());
                 sb.append("Modify=");
-                sb.append(timeStr);
+                DateUtils.appendFtpDate(sb, file.getLastModified());
                 sb.append(';');
             } else if (type.equalsIgnoreCase("type")) {
                 if (file.isFile()) {
@@ -97,7 +103,7 @@ public class MLSTFileFormater implements FileFormater {
             }
         }
         sb.append(' ');
-        sb.append(file.getName());
+        sb.append(name);
 
         sb.append(NEWLINE);
 
@@ -35,8 +35,15 @@ public class NLSTFileFormater implements FileFormater {
      * @see FileFormater#format(FtpFile)
      */
     public String format(FtpFile file) {
+        return format(file, file.getName());
+    }
+
+    /**
+     * @see FileFormater#format(FtpFile, String)
+     */
+    public String format(FtpFile file, String name) {
         StringBuilder sb = new StringBuilder();
-        sb.append(file.getName());
+        sb.append(name);
         sb.append(NEWLINE);
 
         return sb.toString();
@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.listing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ftpserver.ListingConfig;
+import org.apache.ftpserver.ListingOrder;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes recursive listings (LIST -R, STAT -R). The directories are listed and
+ * their entries formated in parallel on a shared fork join pool, each listed
+ * directory forking the listing of its sub directories, while the calling
+ * thread writes the listings depth first, as soon as the next one is complete.
+ * The output is therefore always in the same order, however the work was
+ * scheduled.
+ * 
+ * The listing descends at most the configured number of levels, and is cut
+ * short when the configured number of entries have been written or the
+ * configured time has passed. The directories are listed ahead of the writer
+ * only until that number of entries have been listed, so that a slow client
+ * can not make the server buffer a whole tree.
+ * 
+ * The listing is either grouped by directory with a header line per
+ * directory, as <code>ls -lR</code> does, or, for machine readable listings,
+ * a flat list with the entries named by their path relative to the listed
+ * directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class RecursiveLister {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(RecursiveLister.class);
+
+    private static final String NEWLINE = "\r\n";
+
+    private final ForkJoinPool pool;
+
+    private final int maxDepth;
+
+    private final int maxEntries;
+
+    private final long timeout;
+
+    private final boolean pathNames;
+
+    /**
+     * A recursive listing, shared by the tasks listing its directories
+     */
+    private static class Walk {
+        private final FileFilter filter;
+
+        private final FileFormater formater;
+
+        private final ListingOrder order;
+
+        private final long deadline;
+
+        private final AtomicLong listed = new AtomicLong();
+
+        private volatile boolean stopped;
+
+        public Walk(FileFilter filter, FileFormater formater,
+                ListingOrder order, long deadline) {
+            this.filter = filter;
+            this.formater = formater;
+            this.order = order;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The listing of one directory, computed by the pool
+     */
+    private class DirectoryListing extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Walk walk;
+
+        private final FtpFile dir;
+
+        private final String path;
+
+        private final int depth;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private String[] lines;
+
+        private List<DirectoryListing> children;
+
+        public DirectoryListing(Walk walk, FtpFile dir, String path, int depth) {
+            this.walk = walk;
+            this.dir = dir;
+            this.path = path;
+            this.depth = depth;
+        }
+
+        /**
+         * The path of an entry of the directory, relative to the listed
+         * directory for flat listings, as shown in the headers otherwise
+         */
+        private String getPath(String name) {
+            if (depth == 0 && pathNames) {
+                return name;
+            } else if (path.endsWith("/")) {
+                return path + name;
+            }
+            return path + '/' + name;
+        }
+
+        /**
+         * Fork the listing unless it already has been
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                if (getPool() == pool) {
+                    fork();
+                } else {
+                    pool.execute(this);
+                }
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (walk.stopped || System.nanoTime() - walk.deadline > 0) {
+                lines = new String[0];
+                children = Collections.emptyList();
+                return;
+            }
+
+            List<? extends FtpFile> files = dir.listFiles();
+            List<FtpFile> entries = files == null ? Collections
+                    .<FtpFile> emptyList() : DirectoryLister.selectFiles(files,
+                    walk.filter, walk.order);
+
+            lines = new String[entries.size()];
+            List<DirectoryListing> subDirs = new ArrayList<>();
+            for (int i = 0; i < lines.length; i++) {
+                FtpFile entry = entries.get(i);
+                String entryPath = getPath(entry.getName());
+                lines[i] = pathNames ? walk.formater.format(entry, entryPath)
+                        : walk.formater.format(entry);
+
+                if (depth < maxDepth && entry.isDirectory()) {
+                    subDirs.add(new DirectoryListing(walk, entry, entryPath,
+                            depth + 1));
+                }
+            }
+            children = subDirs;
+
+            // list ahead of the writer until enough entries are listed
+            long listed = walk.listed.addAndGet(lines.length);
+            if (maxEntries <= 0 || listed < maxEntries) {
+                for (DirectoryListing child : subDirs) {
+                    child.schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal constructor, do not use directly.
+     * 
+     * @param config
+     *            The listing configuration with the limits
+     * @param pool
+     *            The pool the directories are listed on
+     * @param pathNames
+     *            True to write a flat listing with the entries named by their
+     *            relative path, false to write a header per directory
+     */
+    public RecursiveLister(final ListingConfig config, final ForkJoinPool pool,
+            final boolean pathNames) {
+        this.pool = pool;
+        this.maxDepth = config.getMaxRecursionDepth();
+        this.maxEntries = config.getMaxRecursiveEntries();
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(config
+                .getRecursiveListingTimeout());
+        this.pathNames = pathNames;
+    }
+
+    /**
+     * Get the lister for a listing command
+     * 
+     * @param argument
+     *            The parsed listing argument
+     * @param context
+     *            The server context
+     * @param pathNames
+     *            True to write a flat listing with the entries named by their
+     *            relative path, false to write a header per directory
+     * @return The lister, null unless the -R option is given and recursive
+     *         listings are enabled
+     */
+    public static RecursiveLister getLister(final ListArgument argument,
+            final FtpServerContext context, final boolean pathNames) {
+        ListingConfig config = context.getListingConfig();
+        if (!argument.hasOption('R') || config.getMaxRecursionDepth() == 0) {
+            return null;
+        }
+        return new RecursiveLister(config, context.getListingPool(), pathNames);
+    }
+
+    /**
+     * Are recursive listings enabled
+     * 
+     * @return true unless the maximum depth is 0
+     */
+    public boolean isEnabled() {
+        return maxDepth > 0;
+    }
+
+    /**
+     * Write the recursive listing of a directory
+     * 
+     * @param dir
+     *            The directory to list
+     * @param dirName
+     *            The name of the directory as given by the client
+     * @param filter
+     *            The filter for the entries, or null
+     * @param formater
+     *            The formater for the entries
+     * @param order
+     *            The order of the entries in each directory
+     * @param out
+     *            The writer to write the listing to
+     * @throws IOException
+     */
+    public void listFiles(final FtpFile dir, final String dirName,
+            final FileFilter filter, final FileFormater formater,
+            final ListingOrder order, final Writer out) throws IOException {
+        long start = System.nanoTime();
+        // a deadline far enough in the future not to overflow
+        long deadline = start + (timeout > 0 ? timeout : Long.MAX_VALUE / 2);
+        Walk walk = new Walk(filter, formater, order, deadline);
+
+        DirectoryListing root = new DirectoryListing(walk, dir,
+                getHeader(dirName), 0);
+        long[] written = new long[1];
+        try {
+            if (!write(root, walk, written, out)) {
+                LOG.debug("Recursive listing of {} cut short after {} entries",
+                        dirName, written[0]);
+            }
+        } finally {
+            // let the listings still queued finish without listing
+            walk.stopped = true;
+        }
+    }
+
+    /**
+     * Write a directory listing then the listings of its sub directories
+     * 
+     * @return false if the listing was cut short
+     */
+    private boolean write(DirectoryListing listing, Walk walk, long[] written,
+            Writer out) throws IOException {
+        listing.schedule();
+        if (!await(listing, walk)) {
+            return false;
+        }
+
+        if (!pathNames) {
+            if (listing.depth > 0) {
+                out.write(NEWLINE);
+            }
+            out.write(listing.path);
+            out.write(':');
+            out.write(NEWLINE);
+        }
+
+        String[] lines = listing.lines;
+        List<DirectoryListing> children = listing.children;
+        // let the listing be collected once written
+        listing.lines = null;
+        listing.children = null;
+
+        for (String line : lines) {
+            if (maxEntries > 0 && written[0] >= maxEntries) {
+                return false;
+            }
+            out.write(line);
+            written[0]++;
+        }
+
+        for (int i = 0; i < children.size(); i++) {
+            DirectoryListing child = children.get(i);
+            children.set(i, null);
+            if (!write(child, walk, written, out)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for a directory listing to complete
+     * 
+     * @return false if the deadline passed
+     */
+    private boolean await(DirectoryListing listing, Walk walk)
+            throws IOException {
+        try {
+            long remaining = walk.deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            listing.get(remaining, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Recursive listing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The header of the listed directory, the name given by the client without
+     * a trailing slash
+     */
+    private static String getHeader(String dirName) {
+        String header = dirName;
+        while (header.length() > 1 && header.endsWith("/")) {
+            header = header.substring(0, header.length() - 1);
+        }
+        return header;
+    }
+}
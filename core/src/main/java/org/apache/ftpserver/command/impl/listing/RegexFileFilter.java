@@ -19,7 +19,7 @@
 package org.apache.ftpserver.command.impl.listing;
 
 import org.apache.ftpserver.ftplet.FtpFile;
-import org.apache.ftpserver.util.RegularExpr;
+import org.apache.ftpserver.util.GlobMatcher;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
@@ -30,7 +30,7 @@ import org.apache.ftpserver.util.RegularExpr;
  */
 public class RegexFileFilter implements FileFilter {
 
-    private final RegularExpr regex;
+    private final GlobMatcher regex;
 
     private final FileFilter wrappedFilter;
 
@@ -53,7 +53,19 @@ public class RegexFileFilter implements FileFilter {
      *            The {@link FileFilter} to wrap
      */
     public RegexFileFilter(String regex, FileFilter wrappedFilter) {
-        this.regex = new RegularExpr(regex);
+        this(GlobMatcher.compile(regex), wrappedFilter);
+    }
+
+    /**
+     * Constructor with a compiled regular expression and a wrapped filter
+     * 
+     * @param regex
+     *            The compiled regular expression to select by
+     * @param wrappedFilter
+     *            The {@link FileFilter} to wrap
+     */
+    public RegexFileFilter(GlobMatcher regex, FileFilter wrappedFilter) {
+        this.regex = regex;
         this.wrappedFilter = wrappedFilter;
     }
 
@@ -65,7 +77,7 @@ public class RegexFileFilter implements FileFilter {
             return false;
         }
 
-        return regex.isMatch(file.getName());
+        return regex.matches(file.getName());
     }
 
 }
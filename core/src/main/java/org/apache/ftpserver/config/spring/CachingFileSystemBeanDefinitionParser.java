@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.config.spring;
+
+import org.apache.ftpserver.filesystem.cache.CachingFileSystemFactory;
+import org.apache.ftpserver.filesystem.cache.ListingCacheRevalidation;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Parses the FtpServer "caching-filesystem" element into a Spring bean graph
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachingFileSystemBeanDefinitionParser extends
+        AbstractSingleBeanDefinitionParser {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<CachingFileSystemFactory> getBeanClass(
+            final Element element) {
+        return CachingFileSystemFactory.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doParse(final Element element,
+            final ParserContext parserContext,
+            final BeanDefinitionBuilder builder) {
+        if (StringUtils.hasText(element.getAttribute("max-listings"))) {
+            builder.addPropertyValue("maxListings", SpringUtil.parseInt(
+                    element, "max-listings"));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-files-per-listing"))) {
+            builder.addPropertyValue("maxFilesPerListing", SpringUtil
+                    .parseInt(element, "max-files-per-listing"));
+        }
+        if (StringUtils.hasText(element.getAttribute("revalidation"))) {
+            builder.addPropertyValue("revalidation", ListingCacheRevalidation
+                    .valueOf(element.getAttribute("revalidation")));
+        }
+        if (StringUtils.hasText(element.getAttribute("content-cache-size"))) {
+            builder.addPropertyValue("contentCacheSize", Long.valueOf(element
+                    .getAttribute("content-cache-size")));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-cached-file-size"))) {
+            builder.addPropertyValue("maxCachedFileSize", SpringUtil
+                    .parseInt(element, "max-cached-file-size"));
+        }
+        if (StringUtils.hasText(element.getAttribute("content-cache-off-heap"))) {
+            builder.addPropertyValue("contentCacheOffHeap", SpringUtil
+                    .parseBoolean(element, "content-cache-off-heap", false));
+        }
+
+        Element childElm = SpringUtil.getChildElement(element, null, null);
+        if (childElm != null) {
+            String childName = childElm.getLocalName();
+            if ("filesystem".equals(childName)) {
+                builder.addPropertyValue("fileSystem", SpringUtil
+                        .parseSpringChildElement(childElm, parserContext,
+                                builder));
+            } else {
+                builder.addPropertyValue("fileSystem", parserContext
+                        .getDelegate().parseCustomElement(childElm,
+                                builder.getBeanDefinition()));
+            }
+        }
+    }
+}
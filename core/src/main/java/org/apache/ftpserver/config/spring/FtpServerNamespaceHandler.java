@@ -47,6 +47,20 @@ public class FtpServerNamespaceHandler extends NamespaceHandlerSupport {
                 new UserManagerBeanDefinitionParser());
         registerBeanDefinitionParser("native-filesystem",
                 new FileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("nio-filesystem",
+                new FileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("caching-filesystem",
+                new CachingFileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("memory-filesystem",
+                new MemoryFileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("mirror-filesystem",
+                new MirrorFileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("tiered-filesystem",
+                new TieredFileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("striped-filesystem",
+                new StripedFileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("quota-filesystem",
+                new QuotaFileSystemBeanDefinitionParser());
         registerBeanDefinitionParser("commands",
                 new CommandFactoryBeanDefinitionParser());
 
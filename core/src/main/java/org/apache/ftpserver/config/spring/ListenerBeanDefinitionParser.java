@@ -88,6 +88,11 @@ public class ListenerBeanDefinitionParser extends
                     element, "idle-timeout", 300));
         }
 
+        if (StringUtils.hasText(element.getAttribute("acceptor-count"))) {
+            factoryBuilder.addPropertyValue("acceptorCount", SpringUtil.parseInt(
+                    element, "acceptor-count", 1));
+        }
+
         String localAddress = SpringUtil.parseStringFromInetAddress(element,
                 "local-address");
         if (localAddress != null) {
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.config.spring;
+
+import org.apache.ftpserver.filesystem.quota.QuotaFileSystemFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Parses the FtpServer "quota-filesystem" element into a Spring bean graph
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaFileSystemBeanDefinitionParser extends
+        AbstractSingleBeanDefinitionParser {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<QuotaFileSystemFactory> getBeanClass(
+            final Element element) {
+        return QuotaFileSystemFactory.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doParse(final Element element,
+            final ParserContext parserContext,
+            final BeanDefinitionBuilder builder) {
+        if (StringUtils.hasText(element.getAttribute("checkpoint-file"))) {
+            builder.addPropertyValue("checkpointFile", SpringUtil.parseFile(
+                    element, "checkpoint-file"));
+        }
+        if (StringUtils.hasText(element.getAttribute("checkpoint-interval"))) {
+            builder.addPropertyValue("checkpointInterval", SpringUtil
+                    .parseInt(element, "checkpoint-interval"));
+        }
+        if (StringUtils.hasText(element.getAttribute("scan-threads"))) {
+            builder.addPropertyValue("scanThreads", SpringUtil.parseInt(
+                    element, "scan-threads"));
+        }
+
+        Element childElm = SpringUtil.getChildElement(element, null, null);
+        if (childElm != null) {
+            String childName = childElm.getLocalName();
+            if ("filesystem".equals(childName)) {
+                builder.addPropertyValue("fileSystem", SpringUtil
+                        .parseSpringChildElement(childElm, parserContext,
+                                builder));
+            } else {
+                builder.addPropertyValue("fileSystem", parserContext
+                        .getDelegate().parseCustomElement(childElm,
+                                builder.getBeanDefinition()));
+            }
+        }
+    }
+}
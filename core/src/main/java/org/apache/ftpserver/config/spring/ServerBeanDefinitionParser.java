@@ -28,6 +28,8 @@ import org.apache.ftpserver.ConnectionConfigFactory;
 import org.apache.ftpserver.FtpServer;
 import org.apache.ftpserver.FtpServerConfigurationException;
 import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ListingConfigFactory;
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.message.MessageResource;
 import org.apache.ftpserver.message.MessageResourceFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -88,7 +90,14 @@ public class ServerBeanDefinitionParser extends
                 factoryBuilder.addPropertyValue("userManager", SpringUtil
                         .parseSpringChildElement(childElm, parserContext,
                                 builder));
-            } else if ("native-filesystem".equals(childName)) {
+            } else if ("native-filesystem".equals(childName)
+                    || "nio-filesystem".equals(childName)
+                    || "caching-filesystem".equals(childName)
+                    || "memory-filesystem".equals(childName)
+                    || "mirror-filesystem".equals(childName)
+                    || "tiered-filesystem".equals(childName)
+                    || "striped-filesystem".equals(childName)
+                    || "quota-filesystem".equals(childName)) {
                 Object fileSystem = parserContext.getDelegate()
                         .parseCustomElement(childElm,
                                 builder.getBeanDefinition());
@@ -140,8 +149,55 @@ public class ServerBeanDefinitionParser extends
                     "login-failure-delay"));
         }
 
+        if (StringUtils.hasText(element.getAttribute("connection-shedding-threshold"))) {
+            connectionConfig.setConnectionSheddingThreshold(SpringUtil.parseInt(
+                    element, "connection-shedding-threshold"));
+        }
+        if (StringUtils.hasText(element.getAttribute("transfer-shedding-threshold"))) {
+            connectionConfig.setTransferSheddingThreshold(SpringUtil.parseInt(
+                    element, "transfer-shedding-threshold"));
+        }
+
         factoryBuilder.addPropertyValue("connectionConfig", connectionConfig.createConnectionConfig());
 
+        // Configure directory listings
+        ListingConfigFactory listingConfig = new ListingConfigFactory();
+        if (StringUtils.hasText(element.getAttribute("listing-order"))) {
+            listingConfig.setOrder(ListingOrder.valueOf(element
+                    .getAttribute("listing-order")));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-recursion-depth"))) {
+            listingConfig.setMaxRecursionDepth(SpringUtil.parseInt(element,
+                    "max-recursion-depth"));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-recursive-entries"))) {
+            listingConfig.setMaxRecursiveEntries(SpringUtil.parseInt(element,
+                    "max-recursive-entries"));
+        }
+        if (StringUtils.hasText(element.getAttribute("recursive-listing-timeout"))) {
+            listingConfig.setRecursiveListingTimeout(SpringUtil.parseInt(
+                    element, "recursive-listing-timeout"));
+        }
+        if (StringUtils.hasText(element.getAttribute("recursive-listing-threads"))) {
+            listingConfig.setRecursiveListingThreads(SpringUtil.parseInt(
+                    element, "recursive-listing-threads"));
+        }
+        if (StringUtils.hasText(element.getAttribute("large-directory-threshold"))) {
+            listingConfig.setLargeDirectoryThreshold(SpringUtil.parseInt(
+                    element, "large-directory-threshold"));
+        }
+
+        if (StringUtils.hasText(element.getAttribute("archive-downloads"))) {
+            listingConfig.setArchiveDownloadEnabled(SpringUtil.parseBoolean(
+                    element, "archive-downloads", false));
+        }
+        if (StringUtils.hasText(element.getAttribute("archive-read-ahead"))) {
+            listingConfig.setArchiveReadAhead(SpringUtil.parseInt(element,
+                    "archive-read-ahead"));
+        }
+
+        factoryBuilder.addPropertyValue("listingConfig", listingConfig.createListingConfig());
+
        
         BeanDefinition factoryDefinition = factoryBuilder.getBeanDefinition();
 
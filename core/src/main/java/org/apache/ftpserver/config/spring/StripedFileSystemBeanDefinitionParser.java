@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.config.spring;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ftpserver.filesystem.striped.StripedFileSystemFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Parses the FtpServer "striped-filesystem" element into a Spring bean graph
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class StripedFileSystemBeanDefinitionParser extends
+        AbstractSingleBeanDefinitionParser {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<StripedFileSystemFactory> getBeanClass(
+            final Element element) {
+        return StripedFileSystemFactory.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doParse(final Element element,
+            final ParserContext parserContext,
+            final BeanDefinitionBuilder builder) {
+        builder.addPropertyValue("placementFile", SpringUtil.parseFile(
+                element, "placement-file"));
+        if (StringUtils.hasText(element.getAttribute("min-free-space"))) {
+            builder.addPropertyValue("minFreeSpace", Long.valueOf(element
+                    .getAttribute("min-free-space")));
+        }
+        if (StringUtils.hasText(element.getAttribute("probe-interval"))) {
+            builder.addPropertyValue("probeInterval", SpringUtil.parseInt(
+                    element, "probe-interval"));
+        }
+        if (StringUtils.hasText(element.getAttribute("case-insensitive"))) {
+            builder.addPropertyValue("caseInsensitive", SpringUtil
+                    .parseBoolean(element, "case-insensitive", false));
+        }
+
+        List<File> volumes = new ArrayList<>();
+        for (Element volumeElm : SpringUtil.getChildElements(element)) {
+            if ("volume".equals(volumeElm.getLocalName())) {
+                volumes.add(new File(volumeElm.getTextContent().trim()));
+            }
+        }
+        builder.addPropertyValue("volumes", volumes);
+    }
+}
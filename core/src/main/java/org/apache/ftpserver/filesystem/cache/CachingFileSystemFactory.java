@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache;
+
+import org.apache.ftpserver.filesystem.cache.impl.CachingFileSystemView;
+import org.apache.ftpserver.filesystem.cache.impl.ContentCache;
+import org.apache.ftpserver.filesystem.cache.impl.ListingCache;
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * File system factory caching the directory listings of another file system.
+ * The listings are shared by all sessions of the same user and are
+ * invalidated when a file is changed through the server. Changes made by
+ * other processes are detected depending on the
+ * {@link ListingCacheRevalidation} used.
+ *
+ * Optionally, the content of small files is cached as well so that popular
+ * files are downloaded without reading them from the file system. A cached
+ * file is read again when its size or last modified time changes.
+ *
+ * The cache is created with the current configuration when the first file
+ * system view is created, later configuration changes have no effect.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachingFileSystemFactory implements FileSystemFactory {
+
+    private FileSystemFactory fileSystem = new NativeFileSystemFactory();
+
+    private int maxListings = 1000;
+
+    private int maxFilesPerListing = 10000;
+
+    private ListingCacheRevalidation revalidation = ListingCacheRevalidation.NONE;
+
+    private long contentCacheSize;
+
+    private int maxCachedFileSize = 64 * 1024;
+
+    private boolean contentCacheOffHeap;
+
+    private ListingCache cache;
+
+    private ContentCache contentCache;
+
+    /**
+     * Get the file system which listings are cached
+     * @return The cached file system
+     */
+    public FileSystemFactory getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Set the file system which listings are cached, by default the native
+     * file system
+     * @param fileSystem The cached file system
+     */
+    public void setFileSystem(FileSystemFactory fileSystem) {
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem can not be null");
+        }
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Get the maximum number of cached listings
+     * @return The maximum number of listings
+     */
+    public int getMaxListings() {
+        return maxListings;
+    }
+
+    /**
+     * Set the maximum number of cached listings. The least recently used
+     * listing is removed when the cache is full. The default is 1000.
+     * @param maxListings The maximum number of listings
+     */
+    public void setMaxListings(int maxListings) {
+        this.maxListings = maxListings;
+    }
+
+    /**
+     * Get the number of files above which a listing is not cached
+     * @return The maximum number of files in a cached listing
+     */
+    public int getMaxFilesPerListing() {
+        return maxFilesPerListing;
+    }
+
+    /**
+     * Set the number of files above which a listing is not cached. The
+     * default is 10000.
+     * @param maxFilesPerListing The maximum number of files in a cached listing
+     */
+    public void setMaxFilesPerListing(int maxFilesPerListing) {
+        this.maxFilesPerListing = maxFilesPerListing;
+    }
+
+    /**
+     * Get how changes made outside the server are detected
+     * @return The revalidation
+     */
+    public ListingCacheRevalidation getRevalidation() {
+        return revalidation;
+    }
+
+    /**
+     * Set how changes made outside the server are detected. The default is
+     * {@link ListingCacheRevalidation#NONE}.
+     * @param revalidation The revalidation
+     */
+    public void setRevalidation(ListingCacheRevalidation revalidation) {
+        if (revalidation == null) {
+            throw new IllegalArgumentException("revalidation can not be null");
+        }
+        this.revalidation = revalidation;
+    }
+
+    /**
+     * Get the maximum total size of the cached file contents
+     * @return The maximum size in bytes, 0 if file contents are not cached
+     */
+    public long getContentCacheSize() {
+        return contentCacheSize;
+    }
+
+    /**
+     * Set the maximum total size of the cached file contents. The least
+     * recently downloaded file is removed when the cache is full. The
+     * default is 0, which disables the content cache.
+     * @param contentCacheSize The maximum size in bytes
+     */
+    public void setContentCacheSize(long contentCacheSize) {
+        if (contentCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "contentCacheSize can not be negative");
+        }
+        this.contentCacheSize = contentCacheSize;
+    }
+
+    /**
+     * Get the size above which the content of a file is not cached
+     * @return The maximum size in bytes
+     */
+    public int getMaxCachedFileSize() {
+        return maxCachedFileSize;
+    }
+
+    /**
+     * Set the size above which the content of a file is not cached. The
+     * default is 64 KiB.
+     * @param maxCachedFileSize The maximum size in bytes
+     */
+    public void setMaxCachedFileSize(int maxCachedFileSize) {
+        if (maxCachedFileSize < 1) {
+            throw new IllegalArgumentException(
+                    "maxCachedFileSize must be positive");
+        }
+        this.maxCachedFileSize = maxCachedFileSize;
+    }
+
+    /**
+     * Are the cached file contents kept outside the Java heap
+     * @return true if the contents are kept in direct buffers
+     */
+    public boolean isContentCacheOffHeap() {
+        return contentCacheOffHeap;
+    }
+
+    /**
+     * Set whether the cached file contents are kept in direct buffers,
+     * outside the Java heap. The default is false.
+     * @param contentCacheOffHeap true to keep the contents in direct buffers
+     */
+    public void setContentCacheOffHeap(boolean contentCacheOffHeap) {
+        this.contentCacheOffHeap = contentCacheOffHeap;
+    }
+
+    /**
+     * Get the statistics of the cache
+     * @return The statistics
+     */
+    public ListingCacheStatistics getStatistics() {
+        return getCache();
+    }
+
+    /**
+     * Get the statistics of the content cache
+     * @return The statistics, null if file contents are not cached
+     */
+    public ContentCacheStatistics getContentCacheStatistics() {
+        getCache();
+        return contentCache;
+    }
+
+    /**
+     * Remove all cached listings and file contents
+     */
+    public void clear() {
+        getCache().clear();
+        if (contentCache != null) {
+            contentCache.clear();
+        }
+    }
+
+    private synchronized ListingCache getCache() {
+        if (cache == null) {
+            cache = new ListingCache(maxListings, maxFilesPerListing,
+                    revalidation);
+            if (contentCacheSize > 0) {
+                contentCache = new ContentCache(contentCacheSize,
+                        maxCachedFileSize, contentCacheOffHeap);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        ListingCache listingCache = getCache();
+        return new CachingFileSystemView(fileSystem.createFileSystemView(user),
+                listingCache, contentCache, user);
+    }
+}
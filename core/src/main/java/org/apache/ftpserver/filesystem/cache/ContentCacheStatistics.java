@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache;
+
+/**
+ * Statistics of a file content cache
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ContentCacheStatistics {
+
+    /**
+     * Get the number of downloads served from the cache
+     * @return The number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Get the number of downloads of files small enough to be cached which
+     * were read from the file system, including files which were cached but
+     * found to be out of date
+     * @return The number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Get the ratio of hits to all downloads of files small enough to be
+     * cached
+     * @return The hit rate, between 0 and 1
+     */
+    double getHitRate();
+
+    /**
+     * Get the number of bytes served from the cache instead of being read
+     * from the file system
+     * @return The number of bytes saved
+     */
+    long getBytesSaved();
+
+    /**
+     * Get the number of files removed to keep the cache within its size
+     * @return The number of evictions
+     */
+    long getEvictionCount();
+
+    /**
+     * Get the number of files removed because they were changed
+     * @return The number of invalidations
+     */
+    long getInvalidationCount();
+
+    /**
+     * Get the number of cached files
+     * @return The number of files
+     */
+    int getFileCount();
+
+    /**
+     * Get the total size of the cached files
+     * @return The size in bytes
+     */
+    long getSize();
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache;
+
+/**
+ * How the directory listing cache detects changes made to the file system
+ * by other processes than this server. Changes made through this server are
+ * always detected.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public enum ListingCacheRevalidation {
+
+    /**
+     * Changes made outside the server are not detected, a listing stays
+     * cached until it is changed through the server or evicted
+     */
+    NONE,
+
+    /**
+     * The last modified time of the directory is compared with the time at
+     * which the listing was cached each time the listing is used. Adding,
+     * removing or renaming a file changes the time of the directory, but
+     * changing the content of a file in place does not.
+     */
+    MTIME,
+
+    /**
+     * Cached directories are registered with a
+     * {@link java.nio.file.WatchService} and are invalidated when an event is
+     * received for them. Only directories of the default file system can be
+     * watched, and events are delivered asynchronously.
+     */
+    WATCH
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file of a cached listing. The attributes are read from the wrapped file
+ * the first time they are needed and then shared by all sessions the listing
+ * is served to. Once the file has been changed through this object, the
+ * attributes are read from the wrapped file again.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachedFtpFile extends CachingFtpFile {
+
+    // the attributes, null until read. Several threads might read the same
+    // attribute concurrently, which is harmless
+    private volatile Boolean hidden;
+
+    private volatile Boolean directory;
+
+    private volatile Boolean file;
+
+    private volatile Boolean exists;
+
+    private volatile Boolean readable;
+
+    private volatile Boolean writable;
+
+    private volatile Boolean removable;
+
+    private volatile String ownerName;
+
+    private volatile String groupName;
+
+    private volatile Integer linkCount;
+
+    private volatile Long lastModified;
+
+    private volatile Long size;
+
+    private volatile boolean stale;
+
+    CachedFtpFile(final FtpFile delegate, final ListingCache cache,
+            final ContentCache contentCache, final String userName) {
+        super(delegate, cache, contentCache, userName);
+    }
+
+    @Override
+    protected void changed() {
+        stale = true;
+        super.changed();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attributes of this file are already read only once.
+     */
+    @Override
+    public FtpFile snapshot() {
+        return this;
+    }
+
+    @Override
+    public void refresh() {
+        hidden = null;
+        directory = null;
+        file = null;
+        exists = null;
+        readable = null;
+        writable = null;
+        removable = null;
+        ownerName = null;
+        groupName = null;
+        linkCount = null;
+        lastModified = null;
+        size = null;
+        super.refresh();
+    }
+
+    @Override
+    public boolean isHidden() {
+        Boolean value = hidden;
+        if (value == null || stale) {
+            value = super.isHidden();
+            hidden = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        Boolean value = directory;
+        if (value == null || stale) {
+            value = super.isDirectory();
+            directory = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isFile() {
+        Boolean value = file;
+        if (value == null || stale) {
+            value = super.isFile();
+            file = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean doesExist() {
+        Boolean value = exists;
+        if (value == null || stale) {
+            value = super.doesExist();
+            exists = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isReadable() {
+        Boolean value = readable;
+        if (value == null || stale) {
+            value = super.isReadable();
+            readable = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isWritable() {
+        Boolean value = writable;
+        if (value == null || stale) {
+            value = super.isWritable();
+            writable = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isRemovable() {
+        Boolean value = removable;
+        if (value == null || stale) {
+            value = super.isRemovable();
+            removable = value;
+        }
+        return value;
+    }
+
+    @Override
+    public String getOwnerName() {
+        String value = ownerName;
+        if (value == null || stale) {
+            value = super.getOwnerName();
+            ownerName = value;
+        }
+        return value;
+    }
+
+    @Override
+    public String getGroupName() {
+        String value = groupName;
+        if (value == null || stale) {
+            value = super.getGroupName();
+            groupName = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int getLinkCount() {
+        Integer value = linkCount;
+        if (value == null || stale) {
+            value = super.getLinkCount();
+            linkCount = value;
+        }
+        return value;
+    }
+
+    @Override
+    public long getLastModified() {
+        Long value = lastModified;
+        if (value == null || stale) {
+            value = super.getLastModified();
+            lastModified = value;
+        }
+        return value;
+    }
+
+    @Override
+    public long getSize() {
+        Long value = size;
+        if (value == null || stale) {
+            value = super.getSize();
+            size = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A cached directory listing
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachedListing {
+
+    // rough size of the objects kept for each file, not counting the paths
+    private static final int FILE_OVERHEAD = 256;
+
+    private final long lastModified;
+
+    private final List<CachedFtpFile> files;
+
+    private final long estimatedMemory;
+
+    CachedListing(long lastModified, List<CachedFtpFile> files) {
+        this.lastModified = lastModified;
+        this.files = Collections.unmodifiableList(files);
+
+        long memory = 0;
+        for (FtpFile file : files) {
+            // the virtual and the physical path, two bytes per character
+            memory += FILE_OVERHEAD + 4 * file.getAbsolutePath().length();
+        }
+        this.estimatedMemory = memory;
+    }
+
+    /**
+     * The last modified time of the directory when it was listed, or 0 if not
+     * read
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    List<CachedFtpFile> getFiles() {
+        return files;
+    }
+
+    long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+}
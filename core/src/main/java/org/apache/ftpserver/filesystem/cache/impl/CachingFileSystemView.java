@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view wrapping the files of another view in
+ * {@link CachingFtpFile}s.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachingFileSystemView implements FileSystemView {
+
+    private final FileSystemView delegate;
+
+    private final ListingCache cache;
+
+    private final ContentCache contentCache;
+
+    private final String userName;
+
+    /**
+     * @param contentCache
+     *            The cache of file contents, null to read all files from the
+     *            wrapped view
+     */
+    public CachingFileSystemView(final FileSystemView delegate,
+            final ListingCache cache, final ContentCache contentCache,
+            final User user) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate can not be null");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("cache can not be null");
+        }
+        if (user == null) {
+            throw new IllegalArgumentException("user can not be null");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+        this.contentCache = contentCache;
+        this.userName = user.getName();
+    }
+
+    private FtpFile wrap(FtpFile file) {
+        return file == null ? null : new CachingFtpFile(file, cache,
+                contentCache, userName);
+    }
+
+    public FtpFile getHomeDirectory() throws FtpException {
+        return wrap(delegate.getHomeDirectory());
+    }
+
+    public FtpFile getWorkingDirectory() throws FtpException {
+        return wrap(delegate.getWorkingDirectory());
+    }
+
+    public boolean changeWorkingDirectory(String dir) throws FtpException {
+        return delegate.changeWorkingDirectory(dir);
+    }
+
+    public FtpFile getFile(String file) throws FtpException {
+        return wrap(delegate.getFile(file));
+    }
+
+    public boolean isRandomAccessible() throws FtpException {
+        return delegate.isRandomAccessible();
+    }
+
+    public void dispose() {
+        delegate.dispose();
+    }
+}
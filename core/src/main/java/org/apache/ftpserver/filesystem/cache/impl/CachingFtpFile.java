@@ -0,0 +1,546 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File wrapper which serves directory listings from a {@link ListingCache}
+ * and invalidates the cached listings when the file is changed, which covers
+ * all commands changing the file system (STOR, APPE, STOU, DELE, RNTO, MKD,
+ * RMD and MFMT).
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CachingFtpFile implements FtpFile {
+
+    private static final Comparator<FtpFile> NAME_COMPARATOR = new Comparator<FtpFile>() {
+        public int compare(FtpFile f1, FtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private final FtpFile delegate;
+
+    private final ListingCache cache;
+
+    // null if the content of files is not cached
+    private final ContentCache contentCache;
+
+    private final String userName;
+
+    CachingFtpFile(final FtpFile delegate, final ListingCache cache,
+            final ContentCache contentCache, final String userName) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.contentCache = contentCache;
+        this.userName = userName;
+    }
+
+    /**
+     * Get the wrapped file
+     */
+    public FtpFile getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Called after the file has been changed through this object
+     */
+    protected void changed() {
+        Path path = ListingCache.getPath(delegate);
+        if (path != null) {
+            // the listing of the parent contains the attributes of this file,
+            // and if this is a directory its own listing might be cached
+            if (path.getParent() != null) {
+                cache.invalidate(path.getParent());
+            }
+            cache.invalidate(path);
+            if (contentCache != null) {
+                contentCache.invalidate(path);
+            }
+        }
+    }
+
+    public String getAbsolutePath() {
+        return delegate.getAbsolutePath();
+    }
+
+    public String getName() {
+        return delegate.getName();
+    }
+
+    public boolean isHidden() {
+        return delegate.isHidden();
+    }
+
+    public boolean isDirectory() {
+        return delegate.isDirectory();
+    }
+
+    public boolean isFile() {
+        return delegate.isFile();
+    }
+
+    public boolean doesExist() {
+        return delegate.doesExist();
+    }
+
+    public boolean isReadable() {
+        return delegate.isReadable();
+    }
+
+    public boolean isWritable() {
+        return delegate.isWritable();
+    }
+
+    public boolean isRemovable() {
+        return delegate.isRemovable();
+    }
+
+    public String getOwnerName() {
+        return delegate.getOwnerName();
+    }
+
+    public String getGroupName() {
+        return delegate.getGroupName();
+    }
+
+    public int getLinkCount() {
+        return delegate.getLinkCount();
+    }
+
+    public long getLastModified() {
+        return delegate.getLastModified();
+    }
+
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    public Object getPhysicalFile() {
+        return delegate.getPhysicalFile();
+    }
+
+    public boolean setLastModified(long time) {
+        try {
+            return delegate.setLastModified(time);
+        } finally {
+            changed();
+        }
+    }
+
+    public boolean mkdir() {
+        try {
+            return delegate.mkdir();
+        } finally {
+            changed();
+        }
+    }
+
+    public boolean delete() {
+        try {
+            return delegate.delete();
+        } finally {
+            changed();
+        }
+    }
+
+    public boolean move(FtpFile destination) {
+        CachingFtpFile cachingDestination = null;
+        FtpFile unwrapped = destination;
+        if (destination instanceof CachingFtpFile) {
+            cachingDestination = (CachingFtpFile) destination;
+            unwrapped = cachingDestination.delegate;
+        }
+
+        try {
+            return delegate.move(unwrapped);
+        } finally {
+            changed();
+            if (cachingDestination != null) {
+                cachingDestination.changed();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The listing is served from the cache if possible.
+     */
+    public List<? extends FtpFile> listFiles() {
+        Path path = ListingCache.getPath(delegate);
+        if (path == null) {
+            // can not be cached, but the files must still invalidate
+            // the cache when changed
+            List<? extends FtpFile> files = delegate.listFiles();
+            if (files == null) {
+                return null;
+            }
+            List<FtpFile> wrapped = new ArrayList<>(files.size());
+            for (FtpFile file : files) {
+                wrapped.add(new CachingFtpFile(file, cache, contentCache,
+                        userName));
+            }
+            return Collections.unmodifiableList(wrapped);
+        }
+
+        ListingCache.Key key = new ListingCache.Key(path, userName);
+        CachedListing listing = cache.get(key, delegate);
+        if (listing != null) {
+            return listing.getFiles();
+        }
+
+        long generation = cache.getGeneration();
+        long lastModified = cache.isRevalidatingModifiedTime() ? delegate
+                .getLastModified() : 0;
+        List<? extends FtpFile> files = delegate.listFiles();
+        if (files == null) {
+            return null;
+        }
+
+        List<CachedFtpFile> cachedFiles = new ArrayList<>(files.size());
+        for (FtpFile file : files) {
+            cachedFiles.add(new CachedFtpFile(file, cache, contentCache,
+                    userName));
+        }
+        listing = new CachedListing(lastModified, cachedFiles);
+        cache.put(key, listing, generation);
+        return listing.getFiles();
+    }
+
+    /**
+     * The listing is served from the cache if possible. Otherwise the files
+     * are read lazily from the wrapped file and, if all the files are
+     * iterated over and there are not too many, cached.
+     */
+    public FtpFileIterator iterateFiles(final Predicate<String> nameFilter) {
+        final Path path = ListingCache.getPath(delegate);
+        final ListingCache.Key key = path == null ? null
+                : new ListingCache.Key(path, userName);
+        if (key != null) {
+            CachedListing listing = cache.get(key, delegate);
+            if (listing != null) {
+                return iterate(listing.getFiles(), nameFilter);
+            }
+        }
+
+        final long generation = cache.getGeneration();
+        final long lastModified = key != null
+                && cache.isRevalidatingModifiedTime() ? delegate
+                .getLastModified() : 0;
+        final FtpFileIterator files = delegate.iterateFiles(nameFilter);
+        if (files == null) {
+            return null;
+        }
+
+        return new FtpFileIterator() {
+            // the files read so far, while the whole listing can be cached
+            private List<CachedFtpFile> cachedFiles = key != null
+                    && nameFilter == null ? new ArrayList<CachedFtpFile>()
+                    : null;
+
+            public boolean hasNext() {
+                boolean hasNext = files.hasNext();
+                if (!hasNext && cachedFiles != null) {
+                    Collections.sort(cachedFiles, NAME_COMPARATOR);
+                    cache.put(key, new CachedListing(lastModified,
+                            cachedFiles), generation);
+                    cachedFiles = null;
+                }
+                return hasNext;
+            }
+
+            public FtpFile next() {
+                FtpFile file = files.next();
+                if (cachedFiles != null
+                        && cachedFiles.size() < cache.getMaxFilesPerListing()) {
+                    CachedFtpFile cachedFile = new CachedFtpFile(file, cache,
+                            contentCache, userName);
+                    cachedFiles.add(cachedFile);
+                    return cachedFile;
+                }
+                // too many files to cache
+                cachedFiles = null;
+                return new CachingFtpFile(file, cache, contentCache,
+                        userName);
+            }
+
+            public void close() {
+                cachedFiles = null;
+                files.close();
+            }
+        };
+    }
+
+    private static FtpFileIterator iterate(List<? extends FtpFile> files,
+            Predicate<String> nameFilter) {
+        final Iterator<? extends FtpFile> iterator = files.iterator();
+        return new FtpFileIterator() {
+            private FtpFile next;
+
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    FtpFile file = iterator.next();
+                    if (nameFilter == null || nameFilter.test(file.getName())) {
+                        next = file;
+                    }
+                }
+                return next != null;
+            }
+
+            public FtpFile next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FtpFile file = next;
+                next = null;
+                return file;
+            }
+
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+    public OutputStream createOutputStream(long offset) throws IOException {
+        OutputStream out;
+        try {
+            out = delegate.createOutputStream(offset);
+        } finally {
+            changed();
+        }
+
+        // the size and time of the file change while writing
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    changed();
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Small files are served from the content cache if possible.
+     */
+    public InputStream createInputStream(long offset) throws IOException {
+        final ByteBuffer content = getCachedContent(offset);
+        if (content == null) {
+            return delegate.createInputStream(offset);
+        }
+
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return content.hasRemaining() ? content.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!content.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, content.remaining());
+                content.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                int count = (int) Math.max(0, Math.min(n, content.remaining()));
+                content.position(content.position() + count);
+                return count;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return content.remaining();
+            }
+        };
+    }
+
+    /**
+     * Get the content of this file from the content cache
+     * 
+     * @param offset
+     *            The offset to read from
+     * @return The content, positioned at the offset, or null if the file is
+     *         not cached and can not be cached
+     * @throws IOException
+     */
+    private ByteBuffer getCachedContent(long offset) throws IOException {
+        if (contentCache == null) {
+            return null;
+        }
+        Path path = ListingCache.getPath(delegate);
+        if (path == null || !delegate.isFile()) {
+            return null;
+        }
+
+        // the same check as the wrapped file would make before reading
+        if (!delegate.isReadable()) {
+            throw new IOException("No read permission : " + getName());
+        }
+
+        ContentCache.Content cached = contentCache.get(path, delegate);
+        if (cached == null) {
+            return null;
+        }
+        ByteBuffer content = cached.getBuffer();
+        content.position((int) Math.min(offset, content.limit()));
+        if (cached.isHit()) {
+            contentCache.served(content.remaining());
+        }
+        return content;
+    }
+
+    public WritableByteChannel openWritableChannel(long offset)
+            throws IOException {
+        final WritableByteChannel channel;
+        try {
+            channel = delegate.openWritableChannel(offset);
+        } finally {
+            changed();
+        }
+        if (channel == null) {
+            return null;
+        }
+
+        // the size and time of the file change while writing
+        return new WritableByteChannel() {
+            public int write(ByteBuffer src) throws IOException {
+                return channel.write(src);
+            }
+
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            public void close() throws IOException {
+                try {
+                    channel.close();
+                } finally {
+                    changed();
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Small files are served from the content cache if possible.
+     */
+    public ReadableByteChannel openReadableChannel(long offset)
+            throws IOException {
+        final ByteBuffer content = getCachedContent(offset);
+        if (content == null) {
+            return delegate.openReadableChannel(offset);
+        }
+
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            public int read(ByteBuffer dst) throws IOException {
+                if (!open) {
+                    throw new ClosedChannelException();
+                }
+                if (!content.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(dst.remaining(), content.remaining());
+                ByteBuffer slice = content.duplicate();
+                slice.limit(slice.position() + count);
+                dst.put(slice);
+                content.position(content.position() + count);
+                return count;
+            }
+
+            public boolean isOpen() {
+                return open;
+            }
+
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    public FtpFile snapshot() {
+        FtpFile snapshot = delegate.snapshot();
+        if (snapshot == delegate) {
+            return this;
+        }
+        return new CachingFtpFile(snapshot, cache, contentCache, userName);
+    }
+
+    public void refresh() {
+        delegate.refresh();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof CachingFtpFile) {
+            return delegate.equals(((CachingFtpFile) obj).delegate);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ftpserver.filesystem.cache.ContentCacheStatistics;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Least recently used cache of the content of small files, keyed by the
+ * physical file. A cached file is only served if its size and last modified
+ * time are still the ones it was read with, so that files changed outside
+ * the server are read again. Files changed through the server are
+ * invalidated right away.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ContentCache implements ContentCacheStatistics {
+
+    /**
+     * The content of a file and the attributes it was read with
+     */
+    private static final class CachedContent {
+        private final long lastModified;
+
+        private final ByteBuffer content;
+
+        CachedContent(long lastModified, ByteBuffer content) {
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+
+    /**
+     * The content of a file returned by the cache
+     */
+    static final class Content {
+        private final ByteBuffer buffer;
+
+        private final boolean hit;
+
+        Content(ByteBuffer buffer, boolean hit) {
+            this.buffer = buffer;
+            this.hit = hit;
+        }
+
+        /**
+         * A read only buffer with the whole content
+         */
+        ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Was the content already cached, rather than read from the file
+         */
+        boolean isHit() {
+            return hit;
+        }
+    }
+
+    private final long maxSize;
+
+    private final int maxFileSize;
+
+    private final boolean direct;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<Path, CachedContent> contents = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    // the cached paths, to find the files of a changed directory, guarded by
+    // this
+    private final NavigableSet<String> paths = new TreeSet<>();
+
+    // incremented on every invalidation, guarded by this
+    private long generation;
+
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder bytesSaved = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maxSize
+     *            The maximum total size of the cached files
+     * @param maxFileSize
+     *            The size above which files are not cached
+     * @param direct
+     *            Whether to keep the content in direct buffers, outside the
+     *            Java heap
+     */
+    public ContentCache(long maxSize, int maxFileSize, boolean direct) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (maxFileSize < 1) {
+            throw new IllegalArgumentException("maxFileSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.maxFileSize = maxFileSize;
+        this.direct = direct;
+    }
+
+    /**
+     * Get the content of a file, from the cache or read from the file if it
+     * is small enough
+     * 
+     * @param path
+     *            The physical path of the file
+     * @param file
+     *            The file, used to check that the cached content is up to
+     *            date and to read it
+     * @return The content, or null if the file is too large to be cached or
+     *         could not be read
+     * @throws IOException
+     */
+    Content get(Path path, FtpFile file) throws IOException {
+        long fileSize = file.getSize();
+        if (fileSize > maxFileSize) {
+            return null;
+        }
+        long lastModified = file.getLastModified();
+
+        CachedContent cached;
+        long startGeneration;
+        synchronized (this) {
+            cached = contents.get(path);
+            startGeneration = generation;
+        }
+
+        if (cached != null) {
+            if (cached.lastModified == lastModified
+                    && cached.content.capacity() == fileSize) {
+                hits.increment();
+                return new Content(cached.content.duplicate(), true);
+            }
+            invalidate(path);
+            startGeneration = getGeneration();
+        }
+
+        misses.increment();
+        ByteBuffer content = read(file, (int) fileSize);
+
+        // the file might have been changed while reading
+        if (content == null || file.getLastModified() != lastModified) {
+            return null;
+        }
+        put(path, new CachedContent(lastModified, content), startGeneration);
+        return new Content(content.duplicate(), false);
+    }
+
+    /**
+     * Count bytes served from the cache without reading the file, only for
+     * content which was a hit
+     */
+    void served(long length) {
+        bytesSaved.add(length);
+    }
+
+    private ByteBuffer read(FtpFile file, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        InputStream in = file.createInputStream(0);
+        try {
+            int offset = 0;
+            while (offset < length) {
+                int count = in.read(bytes, offset, length - offset);
+                if (count < 0) {
+                    // shorter than its size, changed while reading
+                    return null;
+                }
+                offset += count;
+            }
+            if (in.read() != -1) {
+                return null;
+            }
+        } finally {
+            IoUtils.close(in);
+        }
+
+        ByteBuffer content;
+        if (direct) {
+            content = ByteBuffer.allocateDirect(length);
+            content.put(bytes);
+            content.flip();
+        } else {
+            content = ByteBuffer.wrap(bytes);
+        }
+        return content.asReadOnlyBuffer();
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    private synchronized void put(Path path, CachedContent cached,
+            long startGeneration) {
+        // a file was invalidated while this one was read
+        if (startGeneration != generation) {
+            return;
+        }
+
+        CachedContent previous = contents.put(path, cached);
+        if (previous != null) {
+            size -= previous.content.capacity();
+        }
+        paths.add(path.toString());
+        size += cached.content.capacity();
+
+        Iterator<Map.Entry<Path, CachedContent>> iter = contents.entrySet()
+                .iterator();
+        while (size > maxSize && iter.hasNext()) {
+            Map.Entry<Path, CachedContent> eldest = iter.next();
+            iter.remove();
+            paths.remove(eldest.getKey().toString());
+            size -= eldest.getValue().content.capacity();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove a file, or all files within a directory
+     * 
+     * @param path
+     *            The physical path of the file or directory
+     */
+    synchronized void invalidate(Path path) {
+        generation++;
+
+        remove(path);
+
+        // the paths within the directory sort between the directory followed
+        // by the separator and the directory followed by the next character
+        String separator = path.getFileSystem().getSeparator();
+        NavigableSet<String> children = paths.subSet(path + separator, true,
+                path.toString() + (char) (separator.charAt(0) + 1), false);
+        for (String child : children.toArray(new String[children.size()])) {
+            remove(path.getFileSystem().getPath(child));
+        }
+    }
+
+    // must be called with the lock held
+    private void remove(Path path) {
+        CachedContent cached = contents.remove(path);
+        if (cached != null) {
+            paths.remove(path.toString());
+            size -= cached.content.capacity();
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Remove all files
+     */
+    public synchronized void clear() {
+        generation++;
+        contents.clear();
+        paths.clear();
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getFileCount() {
+        return contents.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+}
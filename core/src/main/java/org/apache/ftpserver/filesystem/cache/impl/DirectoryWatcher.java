@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Watches the directories with cached listings and invalidates them when
+ * they are changed by another process. The watch service and its thread are
+ * started when the first directory is registered.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectoryWatcher implements Runnable {
+
+    private final Logger LOG = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final ListingCache cache;
+
+    // guarded by this
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+
+    private WatchService watchService;
+
+    DirectoryWatcher(ListingCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Start watching a directory. If the directory can not be watched, its
+     * listing will only be invalidated by changes made through the server.
+     */
+    synchronized void register(Path directory) {
+        if (keys.containsKey(directory)
+                || directory.getFileSystem() != FileSystems.getDefault()) {
+            return;
+        }
+
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this, "ListingCacheWatcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            keys.put(directory, directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            LOG.debug("Failed to watch directory " + directory, e);
+        }
+    }
+
+    /**
+     * Stop watching a directory
+     */
+    synchronized void cancel(Path directory) {
+        WatchKey key = keys.remove(directory);
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    private synchronized WatchService getWatchService() {
+        return watchService;
+    }
+
+    public void run() {
+        WatchService service = getWatchService();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+
+                // the events themselves do not matter, any event (including
+                // an overflow) means the listing is out of date
+                key.pollEvents();
+                Path directory = (Path) key.watchable();
+                cache.invalidate(directory);
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            // stop watching
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ftpserver.filesystem.cache.ListingCacheRevalidation;
+import org.apache.ftpserver.filesystem.cache.ListingCacheStatistics;
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Least recently used cache of directory listings, keyed by the physical
+ * directory and the name of the user the listing was made for, since the
+ * permissions of the files depend on the user. All listings of a directory
+ * are invalidated together when the directory is changed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ListingCache implements ListingCacheStatistics {
+
+    /**
+     * The key of a cached listing
+     */
+    static final class Key {
+        private final Path directory;
+
+        private final String userName;
+
+        Key(Path directory, String userName) {
+            this.directory = directory;
+            this.userName = userName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return directory.equals(other.directory)
+                    && Objects.equals(userName, other.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            return directory.hashCode() * 31 + Objects.hashCode(userName);
+        }
+    }
+
+    private final int maxListings;
+
+    private final int maxFilesPerListing;
+
+    private final ListingCacheRevalidation revalidation;
+
+    private final DirectoryWatcher watcher;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<Key, CachedListing> listings = new LinkedHashMap<Key, CachedListing>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 6539207423620566287L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedListing> eldest) {
+            if (size() > maxListings) {
+                removed(eldest.getKey(), eldest.getValue());
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // the keys of the cached listings of each directory, guarded by this
+    private final Map<Path, Set<Key>> directoryKeys = new HashMap<>();
+
+    // incremented on every invalidation, guarded by this
+    private long generation;
+
+    private long fileCount;
+
+    private long estimatedMemory;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    public ListingCache(int maxListings, int maxFilesPerListing,
+            ListingCacheRevalidation revalidation) {
+        if (maxListings < 1) {
+            throw new IllegalArgumentException("maxListings must be positive");
+        }
+        if (revalidation == null) {
+            throw new IllegalArgumentException("revalidation can not be null");
+        }
+        this.maxListings = maxListings;
+        this.maxFilesPerListing = maxFilesPerListing;
+        this.revalidation = revalidation;
+        if (revalidation == ListingCacheRevalidation.WATCH) {
+            watcher = new DirectoryWatcher(this);
+        } else {
+            watcher = null;
+        }
+    }
+
+    /**
+     * Get the physical path of a file, normalized so that it can be used as
+     * a key
+     * 
+     * @param file
+     *            The file
+     * @return The path, or null if the physical file is neither a
+     *         {@link File} nor a {@link Path} or can not be converted
+     */
+    static Path getPath(FtpFile file) {
+        Object physicalFile = file.getPhysicalFile();
+        try {
+            if (physicalFile instanceof File) {
+                return ((File) physicalFile).toPath().toAbsolutePath()
+                        .normalize();
+            } else if (physicalFile instanceof Path) {
+                return ((Path) physicalFile).toAbsolutePath().normalize();
+            }
+        } catch (InvalidPathException e) {
+            // the name can not be encoded as a path, do not cache
+        }
+        return null;
+    }
+
+    /**
+     * Does this cache need the last modified time of a directory when it is
+     * listed
+     */
+    boolean isRevalidatingModifiedTime() {
+        return revalidation == ListingCacheRevalidation.MTIME;
+    }
+
+    /**
+     * Get a cached listing
+     * 
+     * @param key
+     *            The key of the listing
+     * @param directory
+     *            The directory, used to check that the listing is up to date
+     * @return The listing, or null if not cached or out of date
+     */
+    CachedListing get(Key key, FtpFile directory) {
+        CachedListing listing;
+        synchronized (this) {
+            listing = listings.get(key);
+        }
+
+        if (listing != null && isRevalidatingModifiedTime()
+                && directory.getLastModified() != listing.getLastModified()) {
+            invalidate(key.directory);
+            listing = null;
+        }
+
+        if (listing == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return listing;
+    }
+
+    /**
+     * The maximum number of files of a cached listing
+     */
+    int getMaxFilesPerListing() {
+        return maxFilesPerListing;
+    }
+
+    /**
+     * Get the current generation, to be passed to
+     * {@link #put(Key, CachedListing, long)} for a listing read after this call
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Cache a listing, unless a directory was invalidated after the listing
+     * was started since the listing could then be out of date
+     * 
+     * @param key
+     *            The key of the listing
+     * @param listing
+     *            The listing
+     * @param listingGeneration
+     *            The generation when the listing was started
+     */
+    synchronized void put(Key key, CachedListing listing,
+            long listingGeneration) {
+        if (listingGeneration != generation
+                || listing.getFiles().size() > maxFilesPerListing) {
+            return;
+        }
+
+        CachedListing previous = listings.put(key, listing);
+        if (previous != null) {
+            removed(key, previous);
+        }
+
+        Set<Key> keys = directoryKeys.get(key.directory);
+        if (keys == null) {
+            keys = new HashSet<>();
+            directoryKeys.put(key.directory, keys);
+            if (watcher != null) {
+                watcher.register(key.directory);
+            }
+        }
+        keys.add(key);
+
+        fileCount += listing.getFiles().size();
+        estimatedMemory += listing.getEstimatedMemory();
+    }
+
+    /**
+     * Remove all listings of a directory
+     * 
+     * @param directory
+     *            The physical directory
+     */
+    synchronized void invalidate(Path directory) {
+        generation++;
+
+        Set<Key> keys = directoryKeys.get(directory);
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys.toArray(new Key[keys.size()])) {
+            CachedListing listing = listings.remove(key);
+            if (listing != null) {
+                removed(key, listing);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Remove all listings
+     */
+    public synchronized void clear() {
+        generation++;
+        for (Path directory : directoryKeys.keySet()
+                .toArray(new Path[directoryKeys.size()])) {
+            invalidate(directory);
+        }
+    }
+
+    // must be called with the lock held
+    private void removed(Key key, CachedListing listing) {
+        fileCount -= listing.getFiles().size();
+        estimatedMemory -= listing.getEstimatedMemory();
+
+        Set<Key> keys = directoryKeys.get(key.directory);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            directoryKeys.remove(key.directory);
+            if (watcher != null) {
+                watcher.cancel(key.directory);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getListingCount() {
+        return listings.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory;
+
+import org.apache.ftpserver.filesystem.memory.impl.ChunkStore;
+import org.apache.ftpserver.filesystem.memory.impl.MemoryFileSystem;
+import org.apache.ftpserver.filesystem.memory.impl.MemoryFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory keeping all files in memory, for tests, benchmarks and
+ * short lived data. The content of the files is stored outside of the heap,
+ * in direct buffers of a fixed size, up to a total capacity. The direct
+ * memory limit of the JVM (<code>-XX:MaxDirectMemorySize</code>) must allow
+ * for the capacity.
+ * 
+ * All users share one file system, each user sees the directory named by its
+ * home directory as its root, created when needed. The content is lost when
+ * the factory is no longer referenced.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(MemoryFileSystemFactory.class);
+
+    private long capacity = 64L * 1024 * 1024;
+
+    private int chunkSize = 64 * 1024;
+
+    // created on first use, with the configured capacity
+    private MemoryFileSystem fileSystem;
+
+    /**
+     * Get the total size of the files which can be stored
+     * @return The capacity in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Set the total size of the files which can be stored, 64 MiB by default.
+     * The space is allocated by chunks, so a file uses its size rounded up to
+     * the chunk size.
+     * @param capacity The capacity in bytes
+     */
+    public void setCapacity(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the size of the chunks the content of the files is stored in
+     * @return The chunk size in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the size of the chunks the content of the files is stored in, 64
+     * KiB by default. Smaller chunks waste less space for small files.
+     * @param chunkSize The chunk size in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the space used by the content of the files
+     * @return The used space in bytes
+     */
+    public synchronized long getUsedSpace() {
+        return fileSystem == null ? 0 : fileSystem.getStore().getUsedSpace();
+    }
+
+    private synchronized MemoryFileSystem getFileSystem() {
+        if (fileSystem == null) {
+            fileSystem = new MemoryFileSystem(new ChunkStore(capacity,
+                    chunkSize));
+        }
+        return fileSystem;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        String homeDir = user.getHomeDirectory();
+        if (homeDir == null) {
+            throw new FtpException("User home directory can not be null");
+        }
+
+        MemoryFileSystem fs = getFileSystem();
+        if (!fs.mkdirs(MemoryFileSystemView.getRootPath(homeDir))) {
+            LOG.warn("Not a directory :: " + homeDir);
+            throw new FtpException("Not a directory :: " + homeDir);
+        }
+        return new MemoryFileSystemView(fs, user);
+    }
+}
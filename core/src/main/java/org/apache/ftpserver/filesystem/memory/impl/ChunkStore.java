@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Allocates the fixed size, direct buffers the content of in-memory files is
+ * stored in, up to a total capacity. Released chunks are kept for reuse
+ * rather than left to the garbage collector, so the direct memory used never
+ * exceeds the capacity, but is not returned to the system either.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ChunkStore {
+
+    private final long capacity;
+
+    private final int chunkSize;
+
+    private final AtomicLong used = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor
+     * 
+     * @param capacity
+     *            The total size of the chunks in bytes
+     * @param chunkSize
+     *            The size of a chunk in bytes
+     */
+    public ChunkStore(final long capacity, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        if (capacity < chunkSize) {
+            throw new IllegalArgumentException(
+                    "capacity can not be smaller than chunkSize");
+        }
+        this.capacity = capacity;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get a chunk, its content is undefined
+     * 
+     * @return The chunk
+     * @throws IOException
+     *             If the capacity is used up
+     */
+    public ByteBuffer allocate() throws IOException {
+        if (used.addAndGet(chunkSize) > capacity) {
+            used.addAndGet(-chunkSize);
+            throw new IOException("Not enough space in the memory file system");
+        }
+        ByteBuffer chunk = free.poll();
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(chunkSize);
+        }
+        return chunk;
+    }
+
+    /**
+     * Give back a chunk which is no longer used
+     * 
+     * @param chunk
+     *            The chunk
+     */
+    public void release(final ByteBuffer chunk) {
+        free.offer(chunk);
+        used.addAndGet(-chunkSize);
+    }
+
+    /**
+     * @return The size of a chunk in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return The total size of the chunks in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The size of the chunks in use in bytes
+     */
+    public long getUsedSpace() {
+        return used.get();
+    }
+}
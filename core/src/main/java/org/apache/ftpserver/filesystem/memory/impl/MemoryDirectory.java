@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.util.TreeMap;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A directory of the in-memory file system. The entries are sorted by name
+ * and only accessed while the tree is locked.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryDirectory extends MemoryNode {
+
+    final TreeMap<String, MemoryNode> children = new TreeMap<>();
+
+    MemoryDirectory(final String name, final MemoryDirectory parent) {
+        super(name, parent);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return true;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file of the in-memory file system, its content stored in chunks of a
+ * {@link ChunkStore}. Any number of reads can run at the same time, writes
+ * are exclusive. Only the bytes up to the size of the file are ever read, and
+ * all of them have been written, with data or zeros.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFile extends MemoryNode {
+
+    private static final ByteBuffer[] NO_CHUNKS = new ByteBuffer[0];
+
+    private final ChunkStore store;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer[] chunks = NO_CHUNKS;
+
+    private long size;
+
+    // set when deleted, the chunks are then released
+    private boolean deleted;
+
+    MemoryFile(final String name, final MemoryDirectory parent,
+            final ChunkStore store) {
+        super(name, parent);
+        this.store = store;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    /**
+     * @return The size of the file in bytes
+     */
+    public long getSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read from the file
+     * 
+     * @param position
+     *            The position in the file to read from
+     * @param dst
+     *            The buffer to read into
+     * @return The number of bytes read, -1 at the end of the file
+     */
+    public int read(final long position, final ByteBuffer dst) {
+        lock.readLock().lock();
+        try {
+            if (position >= size) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), size - position);
+            copy(position, length, dst, false);
+            return length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write to the file, growing it if needed
+     * 
+     * @param position
+     *            The position in the file to write at
+     * @param src
+     *            The data to write
+     * @return The number of bytes written
+     * @throws IOException
+     *             If the file was deleted or there is not enough space
+     */
+    public int write(final long position, final ByteBuffer src)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            int length = src.remaining();
+            long end = position + length;
+            ensureCapacity(end);
+            if (position > size) {
+                fill(size, position);
+            }
+            copy(position, length, src, true);
+            if (end > size) {
+                size = end;
+            }
+            touch();
+            return length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set the size of the file, cutting it or growing it with zeros
+     * 
+     * @param newSize
+     *            The new size in bytes
+     * @throws IOException
+     *             If the file was deleted or there is not enough space
+     */
+    public void setSize(final long newSize) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (newSize > size) {
+                ensureCapacity(newSize);
+                fill(size, newSize);
+            } else {
+                releaseChunks(chunkCount(newSize));
+            }
+            size = newSize;
+            touch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Release the content of a deleted file, later writes will fail
+     */
+    void delete() {
+        lock.writeLock().lock();
+        try {
+            deleted = true;
+            releaseChunks(0);
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int chunkCount(final long length) {
+        int chunkSize = store.getChunkSize();
+        return (int) ((length + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Allocate the chunks to hold the given number of bytes
+     */
+    private void ensureCapacity(final long length) throws IOException {
+        if (deleted) {
+            throw new IOException("File has been deleted");
+        }
+        int count = chunkCount(length);
+        if (count <= chunks.length) {
+            return;
+        }
+
+        int current = chunks.length;
+        ByteBuffer[] grown = Arrays.copyOf(chunks, count);
+        int allocated = current;
+        try {
+            while (allocated < count) {
+                grown[allocated] = store.allocate();
+                allocated++;
+            }
+        } catch (IOException e) {
+            for (int i = current; i < allocated; i++) {
+                store.release(grown[i]);
+            }
+            throw e;
+        }
+        chunks = grown;
+    }
+
+    private void releaseChunks(final int count) {
+        if (count >= chunks.length) {
+            return;
+        }
+        for (int i = count; i < chunks.length; i++) {
+            store.release(chunks[i]);
+        }
+        chunks = count == 0 ? NO_CHUNKS : Arrays.copyOf(chunks, count);
+    }
+
+    /**
+     * Copy between the chunks and a buffer
+     */
+    private void copy(final long position, final int length,
+            final ByteBuffer buffer, final boolean toChunks) {
+        int chunkSize = store.getChunkSize();
+        long offset = position;
+        int remaining = length;
+        while (remaining > 0) {
+            ByteBuffer chunk = chunks[(int) (offset / chunkSize)].duplicate();
+            int chunkOffset = (int) (offset % chunkSize);
+            int count = Math.min(remaining, chunkSize - chunkOffset);
+            chunk.limit(chunkOffset + count).position(chunkOffset);
+            if (toChunks) {
+                ByteBuffer src = buffer.duplicate();
+                src.limit(src.position() + count);
+                chunk.put(src);
+                buffer.position(buffer.position() + count);
+            } else {
+                buffer.put(chunk);
+            }
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Write zeros to a range of allocated chunks
+     */
+    private void fill(final long from, final long to) {
+        int chunkSize = store.getChunkSize();
+        long offset = from;
+        while (offset < to) {
+            ByteBuffer chunk = chunks[(int) (offset / chunkSize)];
+            int chunkOffset = (int) (offset % chunkSize);
+            int count = (int) Math.min(to - offset, chunkSize - chunkOffset);
+            for (int i = 0; i < count; i++) {
+                chunk.put(chunkOffset + i, (byte) 0);
+            }
+            offset += count;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A channel reading or writing an in-memory file from its own position.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileChannel implements SeekableByteChannel {
+
+    private final MemoryFile file;
+
+    private final boolean writable;
+
+    private long position;
+
+    private volatile boolean open = true;
+
+    /**
+     * Constructor
+     * 
+     * @param file
+     *            The file
+     * @param position
+     *            The position to start at
+     * @param writable
+     *            true for a channel for writing, false for reading
+     */
+    public MemoryFileChannel(final MemoryFile file, final long position,
+            final boolean writable) {
+        this.file = file;
+        this.position = position;
+        this.writable = writable;
+    }
+
+    public int read(final ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (writable) {
+            throw new NonReadableChannelException();
+        }
+        int count = file.read(position, dst);
+        if (count > 0) {
+            position += count;
+        }
+        return count;
+    }
+
+    public int write(final ByteBuffer src) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        int count = file.write(position, src);
+        position += count;
+        return count;
+    }
+
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    public SeekableByteChannel position(final long newPosition)
+            throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position can not be negative");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    public long size() throws IOException {
+        ensureOpen();
+        return file.getSize();
+    }
+
+    public SeekableByteChannel truncate(final long size) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (size < file.getSize()) {
+            file.setSize(size);
+        }
+        if (position > size) {
+            position = size;
+        }
+        return this;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The tree of directories and files of the in-memory file system, shared by
+ * the views of all users. Paths are absolute, '/' separated and normalized.
+ * 
+ * Lookups lock the tree for reading and changes to the tree for writing, so
+ * that a rename is seen either before or after it happened, never with the
+ * file missing from both directories. The content of the files is locked
+ * separately, see {@link MemoryFile}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileSystem {
+
+    private final ChunkStore store;
+
+    private final MemoryDirectory root = new MemoryDirectory("", null);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor
+     * 
+     * @param store
+     *            The store for the content of the files
+     */
+    public MemoryFileSystem(final ChunkStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return The store for the content of the files
+     */
+    public ChunkStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get a node
+     * 
+     * @param path
+     *            The path
+     * @return The node, null if there is none
+     */
+    public MemoryNode get(final String path) {
+        lock.readLock().lock();
+        try {
+            return find(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the entries of a directory
+     * 
+     * @param path
+     *            The path of the directory
+     * @return The entries, sorted by name, null if there is no such directory
+     */
+    public List<MemoryNode> list(final String path) {
+        lock.readLock().lock();
+        try {
+            MemoryNode node = find(path);
+            if (!(node instanceof MemoryDirectory)) {
+                return null;
+            }
+            return new ArrayList<>(((MemoryDirectory) node).children.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Create a directory, its parent must exist
+     * 
+     * @param path
+     *            The path of the directory
+     * @return true if the directory was created
+     */
+    public boolean mkdir(final String path) {
+        lock.writeLock().lock();
+        try {
+            MemoryDirectory parent = findParent(path);
+            String name = getName(path);
+            if (parent == null || name.isEmpty()
+                    || parent.children.containsKey(name)) {
+                return false;
+            }
+            parent.children.put(name, new MemoryDirectory(name, parent));
+            parent.touch();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Create a directory and its missing parents
+     * 
+     * @param path
+     *            The path of the directory
+     * @return true if the directory exists after the call
+     */
+    public boolean mkdirs(final String path) {
+        lock.writeLock().lock();
+        try {
+            MemoryDirectory dir = root;
+            for (String name : path.split("/")) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                MemoryNode child = dir.children.get(name);
+                if (child == null) {
+                    child = new MemoryDirectory(name, dir);
+                    dir.children.put(name, child);
+                    dir.touch();
+                } else if (!child.isDirectory()) {
+                    return false;
+                }
+                dir = (MemoryDirectory) child;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get a file to write, creating it if needed. The parent directory must
+     * exist.
+     * 
+     * @param path
+     *            The path of the file
+     * @return The file, null if it can not be created or is a directory
+     */
+    public MemoryFile createFile(final String path) {
+        lock.writeLock().lock();
+        try {
+            MemoryDirectory parent = findParent(path);
+            String name = getName(path);
+            if (parent == null || name.isEmpty()) {
+                return null;
+            }
+            MemoryNode node = parent.children.get(name);
+            if (node == null) {
+                node = new MemoryFile(name, parent, store);
+                parent.children.put(name, node);
+                parent.touch();
+            }
+            return node instanceof MemoryFile ? (MemoryFile) node : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete a file or an empty directory, releasing the content of a file
+     * 
+     * @param path
+     *            The path
+     * @return true if deleted
+     */
+    public boolean delete(final String path) {
+        MemoryNode node;
+        lock.writeLock().lock();
+        try {
+            node = find(path);
+            if (node == null || node == root) {
+                return false;
+            }
+            if (node instanceof MemoryDirectory
+                    && !((MemoryDirectory) node).children.isEmpty()) {
+                return false;
+            }
+            node.parent.children.remove(node.name);
+            node.parent.touch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (node instanceof MemoryFile) {
+            ((MemoryFile) node).delete();
+        }
+        return true;
+    }
+
+    /**
+     * Move a file or directory in a single step. The destination must not
+     * exist and its parent must.
+     * 
+     * @param from
+     *            The path to move from
+     * @param to
+     *            The path to move to
+     * @return true if moved
+     */
+    public boolean move(final String from, final String to) {
+        lock.writeLock().lock();
+        try {
+            MemoryNode node = find(from);
+            MemoryDirectory parent = findParent(to);
+            String name = getName(to);
+            if (node == null || node == root || parent == null
+                    || name.isEmpty() || parent.children.containsKey(name)) {
+                return false;
+            }
+
+            // a directory can not be moved into itself
+            for (MemoryDirectory dir = parent; dir != null; dir = dir.parent) {
+                if (dir == node) {
+                    return false;
+                }
+            }
+
+            node.parent.children.remove(node.name);
+            node.parent.touch();
+            node.name = name;
+            node.parent = parent;
+            parent.children.put(name, node);
+            parent.touch();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MemoryNode find(final String path) {
+        MemoryNode node = root;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+            if (end > start) {
+                if (!(node instanceof MemoryDirectory)) {
+                    return null;
+                }
+                node = ((MemoryDirectory) node).children.get(path.substring(
+                        start, end));
+                if (node == null) {
+                    return null;
+                }
+            }
+            start = end + 1;
+        }
+        return node;
+    }
+
+    private MemoryDirectory findParent(final String path) {
+        int slashIndex = path.lastIndexOf('/');
+        MemoryNode parent = slashIndex <= 0 ? root : find(path.substring(0,
+                slashIndex));
+        return parent instanceof MemoryDirectory ? (MemoryDirectory) parent
+                : null;
+    }
+
+    private static String getName(final String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.util.PathUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view of the in-memory file system. The home directory of the
+ * user is the root directory of the view.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileSystemView implements FileSystemView {
+
+    private final MemoryFileSystem fileSystem;
+
+    private final User user;
+
+    // the path of the home directory, empty for the root of the file system
+    private final String rootPath;
+
+    // the first character will always be '/', the last only for the root
+    private String currDir = "/";
+
+    /**
+     * Constructor - internal do not use directly
+     */
+    public MemoryFileSystemView(final MemoryFileSystem fileSystem,
+            final User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("user can not be null");
+        }
+        if (user.getHomeDirectory() == null) {
+            throw new IllegalArgumentException(
+                    "User home directory can not be null");
+        }
+        this.fileSystem = fileSystem;
+        this.user = user;
+        this.rootPath = getRootPath(user.getHomeDirectory());
+    }
+
+    /**
+     * Normalize the home directory to a path in the file system
+     * 
+     * @param homeDirectory
+     *            The home directory of the user
+     * @return The path, empty for the root directory
+     */
+    public static String getRootPath(final String homeDirectory) {
+        String path = PathUtils.resolve("/", homeDirectory);
+        return path.equals("/") ? "" : path;
+    }
+
+    public FtpFile getHomeDirectory() {
+        return createFtpFile("/");
+    }
+
+    public FtpFile getWorkingDirectory() {
+        return createFtpFile(currDir);
+    }
+
+    public FtpFile getFile(final String file) {
+        return createFtpFile(PathUtils.resolve(currDir, file));
+    }
+
+    public boolean changeWorkingDirectory(final String dir) {
+        String resolved = PathUtils.resolve(currDir, dir);
+        MemoryNode node = fileSystem.get(rootPath + resolved);
+        if (node == null || !node.isDirectory()) {
+            return false;
+        }
+        currDir = resolved;
+        return true;
+    }
+
+    public boolean isRandomAccessible() {
+        return true;
+    }
+
+    public void dispose() {
+    }
+
+    private FtpFile createFtpFile(final String fileName) {
+        String path = fileName.equals("/") ? rootPath : rootPath + fileName;
+        return new MemoryFtpFile(fileName, path.isEmpty() ? "/" : path,
+                fileSystem, user);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File object of the in-memory file system. Like the native file objects it
+ * is only a path, the node is looked up whenever it is needed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFtpFile implements FtpFile {
+
+    // the file name with respect to the user root, always starting with '/'
+    private final String fileName;
+
+    // the path in the file system
+    private final String path;
+
+    private final MemoryFileSystem fileSystem;
+
+    private final User user;
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    public MemoryFtpFile(final String fileName, final String path,
+            final MemoryFileSystem fileSystem, final User user) {
+        if (fileName == null) {
+            throw new IllegalArgumentException("fileName can not be null");
+        }
+        if (path == null) {
+            throw new IllegalArgumentException("path can not be null");
+        }
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem can not be null");
+        }
+
+        if (fileName.length() == 0) {
+            throw new IllegalArgumentException("fileName can not be empty");
+        } else if (fileName.charAt(0) != '/') {
+            throw new IllegalArgumentException(
+                    "fileName must be an absolut path");
+        }
+
+        this.fileName = fileName;
+        this.path = path;
+        this.fileSystem = fileSystem;
+        this.user = user;
+    }
+
+    public String getAbsolutePath() {
+
+        // strip the last '/' if necessary
+        int filelen = fileName.length();
+        if ((filelen != 1) && (fileName.charAt(filelen - 1) == '/')) {
+            return fileName.substring(0, filelen - 1);
+        }
+        return fileName;
+    }
+
+    public String getName() {
+
+        // root - the short name will be '/'
+        String fullName = getAbsolutePath();
+        if (fullName.equals("/")) {
+            return "/";
+        }
+        return fullName.substring(fullName.lastIndexOf('/') + 1);
+    }
+
+    public boolean isHidden() {
+        return getName().startsWith(".");
+    }
+
+    public boolean isDirectory() {
+        MemoryNode node = fileSystem.get(path);
+        return node != null && node.isDirectory();
+    }
+
+    public boolean isFile() {
+        return fileSystem.get(path) instanceof MemoryFile;
+    }
+
+    public boolean doesExist() {
+        return fileSystem.get(path) != null;
+    }
+
+    public long getSize() {
+        MemoryNode node = fileSystem.get(path);
+        return node instanceof MemoryFile ? ((MemoryFile) node).getSize() : 0;
+    }
+
+    public String getOwnerName() {
+        return "user";
+    }
+
+    public String getGroupName() {
+        return "group";
+    }
+
+    public int getLinkCount() {
+        return isDirectory() ? 3 : 1;
+    }
+
+    public long getLastModified() {
+        MemoryNode node = fileSystem.get(path);
+        return node != null ? node.getLastModified() : 0;
+    }
+
+    public boolean setLastModified(final long time) {
+        MemoryNode node = fileSystem.get(path);
+        if (node == null) {
+            return false;
+        }
+        node.setLastModified(time);
+        return true;
+    }
+
+    public boolean isReadable() {
+        return doesExist();
+    }
+
+    public boolean isWritable() {
+        return user.authorize(new WriteRequest(getAbsolutePath())) != null;
+    }
+
+    public boolean isRemovable() {
+
+        // root cannot be deleted
+        String fullName = getAbsolutePath();
+        if ("/".equals(fullName)) {
+            return false;
+        }
+
+        // we check FTPServer's write permission for this file.
+        if (user.authorize(new WriteRequest(fullName)) == null) {
+            return false;
+        }
+
+        // and for the parent directory
+        int slashIndex = fullName.lastIndexOf('/');
+        String parentFullName = slashIndex == 0 ? "/" : fullName.substring(0,
+                slashIndex);
+        return user.authorize(new WriteRequest(parentFullName)) != null;
+    }
+
+    public boolean delete() {
+        return isRemovable() && fileSystem.delete(path);
+    }
+
+    public boolean move(final FtpFile dest) {
+        if (!(dest instanceof MemoryFtpFile) || !dest.isWritable()
+                || !isReadable()) {
+            return false;
+        }
+        return fileSystem.move(path, ((MemoryFtpFile) dest).path);
+    }
+
+    public boolean mkdir() {
+        return isWritable() && fileSystem.mkdir(path);
+    }
+
+    /**
+     * @return The node of the file, null if it does not exist
+     */
+    public MemoryNode getPhysicalFile() {
+        return fileSystem.get(path);
+    }
+
+    public List<FtpFile> listFiles() {
+        List<MemoryNode> nodes = fileSystem.list(path);
+        if (nodes == null) {
+            return null;
+        }
+
+        String dirName = getAbsolutePath();
+        if (dirName.charAt(dirName.length() - 1) != '/') {
+            dirName += '/';
+        }
+        String dirPath = path.endsWith("/") ? path : path + '/';
+
+        List<FtpFile> files = new ArrayList<>(nodes.size());
+        for (MemoryNode node : nodes) {
+            files.add(new MemoryFtpFile(dirName + node.getName(), dirPath
+                    + node.getName(), fileSystem, user));
+        }
+        return Collections.unmodifiableList(files);
+    }
+
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+        return Channels.newOutputStream(openWritableChannel(offset));
+    }
+
+    public InputStream createInputStream(final long offset) throws IOException {
+        return Channels.newInputStream(openReadableChannel(offset));
+    }
+
+    public SeekableByteChannel openWritableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isWritable()) {
+            throw new IOException("No write permission : " + getName());
+        }
+
+        MemoryFile file = fileSystem.createFile(path);
+        if (file == null) {
+            throw new IOException("Cannot create file : " + getName());
+        }
+        file.setSize(offset);
+        return new MemoryFileChannel(file, offset, true);
+    }
+
+    public SeekableByteChannel openReadableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isReadable()) {
+            throw new IOException("No read permission : " + getName());
+        }
+
+        MemoryNode node = fileSystem.get(path);
+        if (!(node instanceof MemoryFile)) {
+            throw new IOException("Not a file : " + getName());
+        }
+        return new MemoryFileChannel((MemoryFile) node, offset, false);
+    }
+
+    /**
+     * Implements equals by comparing the path in the file system. Ignores the
+     * fileName and User fields
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof MemoryFtpFile) {
+            MemoryFtpFile other = (MemoryFtpFile) obj;
+            return fileSystem == other.fileSystem && path.equals(other.path);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
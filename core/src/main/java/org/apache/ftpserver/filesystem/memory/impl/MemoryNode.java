@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file or directory of the in-memory file system. The name and parent of a
+ * node only change while the tree is locked for writing.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public abstract class MemoryNode {
+
+    String name;
+
+    MemoryDirectory parent;
+
+    private volatile long lastModified = System.currentTimeMillis();
+
+    MemoryNode(final String name, final MemoryDirectory parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    /**
+     * @return The name of the node, empty for the root directory
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the node is a directory
+     */
+    public abstract boolean isDirectory();
+
+    /**
+     * @return The last modification time in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Set the last modification time
+     * 
+     * @param lastModified
+     *            The time in milliseconds
+     */
+    public void setLastModified(final long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    void touch() {
+        lastModified = System.currentTimeMillis();
+    }
+}
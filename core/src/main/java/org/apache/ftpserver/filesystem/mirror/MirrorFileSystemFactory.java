@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror;
+
+import java.io.File;
+
+import org.apache.ftpserver.filesystem.mirror.impl.MirrorFileSystemView;
+import org.apache.ftpserver.filesystem.mirror.impl.MirrorIndexer;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read only file system factory for mirrors of large directory trees. The
+ * names, types, sizes and last modified times of all files are indexed in
+ * memory, and all commands except downloads are answered from the index
+ * without touching the disk. The index is rebuilt in the background at a
+ * fixed interval, reusing the listings of the directories which have not
+ * been modified.
+ * 
+ * Since an unmodified directory is not listed again, a file changed in
+ * place, rather than replaced, keeps its old size and time in the index
+ * until its directory is modified.
+ * 
+ * All users see the whole mirror, their home directories are not used. The
+ * directory is scanned when the first file system view is created, or when
+ * {@link #rescan()} is called.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MirrorFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(MirrorFileSystemFactory.class);
+
+    private File rootDirectory;
+
+    private int rescanInterval = 300;
+
+    // created on first use, with the configured directory
+    private MirrorIndexer indexer;
+
+    /**
+     * Get the mirrored directory
+     * @return The directory
+     */
+    public File getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Set the mirrored directory
+     * @param rootDirectory The directory
+     */
+    public void setRootDirectory(File rootDirectory) {
+        this.rootDirectory = rootDirectory;
+    }
+
+    /**
+     * Get the time between the end of a scan of the directory and the start
+     * of the next one
+     * @return The interval in seconds, 0 if the directory is only scanned once
+     */
+    public int getRescanInterval() {
+        return rescanInterval;
+    }
+
+    /**
+     * Set the time between the end of a scan of the directory and the start
+     * of the next one, 300 seconds by default
+     * @param rescanInterval The interval in seconds, 0 to only scan once
+     */
+    public void setRescanInterval(int rescanInterval) {
+        if (rescanInterval < 0) {
+            throw new IllegalArgumentException(
+                    "rescanInterval can not be negative");
+        }
+        this.rescanInterval = rescanInterval;
+    }
+
+    /**
+     * Get the number of indexed files and directories, including the
+     * mirrored directory itself
+     * @return The number of files and directories, 0 if not scanned yet
+     */
+    public synchronized int getEntryCount() {
+        return indexer == null ? 0 : indexer.getIndex().getEntryCount();
+    }
+
+    /**
+     * Scan the directory now, or for the first time if it has not been
+     * scanned yet
+     * @throws FtpException If the directory is not set or not a directory
+     */
+    public void rescan() throws FtpException {
+        MirrorIndexer current;
+        synchronized (this) {
+            current = indexer;
+        }
+        if (current == null) {
+            getIndexer();
+        } else {
+            current.rescan();
+        }
+    }
+
+    /**
+     * Stop the background scans
+     */
+    public synchronized void dispose() {
+        if (indexer != null) {
+            indexer.stop();
+        }
+    }
+
+    private synchronized MirrorIndexer getIndexer() throws FtpException {
+        if (indexer == null) {
+            if (rootDirectory == null || !rootDirectory.isDirectory()) {
+                LOG.warn("Not a directory :: " + rootDirectory);
+                throw new FtpException("Not a directory :: " + rootDirectory);
+            }
+            indexer = new MirrorIndexer(rootDirectory.getAbsoluteFile(),
+                    rescanInterval * 1000L);
+        }
+        return indexer;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        return new MirrorFileSystemView(getIndexer());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.PathUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view of the mirror file system, answering from the current
+ * index of the {@link MirrorIndexer}. All users see the whole mirror.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MirrorFileSystemView implements FileSystemView {
+
+    private final MirrorIndexer indexer;
+
+    // the first character will always be '/', the last only for the root
+    private String currDir = "/";
+
+    /**
+     * Constructor - internal do not use directly
+     */
+    public MirrorFileSystemView(final MirrorIndexer indexer) {
+        if (indexer == null) {
+            throw new IllegalArgumentException("indexer can not be null");
+        }
+        this.indexer = indexer;
+    }
+
+    public FtpFile getHomeDirectory() {
+        return createFtpFile("/");
+    }
+
+    public FtpFile getWorkingDirectory() {
+        return createFtpFile(currDir);
+    }
+
+    public FtpFile getFile(final String file) {
+        return createFtpFile(PathUtils.resolve(currDir, file));
+    }
+
+    public boolean changeWorkingDirectory(final String dir) {
+        String resolved = PathUtils.resolve(currDir, dir);
+        MirrorIndex index = indexer.getIndex();
+        int entry = index.find(resolved);
+        if (entry == -1 || !index.isDirectory(entry)) {
+            return false;
+        }
+        currDir = resolved;
+        return true;
+    }
+
+    public boolean isRandomAccessible() {
+        return true;
+    }
+
+    public void dispose() {
+    }
+
+    private FtpFile createFtpFile(final String fileName) {
+        return new MirrorFtpFile(fileName, indexer.getIndex());
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Read only file object of the mirror file system. All attributes are read
+ * from the {@link MirrorIndex} the file was created with, only the content
+ * of the file is read from disk.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MirrorFtpFile implements FtpFile {
+
+    // the file name with respect to the root, always starting with '/'
+    private final String fileName;
+
+    private final MirrorIndex index;
+
+    // the entry in the index, -1 if the file does not exist
+    private final int entry;
+
+    /**
+     * Constructor, internal do not use directly.
+     * 
+     * @param fileName
+     *            The absolute path of the file, looked up in the index
+     * @param index
+     *            The index
+     */
+    public MirrorFtpFile(final String fileName, final MirrorIndex index) {
+        if (fileName == null) {
+            throw new IllegalArgumentException("fileName can not be null");
+        }
+        if (index == null) {
+            throw new IllegalArgumentException("index can not be null");
+        }
+
+        if (fileName.length() == 0) {
+            throw new IllegalArgumentException("fileName can not be empty");
+        } else if (fileName.charAt(0) != '/') {
+            throw new IllegalArgumentException(
+                    "fileName must be an absolut path");
+        }
+
+        // strip the last '/' if necessary
+        int filelen = fileName.length();
+        if ((filelen != 1) && (fileName.charAt(filelen - 1) == '/')) {
+            this.fileName = fileName.substring(0, filelen - 1);
+        } else {
+            this.fileName = fileName;
+        }
+        this.index = index;
+        this.entry = index.find(this.fileName);
+    }
+
+    private MirrorFtpFile(final String fileName, final MirrorIndex index,
+            final int entry) {
+        this.fileName = fileName;
+        this.index = index;
+        this.entry = entry;
+    }
+
+    public String getAbsolutePath() {
+        return fileName;
+    }
+
+    public String getName() {
+
+        // root - the short name will be '/'
+        if (fileName.equals("/")) {
+            return "/";
+        }
+        return fileName.substring(fileName.lastIndexOf('/') + 1);
+    }
+
+    public boolean isHidden() {
+        return getName().startsWith(".");
+    }
+
+    public boolean isDirectory() {
+        return entry != -1 && index.isDirectory(entry);
+    }
+
+    public boolean isFile() {
+        return entry != -1 && !index.isDirectory(entry);
+    }
+
+    public boolean doesExist() {
+        return entry != -1;
+    }
+
+    public boolean isReadable() {
+        return entry != -1;
+    }
+
+    public boolean isWritable() {
+        return false;
+    }
+
+    public boolean isRemovable() {
+        return false;
+    }
+
+    public String getOwnerName() {
+        return "user";
+    }
+
+    public String getGroupName() {
+        return "group";
+    }
+
+    public int getLinkCount() {
+        return isDirectory() ? 3 : 1;
+    }
+
+    public long getLastModified() {
+        return entry == -1 ? 0 : index.getLastModified(entry);
+    }
+
+    public boolean setLastModified(final long time) {
+        return false;
+    }
+
+    public long getSize() {
+        return entry == -1 ? 0 : index.getSize(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The file on disk, which might have changed since it was indexed.
+     */
+    public Object getPhysicalFile() {
+        return new File(index.getRoot(), fileName.substring(1));
+    }
+
+    public boolean mkdir() {
+        return false;
+    }
+
+    public boolean delete() {
+        return false;
+    }
+
+    public boolean move(final FtpFile destination) {
+        return false;
+    }
+
+    public List<? extends FtpFile> listFiles() {
+        return listFiles(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The names are filtered before the file objects are created.
+     */
+    @Override
+    public List<? extends FtpFile> listFiles(
+            final Predicate<String> nameFilter) {
+        if (!isDirectory()) {
+            return null;
+        }
+
+        int first = index.getFirstChild(entry);
+        int count = index.getChildCount(entry);
+        List<FtpFile> files = new ArrayList<>(count);
+        for (int child = first; child < first + count; child++) {
+            if (nameFilter == null || nameFilter.test(index.getName(child))) {
+                files.add(createChild(child));
+            }
+        }
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The files are created one at a time while iterating over the index.
+     */
+    @Override
+    public FtpFileIterator iterateFiles(final Predicate<String> nameFilter) {
+        if (!isDirectory()) {
+            return null;
+        }
+
+        final int end = index.getFirstChild(entry)
+                + index.getChildCount(entry);
+        return new FtpFileIterator() {
+            private int next = index.getFirstChild(entry);
+
+            public boolean hasNext() {
+                while (next < end && nameFilter != null
+                        && !nameFilter.test(index.getName(next))) {
+                    next++;
+                }
+                return next < end;
+            }
+
+            public FtpFile next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return createChild(next++);
+            }
+
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+    private FtpFile createChild(final int child) {
+        String name = index.getName(child);
+        return new MirrorFtpFile(fileName.equals("/") ? '/' + name : fileName
+                + '/' + name, index, child);
+    }
+
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+        throw new IOException("No write permission : " + getName());
+    }
+
+    public InputStream createInputStream(final long offset) throws IOException {
+        final RandomAccessFile raf = open(offset);
+
+        // The IBM jre needs to have both the stream and the random access file
+        // objects closed to actually close the file
+        return new FileInputStream(raf.getFD()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                raf.close();
+            }
+        };
+    }
+
+    /**
+     * Open a file channel for reading, with the same checks as
+     * {@link #createInputStream(long)}.
+     */
+    @Override
+    public ReadableByteChannel openReadableChannel(final long offset)
+            throws IOException {
+        return open(offset).getChannel();
+    }
+
+    private RandomAccessFile open(final long offset) throws IOException {
+        if (!isFile()) {
+            throw new IOException("No read permission : " + getName());
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(
+                (File) getPhysicalFile(), "r");
+        try {
+            raf.seek(offset);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return raf;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof MirrorFtpFile) {
+            return fileName.equals(((MirrorFtpFile) obj).fileName);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return fileName.hashCode();
+    }
+}
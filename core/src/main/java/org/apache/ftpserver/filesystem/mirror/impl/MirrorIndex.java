@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Immutable index of the names, types, sizes and last modified times of all
+ * files below a directory. The entries are kept in primitive arrays indexed
+ * by entry number, with the names in a table shared by all entries with the
+ * same name, so that no object is needed per file. The children of a
+ * directory are consecutive entries, sorted by name, and are found by binary
+ * search.
+ * 
+ * Entry 0 is the root directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MirrorIndex {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(MirrorIndex.class);
+
+    /**
+     * The entry number of the root directory
+     */
+    public static final int ROOT = 0;
+
+    private final File root;
+
+    private final String[] names;
+
+    private final int[] nameIds;
+
+    private final long[] sizes;
+
+    private final long[] lastModified;
+
+    // the first child of a directory, -1 for files
+    private final int[] firstChild;
+
+    private final int[] childCount;
+
+    private final int count;
+
+    private MirrorIndex(File root, Builder builder) {
+        this.root = root;
+        this.names = builder.nameTable.toArray(new String[builder.nameTable
+                .size()]);
+        this.count = builder.count;
+        this.nameIds = Arrays.copyOf(builder.nameIds, count);
+        this.sizes = Arrays.copyOf(builder.sizes, count);
+        this.lastModified = Arrays.copyOf(builder.lastModified, count);
+        this.firstChild = Arrays.copyOf(builder.firstChild, count);
+        this.childCount = Arrays.copyOf(builder.childCount, count);
+    }
+
+    /**
+     * Scan a directory
+     * 
+     * @param root
+     *            The directory
+     * @param previous
+     *            The previous index of the same directory, the directories
+     *            which have not been modified since are not listed again.
+     *            Null to list all directories.
+     * @return The index
+     */
+    public static MirrorIndex build(final File root, final MirrorIndex previous) {
+        Builder builder = new Builder();
+        builder.add("", true, 0, 0);
+
+        ArrayDeque<PendingDirectory> pending = new ArrayDeque<>();
+        pending.add(new PendingDirectory(ROOT, root.toPath(),
+                previous == null ? -1 : ROOT));
+        while (!pending.isEmpty()) {
+            PendingDirectory dir = pending.poll();
+            builder.scan(dir, previous, pending);
+        }
+        return new MirrorIndex(root, builder);
+    }
+
+    /**
+     * Get the directory this is an index of
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Get the number of files and directories, including the root directory
+     */
+    public int getEntryCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of distinct names
+     */
+    public int getNameCount() {
+        return names.length;
+    }
+
+    /**
+     * Find the entry for a path
+     * 
+     * @param path
+     *            The path, '/' for the root, '/' separated otherwise and
+     *            without a trailing '/'
+     * @return The entry, or -1 if there is no such file
+     */
+    public int find(final String path) {
+        int entry = ROOT;
+        int start = 1;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = path.length();
+            }
+            entry = findChild(entry, path.substring(start, end));
+            if (entry == -1) {
+                return -1;
+            }
+            start = end + 1;
+        }
+        return entry;
+    }
+
+    /**
+     * Find a child of a directory
+     * 
+     * @return The entry of the child, or -1 if there is no such child
+     */
+    public int findChild(final int dir, final String name) {
+        if (firstChild[dir] == -1) {
+            return -1;
+        }
+        int low = firstChild[dir];
+        int high = low + childCount[dir] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = names[nameIds[middle]].compareTo(name);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(final int entry) {
+        return names[nameIds[entry]];
+    }
+
+    public boolean isDirectory(final int entry) {
+        return firstChild[entry] != -1;
+    }
+
+    public long getSize(final int entry) {
+        return sizes[entry];
+    }
+
+    public long getLastModified(final int entry) {
+        return lastModified[entry];
+    }
+
+    /**
+     * Get the first child of a directory, the other children are the
+     * following entries
+     */
+    public int getFirstChild(final int dir) {
+        return firstChild[dir];
+    }
+
+    /**
+     * Get the number of children of a directory, 0 for a file
+     */
+    public int getChildCount(final int dir) {
+        return childCount[dir];
+    }
+
+    /**
+     * A directory of which the children are still to be scanned
+     */
+    private static final class PendingDirectory {
+        private final int entry;
+
+        private final Path path;
+
+        // the same directory in the previous index, -1 if none
+        private final int previousEntry;
+
+        PendingDirectory(int entry, Path path, int previousEntry) {
+            this.entry = entry;
+            this.path = path;
+            this.previousEntry = previousEntry;
+        }
+    }
+
+    /**
+     * A file found while listing a directory
+     */
+    private static final class ScannedFile implements Comparable<ScannedFile> {
+        private final String name;
+
+        private final boolean directory;
+
+        private final long size;
+
+        private final long lastModified;
+
+        ScannedFile(String name, boolean directory, long size,
+                long lastModified) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public int compareTo(ScannedFile other) {
+            return name.compareTo(other.name);
+        }
+    }
+
+    /**
+     * Growable arrays for the entries of an index being built
+     */
+    private static final class Builder {
+        private final Map<String, Integer> nameIndex = new HashMap<>();
+
+        private final List<String> nameTable = new ArrayList<>();
+
+        private int[] nameIds = new int[1024];
+
+        private long[] sizes = new long[1024];
+
+        private long[] lastModified = new long[1024];
+
+        private int[] firstChild = new int[1024];
+
+        private int[] childCount = new int[1024];
+
+        private int count;
+
+        private int add(String name, boolean directory, long size,
+                long modified) {
+            if (count == nameIds.length) {
+                int length = count * 2;
+                nameIds = Arrays.copyOf(nameIds, length);
+                sizes = Arrays.copyOf(sizes, length);
+                lastModified = Arrays.copyOf(lastModified, length);
+                firstChild = Arrays.copyOf(firstChild, length);
+                childCount = Arrays.copyOf(childCount, length);
+            }
+
+            Integer nameId = nameIndex.get(name);
+            if (nameId == null) {
+                nameId = nameTable.size();
+                nameTable.add(name);
+                nameIndex.put(name, nameId);
+            }
+
+            nameIds[count] = nameId;
+            sizes[count] = size;
+            lastModified[count] = modified;
+            // directories get their children when they are scanned
+            firstChild[count] = directory ? count : -1;
+            childCount[count] = 0;
+            return count++;
+        }
+
+        /**
+         * Add the children of a directory, copied from the previous index if
+         * the directory has not been modified
+         */
+        private void scan(PendingDirectory dir, MirrorIndex previous,
+                ArrayDeque<PendingDirectory> pending) {
+            long modified = dir.path.toFile().lastModified();
+            lastModified[dir.entry] = modified;
+            int first = count;
+
+            if (dir.previousEntry != -1
+                    && previous.getLastModified(dir.previousEntry) == modified
+                    && previous.isDirectory(dir.previousEntry)) {
+                int previousFirst = previous.getFirstChild(dir.previousEntry);
+                int previousCount = previous.getChildCount(dir.previousEntry);
+                for (int i = 0; i < previousCount; i++) {
+                    int previousChild = previousFirst + i;
+                    String name = previous.getName(previousChild);
+                    boolean directory = previous.isDirectory(previousChild);
+                    int child = add(name, directory, previous
+                            .getSize(previousChild), previous
+                            .getLastModified(previousChild));
+                    if (directory) {
+                        pending.add(new PendingDirectory(child, dir.path
+                                .resolve(name), previousChild));
+                    }
+                }
+            } else {
+                List<ScannedFile> files = list(dir.path);
+                for (ScannedFile file : files) {
+                    int child = add(file.name, file.directory, file.size,
+                            file.lastModified);
+                    if (file.directory) {
+                        int previousChild = dir.previousEntry == -1 ? -1
+                                : previous.findChild(dir.previousEntry,
+                                        file.name);
+                        pending.add(new PendingDirectory(child, dir.path
+                                .resolve(file.name), previousChild));
+                    }
+                }
+            }
+
+            firstChild[dir.entry] = first;
+            childCount[dir.entry] = count - first;
+        }
+
+        /**
+         * List a directory, sorted by name. Symbolic links to files are
+         * listed as the file they point to, other links are left out so that
+         * the scan can not loop.
+         */
+        private List<ScannedFile> list(Path dir) {
+            List<ScannedFile> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(path,
+                                BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (attrs.isSymbolicLink()) {
+                            attrs = Files.readAttributes(path,
+                                    BasicFileAttributes.class);
+                            if (!attrs.isRegularFile()) {
+                                continue;
+                            }
+                        }
+                        files.add(new ScannedFile(path.getFileName()
+                                .toString(), attrs.isDirectory(), attrs.size(),
+                                attrs.lastModifiedTime().toMillis()));
+                    } catch (IOException e) {
+                        LOG.debug("Failed to read the attributes of " + path,
+                                e);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to list directory " + dir, e);
+            }
+            Collections.sort(files);
+            return files;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Holds the current {@link MirrorIndex} of a directory and replaces it with a
+ * new one at a fixed interval. Each rescan reuses the listings of the
+ * directories which have not been modified since the previous scan. Files
+ * and sessions keep using the index they were created with until they get a
+ * new file.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MirrorIndexer implements Runnable {
+
+    private final Logger LOG = LoggerFactory.getLogger(MirrorIndexer.class);
+
+    private final File root;
+
+    private final long rescanInterval;
+
+    private volatile MirrorIndex index;
+
+    private Thread thread;
+
+    /**
+     * Scan the directory and start the background rescans
+     * 
+     * @param root
+     *            The directory
+     * @param rescanInterval
+     *            The time between the end of a scan and the start of the
+     *            next one in milliseconds, 0 to never rescan
+     */
+    public MirrorIndexer(final File root, final long rescanInterval) {
+        this.root = root;
+        this.rescanInterval = rescanInterval;
+
+        rescan();
+        if (rescanInterval > 0) {
+            thread = new Thread(this, "MirrorIndexer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Get the current index
+     */
+    public MirrorIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Scan the directory again, the new index replaces the current one once
+     * complete
+     */
+    public synchronized void rescan() {
+        long start = System.currentTimeMillis();
+        index = MirrorIndex.build(root, index);
+        LOG.debug("Indexed {} files and directories of {} in {} ms", index
+                .getEntryCount(), root, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Stop the background rescans
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                Thread.sleep(rescanInterval);
+                try {
+                    rescan();
+                } catch (RuntimeException e) {
+                    // keep the current index, and try again later
+                    LOG.error("Failed to rescan " + root, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+}
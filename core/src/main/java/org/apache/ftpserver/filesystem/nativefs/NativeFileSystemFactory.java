@@ -21,6 +21,7 @@ package org.apache.ftpserver.filesystem.nativefs;
 
 import java.io.File;
 
+import org.apache.ftpserver.filesystem.nativefs.impl.NameIndexCache;
 import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.FileSystemView;
@@ -43,6 +44,9 @@ public class NativeFileSystemFactory implements FileSystemFactory {
 
     private boolean caseInsensitive;
 
+    // shared by the views of all users, created on first use
+    private NameIndexCache nameIndex;
+
     /**
      * Should the home directories be created automatically
      * @return true if the file system will create the home directory if not available
@@ -78,6 +82,17 @@ public class NativeFileSystemFactory implements FileSystemFactory {
         this.caseInsensitive = caseInsensitive;
     }
 
+    /**
+     * Get the cache of directory file names used for case insensitive name
+     * resolution
+     */
+    private synchronized NameIndexCache getNameIndex() {
+        if (caseInsensitive && nameIndex == null) {
+            nameIndex = new NameIndexCache();
+        }
+        return nameIndex;
+    }
+
     /**
      * Create the appropriate user file system view.
      */
@@ -99,7 +114,7 @@ public class NativeFileSystemFactory implements FileSystemFactory {
             }
 
             FileSystemView fsView = new NativeFileSystemView(user,
-                    caseInsensitive);
+                    caseInsensitive, getNameIndex());
             return fsView;
         }
     }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Iterates over a directory, creating the file objects one at a time as the
+ * directory is read. An error reading the directory ends the iteration.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public abstract class DirectoryStreamIterator implements FtpFileIterator {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(DirectoryStreamIterator.class);
+
+    private final DirectoryStream<Path> stream;
+
+    private final Iterator<Path> iterator;
+
+    private boolean ended;
+
+    /**
+     * Constructor
+     * 
+     * @param stream
+     *            The open directory, closed with the iterator
+     */
+    protected DirectoryStreamIterator(final DirectoryStream<Path> stream) {
+        this.stream = stream;
+        this.iterator = stream.iterator();
+    }
+
+    /**
+     * Create the file object for an entry of the directory
+     * 
+     * @param child
+     *            The path of the entry
+     * @return The file object
+     */
+    protected abstract FtpFile createFile(Path child);
+
+    public boolean hasNext() {
+        if (ended) {
+            return false;
+        }
+        try {
+            if (iterator.hasNext()) {
+                return true;
+            }
+        } catch (DirectoryIteratorException e) {
+            LOG.debug("Failed to read directory", e.getCause());
+        }
+        ended = true;
+        return false;
+    }
+
+    public FtpFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return createFile(iterator.next());
+    }
+
+    public void close() {
+        ended = true;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close directory", e);
+        }
+    }
+}
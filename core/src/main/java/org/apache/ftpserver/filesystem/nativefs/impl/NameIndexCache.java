@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Bounded, least recently used cache of the file names of directories, used
+ * to resolve case insensitive file names without listing the directory for
+ * every path component. Each directory index maps the names of the files,
+ * and their case folded form, to the real name of a file.
+ * 
+ * An index is dropped when a file is changed through the server. Changes made
+ * by other processes are detected when a name can not be found in the index,
+ * by comparing the last modified time of the directory with the time at which
+ * it was indexed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NameIndexCache {
+
+    /**
+     * The default maximum number of indexed directories
+     */
+    public static final int DEFAULT_MAX_DIRECTORIES = 1000;
+
+    /**
+     * The default maximum number of names in all indexes
+     */
+    public static final int DEFAULT_MAX_NAMES = 1000000;
+
+    private static class DirectoryIndex {
+        private final long lastModified;
+
+        private final Map<String, String> names;
+
+        public DirectoryIndex(long lastModified, Map<String, String> names) {
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+
+        public String lookup(String name) {
+            String realName = names.get(name);
+            if (realName == null) {
+                realName = names.get(fold(name));
+            }
+            return realName;
+        }
+    }
+
+    private final int maxDirectories;
+
+    private final int maxNames;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<String, DirectoryIndex> indexes = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    // guarded by this
+    private int nameCount;
+
+    public NameIndexCache() {
+        this(DEFAULT_MAX_DIRECTORIES, DEFAULT_MAX_NAMES);
+    }
+
+    public NameIndexCache(int maxDirectories, int maxNames) {
+        this.maxDirectories = maxDirectories;
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * Fold the case of a name, two names are equal ignoring case if their
+     * folded forms are equal. Returns the name itself if already folded.
+     */
+    static String fold(String name) {
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (foldChar(c) != c) {
+                char[] chars = name.toCharArray();
+                for (int j = i; j < length; j++) {
+                    chars[j] = foldChar(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return name;
+    }
+
+    // the same comparison as String.equalsIgnoreCase
+    private static char foldChar(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Find the real name of a file in a directory, ignoring case. If a file
+     * with exactly the same name exists, that name is returned.
+     * 
+     * @param directory
+     *            The directory
+     * @param name
+     *            The name to find
+     * @return The real name of the file, or the name itself if no file matches
+     */
+    public String resolve(final File directory, final String name) {
+        String key = directory.getPath();
+
+        DirectoryIndex index;
+        synchronized (this) {
+            index = indexes.get(key);
+        }
+
+        if (index != null) {
+            String realName = index.lookup(name);
+            if (realName != null) {
+                return realName;
+            }
+            if (directory.lastModified() == index.lastModified) {
+                // not changed since indexed
+                return name;
+            }
+        }
+
+        index = createIndex(directory);
+        if (index == null) {
+            return name;
+        }
+        put(key, index);
+
+        String realName = index.lookup(name);
+        return realName == null ? name : realName;
+    }
+
+    /**
+     * Drop the index of a directory, to be called when a file is added to,
+     * removed from or renamed in the directory
+     * 
+     * @param directory
+     *            The directory
+     */
+    public synchronized void invalidate(final File directory) {
+        if (directory == null) {
+            return;
+        }
+        DirectoryIndex index = indexes.remove(directory.getPath());
+        if (index != null) {
+            nameCount -= index.names.size();
+        }
+    }
+
+    private DirectoryIndex createIndex(File directory) {
+        // read the time first, a change while listing makes the index stale
+        long lastModified = directory.lastModified();
+        String[] names = directory.list();
+        if (names == null) {
+            return null;
+        }
+
+        Map<String, String> index = new HashMap<>(names.length * 4 / 3 + 1);
+        for (String name : names) {
+            // the exact name takes precedence over a folded one
+            index.put(name, name);
+        }
+        for (String name : names) {
+            String folded = fold(name);
+            if (folded != name && !index.containsKey(folded)) {
+                index.put(folded, name);
+            }
+        }
+        return new DirectoryIndex(lastModified, index);
+    }
+
+    private synchronized void put(String key, DirectoryIndex index) {
+        DirectoryIndex previous = indexes.put(key, index);
+        if (previous != null) {
+            nameCount -= previous.names.size();
+        }
+        nameCount += index.names.size();
+
+        // evict the least recently used indexes, but always keep the new one
+        while (indexes.size() > 1
+                && (indexes.size() > maxDirectories || nameCount > maxNames)) {
+            Map.Entry<String, DirectoryIndex> eldest = indexes.entrySet()
+                    .iterator().next();
+            nameCount -= eldest.getValue().names.size();
+            indexes.remove(eldest.getKey());
+        }
+    }
+
+    /**
+     * Get the number of indexed directories
+     */
+    public synchronized int getDirectoryCount() {
+        return indexes.size();
+    }
+}
@@ -20,7 +20,6 @@
 package org.apache.ftpserver.filesystem.nativefs.impl;
 
 import java.io.File;
-import java.util.StringTokenizer;
 
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
 import org.apache.ftpserver.ftplet.FileSystemView;
@@ -57,6 +56,8 @@ public class NativeFileSystemView implements FileSystemView {
 
     private final boolean caseInsensitive;
 
+    private final NameIndexCache nameIndex;
+
     /**
      * Constructor - internal do not use directly, use {@link NativeFileSystemFactory} instead
      */
@@ -69,6 +70,15 @@ public class NativeFileSystemView implements FileSystemView {
      */
     public NativeFileSystemView(User user, boolean caseInsensitive)
             throws FtpException {
+        this(user, caseInsensitive, caseInsensitive ? new NameIndexCache()
+                : null);
+    }
+
+    /**
+     * Constructor - internal do not use directly, use {@link NativeFileSystemFactory} instead
+     */
+    public NativeFileSystemView(User user, boolean caseInsensitive,
+            NameIndexCache nameIndex) throws FtpException {
         if (user == null) {
             throw new IllegalArgumentException("user can not be null");
         }
@@ -78,6 +88,7 @@ public class NativeFileSystemView implements FileSystemView {
         }
 
         this.caseInsensitive = caseInsensitive;
+        this.nameIndex = nameIndex;
 
         // add last '/' if necessary
         String rootDir = user.getHomeDirectory();
@@ -98,7 +109,7 @@ public class NativeFileSystemView implements FileSystemView {
      * user.
      */
     public FtpFile getHomeDirectory() {
-        return new NativeFtpFile("/", new File(rootDir), user);
+        return createFtpFile("/", new File(rootDir), user);
     }
 
     /**
@@ -107,10 +118,10 @@ public class NativeFileSystemView implements FileSystemView {
     public FtpFile getWorkingDirectory() {
         FtpFile fileObj = null;
         if (currDir.equals("/")) {
-            fileObj = new NativeFtpFile("/", new File(rootDir), user);
+            fileObj = createFtpFile("/", new File(rootDir), user);
         } else {
             File file = new File(rootDir, currDir.substring(1));
-            fileObj = new NativeFtpFile(currDir, file, user);
+            fileObj = createFtpFile(currDir, file, user);
 
         }
         return fileObj;
@@ -128,7 +139,35 @@ public class NativeFileSystemView implements FileSystemView {
 
         // strip the root directory and return
         String userFileName = physicalName.substring(rootDir.length() - 1);
-        return new NativeFtpFile(userFileName, fileObj, user);
+        return createFtpFile(userFileName, fileObj, user);
+    }
+
+    /**
+     * Create the file object for a resolved file. Sub classes can override
+     * this method to provide their own {@link FtpFile} implementation.
+     * 
+     * @param fileName
+     *            The file name with respect to the user root, always
+     *            beginning with '/'
+     * @param file
+     *            The physical file
+     * @param user
+     *            The user of this view
+     * @return The file object
+     */
+    protected FtpFile createFtpFile(final String fileName, final File file,
+            final User user) {
+        return new NativeFtpFile(fileName, file, user, nameIndex);
+    }
+
+    /**
+     * Get the cache of directory file names used for case insensitive name
+     * resolution
+     * 
+     * @return The cache, or null if not case insensitive
+     */
+    protected NameIndexCache getNameIndex() {
+        return nameIndex;
     }
 
     /**
@@ -189,105 +228,127 @@ public class NativeFileSystemView implements FileSystemView {
         String normalizedRootDir = normalizeSeparateChar(rootDir);
         normalizedRootDir = appendSlash(normalizedRootDir);
 
+        int rootLength = normalizedRootDir.length();
+
         // normalize file name
         String normalizedFileName = normalizeSeparateChar(fileName);
-        String result;
-        
-        // if file name is relative, set resArg to root dir + curr dir
-        // if file name is absolute, set resArg to root dir
+        StringBuilder result = new StringBuilder(rootLength
+                + normalizedFileName.length() + 32);
+        result.append(normalizedRootDir);
+
+        // if file name is relative, start from root dir + curr dir
+        // if file name is absolute, start from root dir
         if (normalizedFileName.charAt(0) != '/') {
             // file name is relative
-            String normalizedCurrDir = normalize(currDir, "/");
-
-            result = normalizedRootDir + normalizedCurrDir.substring(1);
-        } else {
-            result = normalizedRootDir;
+            String normalizedCurrDir = currDir;
+            if (normalizedCurrDir == null
+                    || normalizedCurrDir.trim().length() == 0) {
+                normalizedCurrDir = "/";
+            }
+            normalizedCurrDir = normalizeSeparateChar(normalizedCurrDir);
+            int start = normalizedCurrDir.charAt(0) == '/' ? 1 : 0;
+            result.append(normalizedCurrDir, start, normalizedCurrDir
+                    .length());
+            if (normalizedCurrDir.charAt(normalizedCurrDir.length() - 1) != '/') {
+                // the same as appending a slash and stripping it below
+                result.append('/');
+            }
         }
 
         // strip last '/'
-        result = trimTrailingSlash(result);
+        result.setLength(result.length() - 1);
 
         // replace ., ~ and ..
-        // in this loop resArg will never end with '/'
-        StringTokenizer st = new StringTokenizer(normalizedFileName, "/");
-        while (st.hasMoreTokens()) {
-            String tok = st.nextToken();
-
-            // . => current directory
-            if (tok.equals(".")) {
-                // ignore and move on
-            } else if (tok.equals("..")) {
+        // in this loop result will never end with '/'
+        int length = normalizedFileName.length();
+        int tokenStart = 0;
+        while (tokenStart < length) {
+            int tokenEnd = normalizedFileName.indexOf('/', tokenStart);
+            if (tokenEnd == -1) {
+                tokenEnd = length;
+            }
+            int tokenLength = tokenEnd - tokenStart;
+
+            if (tokenLength == 0) {
+                // empty token between two slashes, ignore
+            } else if (tokenLength == 1
+                    && normalizedFileName.charAt(tokenStart) == '.') {
+                // . => current directory, ignore and move on
+            } else if (tokenLength == 2
+                    && normalizedFileName.startsWith("..", tokenStart)) {
                 // .. => parent directory (if not root)
-                if (result.startsWith(normalizedRootDir)) {
-                    int slashIndex = result.lastIndexOf('/');
+                if (startsWith(result, normalizedRootDir)) {
+                    int slashIndex = result.lastIndexOf("/");
                     if (slashIndex != -1) {
-                        result = result.substring(0, slashIndex);
+                        result.setLength(slashIndex);
                     }
                 }
-            } else if (tok.equals("~")) {
+            } else if (tokenLength == 1
+                    && normalizedFileName.charAt(tokenStart) == '~') {
                 // ~ => home directory (in this case the root directory)
-                result = trimTrailingSlash(normalizedRootDir);
-                continue;
+                result.setLength(0);
+                result.append(normalizedRootDir, 0, rootLength - 1);
             } else {
                 // token is normal directory name
-                
-                if(caseInsensitive) {
-                    // we're case insensitive, find a directory with the name, ignoring casing
-                    File[] matches = new File(result)
-                            .listFiles(new NameEqualsFileFilter(tok, true));
-    
-                    if (matches != null && matches.length > 0) {
-                        // found a file matching tok, replace tok for get the right casing
-                        tok = matches[0].getName();
+                String tok = normalizedFileName.substring(tokenStart,
+                        tokenEnd);
+
+                if (caseInsensitive) {
+                    // we're case insensitive, find a file with the name,
+                    // ignoring casing, to get the right casing
+                    File directory = new File(result.toString());
+                    if (nameIndex != null) {
+                        tok = nameIndex.resolve(directory, tok);
+                    } else {
+                        File[] matches = directory
+                                .listFiles(new NameEqualsFileFilter(tok, true));
+                        if (matches != null && matches.length > 0) {
+                            tok = matches[0].getName();
+                        }
                     }
                 }
 
-                result = result + '/' + tok;
-    
+                result.append('/').append(tok);
             }
+
+            tokenStart = tokenEnd + 1;
         }
 
         // add last slash if necessary
-        if ((result.length()) + 1 == normalizedRootDir.length()) {
-            result += '/';
+        if ((result.length()) + 1 == rootLength) {
+            result.append('/');
         }
 
         // make sure we did not end up above root dir
-        if (!result.startsWith(normalizedRootDir)) {
-            result = normalizedRootDir;
+        if (!startsWith(result, normalizedRootDir)) {
+            return normalizedRootDir;
         }
 
-        return result;
+        return result.toString();
     }
 
     /**
-     * Append trailing slash ('/') if missing
+     * Does the path start with the prefix
      */
-    private String appendSlash(String path) {
-        if (path.charAt(path.length() - 1) != '/') {
-            return path + '/';
-        } else {
-            return path;
+    private static boolean startsWith(StringBuilder path, String prefix) {
+        int length = prefix.length();
+        if (path.length() < length) {
+            return false;
         }
-    }
-    
-    /**
-     * Prepend leading slash ('/') if missing
-     */
-    private String prependSlash(String path) {
-        if (path.charAt(0) != '/') {
-            return '/' + path;
-        } else {
-            return path;
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
         }
+        return true;
     }
-    
+
     /**
-     * Trim trailing slash ('/') if existing
+     * Append trailing slash ('/') if missing
      */
-    private String trimTrailingSlash(String path) {
-        if (path.charAt(path.length() - 1) == '/') {
-            return path.substring(0, path.length() - 1);
+    private String appendSlash(String path) {
+        if (path.charAt(path.length() - 1) != '/') {
+            return path + '/';
         } else {
             return path;
         }
@@ -301,18 +362,4 @@ public class NativeFileSystemView implements FileSystemView {
         normalizedPathName = normalizedPathName.replace('\\', '/');
         return normalizedPathName;
     }
-    
-    /**
-     * Normalize separator char, append and prepend slashes. Default to 
-     * defaultPath if null or empty
-     */
-    private String normalize(String path, String defaultPath) {
-        if(path == null || path.trim().length() == 0) {
-            path = defaultPath;
-        }
-        
-        path = normalizeSeparateChar(path);
-        path = prependSlash(appendSlash(path));
-        return path;
-    }
 }
@@ -27,12 +27,20 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
 import org.apache.ftpserver.ftplet.User;
 import org.apache.ftpserver.usermanager.impl.WriteRequest;
 import org.slf4j.Logger;
@@ -49,6 +57,38 @@ public class NativeFtpFile implements FtpFile {
 
     private final Logger LOG = LoggerFactory.getLogger(NativeFtpFile.class);
 
+    /**
+     * The attributes of a snapshotted file
+     */
+    private static final class Snapshot {
+        private final boolean exists;
+
+        private final boolean directory;
+
+        private final boolean file;
+
+        private final long size;
+
+        private final long lastModified;
+
+        // the access checks are made when first needed
+        private volatile Boolean readable;
+
+        private volatile Boolean writable;
+
+        private Snapshot(boolean exists, boolean directory, boolean file,
+                long size, long lastModified) {
+            this.exists = exists;
+            this.directory = directory;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final Snapshot MISSING = new Snapshot(false, false, false,
+            0, 0);
+
     // the file name with respect to the user root.
     // The path separator character will be '/' and
     // it will always begin with '/'.
@@ -58,11 +98,36 @@ public class NativeFtpFile implements FtpFile {
 
     private final User user;
 
+    // the file names of the directories, used by case insensitive views
+    private final NameIndexCache nameIndex;
+
+    private final boolean snapshotted;
+
+    // the attributes if snapshotted, null until read
+    private volatile Snapshot snapshot;
+
+    // read on first use by equals and hashCode
+    private volatile String canonicalPath;
+
     /**
      * Constructor, internal do not use directly.
      */
     protected NativeFtpFile(final String fileName, final File file,
             final User user) {
+        this(fileName, file, user, null);
+    }
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    protected NativeFtpFile(final String fileName, final File file,
+            final User user, final NameIndexCache nameIndex) {
+        this(fileName, file, user, nameIndex, false);
+    }
+
+    private NativeFtpFile(final String fileName, final File file,
+            final User user, final NameIndexCache nameIndex,
+            final boolean snapshotted) {
         if (fileName == null) {
             throw new IllegalArgumentException("fileName can not be null");
         }
@@ -80,6 +145,63 @@ public class NativeFtpFile implements FtpFile {
         this.fileName = fileName;
         this.file = file;
         this.user = user;
+        this.nameIndex = nameIndex;
+        this.snapshotted = snapshotted;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The existence, type, size and last modified time are read with a single
+     * call the first time one of them is needed.
+     */
+    public FtpFile snapshot() {
+        if (snapshotted) {
+            return this;
+        }
+        return new NativeFtpFile(fileName, file, user, nameIndex, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void refresh() {
+        snapshot = null;
+    }
+
+    /**
+     * Get the attributes of a snapshotted file, reading them if needed
+     */
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file
+                        .toPath(), BasicFileAttributes.class);
+                current = new Snapshot(true, attributes.isDirectory(),
+                        attributes.isRegularFile(), attributes.size(),
+                        attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                current = MISSING;
+            } catch (InvalidPathException e) {
+                // the name can not be encoded as a path, use the file
+                current = new Snapshot(file.exists(), file.isDirectory(), file
+                        .isFile(), file.length(), file.lastModified());
+            }
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Drop the cached names of the parent directory, and of this file if a
+     * directory, after a file was added, removed or renamed
+     */
+    private void invalidateNameIndex() {
+        if (nameIndex != null) {
+            nameIndex.invalidate(file.getParentFile());
+            nameIndex.invalidate(file);
+        }
     }
 
     /**
@@ -133,6 +255,9 @@ public class NativeFtpFile implements FtpFile {
      * Is it a directory?
      */
     public boolean isDirectory() {
+        if (snapshotted) {
+            return getSnapshot().directory;
+        }
         return file.isDirectory();
     }
 
@@ -140,6 +265,9 @@ public class NativeFtpFile implements FtpFile {
      * Is it a file?
      */
     public boolean isFile() {
+        if (snapshotted) {
+            return getSnapshot().file;
+        }
         return file.isFile();
     }
 
@@ -147,6 +275,9 @@ public class NativeFtpFile implements FtpFile {
      * Does this file exists?
      */
     public boolean doesExist() {
+        if (snapshotted) {
+            return getSnapshot().exists;
+        }
         return file.exists();
     }
 
@@ -154,6 +285,9 @@ public class NativeFtpFile implements FtpFile {
      * Get file size.
      */
     public long getSize() {
+        if (snapshotted) {
+            return getSnapshot().size;
+        }
         return file.length();
     }
 
@@ -175,13 +309,16 @@ public class NativeFtpFile implements FtpFile {
      * Get link count
      */
     public int getLinkCount() {
-        return file.isDirectory() ? 3 : 1;
+        return isDirectory() ? 3 : 1;
     }
 
     /**
      * Get last modified time.
      */
     public long getLastModified() {
+        if (snapshotted) {
+            return getSnapshot().lastModified;
+        }
         return file.lastModified();
     }
 
@@ -189,13 +326,24 @@ public class NativeFtpFile implements FtpFile {
      * {@inheritDoc}
      */
     public boolean setLastModified(long time) {
-        return file.setLastModified(time);
+        boolean retVal = file.setLastModified(time);
+        refresh();
+        return retVal;
     }
 
     /**
      * Check read permission.
      */
     public boolean isReadable() {
+        if (snapshotted) {
+            Snapshot current = getSnapshot();
+            Boolean readable = current.readable;
+            if (readable == null) {
+                readable = file.canRead();
+                current.readable = readable;
+            }
+            return readable;
+        }
         return file.canRead();
     }
 
@@ -210,15 +358,30 @@ public class NativeFtpFile implements FtpFile {
         }
 
         LOG.debug("Checking if file exists");
-        if (file.exists()) {
-            LOG.debug("Checking can write: " + file.canWrite());
-            return file.canWrite();
+        if (doesExist()) {
+            return canWrite();
         }
 
         LOG.debug("Authorized");
         return true;
     }
 
+    /**
+     * Check the write permission of the operating system
+     */
+    private boolean canWrite() {
+        if (snapshotted) {
+            Snapshot current = getSnapshot();
+            Boolean writable = current.writable;
+            if (writable == null) {
+                writable = file.canWrite();
+                current.writable = writable;
+            }
+            return writable;
+        }
+        return file.canWrite();
+    }
+
     /**
      * Has delete permission.
      */
@@ -250,7 +413,7 @@ public class NativeFtpFile implements FtpFile {
 
         // we check if the parent FileObject is writable.
         NativeFtpFile parentObject = new NativeFtpFile(parentFullName, file
-                .getAbsoluteFile().getParentFile(), user);
+                .getAbsoluteFile().getParentFile(), user, nameIndex);
         return parentObject.isWritable();
     }
 
@@ -261,6 +424,8 @@ public class NativeFtpFile implements FtpFile {
         boolean retVal = false;
         if (isRemovable()) {
             retVal = file.delete();
+            invalidateNameIndex();
+            refresh();
         }
         return retVal;
     }
@@ -280,6 +445,10 @@ public class NativeFtpFile implements FtpFile {
                 retVal = false;
             } else {
                 retVal = file.renameTo(destFile);
+                invalidateNameIndex();
+                ((NativeFtpFile) dest).invalidateNameIndex();
+                refresh();
+                dest.refresh();
             }
         }
         return retVal;
@@ -292,6 +461,8 @@ public class NativeFtpFile implements FtpFile {
         boolean retVal = false;
         if (isWritable()) {
             retVal = file.mkdir();
+            invalidateNameIndex();
+            refresh();
         }
         return retVal;
     }
@@ -307,24 +478,40 @@ public class NativeFtpFile implements FtpFile {
      * List files. If not a directory or does not exist, null will be returned.
      */
     public List<FtpFile> listFiles() {
+        return listFiles((Predicate<String>) null);
+    }
+
+    /**
+     * List the files with accepted names, file objects are only created for
+     * the accepted names.
+     */
+    public List<FtpFile> listFiles(final Predicate<String> nameFilter) {
 
         // is a directory
-        if (!file.isDirectory()) {
+        if (!isDirectory()) {
             return null;
         }
 
         // directory - return all the files
-        File[] files = file.listFiles();
-        if (files == null) {
+        String[] names = file.list();
+        if (names == null) {
             return null;
         }
 
-        // make sure the files are returned in order
-        Arrays.sort(files, new Comparator<File>() {
-            public int compare(File f1, File f2) {
-                return f1.getName().compareTo(f2.getName());
+        if (nameFilter != null) {
+            int accepted = 0;
+            for (String name : names) {
+                if (nameFilter.test(name)) {
+                    names[accepted++] = name;
+                }
             }
-        });
+            if (accepted < names.length) {
+                names = Arrays.copyOf(names, accepted);
+            }
+        }
+
+        // make sure the files are returned in order
+        Arrays.sort(names);
 
         // get the virtual name of the base directory
         String virtualFileStr = getAbsolutePath();
@@ -333,16 +520,55 @@ public class NativeFtpFile implements FtpFile {
         }
 
         // now return all the files under the directory
-        FtpFile[] virtualFiles = new FtpFile[files.length];
-        for (int i = 0; i < files.length; ++i) {
-            File fileObj = files[i];
-            String fileName = virtualFileStr + fileObj.getName();
-            virtualFiles[i] = new NativeFtpFile(fileName, fileObj, user);
+        FtpFile[] virtualFiles = new FtpFile[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            String fileName = virtualFileStr + names[i];
+            // the attributes of the listed files are read once
+            virtualFiles[i] = new NativeFtpFile(fileName, new File(file,
+                    names[i]), user, nameIndex, true);
         }
 
         return Collections.unmodifiableList(Arrays.asList(virtualFiles));
     }
 
+    /**
+     * Iterate over the files with accepted names while reading the directory.
+     * The attributes of each file are read once, when first needed.
+     */
+    public FtpFileIterator iterateFiles(final Predicate<String> nameFilter) {
+
+        // is a directory
+        if (!isDirectory()) {
+            return null;
+        }
+
+        DirectoryStream<Path> stream;
+        try {
+            stream = Files.newDirectoryStream(file.toPath(),
+                    entry -> nameFilter == null
+                            || nameFilter.test(entry.getFileName().toString()));
+        } catch (InvalidPathException e) {
+            // can not be read as a path, list it as a whole
+            return FtpFile.super.iterateFiles(nameFilter);
+        } catch (IOException e) {
+            LOG.debug("Failed to list " + file, e);
+            return null;
+        }
+
+        // get the virtual name of the base directory
+        String virtualFileStr = getAbsolutePath();
+        final String dirName = virtualFileStr.endsWith("/") ? virtualFileStr
+                : virtualFileStr + '/';
+        return new DirectoryStreamIterator(stream) {
+            @Override
+            protected FtpFile createFile(Path child) {
+                String name = child.getFileName().toString();
+                return new NativeFtpFile(dirName + name, new File(file, name),
+                        user, nameIndex, true);
+            }
+        };
+    }
+
     /**
      * Create output stream for writing.
      */
@@ -355,7 +581,12 @@ public class NativeFtpFile implements FtpFile {
         }
 
         // create output stream
+        boolean created = nameIndex != null && !file.exists();
         final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        if (created) {
+            invalidateNameIndex();
+        }
+        refresh();
         raf.setLength(offset);
         raf.seek(offset);
 
@@ -395,6 +626,70 @@ public class NativeFtpFile implements FtpFile {
         };
     }
 
+    /**
+     * Open a file channel for writing, with the same checks as
+     * {@link #createOutputStream(long)}.
+     */
+    public WritableByteChannel openWritableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isWritable()) {
+            throw new IOException("No write permission : " + file.getName());
+        }
+
+        boolean created = nameIndex != null && !file.exists();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        if (created) {
+            invalidateNameIndex();
+        }
+        refresh();
+        try {
+            raf.setLength(offset);
+            raf.seek(offset);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+
+        // closing the channel closes the random access file
+        return raf.getChannel();
+    }
+
+    /**
+     * Open a file channel for reading, with the same checks as
+     * {@link #createInputStream(long)}.
+     */
+    public ReadableByteChannel openReadableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isReadable()) {
+            throw new IOException("No read permission : " + file.getName());
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(offset);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return raf.getChannel();
+    }
+
+    /**
+     * Get the canonical path of the file, read once
+     */
+    private String getCanonicalPath() throws IOException {
+        String path = canonicalPath;
+        if (path == null) {
+            path = file.getCanonicalPath();
+            canonicalPath = path;
+        }
+        return path;
+    }
+
     /**
      * Implements equals by comparing getCanonicalPath() for the underlying file instabnce.
      * Ignores the fileName and User fields
@@ -405,9 +700,8 @@ public class NativeFtpFile implements FtpFile {
             String thisCanonicalPath;
             String otherCanonicalPath;
             try {
-                thisCanonicalPath = this.file.getCanonicalPath();
-                otherCanonicalPath = ((NativeFtpFile) obj).file
-                        .getCanonicalPath();
+                thisCanonicalPath = getCanonicalPath();
+                otherCanonicalPath = ((NativeFtpFile) obj).getCanonicalPath();
             } catch (IOException e) {
                 throw new UncheckedIOException("Failed to get the canonical path",
                         e);
@@ -421,7 +715,7 @@ public class NativeFtpFile implements FtpFile {
     @Override
     public int hashCode() {
         try {
-            return file.getCanonicalPath().hashCode();
+            return getCanonicalPath().hashCode();
         } catch (IOException e) {
             return 0;
         }
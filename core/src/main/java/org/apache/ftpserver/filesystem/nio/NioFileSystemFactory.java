@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.NameIndexCache;
+import org.apache.ftpserver.filesystem.nio.impl.FileAttributesReader;
+import org.apache.ftpserver.filesystem.nio.impl.NioFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory using NIO.2. Like the native file system it uses the OS
+ * file system, but the attributes of a file are read with a single call, and
+ * for directory listings while the directory is iterated, rather than with one
+ * system call per attribute. Unlike the native file system, renaming a file
+ * onto an existing file replaces it.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(NioFileSystemFactory.class);
+
+    private final FileAttributesReader attributesReader = new FileAttributesReader(
+            FileSystems.getDefault());
+
+    private boolean createHome;
+
+    private boolean caseInsensitive;
+
+    // shared by the views of all users, created on first use
+    private NameIndexCache nameIndex;
+
+    /**
+     * Should the home directories be created automatically
+     * @return true if the file system will create the home directory if not available
+     */
+    public boolean isCreateHome() {
+        return createHome;
+    }
+
+    /**
+     * Set if the home directories be created automatically
+     * @param createHome true if the file system will create the home directory if not available
+     */
+    public void setCreateHome(boolean createHome) {
+        this.createHome = createHome;
+    }
+
+    /**
+     * Is this file system case insensitive. 
+     * Enabling might cause problems when working against case-sensitive file systems, like on Linux
+     * @return true if this file system is case insensitive
+     */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    /**
+     * Should this file system be case insensitive. 
+     * Enabling might cause problems when working against case-sensitive file systems, like on Linux
+     * @param caseInsensitive true if this file system should be case insensitive
+     */
+    public void setCaseInsensitive(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    /**
+     * Get the cache of directory file names used for case insensitive name
+     * resolution
+     */
+    private synchronized NameIndexCache getNameIndex() {
+        if (caseInsensitive && nameIndex == null) {
+            nameIndex = new NameIndexCache();
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        synchronized (user) {
+            // create home if does not exist
+            if (createHome) {
+                String homeDirStr = user.getHomeDirectory();
+                Path homeDir = Paths.get(homeDirStr);
+                if (Files.isRegularFile(homeDir)) {
+                    LOG.warn("Not a directory :: " + homeDirStr);
+                    throw new FtpException("Not a directory :: " + homeDirStr);
+                }
+                try {
+                    Files.createDirectories(homeDir);
+                } catch (IOException e) {
+                    LOG.warn("Cannot create user home :: " + homeDirStr);
+                    throw new FtpException("Cannot create user home :: "
+                            + homeDirStr, e);
+                }
+            }
+
+            return new NioFileSystemView(user, caseInsensitive,
+                    getNameIndex(), attributesReader);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads all the attributes needed by an {@link NioFtpFile} with a single
+ * call to the file system, using the richest attribute view the file system
+ * supports:
+ * <ul>
+ * <li><code>unix</code>: the numeric uid and gid are read with the other
+ * attributes and mapped to names through a cache, so that the user and group
+ * databases are only queried once per uid and gid</li>
+ * <li><code>posix</code>: the owner and group names are resolved by the file
+ * system on every read</li>
+ * <li><code>basic</code>: the owner and group are reported as "user" and
+ * "group", as by the native file system</li>
+ * </ul>
+ * 
+ * One reader is shared by all the views created by a factory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FileAttributesReader {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(FileAttributesReader.class);
+
+    private static final String UNIX_ATTRIBUTES = "unix:isDirectory,isRegularFile,size,lastModifiedTime,nlink,uid,gid";
+
+    /**
+     * Upper bound for each of the name caches, there are normally only a
+     * handful of owners in a file tree
+     */
+    private static final int MAX_CACHED_NAMES = 1024;
+
+    private enum View {
+        UNIX, POSIX, BASIC
+    }
+
+    private final View view;
+
+    private final Map<Integer, String> userNames = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> groupNames = new ConcurrentHashMap<>();
+
+    public FileAttributesReader(FileSystem fileSystem) {
+        Set<String> views = fileSystem.supportedFileAttributeViews();
+        if (views.contains("unix")) {
+            view = View.UNIX;
+        } else if (views.contains("posix")) {
+            view = View.POSIX;
+        } else {
+            view = View.BASIC;
+        }
+        LOG.debug("Reading file attributes with the {} view", view);
+    }
+
+    /**
+     * Read the attributes of a file
+     * 
+     * @param path
+     *            The file
+     * @return The attributes, {@link NioFileAttributes#MISSING} if the file
+     *         does not exist or can not be read
+     */
+    public NioFileAttributes read(final Path path) {
+        try {
+            switch (view) {
+            case UNIX:
+                return readUnix(path);
+            case POSIX:
+                return readPosix(path);
+            default:
+                return readBasic(path);
+            }
+        } catch (NoSuchFileException e) {
+            return NioFileAttributes.MISSING;
+        } catch (IOException e) {
+            LOG.debug("Failed to read the attributes of " + path, e);
+            return NioFileAttributes.MISSING;
+        }
+    }
+
+    private NioFileAttributes readUnix(final Path path) throws IOException {
+        Map<String, Object> attributes = Files.readAttributes(path,
+                UNIX_ATTRIBUTES);
+
+        Integer uid = (Integer) attributes.get("uid");
+        Integer gid = (Integer) attributes.get("gid");
+        String ownerName = userNames.get(uid);
+        String groupName = groupNames.get(gid);
+        if (ownerName == null || groupName == null) {
+            // only resolve the names the first time an id is seen
+            PosixFileAttributes posixAttributes = Files.readAttributes(path,
+                    PosixFileAttributes.class);
+            ownerName = posixAttributes.owner().getName();
+            groupName = posixAttributes.group().getName();
+            cache(userNames, uid, ownerName);
+            cache(groupNames, gid, groupName);
+        }
+
+        return new NioFileAttributes(true,
+                (Boolean) attributes.get("isDirectory"),
+                (Boolean) attributes.get("isRegularFile"),
+                (Long) attributes.get("size"),
+                ((FileTime) attributes
+                        .get("lastModifiedTime")).toMillis(),
+                (Integer) attributes.get("nlink"), ownerName, groupName);
+    }
+
+    private NioFileAttributes readPosix(final Path path) throws IOException {
+        PosixFileAttributes attributes = Files.readAttributes(path,
+                PosixFileAttributes.class);
+        return new NioFileAttributes(true, attributes.isDirectory(),
+                attributes.isRegularFile(), attributes.size(), attributes
+                        .lastModifiedTime().toMillis(), attributes
+                        .isDirectory() ? 3 : 1, attributes.owner().getName(),
+                attributes.group().getName());
+    }
+
+    private NioFileAttributes readBasic(final Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path,
+                BasicFileAttributes.class);
+        return new NioFileAttributes(true, attributes.isDirectory(),
+                attributes.isRegularFile(), attributes.size(), attributes
+                        .lastModifiedTime().toMillis(), attributes
+                        .isDirectory() ? 3 : 1, "user", "group");
+    }
+
+    private static void cache(Map<Integer, String> names, Integer id,
+            String name) {
+        if (names.size() < MAX_CACHED_NAMES) {
+            names.put(id, name);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The attributes of a file, as read in one go by a {@link FileAttributesReader}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFileAttributes {
+
+    /**
+     * The attributes of a file which does not exist
+     */
+    public static final NioFileAttributes MISSING = new NioFileAttributes(
+            false, false, false, 0, 0, 0, "user", "group");
+
+    private final boolean exists;
+
+    private final boolean directory;
+
+    private final boolean regularFile;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final int linkCount;
+
+    private final String ownerName;
+
+    private final String groupName;
+
+    public NioFileAttributes(boolean exists, boolean directory,
+            boolean regularFile, long size, long lastModified, int linkCount,
+            String ownerName, String groupName) {
+        this.exists = exists;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.linkCount = linkCount;
+        this.ownerName = ownerName;
+        this.groupName = groupName;
+    }
+
+    public boolean exists() {
+        return exists;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public boolean isRegularFile() {
+        return regularFile;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+}
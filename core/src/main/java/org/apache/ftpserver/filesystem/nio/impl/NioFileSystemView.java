@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.NameIndexCache;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view based on NIO.2 paths. The path resolution is the same as
+ * for the native file system view, the files are {@link NioFtpFile} objects.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFileSystemView extends NativeFileSystemView {
+
+    private final FileAttributesReader attributesReader;
+
+    /**
+     * Constructor - set the user object.
+     */
+    public NioFileSystemView(User user, boolean caseInsensitive,
+            NameIndexCache nameIndex, FileAttributesReader attributesReader)
+            throws FtpException {
+        super(user, caseInsensitive, nameIndex);
+        if (attributesReader == null) {
+            throw new IllegalArgumentException(
+                    "attributesReader can not be null");
+        }
+        this.attributesReader = attributesReader;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected FtpFile createFtpFile(final String fileName, final File file,
+            final User user) {
+        return new NioFtpFile(fileName, file.toPath(), user, attributesReader,
+                getNameIndex());
+    }
+}
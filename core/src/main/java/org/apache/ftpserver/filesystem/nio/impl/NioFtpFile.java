@@ -0,0 +1,639 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.DirectoryStreamIterator;
+import org.apache.ftpserver.filesystem.nativefs.impl.NameIndexCache;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * This class wraps a {@link Path}. The attributes of the file are read with a
+ * single call the first time one of them is needed, or while iterating the
+ * parent directory when the file is returned by {@link #listFiles()}, and are
+ * kept until the file is changed through this object or {@link #refresh()} is
+ * called. Files are therefore always snapshotted.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFtpFile implements FtpFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioFtpFile.class);
+
+    private static final Comparator<NioFtpFile> NAME_COMPARATOR = new Comparator<NioFtpFile>() {
+        public int compare(NioFtpFile f1, NioFtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private static final DirectoryStream.Filter<Path> ACCEPT_ALL = entry -> true;
+
+    // the file name with respect to the user root.
+    // The path separator character will be '/' and
+    // it will always begin with '/'.
+    private final String fileName;
+
+    private final Path path;
+
+    private final User user;
+
+    private final FileAttributesReader attributesReader;
+
+    // the file names of the directories, used by case insensitive views
+    private final NameIndexCache nameIndex;
+
+    private volatile NioFileAttributes attributes;
+
+    // the access checks, made when first needed
+    private volatile Boolean readable;
+
+    private volatile Boolean writable;
+
+    // read on first use by equals and hashCode
+    private volatile Path realPath;
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    protected NioFtpFile(final String fileName, final Path path,
+            final User user, final FileAttributesReader attributesReader) {
+        this(fileName, path, user, attributesReader, null, null);
+    }
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    protected NioFtpFile(final String fileName, final Path path,
+            final User user, final FileAttributesReader attributesReader,
+            final NameIndexCache nameIndex) {
+        this(fileName, path, user, attributesReader, nameIndex, null);
+    }
+
+    private NioFtpFile(final String fileName, final Path path,
+            final User user, final FileAttributesReader attributesReader,
+            final NameIndexCache nameIndex, final NioFileAttributes attributes) {
+        if (fileName == null) {
+            throw new IllegalArgumentException("fileName can not be null");
+        }
+        if (path == null) {
+            throw new IllegalArgumentException("path can not be null");
+        }
+
+        if (fileName.length() == 0) {
+            throw new IllegalArgumentException("fileName can not be empty");
+        } else if (fileName.charAt(0) != '/') {
+            throw new IllegalArgumentException(
+                    "fileName must be an absolut path");
+        }
+
+        this.fileName = fileName;
+        this.path = path;
+        this.user = user;
+        this.attributesReader = attributesReader;
+        this.nameIndex = nameIndex;
+        this.attributes = attributes;
+    }
+
+    private NioFileAttributes getAttributes() {
+        if (attributes == null) {
+            attributes = attributesReader.read(path);
+        }
+        return attributes;
+    }
+
+    /**
+     * Forget the attributes after a change to the file
+     */
+    private void invalidateAttributes() {
+        attributes = null;
+        readable = null;
+        writable = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attributes of this file are already read only once.
+     */
+    public FtpFile snapshot() {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void refresh() {
+        invalidateAttributes();
+    }
+
+    /**
+     * Drop the cached names of the parent directory, and of this file if a
+     * directory, after a file was added, removed or renamed
+     */
+    private void invalidateNameIndex() {
+        if (nameIndex != null) {
+            nameIndex.invalidate(path.toFile().getParentFile());
+            nameIndex.invalidate(path.toFile());
+        }
+    }
+
+    /**
+     * Get full name.
+     */
+    public String getAbsolutePath() {
+
+        // strip the last '/' if necessary
+        String fullName = fileName;
+        int filelen = fullName.length();
+        if ((filelen != 1) && (fullName.charAt(filelen - 1) == '/')) {
+            fullName = fullName.substring(0, filelen - 1);
+        }
+
+        return fullName;
+    }
+
+    /**
+     * Get short name.
+     */
+    public String getName() {
+
+        // root - the short name will be '/'
+        if (fileName.equals("/")) {
+            return "/";
+        }
+
+        // strip the last '/'
+        String shortName = fileName;
+        int filelen = fileName.length();
+        if (shortName.charAt(filelen - 1) == '/') {
+            shortName = shortName.substring(0, filelen - 1);
+        }
+
+        // return from the last '/'
+        int slashIndex = shortName.lastIndexOf('/');
+        if (slashIndex != -1) {
+            shortName = shortName.substring(slashIndex + 1);
+        }
+        return shortName;
+    }
+
+    /**
+     * Is a hidden file?
+     */
+    public boolean isHidden() {
+        try {
+            return Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Is it a directory?
+     */
+    public boolean isDirectory() {
+        return getAttributes().isDirectory();
+    }
+
+    /**
+     * Is it a file?
+     */
+    public boolean isFile() {
+        return getAttributes().isRegularFile();
+    }
+
+    /**
+     * Does this file exists?
+     */
+    public boolean doesExist() {
+        return getAttributes().exists();
+    }
+
+    /**
+     * Get file size.
+     */
+    public long getSize() {
+        return getAttributes().getSize();
+    }
+
+    /**
+     * Get file owner.
+     */
+    public String getOwnerName() {
+        return getAttributes().getOwnerName();
+    }
+
+    /**
+     * Get group name
+     */
+    public String getGroupName() {
+        return getAttributes().getGroupName();
+    }
+
+    /**
+     * Get link count
+     */
+    public int getLinkCount() {
+        return getAttributes().getLinkCount();
+    }
+
+    /**
+     * Get last modified time.
+     */
+    public long getLastModified() {
+        return getAttributes().getLastModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean setLastModified(long time) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+            return true;
+        } catch (IOException e) {
+            LOG.debug("Failed to set the last modified time of " + path, e);
+            return false;
+        } finally {
+            invalidateAttributes();
+        }
+    }
+
+    /**
+     * Check read permission.
+     */
+    public boolean isReadable() {
+        Boolean value = readable;
+        if (value == null) {
+            value = Files.isReadable(path);
+            readable = value;
+        }
+        return value;
+    }
+
+    /**
+     * Check file write permission.
+     */
+    public boolean isWritable() {
+        LOG.debug("Checking authorization for " + getAbsolutePath());
+        if (user.authorize(new WriteRequest(getAbsolutePath())) == null) {
+            LOG.debug("Not authorized");
+            return false;
+        }
+
+        LOG.debug("Checking if file exists");
+        if (doesExist()) {
+            Boolean value = writable;
+            if (value == null) {
+                value = Files.isWritable(path);
+                writable = value;
+            }
+            return value;
+        }
+
+        LOG.debug("Authorized");
+        return true;
+    }
+
+    /**
+     * Has delete permission.
+     */
+    public boolean isRemovable() {
+
+        // root cannot be deleted
+        if ("/".equals(fileName)) {
+            return false;
+        }
+
+        String fullName = getAbsolutePath();
+
+        // we check FTPServer's write permission for this file.
+        if (user.authorize(new WriteRequest(fullName)) == null) {
+            return false;
+        }
+        // In order to maintain consistency, when possible we delete the last '/' character in the String
+        int indexOfSlash = fullName.lastIndexOf('/');
+        String parentFullName;
+        if (indexOfSlash == 0) {
+            parentFullName = "/";
+        } else {
+            parentFullName = fullName.substring(0, indexOfSlash);
+        }
+
+        // we check if the parent FileObject is writable.
+        NioFtpFile parentObject = new NioFtpFile(parentFullName, path
+                .toAbsolutePath().getParent(), user, attributesReader,
+                nameIndex);
+        return parentObject.isWritable();
+    }
+
+    /**
+     * Delete file.
+     */
+    public boolean delete() {
+        boolean retVal = false;
+        if (isRemovable()) {
+            try {
+                Files.delete(path);
+                retVal = true;
+                invalidateNameIndex();
+            } catch (IOException e) {
+                LOG.debug("Failed to delete " + path, e);
+            } finally {
+                invalidateAttributes();
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Move file object, replacing an existing destination file.
+     */
+    public boolean move(final FtpFile dest) {
+        boolean retVal = false;
+        if (dest.isWritable() && isReadable()) {
+            NioFtpFile destFile = (NioFtpFile) dest;
+
+            try {
+                // replaces an existing destination, atomically if the file
+                // system can
+                try {
+                    Files.move(path, destFile.path,
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(path, destFile.path,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                retVal = true;
+                invalidateNameIndex();
+                destFile.invalidateNameIndex();
+            } catch (IOException e) {
+                LOG.debug("Failed to move " + path + " to " + destFile.path, e);
+            } finally {
+                invalidateAttributes();
+                destFile.invalidateAttributes();
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Create directory.
+     */
+    public boolean mkdir() {
+        boolean retVal = false;
+        if (isWritable()) {
+            try {
+                Files.createDirectory(path);
+                retVal = true;
+                invalidateNameIndex();
+            } catch (IOException e) {
+                LOG.debug("Failed to create directory " + path, e);
+            } finally {
+                invalidateAttributes();
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Get the physical file object.
+     */
+    public File getPhysicalFile() {
+        return path.toFile();
+    }
+
+    /**
+     * Get the physical path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * List files. If not a directory or does not exist, null will be returned.
+     * The attributes of each file are read while iterating the directory.
+     */
+    public List<FtpFile> listFiles() {
+        return listFiles((Predicate<String>) null);
+    }
+
+    /**
+     * List the files with accepted names. The rejected entries are skipped
+     * while iterating the directory, without reading their attributes.
+     */
+    public List<FtpFile> listFiles(final Predicate<String> nameFilter) {
+
+        // is a directory
+        if (!isDirectory()) {
+            return null;
+        }
+
+        // get the virtual name of the base directory
+        String virtualFileStr = getAbsolutePath();
+        if (virtualFileStr.charAt(virtualFileStr.length() - 1) != '/') {
+            virtualFileStr += '/';
+        }
+
+        List<NioFtpFile> files = new ArrayList<>();
+        DirectoryStream.Filter<Path> filter = nameFilter == null ? ACCEPT_ALL
+                : entry -> nameFilter.test(entry.getFileName().toString());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path,
+                filter)) {
+            for (Path child : stream) {
+                String fileName = virtualFileStr + child.getFileName();
+                files.add(new NioFtpFile(fileName, child, user,
+                        attributesReader, nameIndex, attributesReader
+                                .read(child)));
+            }
+        } catch (IOException e) {
+            LOG.debug("Failed to list " + path, e);
+            return null;
+        }
+
+        // make sure the files are returned in order
+        Collections.sort(files, NAME_COMPARATOR);
+
+        return Collections.<FtpFile> unmodifiableList(files);
+    }
+
+    /**
+     * Iterate over the files with accepted names while reading the directory.
+     * The attributes of each file are read when it is returned.
+     */
+    public FtpFileIterator iterateFiles(final Predicate<String> nameFilter) {
+
+        // is a directory
+        if (!isDirectory()) {
+            return null;
+        }
+
+        DirectoryStream<Path> stream;
+        try {
+            stream = Files.newDirectoryStream(path, nameFilter == null
+                    ? ACCEPT_ALL : entry -> nameFilter.test(entry
+                            .getFileName().toString()));
+        } catch (IOException e) {
+            LOG.debug("Failed to list " + path, e);
+            return null;
+        }
+
+        // get the virtual name of the base directory
+        String virtualFileStr = getAbsolutePath();
+        final String dirName = virtualFileStr.endsWith("/") ? virtualFileStr
+                : virtualFileStr + '/';
+        return new DirectoryStreamIterator(stream) {
+            @Override
+            protected FtpFile createFile(Path child) {
+                return new NioFtpFile(dirName + child.getFileName(), child,
+                        user, attributesReader, nameIndex, attributesReader
+                                .read(child));
+            }
+        };
+    }
+
+    /**
+     * Create output stream for writing.
+     */
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+        return Channels.newOutputStream(openWritableChannel(offset));
+    }
+
+    /**
+     * Create input stream for reading.
+     */
+    public InputStream createInputStream(final long offset) throws IOException {
+        return Channels.newInputStream(openReadableChannel(offset));
+    }
+
+    /**
+     * Open a file channel for writing.
+     */
+    public FileChannel openWritableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isWritable()) {
+            throw new IOException("No write permission : " + getName());
+        }
+
+        boolean created = !doesExist();
+        invalidateAttributes();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            channel.truncate(offset);
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (created) {
+            invalidateNameIndex();
+        }
+        return channel;
+    }
+
+    /**
+     * Open a file channel for reading.
+     */
+    public FileChannel openReadableChannel(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isReadable()) {
+            throw new IOException("No read permission : " + getName());
+        }
+
+        // move to the appropriate offset
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Implements equals by comparing the real path of the underlying files.
+     * Ignores the fileName and User fields
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof NioFtpFile) {
+            return getRealPath().equals(((NioFtpFile) obj).getRealPath());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return getRealPath().hashCode();
+    }
+
+    private Path getRealPath() {
+        Path real = realPath;
+        if (real == null) {
+            real = readRealPath();
+            realPath = real;
+        }
+        return real;
+    }
+
+    private Path readRealPath() {
+        Path absolute = path.toAbsolutePath();
+        try {
+            return absolute.toRealPath();
+        } catch (IOException e) {
+            // does not exist, compare the normalized paths instead
+            return absolute.normalize();
+        }
+    }
+}
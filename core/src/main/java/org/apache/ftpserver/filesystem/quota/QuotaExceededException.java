@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota;
+
+import java.io.IOException;
+
+/**
+ * Thrown when writing to a file would store more bytes in the home directory
+ * of the user than the user is allowed to.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaExceededException extends IOException {
+
+    private static final long serialVersionUID = -6322587357240582412L;
+
+    /**
+     * Default constructor.
+     */
+    public QuotaExceededException() {
+        super();
+    }
+
+    /**
+     * Constructs a <code>QuotaExceededException</code> object with a
+     * message.
+     * 
+     * @param msg
+     *            A description of the exception
+     */
+    public QuotaExceededException(String msg) {
+        super(msg);
+    }
+}
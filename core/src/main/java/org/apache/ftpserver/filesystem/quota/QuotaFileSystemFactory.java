@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.filesystem.quota.impl.QuotaFileSystemView;
+import org.apache.ftpserver.filesystem.quota.impl.UsageTracker;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.QuotaPermission;
+import org.apache.ftpserver.usermanager.impl.QuotaRequest;
+import org.apache.ftpserver.util.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory enforcing the storage quota of the users, as granted by
+ * a {@link QuotaPermission}, on top of another file system.
+ * 
+ * The number of bytes stored in each home directory is kept in a counter
+ * which is updated as files are uploaded, appended to, removed and renamed,
+ * so that checking the quota never reads a directory. Uploads fail once the
+ * counter reaches the quota of the user. The counters are saved to the
+ * checkpoint file at a fixed interval and when the factory is disposed.
+ * When the first file system view is created, the counters are read back
+ * from the checkpoint file and all known home directories are scanned again
+ * in the background, by several threads, to include the changes made while
+ * the server was stopped.
+ * 
+ * Only home directories of the native file system, or of another file system
+ * whose files are {@link File}s or {@link Path}s, are counted. Users whose
+ * home directories are nested in each other each get the usage of their own
+ * directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(QuotaFileSystemFactory.class);
+
+    private FileSystemFactory fileSystem = new NativeFileSystemFactory();
+
+    private File checkpointFile;
+
+    private int checkpointInterval = 60;
+
+    private int scanThreads = Runtime.getRuntime().availableProcessors();
+
+    private UsageTracker tracker;
+
+    /**
+     * Get the file system which usage is counted
+     * @return The counted file system
+     */
+    public FileSystemFactory getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Set the file system which usage is counted, by default the native file
+     * system
+     * @param fileSystem The counted file system
+     */
+    public void setFileSystem(FileSystemFactory fileSystem) {
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem can not be null");
+        }
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Get the file the usages are saved to
+     * @return The checkpoint file, null if the usages are not saved
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Set the file the usages are saved to. When not set, the usages are
+     * only known once the home directories have been scanned after a
+     * restart.
+     * @param checkpointFile The checkpoint file
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Get the interval between two checkpoints
+     * @return The interval in seconds
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Set the interval between two checkpoints. The default is 60 seconds.
+     * @param checkpointInterval The interval in seconds
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException(
+                    "checkpointInterval must be positive");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Get the number of threads scanning the home directories
+     * @return The number of threads
+     */
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    /**
+     * Set the number of threads scanning the home directories. The default
+     * is the number of processors.
+     * @param scanThreads The number of threads
+     */
+    public void setScanThreads(int scanThreads) {
+        if (scanThreads < 1) {
+            throw new IllegalArgumentException("scanThreads must be positive");
+        }
+        this.scanThreads = scanThreads;
+    }
+
+    /**
+     * Get the number of bytes stored in each home directory seen so far
+     * @return The number of bytes by home directory
+     */
+    public synchronized Map<String, Long> getUsages() {
+        Map<String, Long> usages = new LinkedHashMap<>();
+        if (tracker != null) {
+            for (Map.Entry<Path, Long> usage : tracker.getUsages().entrySet()) {
+                usages.put(usage.getKey().toString(), usage.getValue());
+            }
+        }
+        return usages;
+    }
+
+    /**
+     * Scan all home directories again in the background, to include changes
+     * made outside the server
+     */
+    public synchronized void rescan() {
+        if (tracker != null) {
+            tracker.rescan();
+        }
+    }
+
+    /**
+     * Wait for the running scans to complete
+     * @param timeout The maximum time to wait in milliseconds
+     * @return true if no scan is running
+     */
+    public boolean awaitScans(long timeout) {
+        UsageTracker current;
+        synchronized (this) {
+            current = tracker;
+        }
+        return current == null || current.awaitScans(timeout);
+    }
+
+    /**
+     * Save the usages to the checkpoint file now
+     * @throws FtpException If the file can not be written
+     */
+    public synchronized void checkpoint() throws FtpException {
+        if (tracker != null) {
+            try {
+                tracker.checkpoint();
+            } catch (IOException e) {
+                throw new FtpException("Failed to write the usage checkpoint",
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Stop the scans and save the usages
+     */
+    public synchronized void dispose() {
+        if (tracker != null) {
+            tracker.close();
+            tracker = null;
+        }
+    }
+
+    private synchronized UsageTracker getTracker() throws FtpException {
+        if (tracker == null) {
+            try {
+                tracker = new UsageTracker(checkpointFile,
+                        checkpointInterval * 1000L, scanThreads);
+            } catch (IOException e) {
+                LOG.error("Failed to read the usage checkpoint "
+                        + checkpointFile, e);
+                throw new FtpException("Failed to read the usage checkpoint "
+                        + checkpointFile, e);
+            }
+        }
+        return tracker;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        UsageTracker usageTracker = getTracker();
+        FileSystemView view = fileSystem.createFileSystemView(user);
+
+        Path home = PathUtils.getPhysicalPath(view.getHomeDirectory());
+        if (home == null) {
+            LOG.debug("Home of {} is not a native directory, usage not counted",
+                    user.getName());
+            return view;
+        }
+
+        QuotaRequest quotaRequest = (QuotaRequest) user
+                .authorize(new QuotaRequest());
+        long maxBytes = quotaRequest == null ? 0 : quotaRequest.getMaxBytes();
+        return new QuotaFileSystemView(view, usageTracker, usageTracker
+                .getHome(home), maxBytes);
+    }
+}
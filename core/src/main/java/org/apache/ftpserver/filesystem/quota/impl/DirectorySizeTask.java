@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Sums the sizes of the regular files below a directory, forking a task for
+ * each sub directory so that the directories are read in parallel. Symbolic
+ * links are not followed, and files or directories removed while they are
+ * read are skipped.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectorySizeTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(DirectorySizeTask.class);
+
+    private final Path dir;
+
+    public DirectorySizeTask(final Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    protected Long compute() {
+        long size = 0;
+        List<DirectorySizeTask> subTasks = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry,
+                            BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    // removed since listed
+                    continue;
+                }
+                if (attrs.isRegularFile()) {
+                    size += attrs.size();
+                } else if (attrs.isDirectory()) {
+                    DirectorySizeTask subTask = new DirectorySizeTask(entry);
+                    subTask.fork();
+                    subTasks.add(subTask);
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Failed to read directory " + dir, e);
+        }
+
+        for (DirectorySizeTask subTask : subTasks) {
+            size += subTask.join();
+        }
+        return size;
+    }
+}
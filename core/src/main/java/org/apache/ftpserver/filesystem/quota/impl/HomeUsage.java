@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import java.nio.file.Path;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The number of bytes stored in a home directory, updated as files are
+ * written and removed and corrected by scanning the directory.
+ * 
+ * The changes made while the directory is scanned are kept apart and added
+ * to the scanned size, so that a scan does not lose them. A change to a
+ * file the scan reads at the same moment may still be counted twice or not
+ * at all, until the next scan.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class HomeUsage {
+
+    private final Path home;
+
+    // written with the lock held
+    private volatile long bytes;
+
+    // guarded by this
+    private boolean scanning;
+
+    private boolean scanned;
+
+    private long scanDelta;
+
+    public HomeUsage(final Path home, final long bytes) {
+        this.home = home;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Get the home directory
+     * 
+     * @return The physical path of the directory
+     */
+    public Path getHome() {
+        return home;
+    }
+
+    /**
+     * Get the number of bytes stored
+     * 
+     * @return The number of bytes
+     */
+    public long getBytes() {
+        return Math.max(0, bytes);
+    }
+
+    /**
+     * Has the directory been scanned since the server started
+     * 
+     * @return true if a scan completed
+     */
+    public synchronized boolean isScanned() {
+        return scanned;
+    }
+
+    /**
+     * Add the size of written bytes, or remove the size of removed files
+     * 
+     * @param delta
+     *            The change in bytes, negative for removed bytes
+     */
+    public synchronized void add(final long delta) {
+        bytes += delta;
+        if (scanning) {
+            scanDelta += delta;
+        }
+    }
+
+    /**
+     * @return false if a scan is running already
+     */
+    synchronized boolean startScan() {
+        if (scanning) {
+            return false;
+        }
+        scanning = true;
+        scanDelta = 0;
+        return true;
+    }
+
+    synchronized void completeScan(final long size) {
+        bytes = size + scanDelta;
+        scanning = false;
+        scanned = true;
+    }
+
+    synchronized void abortScan() {
+        scanning = false;
+    }
+}
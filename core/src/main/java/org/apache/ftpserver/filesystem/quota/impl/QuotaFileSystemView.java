@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view wrapping the files of another view in
+ * {@link QuotaFtpFile}s.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaFileSystemView implements FileSystemView {
+
+    private final FileSystemView delegate;
+
+    private final UsageTracker tracker;
+
+    private final HomeUsage home;
+
+    private final long maxBytes;
+
+    /**
+     * @param home
+     *            The usage of the home directory of the user
+     * @param maxBytes
+     *            The maximum number of bytes the user may store, 0 for no
+     *            limit
+     */
+    public QuotaFileSystemView(final FileSystemView delegate,
+            final UsageTracker tracker, final HomeUsage home,
+            final long maxBytes) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate can not be null");
+        }
+        if (tracker == null) {
+            throw new IllegalArgumentException("tracker can not be null");
+        }
+        if (home == null) {
+            throw new IllegalArgumentException("home can not be null");
+        }
+        this.delegate = delegate;
+        this.tracker = tracker;
+        this.home = home;
+        this.maxBytes = maxBytes;
+    }
+
+    UsageTracker getTracker() {
+        return tracker;
+    }
+
+    HomeUsage getHome() {
+        return home;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private FtpFile wrap(FtpFile file) {
+        return file == null ? null : new QuotaFtpFile(file, this);
+    }
+
+    public FtpFile getHomeDirectory() throws FtpException {
+        return wrap(delegate.getHomeDirectory());
+    }
+
+    public FtpFile getWorkingDirectory() throws FtpException {
+        return wrap(delegate.getWorkingDirectory());
+    }
+
+    public boolean changeWorkingDirectory(String dir) throws FtpException {
+        return delegate.changeWorkingDirectory(dir);
+    }
+
+    public FtpFile getFile(String file) throws FtpException {
+        return wrap(delegate.getFile(file));
+    }
+
+    public boolean isRandomAccessible() throws FtpException {
+        return delegate.isRandomAccessible();
+    }
+
+    public void dispose() {
+        delegate.dispose();
+    }
+}
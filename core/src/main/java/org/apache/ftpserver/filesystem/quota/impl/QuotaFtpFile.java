@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ftpserver.filesystem.quota.QuotaExceededException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.PathUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File wrapper updating the usage of the home directories containing the
+ * file as it is written, removed or moved, and refusing to write beyond the
+ * quota of the user.
+ * 
+ * The quota is checked when a file is opened for writing and before each
+ * write, against the usage counter of the home, so that no directory is
+ * read to check it. Writing is only refused once the limit is reached, the
+ * bytes already written are kept.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaFtpFile implements FtpFile {
+
+    private final FtpFile delegate;
+
+    private final QuotaFileSystemView view;
+
+    QuotaFtpFile(final FtpFile delegate, final QuotaFileSystemView view) {
+        this.delegate = delegate;
+        this.view = view;
+    }
+
+    /**
+     * Get the usages of the homes containing the file
+     */
+    private List<HomeUsage> getHomes(final FtpFile file) {
+        Path path = PathUtils.getPhysicalPath(file);
+        if (path == null) {
+            return Collections.emptyList();
+        }
+        return view.getTracker().getHomesContaining(path);
+    }
+
+    private static void add(final List<HomeUsage> homes, final long delta) {
+        if (delta != 0) {
+            for (HomeUsage home : homes) {
+                home.add(delta);
+            }
+        }
+    }
+
+    /**
+     * Get the size of a plain file, 0 for directories and missing files
+     */
+    private static long getFileSize(final FtpFile file) {
+        return file.isFile() ? file.getSize() : 0;
+    }
+
+    private void checkQuota(final long length) throws QuotaExceededException {
+        long maxBytes = view.getMaxBytes();
+        if (maxBytes > 0 && view.getHome().getBytes() + length > maxBytes) {
+            throw new QuotaExceededException("Quota exceeded : " + getName());
+        }
+    }
+
+    public String getAbsolutePath() {
+        return delegate.getAbsolutePath();
+    }
+
+    public String getName() {
+        return delegate.getName();
+    }
+
+    public boolean isHidden() {
+        return delegate.isHidden();
+    }
+
+    public boolean isDirectory() {
+        return delegate.isDirectory();
+    }
+
+    public boolean isFile() {
+        return delegate.isFile();
+    }
+
+    public boolean doesExist() {
+        return delegate.doesExist();
+    }
+
+    public boolean isReadable() {
+        return delegate.isReadable();
+    }
+
+    public boolean isWritable() {
+        return delegate.isWritable();
+    }
+
+    public boolean isRemovable() {
+        return delegate.isRemovable();
+    }
+
+    public String getOwnerName() {
+        return delegate.getOwnerName();
+    }
+
+    public String getGroupName() {
+        return delegate.getGroupName();
+    }
+
+    public int getLinkCount() {
+        return delegate.getLinkCount();
+    }
+
+    public long getLastModified() {
+        return delegate.getLastModified();
+    }
+
+    public boolean setLastModified(final long time) {
+        return delegate.setLastModified(time);
+    }
+
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    public Object getPhysicalFile() {
+        return delegate.getPhysicalFile();
+    }
+
+    public boolean mkdir() {
+        return delegate.mkdir();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Only empty directories are removed, so removing a directory frees
+     * nothing.
+     */
+    public boolean delete() {
+        long size = getFileSize(delegate);
+        List<HomeUsage> homes = getHomes(delegate);
+        boolean deleted = delegate.delete();
+        if (deleted) {
+            add(homes, -size);
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Moving within the same homes only frees the size of a replaced file.
+     * Moving a directory between different homes, for nested home
+     * directories, rescans the homes it left or entered.
+     */
+    public boolean move(final FtpFile destination) {
+        FtpFile unwrapped = destination;
+        if (destination instanceof QuotaFtpFile) {
+            unwrapped = ((QuotaFtpFile) destination).delegate;
+        }
+
+        boolean directory = delegate.isDirectory();
+        long size = getFileSize(delegate);
+        long replacedSize = getFileSize(unwrapped);
+        List<HomeUsage> sourceHomes = getHomes(delegate);
+        List<HomeUsage> destinationHomes = getHomes(unwrapped);
+
+        boolean moved = delegate.move(unwrapped);
+        if (moved) {
+            add(destinationHomes, -replacedSize);
+            List<HomeUsage> left = new ArrayList<>(sourceHomes);
+            left.removeAll(destinationHomes);
+            List<HomeUsage> entered = new ArrayList<>(destinationHomes);
+            entered.removeAll(sourceHomes);
+            if (directory) {
+                for (HomeUsage home : left) {
+                    view.getTracker().scan(home);
+                }
+                for (HomeUsage home : entered) {
+                    view.getTracker().scan(home);
+                }
+            } else {
+                add(left, -size);
+                add(entered, size);
+            }
+        }
+        return moved;
+    }
+
+    public List<? extends FtpFile> listFiles() {
+        List<? extends FtpFile> files = delegate.listFiles();
+        if (files == null) {
+            return null;
+        }
+        List<FtpFile> wrapped = new ArrayList<>(files.size());
+        for (FtpFile file : files) {
+            wrapped.add(new QuotaFtpFile(file, view));
+        }
+        return Collections.unmodifiableList(wrapped);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Fails with a {@link QuotaExceededException} if the user has no space
+     * left, and the returned stream fails with one when a write would go
+     * beyond the quota.
+     */
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+        // the file is truncated at the offset, which frees space
+        long truncated = Math.max(0, getFileSize(delegate) - offset);
+        checkQuota(1 - truncated);
+
+        final List<HomeUsage> homes = getHomes(delegate);
+        final OutputStream out = delegate.createOutputStream(offset);
+        add(homes, -truncated);
+
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                checkQuota(1);
+                out.write(b);
+                add(homes, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                checkQuota(len);
+                out.write(b, off, len);
+                add(homes, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    public InputStream createInputStream(final long offset) throws IOException {
+        return delegate.createInputStream(offset);
+    }
+
+    public ReadableByteChannel openReadableChannel(final long offset)
+            throws IOException {
+        return delegate.openReadableChannel(offset);
+    }
+
+    public FtpFile snapshot() {
+        FtpFile snapshot = delegate.snapshot();
+        if (snapshot == delegate) {
+            return this;
+        }
+        return new QuotaFtpFile(snapshot, view);
+    }
+
+    public void refresh() {
+        delegate.refresh();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof QuotaFtpFile) {
+            return delegate.equals(((QuotaFtpFile) obj).delegate);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The usage of all home directories seen by a quota file system.
+ * 
+ * The usages are saved to a checkpoint file at a fixed interval and when
+ * the tracker is closed. When the tracker is created, the usages of the
+ * checkpoint are used right away while all homes in it are scanned again in
+ * the background, since files may have changed while the server was
+ * stopped. A home seen for the first time starts at zero and is scanned
+ * too. The scans run on a pool of threads, which read the sub directories
+ * of a home in parallel.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class UsageTracker {
+
+    private final Logger LOG = LoggerFactory.getLogger(UsageTracker.class);
+
+    private final ConcurrentHashMap<Path, HomeUsage> homes = new ConcurrentHashMap<>();
+
+    private final File checkpointFile;
+
+    private final ForkJoinPool scanPool;
+
+    private final ScheduledExecutorService checkpointExecutor;
+
+    /**
+     * @param checkpointFile
+     *            The file the usages are saved to, null to not save them
+     * @param checkpointInterval
+     *            The interval in milliseconds between two checkpoints
+     * @param scanThreads
+     *            The number of threads scanning the homes
+     * @throws IOException
+     *             If the checkpoint file can not be read
+     */
+    public UsageTracker(final File checkpointFile,
+            final long checkpointInterval, final int scanThreads)
+            throws IOException {
+        this.checkpointFile = checkpointFile;
+
+        scanPool = new ForkJoinPool(scanThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                    .newThread(pool);
+            thread.setName("QuotaScan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        if (checkpointFile != null && checkpointFile.exists()) {
+            load();
+        }
+        for (HomeUsage home : homes.values()) {
+            scan(home);
+        }
+
+        if (checkpointFile != null) {
+            checkpointExecutor = Executors
+                    .newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "QuotaCheckpoint");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            checkpointExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    LOG.warn("Failed to write the usage checkpoint "
+                            + checkpointFile, e);
+                }
+            }, checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+        } else {
+            checkpointExecutor = null;
+        }
+    }
+
+    private void load() throws IOException {
+        Properties usages = new Properties();
+        InputStream in = new FileInputStream(checkpointFile);
+        try {
+            usages.load(in);
+        } finally {
+            IoUtils.close(in);
+        }
+
+        for (String home : usages.stringPropertyNames()) {
+            try {
+                Path path = Paths.get(home);
+                long bytes = Long.parseLong(usages.getProperty(home));
+                homes.put(path, new HomeUsage(path, bytes));
+            } catch (InvalidPathException | NumberFormatException e) {
+                LOG.warn("Invalid usage checkpoint entry for {}", home);
+            }
+        }
+    }
+
+    /**
+     * Get the usage of a home directory, starting to track it if needed
+     * 
+     * @param home
+     *            The physical path of the home directory, normalized
+     * @return The usage
+     */
+    public HomeUsage getHome(final Path home) {
+        HomeUsage usage = homes.get(home);
+        if (usage == null) {
+            HomeUsage created = new HomeUsage(home, 0);
+            usage = homes.putIfAbsent(home, created);
+            if (usage == null) {
+                usage = created;
+                scan(created);
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Get the usages of all tracked home directories containing a file
+     * 
+     * @param path
+     *            The physical path of the file, normalized
+     * @return The usages, for the innermost home first
+     */
+    public List<HomeUsage> getHomesContaining(final Path path) {
+        List<HomeUsage> containing = null;
+        for (Path dir = path; dir != null; dir = dir.getParent()) {
+            HomeUsage usage = homes.get(dir);
+            if (usage != null) {
+                if (containing == null) {
+                    containing = new ArrayList<>(2);
+                }
+                containing.add(usage);
+            }
+        }
+        return containing == null ? Collections.<HomeUsage> emptyList()
+                : containing;
+    }
+
+    /**
+     * Get the number of bytes stored in each tracked home directory
+     * 
+     * @return The number of bytes by home directory
+     */
+    public Map<Path, Long> getUsages() {
+        Map<Path, Long> usages = new TreeMap<>();
+        for (HomeUsage usage : homes.values()) {
+            usages.put(usage.getHome(), usage.getBytes());
+        }
+        return usages;
+    }
+
+    /**
+     * Scan a home directory in the background, unless it is being scanned
+     * already
+     * 
+     * @param usage
+     *            The usage of the home directory
+     */
+    public void scan(final HomeUsage usage) {
+        if (!usage.startScan()) {
+            return;
+        }
+        try {
+            scanPool.execute(() -> {
+                try {
+                    long size = new DirectorySizeTask(usage.getHome())
+                            .invoke();
+                    usage.completeScan(size);
+                    LOG.debug("Scanned {}: {} bytes", usage.getHome(), size);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to scan " + usage.getHome(), e);
+                    usage.abortScan();
+                }
+            });
+        } catch (RuntimeException e) {
+            // the pool is shut down
+            usage.abortScan();
+        }
+    }
+
+    /**
+     * Scan all tracked home directories again in the background
+     */
+    public void rescan() {
+        for (HomeUsage usage : homes.values()) {
+            scan(usage);
+        }
+    }
+
+    /**
+     * Wait for the running scans to complete
+     * 
+     * @param timeout
+     *            The maximum time to wait in milliseconds
+     * @return true if no scan is running
+     */
+    public boolean awaitScans(final long timeout) {
+        return scanPool.awaitQuiescence(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Save the usages to the checkpoint file, through a temporary file
+     * renamed over it
+     * 
+     * @throws IOException
+     *             If the file can not be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        Properties usages = new Properties();
+        for (HomeUsage usage : homes.values()) {
+            usages.setProperty(usage.getHome().toString(), Long
+                    .toString(usage.getBytes()));
+        }
+
+        File dir = checkpointFile.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+        File tmp = new File(dir, checkpointFile.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            usages.store(out, "Bytes stored in the home directories");
+            out.getFD().sync();
+        } finally {
+            IoUtils.close(out);
+        }
+        try {
+            Files.move(tmp.toPath(), checkpointFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), checkpointFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stop the scans and the checkpoints, and save the usages a last time
+     */
+    public void close() {
+        if (checkpointExecutor != null) {
+            checkpointExecutor.shutdownNow();
+        }
+        scanPool.shutdownNow();
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            LOG.warn("Failed to write the usage checkpoint " + checkpointFile,
+                    e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.striped;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.NameIndexCache;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.filesystem.striped.impl.PlacementMap;
+import org.apache.ftpserver.filesystem.striped.impl.Volume;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory spreading the user homes over several volumes, so that
+ * the I/O of different users goes to different disks.
+ * 
+ * Each user gets a home directory named after the user on one of the
+ * volumes, the home directory configured for the user is not used. The
+ * volume is chosen when the user first logs in, preferring the volumes with
+ * more free space, fewer users and a lower write latency, and is recorded in
+ * the placement file so that the user keeps it. Within the home, the files
+ * are accessed as with the
+ * {@link org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory}.
+ * 
+ * A user placed on a volume which is no longer configured keeps using it as
+ * long as the directory exists, so that the volumes can be reordered or
+ * renamed without moving the homes.
+ * 
+ * The placement file is read when the first file system view is created,
+ * later configuration changes have no effect.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class StripedFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(StripedFileSystemFactory.class);
+
+    private List<File> volumes = new ArrayList<>();
+
+    private File placementFile;
+
+    private long minFreeSpace = 1024L * 1024 * 1024;
+
+    private int probeInterval = 60;
+
+    private boolean caseInsensitive;
+
+    private List<Volume> volumeList;
+
+    private PlacementMap placementMap;
+
+    // shared by the views of all users, created on first use
+    private NameIndexCache nameIndex;
+
+    /**
+     * Get the mount points the homes are placed on
+     * @return The mount points
+     */
+    public List<File> getVolumes() {
+        return Collections.unmodifiableList(volumes);
+    }
+
+    /**
+     * Set the mount points the homes are placed on
+     * @param volumes The mount points, existing directories
+     */
+    public void setVolumes(List<File> volumes) {
+        if (volumes == null) {
+            throw new IllegalArgumentException("volumes can not be null");
+        }
+        this.volumes = new ArrayList<>(volumes);
+    }
+
+    /**
+     * Get the file recording the volume of each user
+     * @return The placement file
+     */
+    public File getPlacementFile() {
+        return placementFile;
+    }
+
+    /**
+     * Set the file recording the volume of each user. It is created when the
+     * first user is placed, preferably not on one of the volumes.
+     * @param placementFile The placement file
+     */
+    public void setPlacementFile(File placementFile) {
+        this.placementFile = placementFile;
+    }
+
+    /**
+     * Get the free space below which no new home is placed on a volume
+     * @return The minimum free space in bytes
+     */
+    public long getMinFreeSpace() {
+        return minFreeSpace;
+    }
+
+    /**
+     * Set the free space below which no new home is placed on a volume. The
+     * users already placed on the volume are not moved. The default is 1 GiB.
+     * @param minFreeSpace The minimum free space in bytes
+     */
+    public void setMinFreeSpace(long minFreeSpace) {
+        if (minFreeSpace < 0) {
+            throw new IllegalArgumentException(
+                    "minFreeSpace can not be negative");
+        }
+        this.minFreeSpace = minFreeSpace;
+    }
+
+    /**
+     * Get how often the write latency of the volumes is measured
+     * @return The interval in seconds
+     */
+    public int getProbeInterval() {
+        return probeInterval;
+    }
+
+    /**
+     * Set how often the write latency of the volumes is measured. The latency
+     * is only measured when a new user is placed, at most once per interval.
+     * The default is 60 seconds.
+     * @param probeInterval The interval in seconds
+     */
+    public void setProbeInterval(int probeInterval) {
+        if (probeInterval < 0) {
+            throw new IllegalArgumentException(
+                    "probeInterval can not be negative");
+        }
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Is this file system case insensitive.
+     * @return true if this file system is case insensitive
+     */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    /**
+     * Should this file system be case insensitive.
+     * @param caseInsensitive true if this file system should be case insensitive
+     */
+    public void setCaseInsensitive(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    /**
+     * Get the volume a user home is placed on
+     * @param userName The user name
+     * @return The mount point, null if the user is not placed yet
+     * @throws FtpException If the placement file can not be read
+     */
+    public File getVolume(String userName) throws FtpException {
+        return getPlacementMap().get(userName);
+    }
+
+    /**
+     * Get the number of user homes placed on a volume
+     * @param volume The mount point, as configured
+     * @return The number of homes, 0 if the volume is not configured
+     * @throws FtpException If the placement file can not be read
+     */
+    public int getUserCount(File volume) throws FtpException {
+        getPlacementMap();
+        for (Volume v : volumeList) {
+            if (v.getRoot().equals(volume.getAbsoluteFile())) {
+                return v.getUserCount();
+            }
+        }
+        return 0;
+    }
+
+    private synchronized PlacementMap getPlacementMap() throws FtpException {
+        if (placementMap == null) {
+            if (placementFile == null) {
+                throw new FtpException("Placement file not set");
+            }
+            List<Volume> list = new ArrayList<>();
+            for (File volume : volumes) {
+                if (!volume.isDirectory()) {
+                    LOG.warn("Not a directory :: " + volume);
+                    throw new FtpException("Not a directory :: " + volume);
+                }
+                list.add(new Volume(volume.getAbsoluteFile()));
+            }
+            if (list.isEmpty()) {
+                throw new FtpException("No volumes configured");
+            }
+            placementMap = new PlacementMap(placementFile, list, minFreeSpace,
+                    probeInterval * 1000L);
+            volumeList = list;
+            if (caseInsensitive) {
+                nameIndex = new NameIndexCache();
+            }
+        }
+        return placementMap;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        String userName = user.getName();
+        if (userName.isEmpty() || userName.equals(".") || userName.equals("..")
+                || userName.indexOf('/') != -1 || userName.indexOf('\\') != -1) {
+            LOG.warn("Invalid user name for a home directory :: " + userName);
+            throw new FtpException("Invalid user name for a home directory :: "
+                    + userName);
+        }
+
+        PlacementMap map = getPlacementMap();
+        File volume = map.place(userName);
+        if (!volume.isDirectory()) {
+            LOG.warn("Volume not available :: " + volume);
+            throw new FtpException("Volume not available :: " + volume);
+        }
+
+        File homeDir = new File(volume, userName);
+        synchronized (user) {
+            if (!homeDir.isDirectory() && !homeDir.mkdirs()) {
+                LOG.warn("Cannot create user home :: " + homeDir);
+                throw new FtpException("Cannot create user home :: "
+                        + homeDir);
+            }
+        }
+
+        BaseUser placedUser = new BaseUser(user);
+        placedUser.setHomeDirectory(homeDir.getPath());
+        return new NativeFileSystemView(placedUser, caseInsensitive,
+                nameIndex);
+    }
+}
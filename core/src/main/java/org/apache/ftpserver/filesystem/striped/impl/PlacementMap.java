@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.striped.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The volume of each user home, kept in a properties file mapping user names
+ * to mount points. The file is rewritten, through a temporary file renamed
+ * over it, each time a user is placed, so that a user keeps the same home
+ * after a restart.
+ * 
+ * New users are placed on the available volume with the best
+ * {@link Volume#getScore() score}, among the volumes with at least the
+ * minimum free space.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class PlacementMap {
+
+    private final Logger LOG = LoggerFactory.getLogger(PlacementMap.class);
+
+    private final File file;
+
+    private final List<Volume> volumes;
+
+    private final long minFreeSpace;
+
+    private final long probeInterval;
+
+    // user name to mount point, guarded by this
+    private final Properties placements = new Properties();
+
+    /**
+     * @param file
+     *            The properties file, read if it exists
+     * @param volumes
+     *            The configured volumes
+     * @param minFreeSpace
+     *            The free space in bytes below which no new home is placed on
+     *            a volume
+     * @param probeInterval
+     *            The time in milliseconds during which a latency probe is
+     *            used
+     * @throws FtpException
+     *             If the file can not be read
+     */
+    public PlacementMap(final File file, final List<Volume> volumes,
+            final long minFreeSpace, final long probeInterval)
+            throws FtpException {
+        this.file = file;
+        this.volumes = volumes;
+        this.minFreeSpace = minFreeSpace;
+        this.probeInterval = probeInterval;
+
+        if (file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                placements.load(in);
+            } catch (IOException e) {
+                LOG.error("Failed to read the placement map " + file, e);
+                throw new FtpException("Failed to read the placement map "
+                        + file, e);
+            } finally {
+                IoUtils.close(in);
+            }
+        }
+
+        for (String userName : placements.stringPropertyNames()) {
+            String root = placements.getProperty(userName);
+            Volume volume = findVolume(root);
+            if (volume != null) {
+                volume.addUser();
+            } else {
+                LOG.warn("User {} placed on {} which is not a configured volume",
+                        userName, root);
+            }
+        }
+    }
+
+    private Volume findVolume(final String root) {
+        for (Volume volume : volumes) {
+            if (volume.getRoot().getPath().equals(root)) {
+                return volume;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the mount point of a user home
+     * 
+     * @param userName
+     *            The user name
+     * @return The mount point, null if the user is not placed yet
+     */
+    public synchronized File get(final String userName) {
+        String root = placements.getProperty(userName);
+        return root == null ? null : new File(root);
+    }
+
+    /**
+     * Get the mount point of a user home, placing the user if needed
+     * 
+     * @param userName
+     *            The user name
+     * @return The mount point
+     * @throws FtpException
+     *             If no volume is available or the map can not be saved
+     */
+    public synchronized File place(final String userName) throws FtpException {
+        File placed = get(userName);
+        if (placed != null) {
+            return placed;
+        }
+
+        Volume best = null;
+        double bestScore = 0;
+        for (Volume volume : volumes) {
+            volume.probe(probeInterval);
+            if (!volume.isAvailable()
+                    || volume.getUsableSpace() < minFreeSpace) {
+                continue;
+            }
+            double score = volume.getScore();
+            if (best == null || score > bestScore) {
+                best = volume;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            LOG.warn("No volume available for the home of {}", userName);
+            throw new FtpException("No volume available for the home of "
+                    + userName);
+        }
+
+        placements.setProperty(userName, best.getRoot().getPath());
+        try {
+            save();
+        } catch (IOException e) {
+            placements.remove(userName);
+            LOG.error("Failed to write the placement map " + file, e);
+            throw new FtpException("Failed to write the placement map "
+                    + file, e);
+        }
+        best.addUser();
+        LOG.info("Home of {} placed on {}", userName, best);
+        return best.getRoot();
+    }
+
+    // must be called with the lock held
+    private void save() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+
+        File tmp = new File(dir, file.getName() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            placements.store(out, "Volumes of the user homes");
+            ((FileOutputStream) out).getFD().sync();
+        } finally {
+            IoUtils.close(out);
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
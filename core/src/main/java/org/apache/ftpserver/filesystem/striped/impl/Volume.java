@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.striped.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A mount point of a striped file system, with the number of user homes
+ * placed on it and its observed write latency.
+ * 
+ * The latency is measured by writing and syncing a small probe file, at
+ * most once per probe interval, and averaged over the probes so that one
+ * slow probe does not move all new users away from the volume.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class Volume {
+
+    private static final String PROBE_FILE_NAME = ".striped-probe";
+
+    private static final int PROBE_SIZE = 4096;
+
+    // weight of the latest probe in the average
+    private static final double PROBE_WEIGHT = 0.3;
+
+    private final Logger LOG = LoggerFactory.getLogger(Volume.class);
+
+    private final File root;
+
+    // guarded by this
+    private int userCount;
+
+    // in milliseconds, negative until probed
+    private double latency = -1;
+
+    private long lastProbe;
+
+    private boolean available;
+
+    public Volume(final File root) {
+        this.root = root;
+    }
+
+    /**
+     * Get the mount point
+     * 
+     * @return The directory the homes are created in
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Get the number of user homes placed on this volume
+     * 
+     * @return The number of homes
+     */
+    public synchronized int getUserCount() {
+        return userCount;
+    }
+
+    synchronized void addUser() {
+        userCount++;
+    }
+
+    /**
+     * Get the average write latency
+     * 
+     * @return The latency in milliseconds, negative if the volume was not
+     *         probed yet
+     */
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Was the volume writable when last probed
+     * 
+     * @return true if the last probe succeeded
+     */
+    public synchronized boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Get the space available for new files
+     * 
+     * @return The usable space in bytes
+     */
+    public long getUsableSpace() {
+        return root.getUsableSpace();
+    }
+
+    /**
+     * Write and sync a probe file unless the last probe is recent enough
+     * 
+     * @param interval
+     *            The time in milliseconds during which the last probe is
+     *            used
+     */
+    public synchronized void probe(long interval) {
+        long now = System.currentTimeMillis();
+        if (lastProbe != 0 && now - lastProbe < interval) {
+            return;
+        }
+        lastProbe = now;
+
+        File probeFile = new File(root, PROBE_FILE_NAME);
+        long start = System.nanoTime();
+        try {
+            RandomAccessFile raf = new RandomAccessFile(probeFile, "rw");
+            try {
+                raf.write(new byte[PROBE_SIZE]);
+                raf.getChannel().force(true);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            if (available) {
+                LOG.warn("Volume not writable, no homes placed on it: " + root,
+                        e);
+            }
+            available = false;
+            return;
+        } finally {
+            probeFile.delete();
+        }
+
+        record((System.nanoTime() - start) / 1000000.0);
+    }
+
+    /**
+     * Add a latency measure to the average and mark the volume available
+     * 
+     * @param sample
+     *            The latency in milliseconds
+     */
+    synchronized void record(final double sample) {
+        latency = latency < 0 ? sample : PROBE_WEIGHT * sample
+                + (1 - PROBE_WEIGHT) * latency;
+        available = true;
+    }
+
+    /**
+     * Get how suitable the volume is for a new home: more free space, fewer
+     * homes and a lower latency give a higher score
+     * 
+     * @return The score, higher is better
+     */
+    synchronized double getScore() {
+        return getUsableSpace() / ((1.0 + userCount) * (1.0 + latency));
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tiered;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.filesystem.tiered.impl.TierCache;
+import org.apache.ftpserver.filesystem.tiered.impl.TieredFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory keeping the recently used files of another, slower,
+ * file system in a local directory.
+ * 
+ * A file downloaded from the start is copied to the local directory while it
+ * is sent, the following downloads read the local copy as long as the size
+ * and last modified time of the original file do not change. The least
+ * recently used copies are removed when the local copies exceed the cache
+ * size.
+ * 
+ * Uploaded files are written to the local directory and written back to the
+ * other file system in the background. They are listed and can be downloaded
+ * right away. Once the files waiting to be written back reach the maximum
+ * dirty size, new uploads are written directly to the other file system.
+ * Uploads are synced to the local disk before they complete, and those not
+ * yet written back when the server stops, or crashes, are written back when
+ * it starts again.
+ * 
+ * Deleting, renaming or changing the time of a file, or of a directory
+ * containing files waiting to be written back, first waits for them to be
+ * written back. The command fails if this takes longer than the flush
+ * timeout.
+ * 
+ * The local directory is created with the current configuration when the
+ * first file system view is created, later configuration changes have no
+ * effect.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TieredFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(TieredFileSystemFactory.class);
+
+    private FileSystemFactory fileSystem = new NativeFileSystemFactory();
+
+    private File cacheDirectory;
+
+    private long cacheSize = 1024L * 1024 * 1024;
+
+    private long maxDirtyBytes = 256L * 1024 * 1024;
+
+    private int writeBackRetryDelay = 10;
+
+    private int flushTimeout = 30;
+
+    private TierCache cache;
+
+    /**
+     * Get the file system which files are kept locally
+     * @return The backing file system
+     */
+    public FileSystemFactory getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Set the file system which files are kept locally, by default the
+     * native file system
+     * @param fileSystem The backing file system
+     */
+    public void setFileSystem(FileSystemFactory fileSystem) {
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem can not be null");
+        }
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Get the local directory
+     * @return The local directory
+     */
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Set the local directory, which must not be used for anything else. It
+     * is created if it does not exist.
+     * @param cacheDirectory The local directory
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Get the maximum total size of the local copies
+     * @return The maximum size in bytes
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Set the maximum total size of the local copies. Files waiting to be
+     * written back are never removed and are not limited by this size. The
+     * default is 1 GiB.
+     * @param cacheSize The maximum size in bytes
+     */
+    public void setCacheSize(long cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Get the total size of the files waiting to be written back above which
+     * uploads are written directly
+     * @return The maximum size in bytes
+     */
+    public long getMaxDirtyBytes() {
+        return maxDirtyBytes;
+    }
+
+    /**
+     * Set the total size of the files waiting to be written back above which
+     * uploads are written directly to the backing file system. The default
+     * is 256 MiB, 0 writes all uploads directly.
+     * @param maxDirtyBytes The maximum size in bytes
+     */
+    public void setMaxDirtyBytes(long maxDirtyBytes) {
+        if (maxDirtyBytes < 0) {
+            throw new IllegalArgumentException(
+                    "maxDirtyBytes can not be negative");
+        }
+        this.maxDirtyBytes = maxDirtyBytes;
+    }
+
+    /**
+     * Get the delay before retrying to write back a file
+     * @return The delay in seconds
+     */
+    public int getWriteBackRetryDelay() {
+        return writeBackRetryDelay;
+    }
+
+    /**
+     * Set the delay before retrying to write back a file after a failure.
+     * The default is 10 seconds.
+     * @param writeBackRetryDelay The delay in seconds
+     */
+    public void setWriteBackRetryDelay(int writeBackRetryDelay) {
+        if (writeBackRetryDelay < 1) {
+            throw new IllegalArgumentException(
+                    "writeBackRetryDelay must be positive");
+        }
+        this.writeBackRetryDelay = writeBackRetryDelay;
+    }
+
+    /**
+     * Get how long deleting or renaming a file waits for it to be written
+     * back
+     * @return The timeout in seconds
+     */
+    public int getFlushTimeout() {
+        return flushTimeout;
+    }
+
+    /**
+     * Set how long deleting or renaming a file waits for it to be written
+     * back, and how long {@link #dispose()} waits for all files. The default
+     * is 30 seconds.
+     * @param flushTimeout The timeout in seconds
+     */
+    public void setFlushTimeout(int flushTimeout) {
+        if (flushTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "flushTimeout can not be negative");
+        }
+        this.flushTimeout = flushTimeout;
+    }
+
+    /**
+     * Get the statistics of the local directory
+     * @return The statistics, null if no file system view was created yet
+     */
+    public synchronized TieredStorageStatistics getStatistics() {
+        return cache;
+    }
+
+    /**
+     * Wait for all uploads to be written back
+     * @return true if all uploads were written back within the flush timeout
+     */
+    public boolean flush() {
+        TierCache current;
+        synchronized (this) {
+            current = cache;
+        }
+        return current == null || current.flush(null, flushTimeout * 1000L);
+    }
+
+    /**
+     * Write back the uploads, waiting at most the flush timeout, and stop
+     * the write back
+     */
+    public void dispose() {
+        TierCache current;
+        synchronized (this) {
+            current = cache;
+            cache = null;
+        }
+        if (current != null && !current.close(flushTimeout * 1000L)) {
+            LOG.warn("Uploads not written back, kept in {} for the next start",
+                    cacheDirectory);
+        }
+    }
+
+    private synchronized TierCache getCache() throws FtpException {
+        if (cache == null) {
+            if (cacheDirectory == null) {
+                throw new FtpException("Cache directory not set");
+            }
+            try {
+                cache = new TierCache(cacheDirectory, cacheSize,
+                        maxDirtyBytes, writeBackRetryDelay * 1000L);
+            } catch (IOException e) {
+                LOG.warn("Failed to create the cache directory", e);
+                throw new FtpException("Failed to create the cache directory",
+                        e);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        TierCache tierCache = getCache();
+        return new TieredFileSystemView(fileSystem.createFileSystemView(user),
+                tierCache, flushTimeout * 1000L);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tiered;
+
+/**
+ * Statistics of the local tier of a tiered file system
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface TieredStorageStatistics {
+
+    /**
+     * Get the number of downloads served from the local tier
+     * @return The number of hits
+     */
+    long getHitCount();
+
+    /**
+     * Get the number of downloads read from the backing file system
+     * @return The number of misses
+     */
+    long getMissCount();
+
+    /**
+     * Get the ratio of hits to all downloads
+     * @return The hit rate, between 0 and 1
+     */
+    double getHitRate();
+
+    /**
+     * Get the number of files removed from the local tier to keep it within
+     * its size
+     * @return The number of evictions
+     */
+    long getEvictionCount();
+
+    /**
+     * Get the number of files in the local tier
+     * @return The number of files
+     */
+    int getFileCount();
+
+    /**
+     * Get the total size of the files in the local tier, including the
+     * files not yet written back
+     * @return The size in bytes
+     */
+    long getSize();
+
+    /**
+     * Get the total size of the uploaded files not yet written back to the
+     * backing file system
+     * @return The size in bytes
+     */
+    long getDirtyBytes();
+
+    /**
+     * Get the number of uploaded files not yet written back to the backing
+     * file system
+     * @return The number of files
+     */
+    int getPendingWriteBackCount();
+
+    /**
+     * Get the total size of the files written back to the backing file system
+     * @return The size in bytes
+     */
+    long getWrittenBackBytes();
+
+    /**
+     * Get the number of failed attempts to write a file back, the write back
+     * of the file is retried later
+     * @return The number of failures
+     */
+    long getWriteBackFailureCount();
+
+    /**
+     * Get the number of uploads written directly to the backing file system
+     * because too many bytes were waiting to be written back
+     * @return The number of uploads
+     */
+    long getWriteThroughCount();
+}
@@ -0,0 +1,798 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tiered.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ftpserver.filesystem.tiered.TieredStorageStatistics;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The local tier of a tiered file system: copies of recently downloaded
+ * files, and uploaded files waiting to be written back to the backing file
+ * system, in a local directory. The files are keyed by the physical path of
+ * the backing file.
+ * 
+ * A copy of a downloaded file is clean, it is only used as long as the
+ * backing file has the size and last modified time it was copied with, and
+ * the least recently used clean copies are removed to keep the tier within
+ * its size. An uploaded file is dirty until written back, it is always used
+ * and never removed to make space. Uploads are written back one at a time,
+ * in the order they were completed, and retried after a delay if writing
+ * fails.
+ * 
+ * Clean copies are named <code>*.cache</code> and dirty ones
+ * <code>*.dirty</code>. Each dirty file has a <code>*.key</code> file holding
+ * the URI of its backing file, both are synced to disk before the upload
+ * completes. Clean copies left by an earlier run are removed when the tier is
+ * created, and dirty ones are queued to be written back again, directly to
+ * the backing path. Dirty files without a key file are left for the
+ * administrator to recover.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TierCache implements TieredStorageStatistics {
+
+    private static final String CLEAN_SUFFIX = ".cache";
+
+    private static final String DIRTY_SUFFIX = ".dirty";
+
+    private static final String KEY_SUFFIX = ".key";
+
+    private final Logger LOG = LoggerFactory.getLogger(TierCache.class);
+
+    /**
+     * A file in the local tier
+     */
+    static final class Entry {
+        private final Path key;
+
+        private final long size;
+
+        private final long lastModified;
+
+        // the local copy, guarded by the cache
+        private File local;
+
+        // true until written back, guarded by the cache
+        private boolean pending;
+
+        // the backing file to write back to, null once written back or for
+        // an upload recovered from an earlier run, guarded by the cache
+        private FtpFile backing;
+
+        // the last modified time of the backing file the copy matches,
+        // guarded by the cache
+        private long backingLastModified;
+
+        // guarded by the cache
+        private boolean writingBack;
+
+        Entry(Path key, File local, long size, long lastModified) {
+            this.key = key;
+            this.local = local;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        String getName() {
+            return key.getFileName().toString();
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final long maxDirtyBytes;
+
+    private final long retryDelay;
+
+    private final String filePrefix = Long.toString(System
+            .currentTimeMillis(), 36);
+
+    private final ScheduledExecutorService writeBackExecutor;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16,
+            0.75f, true);
+
+    // the entries not yet written back, guarded by this
+    private final Map<Path, Entry> dirty = new HashMap<>();
+
+    // the files being copied while downloaded, guarded by this
+    private final Set<Path> filling = new HashSet<>();
+
+    // guarded by this
+    private long size;
+
+    private long dirtyBytes;
+
+    private long nextId;
+
+    // read without the lock to skip the lookups when nothing is dirty
+    private volatile int dirtyCount;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder writtenBackBytes = new LongAdder();
+
+    private final LongAdder writeBackFailures = new LongAdder();
+
+    private final LongAdder writeThroughs = new LongAdder();
+
+    /**
+     * @param directory
+     *            The local directory, created if needed
+     * @param maxSize
+     *            The maximum total size of the clean copies
+     * @param maxDirtyBytes
+     *            The total size of the files waiting to be written back
+     *            above which uploads are written directly to the backing file
+     *            system
+     * @param retryDelay
+     *            The delay before writing a file back again after a failure,
+     *            in milliseconds
+     * @throws IOException
+     *             If the directory can not be created
+     */
+    public TierCache(final File directory, final long maxSize,
+            final long maxDirtyBytes, final long retryDelay) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxDirtyBytes = maxDirtyBytes;
+        this.retryDelay = retryDelay;
+
+        writeBackExecutor = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "TieredWriteBack");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            // oldest first, so that a later upload of the same file wins
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified)
+                    .thenComparing(File::getName));
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(CLEAN_SUFFIX)) {
+                    delete(file);
+                } else if (name.endsWith(DIRTY_SUFFIX)) {
+                    recover(file);
+                } else if (name.endsWith(KEY_SUFFIX)
+                        && !new File(directory, name.replace(KEY_SUFFIX,
+                                DIRTY_SUFFIX)).exists()) {
+                    // written back just before the earlier run stopped
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue an upload left by an earlier run to be written back
+     */
+    private void recover(final File local) {
+        Path key = null;
+        try {
+            byte[] uri = Files.readAllBytes(keyFile(local).toPath());
+            key = Paths.get(new URI(new String(uri, StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            LOG.debug("Failed to read the key of " + local, e);
+        }
+        if (key == null) {
+            LOG.warn("Upload not written back by an earlier run: {}", local);
+            return;
+        }
+
+        final Entry entry = new Entry(key, local, local.length(), local
+                .lastModified());
+        entry.pending = true;
+        List<File> removed = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                remove(previous, removed);
+            }
+            entries.put(key, entry);
+            dirty.put(key, entry);
+            dirtyCount = dirty.size();
+            size += entry.size;
+            dirtyBytes += entry.size;
+        }
+        delete(removed);
+
+        LOG.info("Writing back {} left by an earlier run", key);
+        writeBackExecutor.execute(() -> writeBack(entry));
+    }
+
+    /**
+     * Get the local copy of a file to read it
+     * 
+     * @param key
+     *            The path of the backing file
+     * @param backing
+     *            The backing file, to check that a clean copy is up to date
+     * @return The local copy, or null if the file is not in the local tier
+     */
+    File get(final Path key, final FtpFile backing) {
+        Entry entry;
+        long backingLastModified;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null || entry.pending) {
+                return found(entry);
+            }
+            backingLastModified = entry.backingLastModified;
+        }
+
+        // a clean copy, compare with the backing file without the lock
+        if (backing.getLastModified() != backingLastModified
+                || backing.getSize() != entry.size) {
+            List<File> removed = new ArrayList<>();
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    remove(entry, removed);
+                }
+            }
+            delete(removed);
+            return found(null);
+        }
+        synchronized (this) {
+            return found(entry);
+        }
+    }
+
+    // must be called with the lock held
+    private File found(final Entry entry) {
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.local;
+    }
+
+    /**
+     * Get a file not yet written back
+     * 
+     * @param key
+     *            The path of the backing file
+     * @return The entry, or null if the file is written back or not in the
+     *         local tier
+     */
+    Entry getDirty(final Path key) {
+        if (dirtyCount == 0) {
+            return null;
+        }
+        synchronized (this) {
+            return dirty.get(key);
+        }
+    }
+
+    /**
+     * Get the files within a directory which are not yet written back
+     * 
+     * @param dir
+     *            The path of the backing directory
+     * @return The entries, never null
+     */
+    List<Entry> getDirtyChildren(final Path dir) {
+        List<Entry> children = new ArrayList<>();
+        if (dirtyCount == 0) {
+            return children;
+        }
+        synchronized (this) {
+            for (Entry entry : dirty.values()) {
+                if (dir.equals(entry.key.getParent())) {
+                    children.add(entry);
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Start copying a file to the local tier while it is downloaded
+     * 
+     * @param key
+     *            The path of the backing file
+     * @param length
+     *            The size of the file
+     * @return The local file to copy to, or null if the file is too large or
+     *         already being copied
+     */
+    synchronized File startFill(final Path key, final long length) {
+        if (length > maxSize || filling.contains(key)
+                || entries.containsKey(key)) {
+            return null;
+        }
+        filling.add(key);
+        return newFile(CLEAN_SUFFIX);
+    }
+
+    /**
+     * Add a copy made with {@link #startFill(Path, long)}
+     * 
+     * @param key
+     *            The path of the backing file
+     * @param local
+     *            The complete copy
+     * @param backingLastModified
+     *            The last modified time of the backing file before it was
+     *            copied
+     */
+    void completeFill(final Path key, final File local,
+            final long backingLastModified) {
+        List<File> removed = new ArrayList<>();
+        synchronized (this) {
+            filling.remove(key);
+            if (entries.containsKey(key)) {
+                // uploaded while copied
+                removed.add(local);
+            } else {
+                Entry entry = new Entry(key, local, local.length(), local
+                        .lastModified());
+                entry.backingLastModified = backingLastModified;
+                entries.put(key, entry);
+                size += entry.size;
+                evict(removed);
+            }
+        }
+        delete(removed);
+    }
+
+    /**
+     * Discard an incomplete copy made with {@link #startFill(Path, long)}
+     */
+    void abortFill(final Path key, final File local) {
+        synchronized (this) {
+            filling.remove(key);
+        }
+        delete(local);
+    }
+
+    /**
+     * Start an upload to the local tier
+     * 
+     * @return The local file to upload to, or null if too many bytes are
+     *         waiting to be written back and the upload must be written to
+     *         the backing file system
+     */
+    synchronized File startUpload() {
+        if (dirtyBytes >= maxDirtyBytes) {
+            writeThroughs.increment();
+            return null;
+        }
+        return newFile(DIRTY_SUFFIX);
+    }
+
+    /**
+     * Add an upload made with {@link #startUpload()} and queue it to be
+     * written back
+     * 
+     * @param key
+     *            The path of the backing file
+     * @param local
+     *            The uploaded file, already synced to disk
+     * @param backing
+     *            The backing file to write to
+     * @throws IOException
+     *             If the key file can not be written, the upload must then
+     *             be aborted
+     */
+    void completeUpload(final Path key, final File local,
+            final FtpFile backing) throws IOException {
+        writeKey(keyFile(local), key);
+
+        final Entry entry = new Entry(key, local, local.length(), local
+                .lastModified());
+        entry.pending = true;
+        entry.backing = backing;
+
+        List<File> removed = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                remove(previous, removed);
+            }
+            entries.put(key, entry);
+            dirty.put(key, entry);
+            dirtyCount = dirty.size();
+            size += entry.size;
+            dirtyBytes += entry.size;
+            evict(removed);
+        }
+        delete(removed);
+
+        writeBackExecutor.execute(() -> writeBack(entry));
+    }
+
+    /**
+     * Discard an incomplete upload made with {@link #startUpload()}
+     */
+    void abortUpload(final File local) {
+        delete(local);
+        delete(keyFile(local));
+    }
+
+    private File keyFile(final File local) {
+        return new File(directory, local.getName().replace(DIRTY_SUFFIX,
+                KEY_SUFFIX));
+    }
+
+    /**
+     * Write the URI of the backing file and sync it to disk, with the
+     * directory so that the new file names survive a crash
+     */
+    private void writeKey(final File keyFile, final Path key)
+            throws IOException {
+        FileChannel channel = FileChannel.open(keyFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            channel.write(ByteBuffer.wrap(key.toUri().toString().getBytes(
+                    StandardCharsets.UTF_8)));
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+
+        try {
+            channel = FileChannel.open(directory.toPath(),
+                    StandardOpenOption.READ);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // directories can not be synced on all platforms
+        }
+    }
+
+    private void writeBack(final Entry entry) {
+        FtpFile backing;
+        File local;
+        synchronized (this) {
+            if (dirty.get(entry.key) != entry) {
+                // replaced or removed since
+                return;
+            }
+            backing = entry.backing;
+            local = entry.local;
+            entry.writingBack = true;
+        }
+
+        boolean written = false;
+        long backingLastModified = 0;
+        try {
+            InputStream in = new FileInputStream(local);
+            try {
+                OutputStream out = backing != null ? backing
+                        .createOutputStream(0) : Files
+                        .newOutputStream(entry.key);
+                try {
+                    IoUtils.copy(in, out, 64 * 1024);
+                } finally {
+                    out.close();
+                }
+            } finally {
+                IoUtils.close(in);
+            }
+            backingLastModified = backing != null ? backing.getLastModified()
+                    : Files.getLastModifiedTime(entry.key).toMillis();
+            written = true;
+        } catch (IOException e) {
+            writeBackFailures.increment();
+            LOG.warn("Failed to write back " + entry.key + ", retrying in "
+                    + retryDelay + " ms", e);
+        }
+
+        List<File> removed = new ArrayList<>();
+        synchronized (this) {
+            entry.writingBack = false;
+            if (dirty.get(entry.key) != entry) {
+                // replaced or removed while written, the local file was kept
+                // for this
+                removed.add(entry.local);
+            } else if (written) {
+                dirty.remove(entry.key);
+                dirtyCount = dirty.size();
+                dirtyBytes -= entry.size;
+                entry.pending = false;
+                entry.backing = null;
+                entry.backingLastModified = backingLastModified;
+                writtenBackBytes.add(entry.size);
+
+                File clean = new File(directory, local.getName().replace(
+                        DIRTY_SUFFIX, CLEAN_SUFFIX));
+                if (local.renameTo(clean)) {
+                    entry.local = clean;
+                }
+                // once renamed, a key file left by a crash is removed
+                removed.add(keyFile(local));
+                evict(removed);
+                notifyAll();
+            } else if (!writeBackExecutor.isShutdown()) {
+                writeBackExecutor.schedule(() -> writeBack(entry),
+                        retryDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+        delete(removed);
+    }
+
+    /**
+     * Wait until a file, or all files within a directory, have been written
+     * back
+     * 
+     * @param key
+     *            The path of the backing file or directory, null for all files
+     * @param timeout
+     *            The maximum time to wait in milliseconds
+     * @return true if all files are written back, false if the time ran out
+     */
+    public synchronized boolean flush(final Path key, final long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (hasDirty(key)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // must be called with the lock held
+    private boolean hasDirty(final Path key) {
+        if (key == null) {
+            return !dirty.isEmpty();
+        }
+        for (Path path : dirty.keySet()) {
+            if (path.startsWith(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the local copies of a file, or of all files within a directory,
+     * including the ones not yet written back
+     * 
+     * @param key
+     *            The path of the backing file or directory
+     */
+    void invalidate(final Path key) {
+        List<File> removed = new ArrayList<>();
+        synchronized (this) {
+            List<Entry> matching = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.key.startsWith(key)) {
+                    matching.add(entry);
+                }
+            }
+            for (Entry entry : matching) {
+                remove(entry, removed);
+            }
+        }
+        delete(removed);
+    }
+
+    // must be called with the lock held
+    private void remove(final Entry entry, final List<File> removed) {
+        entries.remove(entry.key);
+        size -= entry.size;
+        if (dirty.get(entry.key) == entry) {
+            dirty.remove(entry.key);
+            dirtyCount = dirty.size();
+            dirtyBytes -= entry.size;
+            notifyAll();
+            removed.add(keyFile(entry.local));
+        }
+
+        // deleted by the write back once done with it
+        if (!entry.writingBack) {
+            removed.add(entry.local);
+        }
+    }
+
+    // remove the least recently used clean copies, must be called with the
+    // lock held
+    private void evict(final List<File> removed) {
+        Iterator<Entry> iter = entries.values().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            Entry entry = iter.next();
+            if (!entry.pending && !entry.writingBack) {
+                iter.remove();
+                size -= entry.size;
+                removed.add(entry.local);
+                evictions.increment();
+            }
+        }
+    }
+
+    // must be called with the lock held
+    private File newFile(final String suffix) {
+        return new File(directory, filePrefix + '-' + (nextId++) + suffix);
+    }
+
+    private void delete(final List<File> files) {
+        for (File file : files) {
+            delete(file);
+        }
+    }
+
+    private void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOG.warn("Failed to delete {}", file);
+        }
+    }
+
+    /**
+     * Write back all files, waiting at most the given time, and stop the
+     * write back thread
+     * 
+     * @param timeout
+     *            The maximum time to wait in milliseconds
+     * @return true if all files were written back
+     */
+    public boolean close(final long timeout) {
+        boolean flushed = flush(null, timeout);
+        writeBackExecutor.shutdownNow();
+        return flushed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getFileCount() {
+        return entries.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getDirtyBytes() {
+        return dirtyBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getPendingWriteBackCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getWrittenBackBytes() {
+        return writtenBackBytes.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getWriteBackFailureCount() {
+        return writeBackFailures.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getWriteThroughCount() {
+        return writeThroughs.sum();
+    }
+}
@@ -0,0 +1,636 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tiered.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+import org.apache.ftpserver.util.PathUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File wrapper reading and writing the content of files through the local
+ * tier of a {@link TierCache}.
+ * 
+ * Downloads are served from the local copy if there is one, otherwise the
+ * backing file is copied to the local tier while it is downloaded from the
+ * start. Uploads are written to the local tier and written back later, until
+ * then the file is listed and its attributes reported as uploaded.
+ * 
+ * Deleting, renaming and changing the time of a file first waits for the
+ * file, or all files within the directory, to be written back, then runs on
+ * the backing file system and finally removes the local copies. The command
+ * fails if the files are not written back in time.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TieredFtpFile implements FtpFile {
+
+    private static final Comparator<FtpFile> NAME_COMPARATOR = new Comparator<FtpFile>() {
+        public int compare(FtpFile f1, FtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private final FtpFile delegate;
+
+    private final TieredFileSystemView view;
+
+    private final TierCache cache;
+
+    // the path of the backing file, computed when first needed
+    private Path key;
+
+    private boolean keyResolved;
+
+    TieredFtpFile(final FtpFile delegate, final TieredFileSystemView view) {
+        this.delegate = delegate;
+        this.view = view;
+        this.cache = view.getCache();
+    }
+
+    /**
+     * Get the path of the backing file, null if it can not be cached
+     */
+    private Path getKey() {
+        if (!keyResolved) {
+            key = PathUtils.getPhysicalPath(delegate);
+            keyResolved = true;
+        }
+        return key;
+    }
+
+    /**
+     * Get the local tier entry if the file is not written back yet
+     */
+    private TierCache.Entry getDirty() {
+        Path path = getKey();
+        return path == null ? null : cache.getDirty(path);
+    }
+
+    public String getAbsolutePath() {
+        return delegate.getAbsolutePath();
+    }
+
+    public String getName() {
+        return delegate.getName();
+    }
+
+    public boolean isHidden() {
+        return delegate.isHidden();
+    }
+
+    public boolean isDirectory() {
+        return delegate.isDirectory();
+    }
+
+    public boolean isFile() {
+        return getDirty() != null || delegate.isFile();
+    }
+
+    public boolean doesExist() {
+        return getDirty() != null || delegate.doesExist();
+    }
+
+    public boolean isReadable() {
+        return getDirty() != null || delegate.isReadable();
+    }
+
+    public boolean isWritable() {
+        return delegate.isWritable();
+    }
+
+    public boolean isRemovable() {
+        return delegate.isRemovable();
+    }
+
+    public String getOwnerName() {
+        return delegate.getOwnerName();
+    }
+
+    public String getGroupName() {
+        return delegate.getGroupName();
+    }
+
+    public int getLinkCount() {
+        return delegate.getLinkCount();
+    }
+
+    public long getLastModified() {
+        TierCache.Entry dirty = getDirty();
+        return dirty != null ? dirty.getLastModified() : delegate
+                .getLastModified();
+    }
+
+    public long getSize() {
+        TierCache.Entry dirty = getDirty();
+        return dirty != null ? dirty.getSize() : delegate.getSize();
+    }
+
+    public Object getPhysicalFile() {
+        return delegate.getPhysicalFile();
+    }
+
+    public boolean mkdir() {
+        return delegate.mkdir();
+    }
+
+    public boolean setLastModified(final long time) {
+        Path path = getKey();
+        if (path == null) {
+            return delegate.setLastModified(time);
+        }
+        if (!cache.flush(path, view.getFlushTimeout())) {
+            return false;
+        }
+        try {
+            return delegate.setLastModified(time);
+        } finally {
+            cache.invalidate(path);
+        }
+    }
+
+    public boolean delete() {
+        Path path = getKey();
+        if (path == null) {
+            return delegate.delete();
+        }
+        if (!cache.flush(path, view.getFlushTimeout())) {
+            return false;
+        }
+        try {
+            return delegate.delete();
+        } finally {
+            cache.invalidate(path);
+        }
+    }
+
+    public boolean move(final FtpFile destination) {
+        FtpFile unwrapped = destination;
+        if (destination instanceof TieredFtpFile) {
+            unwrapped = ((TieredFtpFile) destination).delegate;
+        }
+        Path path = getKey();
+        Path destinationPath = PathUtils.getPhysicalPath(unwrapped);
+        if (path == null || destinationPath == null) {
+            return delegate.move(unwrapped);
+        }
+
+        if (!cache.flush(path, view.getFlushTimeout())
+                || !cache.flush(destinationPath, view.getFlushTimeout())) {
+            return false;
+        }
+        try {
+            return delegate.move(unwrapped);
+        } finally {
+            cache.invalidate(path);
+            cache.invalidate(destinationPath);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The files uploaded to the directory and not yet written back are
+     * included.
+     */
+    public List<? extends FtpFile> listFiles() {
+        List<? extends FtpFile> files = delegate.listFiles();
+        if (files == null) {
+            return null;
+        }
+
+        List<FtpFile> wrapped = new ArrayList<>(files.size());
+        Set<String> names = new HashSet<>();
+        for (FtpFile file : files) {
+            wrapped.add(new TieredFtpFile(file, view));
+            names.add(file.getName());
+        }
+
+        Path path = getKey();
+        if (path != null) {
+            boolean added = false;
+            String dir = getAbsolutePath();
+            for (TierCache.Entry entry : cache.getDirtyChildren(path)) {
+                if (names.add(entry.getName())) {
+                    String fileName = dir.endsWith("/") ? dir
+                            + entry.getName() : dir + '/' + entry.getName();
+                    try {
+                        wrapped.add(view.getFile(fileName));
+                        added = true;
+                    } catch (FtpException e) {
+                        // not listed until written back
+                    }
+                }
+            }
+            if (added) {
+                Collections.sort(wrapped, NAME_COMPARATOR);
+            }
+        }
+        return Collections.unmodifiableList(wrapped);
+    }
+
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+        final Path path = getKey();
+        if (path == null) {
+            return delegate.createOutputStream(offset);
+        }
+
+        // the same check as the backing file would make before writing
+        if (!delegate.isWritable()) {
+            throw new IOException("No write permission : " + getName());
+        }
+
+        final File local = cache.startUpload();
+        if (local == null) {
+            return writeThrough(path, offset);
+        }
+
+        final FileOutputStream out = new FileOutputStream(local);
+        try {
+            if (offset > 0) {
+                copyStart(path, offset, out);
+            }
+        } catch (IOException e) {
+            IoUtils.close(out);
+            cache.abortUpload(local);
+            throw e;
+        }
+
+        return new OutputStream() {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    // on disk before the upload is reported complete
+                    out.getFD().sync();
+                    out.close();
+                    cache.completeUpload(path, local, delegate);
+                } catch (IOException e) {
+                    IoUtils.close(out);
+                    cache.abortUpload(local);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Write an upload directly to the backing file, once any earlier upload
+     * of the same file has been written back
+     */
+    private OutputStream writeThrough(final Path path, final long offset)
+            throws IOException {
+        if (!cache.flush(path, view.getFlushTimeout())) {
+            throw new IOException("Earlier upload not written back : "
+                    + getName());
+        }
+        cache.invalidate(path);
+        return delegate.createOutputStream(offset);
+    }
+
+    /**
+     * Copy the content of the file before the offset of an upload
+     */
+    private void copyStart(final Path path, final long offset,
+            final OutputStream out) throws IOException {
+        InputStream in = openLocal(path, 0);
+        if (in == null) {
+            in = delegate.createInputStream(0);
+        }
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = offset;
+            while (remaining > 0) {
+                int count = in.read(buffer, 0, (int) Math.min(buffer.length,
+                        remaining));
+                if (count == -1) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            IoUtils.close(in);
+        }
+    }
+
+    /**
+     * Open the local copy of the file
+     * 
+     * @return The stream, or null if the file is not in the local tier
+     */
+    private InputStream openLocal(final Path path, final long offset)
+            throws IOException {
+        RandomAccessFile raf = openLocalFile(path, offset);
+        if (raf == null) {
+            return null;
+        }
+
+        // The IBM jre needs to have both the stream and the random access file
+        // objects closed to actually close the file
+        final RandomAccessFile file = raf;
+        return new FileInputStream(raf.getFD()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                file.close();
+            }
+        };
+    }
+
+    private RandomAccessFile openLocalFile(final Path path, final long offset)
+            throws IOException {
+        File local = cache.get(path, delegate);
+        if (local == null) {
+            return null;
+        }
+
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(local, "r");
+        } catch (FileNotFoundException e) {
+            // removed from the local tier since
+            return null;
+        }
+        try {
+            raf.seek(offset);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return raf;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The file is read from the local tier if possible.
+     */
+    public InputStream createInputStream(final long offset) throws IOException {
+        Path path = getKey();
+        if (path == null) {
+            return delegate.createInputStream(offset);
+        }
+        checkReadable();
+
+        InputStream in = openLocal(path, offset);
+        if (in != null) {
+            return in;
+        }
+        return openBacking(path, offset);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The file is read from the local tier if possible.
+     */
+    public ReadableByteChannel openReadableChannel(final long offset)
+            throws IOException {
+        Path path = getKey();
+        if (path == null) {
+            return delegate.openReadableChannel(offset);
+        }
+        checkReadable();
+
+        RandomAccessFile raf = openLocalFile(path, offset);
+        if (raf != null) {
+            return raf.getChannel();
+        }
+
+        // the miss is already counted, do not fall back to the stream
+        return Channels.newChannel(openBacking(path, offset));
+    }
+
+    private void checkReadable() throws IOException {
+        if (!isReadable()) {
+            throw new IOException("No read permission : " + getName());
+        }
+    }
+
+    /**
+     * Open the backing file, copying it to the local tier while it is read if
+     * it is read from the start
+     */
+    private InputStream openBacking(final Path path, final long offset)
+            throws IOException {
+        if (offset > 0 || !delegate.isFile()) {
+            return delegate.createInputStream(offset);
+        }
+
+        final long length = delegate.getSize();
+        final long lastModified = delegate.getLastModified();
+        final File local = cache.startFill(path, length);
+        if (local == null) {
+            return delegate.createInputStream(0);
+        }
+
+        InputStream in;
+        OutputStream copy;
+        try {
+            in = delegate.createInputStream(0);
+        } catch (IOException e) {
+            cache.abortFill(path, local);
+            throw e;
+        }
+        try {
+            copy = new FileOutputStream(local);
+        } catch (IOException e) {
+            cache.abortFill(path, local);
+            return in;
+        }
+        return new FillingInputStream(in, copy, path, local, length,
+                lastModified);
+    }
+
+    /**
+     * Copies the bytes read to the local tier, and adds the copy to the tier
+     * if the whole file was read
+     */
+    private class FillingInputStream extends FilterInputStream {
+
+        private final Path path;
+
+        private final File local;
+
+        private final long length;
+
+        private final long lastModified;
+
+        // null once copying failed
+        private OutputStream copy;
+
+        private long copied;
+
+        private boolean complete;
+
+        private boolean closed;
+
+        FillingInputStream(InputStream in, OutputStream copy, Path path,
+                File local, long length, long lastModified) {
+            super(in);
+            this.copy = copy;
+            this.path = path;
+            this.local = local;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                complete = true;
+            } else {
+                copy(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count == -1) {
+                complete = true;
+            } else {
+                copy(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // the copy would miss the skipped bytes
+            stopCopying();
+            return in.skip(n);
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            try {
+                copy.write(b, off, len);
+                copied += len;
+            } catch (IOException e) {
+                // the download goes on without the copy
+                stopCopying();
+            }
+        }
+
+        private void stopCopying() {
+            IoUtils.close(copy);
+            copy = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                boolean copyComplete = copy != null && complete
+                        && copied == length;
+                if (copy != null) {
+                    try {
+                        copy.close();
+                    } catch (IOException e) {
+                        copyComplete = false;
+                    }
+                }
+                if (copyComplete) {
+                    cache.completeFill(path, local, lastModified);
+                } else {
+                    cache.abortFill(path, local);
+                }
+            }
+        }
+    }
+
+    public FtpFile snapshot() {
+        FtpFile snapshot = delegate.snapshot();
+        if (snapshot == delegate) {
+            return this;
+        }
+        return new TieredFtpFile(snapshot, view);
+    }
+
+    public void refresh() {
+        delegate.refresh();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof TieredFtpFile) {
+            return delegate.equals(((TieredFtpFile) obj).delegate);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads the data of a file sent in the blocks of the block transfer mode
+ * (<code>MODE B</code>) of RFC 959, up to the block marked as the end of
+ * the file.
+ * 
+ * Restart markers are passed to a listener along with the number of data
+ * bytes they follow. Closing the stream leaves the underlying stream open
+ * for the next transfer.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class BlockInputStream extends FilterInputStream {
+
+    /**
+     * Notified of the restart markers read
+     */
+    public interface RestartMarkerListener {
+
+        /**
+         * A restart marker has been read
+         * 
+         * @param marker
+         *            The marker, as sent
+         * @param count
+         *            The number of data bytes before the marker
+         * @throws IOException
+         */
+        void restartMarker(String marker, long count) throws IOException;
+    }
+
+    private final RestartMarkerListener listener;
+
+    private final byte[] header = new byte[3];
+
+    // the data bytes left in the current block
+    private int remaining;
+
+    private boolean lastBlock;
+
+    private boolean finished;
+
+    private long count;
+
+    /**
+     * @param in
+     *            The data connection stream
+     * @param listener
+     *            Notified of the restart markers, may be null
+     */
+    public BlockInputStream(final InputStream in,
+            final RestartMarkerListener listener) {
+        super(in);
+        this.listener = listener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextData()) {
+            return -1;
+        }
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Data connection closed within a block");
+        }
+        remaining--;
+        count++;
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextData()) {
+            return -1;
+        }
+        int read = in.read(b, off, Math.min(len, remaining));
+        if (read == -1) {
+            throw new EOFException("Data connection closed within a block");
+        }
+        remaining -= read;
+        count += read;
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && nextData()) {
+            long chunk = in.skip(Math.min(n - skipped, remaining));
+            if (chunk <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException(
+                            "Data connection closed within a block");
+                }
+                chunk = 1;
+            }
+            remaining -= chunk;
+            count += chunk;
+            skipped += chunk;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return Math.min(in.available(), remaining);
+    }
+
+    /**
+     * Read block headers until some data is available
+     * 
+     * @return false at the end of the file
+     */
+    private boolean nextData() throws IOException {
+        while (remaining == 0) {
+            if (lastBlock) {
+                finished = true;
+                return false;
+            }
+            readFully(header);
+            int descriptor = header[0] & 0xff;
+            int size = ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+            lastBlock = (descriptor & BlockOutputStream.DESCRIPTOR_EOF) != 0;
+
+            if ((descriptor & BlockOutputStream.DESCRIPTOR_RESTART_MARKER) != 0) {
+                byte[] marker = new byte[size];
+                readFully(marker);
+                if (listener != null) {
+                    listener.restartMarker(new String(marker,
+                            StandardCharsets.US_ASCII), count);
+                }
+            } else {
+                remaining = size;
+            }
+        }
+        return true;
+    }
+
+    private void readFully(final byte[] b) throws IOException {
+        int offset = 0;
+        while (offset < b.length) {
+            int read = in.read(b, offset, b.length - offset);
+            if (read == -1) {
+                throw new EOFException(
+                        "Data connection closed before the end of the file");
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Leaves the underlying stream open
+     */
+    @Override
+    public void close() {
+        // the data connection is kept for the next transfer
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Has the end of the file been read
+     * 
+     * @return true once the last block has been read
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the number of data bytes read
+     * 
+     * @return The number of bytes
+     */
+    public long getCount() {
+        return count;
+    }
+}
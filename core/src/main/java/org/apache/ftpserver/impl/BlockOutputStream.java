@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Writes data in the blocks of the block transfer mode (<code>MODE B</code>)
+ * of RFC 959, so that the end of the file is marked by a block header
+ * instead of the closing of the data connection.
+ * 
+ * Closing the stream writes the end of file block, and leaves the
+ * underlying stream open for the next transfer. Restart markers holding the
+ * offset of the data sent so far can be inserted at a regular interval.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class BlockOutputStream extends FilterOutputStream {
+
+    /** The descriptor of the last block of a record */
+    public static final int DESCRIPTOR_EOR = 128;
+
+    /** The descriptor of the last block of a file */
+    public static final int DESCRIPTOR_EOF = 64;
+
+    /** The descriptor of a block which may contain errors */
+    public static final int DESCRIPTOR_ERRORS = 32;
+
+    /** The descriptor of a block holding a restart marker */
+    public static final int DESCRIPTOR_RESTART_MARKER = 16;
+
+    /** The largest size of the data of a block */
+    public static final int MAX_BLOCK_SIZE = 0xffff;
+
+    private static final int HEADER_SIZE = 3;
+
+    // the header of the block followed by its data
+    private final byte[] buffer = new byte[HEADER_SIZE + MAX_BLOCK_SIZE];
+
+    private int length;
+
+    private final long markerInterval;
+
+    private final long markerOffset;
+
+    private long count;
+
+    private long nextMarker;
+
+    private boolean finished;
+
+    /**
+     * Create a stream writing blocks of at most {@link #MAX_BLOCK_SIZE}
+     * bytes, without restart markers
+     * 
+     * @param out
+     *            The data connection stream
+     */
+    public BlockOutputStream(final OutputStream out) {
+        this(out, 0, 0);
+    }
+
+    /**
+     * Create a stream writing blocks of at most {@link #MAX_BLOCK_SIZE}
+     * bytes
+     * 
+     * @param out
+     *            The data connection stream
+     * @param markerInterval
+     *            The number of data bytes between restart markers, 0 for no
+     *            markers
+     * @param markerOffset
+     *            The offset of the first byte written, added to the number of
+     *            bytes written in the restart markers
+     */
+    public BlockOutputStream(final OutputStream out, final long markerInterval,
+            final long markerOffset) {
+        super(out);
+        this.markerInterval = markerInterval;
+        this.markerOffset = markerOffset;
+        this.nextMarker = markerInterval;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        buffer[HEADER_SIZE + length++] = (byte) b;
+        written(1);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int chunk = Math.min(len, MAX_BLOCK_SIZE - length);
+            if (markerInterval > 0) {
+                chunk = (int) Math.min(chunk, nextMarker - count);
+            }
+            System.arraycopy(b, off, buffer, HEADER_SIZE + length, chunk);
+            length += chunk;
+            off += chunk;
+            len -= chunk;
+            written(chunk);
+        }
+    }
+
+    private void written(final int len) throws IOException {
+        count += len;
+        if (markerInterval > 0 && count == nextMarker) {
+            writeBlock(0);
+            writeMarker(Long.toString(markerOffset + count));
+            nextMarker += markerInterval;
+        } else if (length == MAX_BLOCK_SIZE) {
+            writeBlock(0);
+        }
+    }
+
+    /**
+     * Write the buffered data as a block, if any or if it has a descriptor
+     */
+    private void writeBlock(final int descriptor) throws IOException {
+        if (length > 0 || descriptor != 0) {
+            setHeader(buffer, descriptor, length);
+            out.write(buffer, 0, HEADER_SIZE + length);
+            length = 0;
+        }
+    }
+
+    private void writeMarker(final String marker) throws IOException {
+        byte[] bytes = marker.getBytes(StandardCharsets.US_ASCII);
+        byte[] block = new byte[HEADER_SIZE + bytes.length];
+        setHeader(block, DESCRIPTOR_RESTART_MARKER, bytes.length);
+        System.arraycopy(bytes, 0, block, HEADER_SIZE, bytes.length);
+        out.write(block);
+    }
+
+    private static void setHeader(final byte[] block, final int descriptor,
+            final int size) {
+        block[0] = (byte) descriptor;
+        block[1] = (byte) (size >> 8);
+        block[2] = (byte) size;
+    }
+
+    /**
+     * Write the buffered data as a block, and flush the underlying stream
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock(0);
+        out.flush();
+    }
+
+    /**
+     * Write the end of file block. The underlying stream is flushed, and left
+     * open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            writeBlock(DESCRIPTOR_EOF);
+            out.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Has the end of file block been written
+     * 
+     * @return true once the stream is closed
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the number of data bytes written, without block headers and
+     * restart markers
+     * 
+     * @return The number of bytes
+     */
+    public long getCount() {
+        return count;
+    }
+}
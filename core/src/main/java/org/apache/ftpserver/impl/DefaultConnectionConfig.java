@@ -42,6 +42,10 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     
     private final int maxThreads;
 
+    private final int connectionSheddingThreshold;
+
+    private final int transferSheddingThreshold;
+
     public DefaultConnectionConfig() {
         this(true, 500, 10, 10, 3, 0);
     }
@@ -52,12 +56,25 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     public DefaultConnectionConfig(boolean anonymousLoginEnabled,
             int loginFailureDelay, int maxLogins, int maxAnonymousLogins,
             int maxLoginFailures, int maxThreads) {
+        this(anonymousLoginEnabled, loginFailureDelay, maxLogins,
+                maxAnonymousLogins, maxLoginFailures, maxThreads, 0, 0);
+    }
+
+    /**
+     * Internal constructor, do not use directly. Use {@link ConnectionConfigFactory} instead
+     */
+    public DefaultConnectionConfig(boolean anonymousLoginEnabled,
+            int loginFailureDelay, int maxLogins, int maxAnonymousLogins,
+            int maxLoginFailures, int maxThreads,
+            int connectionSheddingThreshold, int transferSheddingThreshold) {
         this.anonymousLoginEnabled = anonymousLoginEnabled;
         this.loginFailureDelay = loginFailureDelay;
         this.maxLogins = maxLogins;
         this.maxAnonymousLogins = maxAnonymousLogins;
         this.maxLoginFailures = maxLoginFailures;
         this.maxThreads = maxThreads;
+        this.connectionSheddingThreshold = connectionSheddingThreshold;
+        this.transferSheddingThreshold = transferSheddingThreshold;
     }
 
     public int getLoginFailureDelay() {
@@ -83,5 +100,12 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     public int getMaxThreads() {
         return maxThreads;
     }
-    
+
+    public int getConnectionSheddingThreshold() {
+        return connectionSheddingThreshold;
+    }
+
+    public int getTransferSheddingThreshold() {
+        return transferSheddingThreshold;
+    }
 }
@@ -50,6 +50,14 @@ public class DefaultFtpHandler implements FtpHandler {
     private final static String[] NON_AUTHENTICATED_COMMANDS = new String[] {
             "USER", "PASS", "AUTH", "QUIT", "PROT", "PBSZ" };
 
+    private final static String[] TRANSFER_COMMANDS = new String[] {
+            "RETR", "STOR", "STOU", "APPE", "LIST", "NLST", "MLSD" };
+
+    // the commands which keep the directory selected by SITE UNTAR for the
+    // following STOR, any other command cancels it
+    private final static String[] EXTRACT_SETUP_COMMANDS = new String[] {
+            "PASV", "EPSV", "PORT", "EPRT", "TYPE", "MODE", "REST", "STOR" };
+
     private FtpServerContext context;
 
     private Listener listener;
@@ -61,6 +69,7 @@ public class DefaultFtpHandler implements FtpHandler {
 
     public void sessionCreated(final FtpIoSession session) throws Exception {
         session.setListener(listener);
+        context.getSessionRegistry().register(session);
         
         ServerFtpStatistics stats = ((ServerFtpStatistics) context
                 .getFtpStatistics());
@@ -105,7 +114,7 @@ public class DefaultFtpHandler implements FtpHandler {
         try {
             ServerDataConnectionFactory dc = session.getDataConnection(); 
             if(dc != null) {
-                dc.closeDataConnection();
+                dc.dispose();
             }
         } catch (Exception e) {
             // swallow the exception, we're closing down the session anyways
@@ -131,6 +140,7 @@ public class DefaultFtpHandler implements FtpHandler {
         } else {
             LOG.warn("Statistics not available in session, can not decrease login and connection count");
         }
+        context.getSessionRegistry().unregister(session);
         LOG.debug("Session closed");
     }
 
@@ -172,10 +182,35 @@ public class DefaultFtpHandler implements FtpHandler {
         return okay;
     }
 
+    private boolean isTransferCommand(String command) {
+        for (String transfer : TRANSFER_COMMANDS) {
+            if (transfer.equals(command)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExtractSetupCommand(String command) {
+        for (String setup : EXTRACT_SETUP_COMMANDS) {
+            if (setup.equals(command)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void messageReceived(final FtpIoSession session,
             final FtpRequest request) throws Exception {
         try {
             session.updateLastAccessTime();
+
+            // close a block mode data connection left idle for too long
+            ServerDataConnectionFactory dc = session.getDataConnection();
+            if (dc != null && dc.isIdleTimeout(System.currentTimeMillis())) {
+                LOG.debug("Data connection idle, closing");
+                dc.dispose();
+            }
             
             String commandName = request.getCommand();
             CommandFactory commandFactory = context.getCommandFactory();
@@ -190,6 +225,29 @@ public class DefaultFtpHandler implements FtpHandler {
                 return;
             }
 
+            if (!isExtractSetupCommand(commandName)) {
+                session.setExtractTo(null);
+            }
+
+            // refuse new transfers while sessions wait too long for a worker,
+            // transfers already in progress are left to finish
+            if (isTransferCommand(commandName)
+                    && context.getOverloadMonitor().isTransferOverloaded()) {
+                context.getOverloadMonitor().transferShed();
+                LOG.debug("Command queue is backed up, refusing {}", commandName);
+                try {
+                    session.write(LocalizedFtpReply.translate(session, request,
+                            context,
+                            FtpReply.REPLY_450_REQUESTED_FILE_ACTION_NOT_TAKEN,
+                            "overload", null));
+                } finally {
+                    session.resetState();
+                    session.setExtractTo(null);
+                    session.getDataConnection().closeDataConnection();
+                }
+                return;
+            }
+
             FtpletContainer ftplets = context.getFtpletContainer();
 
             FtpletResult ftpletRet;
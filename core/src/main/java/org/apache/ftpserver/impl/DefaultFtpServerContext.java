@@ -23,11 +23,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ftpserver.ConnectionConfig;
 import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.ListingConfig;
+import org.apache.ftpserver.ListingConfigFactory;
 import org.apache.ftpserver.command.CommandFactory;
 import org.apache.ftpserver.command.CommandFactoryFactory;
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
@@ -47,6 +51,7 @@ import org.apache.ftpserver.usermanager.impl.BaseUser;
 import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
 import org.apache.ftpserver.usermanager.impl.TransferRatePermission;
 import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.mina.core.session.IoEvent;
 import org.apache.mina.filter.executor.OrderedThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +82,8 @@ public class DefaultFtpServerContext implements FtpServerContext {
 
     private ConnectionConfig connectionConfig = new ConnectionConfigFactory().createConnectionConfig();
 
+    private ListingConfig listingConfig = new ListingConfigFactory().createListingConfig();
+
     private Map<String, Listener> listeners = new HashMap<>();
 
     private static final List<Authority> ADMIN_AUTHORITIES = new ArrayList<>();
@@ -86,6 +93,15 @@ public class DefaultFtpServerContext implements FtpServerContext {
      * The thread pool executor to be used by the server using this context
      */
     private ThreadPoolExecutor threadPoolExecutor = null;
+
+    private ForkJoinPool listingPool = null;
+
+    /**
+     * Watches the latency of the thread pool executor queue
+     */
+    private OverloadMonitor overloadMonitor = null;
+
+    private final SessionRegistry sessionRegistry = new SessionRegistry();
     
     static {
         ADMIN_AUTHORITIES.add(new WritePermission());
@@ -208,6 +224,13 @@ public class DefaultFtpServerContext implements FtpServerContext {
                 // TODO: how to handle?
             }
         }
+        synchronized (this) {
+            if (listingPool != null) {
+                LOG.debug("Shutting down the listing pool");
+                listingPool.shutdownNow();
+                listingPool = null;
+            }
+        }
     }
 
     public Listener getListener(String name) {
@@ -261,6 +284,14 @@ public class DefaultFtpServerContext implements FtpServerContext {
     public void setConnectionConfig(ConnectionConfig connectionConfig) {
         this.connectionConfig = connectionConfig;
     }
+
+    public ListingConfig getListingConfig() {
+        return listingConfig;
+    }
+
+    public void setListingConfig(ListingConfig listingConfig) {
+        this.listingConfig = listingConfig;
+    }
     
     public synchronized ThreadPoolExecutor getThreadPoolExecutor() {
         if(threadPoolExecutor == null) {
@@ -275,8 +306,49 @@ public class DefaultFtpServerContext implements FtpServerContext {
                 }
             }
             LOG.debug("Intializing shared thread pool executor with max threads of {}", maxThreads);
-            threadPoolExecutor = new OrderedThreadPoolExecutor(maxThreads);
+            final OverloadMonitor monitor = getOverloadMonitor();
+            if (monitor.isEnabled()) {
+                LOG.debug("Enabling load shedding, connection threshold {} ms, transfer threshold {} ms",
+                        monitor.getConnectionThreshold(), monitor.getTransferThreshold());
+                threadPoolExecutor = new OrderedThreadPoolExecutor(0, maxThreads,
+                        30, TimeUnit.SECONDS, monitor) {
+                    @Override
+                    protected void afterExecute(Runnable task, Throwable t) {
+                        monitor.completed(this, (IoEvent) task);
+                    }
+                };
+            } else {
+                threadPoolExecutor = new OrderedThreadPoolExecutor(maxThreads);
+            }
         }
         return threadPoolExecutor;
     }
+
+    public synchronized ForkJoinPool getListingPool() {
+        if (listingPool == null) {
+            int threads = listingConfig.getRecursiveListingThreads();
+            LOG.debug("Intializing listing pool with {} threads", threads);
+            listingPool = new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool
+                        .defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("ftpserver-listing-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return listingPool;
+    }
+
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    public synchronized OverloadMonitor getOverloadMonitor() {
+        if (overloadMonitor == null) {
+            overloadMonitor = new OverloadMonitor(
+                    connectionConfig.getConnectionSheddingThreshold(),
+                    connectionConfig.getTransferSheddingThreshold());
+        }
+        return overloadMonitor;
+    }
 }
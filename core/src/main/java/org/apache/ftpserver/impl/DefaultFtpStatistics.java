@@ -25,7 +25,7 @@ import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.User;
@@ -35,72 +35,69 @@ import org.apache.ftpserver.ftplet.User;
  * 
  * This is FTP statistics implementation.
  * 
- * TODO revisit concurrency, right now we're a bit over zealous with both Atomic*
- * counters and synchronization
+ * No lock is taken when updating or reading the statistics. The cumulative
+ * counters are {@link LongAdder}s, which do not contend when updated from many
+ * threads, while the current connection and login numbers are exact atomic
+ * counters since they are used to enforce limits. Observers are notified after
+ * the counters have been updated, and might be notified concurrently from
+ * several threads.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
 public class DefaultFtpStatistics implements ServerFtpStatistics {
 
-    private StatisticsObserver observer = null;
+    private volatile StatisticsObserver observer = null;
 
-    private FileObserver fileObserver = null;
+    private volatile FileObserver fileObserver = null;
 
-    private Date startTime = new Date();
+    private volatile Date startTime = new Date();
 
-    private AtomicInteger uploadCount = new AtomicInteger(0);
+    private final LongAdder uploadCount = new LongAdder();
 
-    private AtomicInteger downloadCount = new AtomicInteger(0);
+    private final LongAdder downloadCount = new LongAdder();
 
-    private AtomicInteger deleteCount = new AtomicInteger(0);
+    private final LongAdder deleteCount = new LongAdder();
 
-    private AtomicInteger mkdirCount = new AtomicInteger(0);
+    private final LongAdder mkdirCount = new LongAdder();
 
-    private AtomicInteger rmdirCount = new AtomicInteger(0);
+    private final LongAdder rmdirCount = new LongAdder();
 
-    private AtomicInteger currLogins = new AtomicInteger(0);
+    private final AtomicInteger currLogins = new AtomicInteger(0);
 
-    private AtomicInteger totalLogins = new AtomicInteger(0);
+    private final LongAdder totalLogins = new LongAdder();
 
-    private AtomicInteger totalFailedLogins = new AtomicInteger(0);
+    private final LongAdder totalFailedLogins = new LongAdder();
 
-    private AtomicInteger currAnonLogins = new AtomicInteger(0);
+    private final AtomicInteger currAnonLogins = new AtomicInteger(0);
 
-    private AtomicInteger totalAnonLogins = new AtomicInteger(0);
+    private final LongAdder totalAnonLogins = new LongAdder();
 
-    private AtomicInteger currConnections = new AtomicInteger(0);
+    private final AtomicInteger currConnections = new AtomicInteger(0);
 
-    private AtomicInteger totalConnections = new AtomicInteger(0);
+    private final LongAdder totalConnections = new LongAdder();
 
-    private AtomicLong bytesUpload = new AtomicLong(0L);
+    private final LongAdder bytesUpload = new LongAdder();
 
-    private AtomicLong bytesDownload = new AtomicLong(0L);
+    private final LongAdder bytesDownload = new LongAdder();
 
     private static class UserLogins {
-        private Map<InetAddress, AtomicInteger> perAddress = new ConcurrentHashMap<>();
+        private final AtomicInteger totalLogins = new AtomicInteger(0);
 
-        public UserLogins(InetAddress address) {
-            // init with the first connection
-            totalLogins = new AtomicInteger(1);
-            perAddress.put(address, new AtomicInteger(1));
-        }
+        private final Map<InetAddress, AtomicInteger> perAddress = new ConcurrentHashMap<>();
 
-        public AtomicInteger loginsFromInetAddress(InetAddress address) {
-            AtomicInteger logins = perAddress.get(address);
-            if (logins == null) {
-                logins = new AtomicInteger(0);
-                perAddress.put(address, logins);
+        public int loginsFromInetAddress(InetAddress address) {
+            if (address == null) {
+                return 0;
             }
-            return logins;
+            AtomicInteger logins = perAddress.get(address);
+            return logins == null ? 0 : logins.get();
         }
-
-        public AtomicInteger totalLogins;
     }
 
     /**
      *The user login information.
      */
-    private Map<String, UserLogins> userLoginTable = new ConcurrentHashMap<>();
+    private final Map<String, UserLogins> userLoginTable = new ConcurrentHashMap<>();
 
     public static final String LOGIN_NUMBER = "login_number";
 
@@ -124,6 +121,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get server start time.
      */
     public Date getStartTime() {
+        Date startTime = this.startTime;
         if (startTime != null) {
             return (Date) startTime.clone();
         } else {
@@ -135,56 +133,56 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get number of files uploaded.
      */
     public int getTotalUploadNumber() {
-        return uploadCount.get();
+        return uploadCount.intValue();
     }
 
     /**
      * Get number of files downloaded.
      */
     public int getTotalDownloadNumber() {
-        return downloadCount.get();
+        return downloadCount.intValue();
     }
 
     /**
      * Get number of files deleted.
      */
     public int getTotalDeleteNumber() {
-        return deleteCount.get();
+        return deleteCount.intValue();
     }
 
     /**
      * Get total number of bytes uploaded.
      */
     public long getTotalUploadSize() {
-        return bytesUpload.get();
+        return bytesUpload.sum();
     }
 
     /**
      * Get total number of bytes downloaded.
      */
     public long getTotalDownloadSize() {
-        return bytesDownload.get();
+        return bytesDownload.sum();
     }
 
     /**
      * Get total directory created.
      */
     public int getTotalDirectoryCreated() {
-        return mkdirCount.get();
+        return mkdirCount.intValue();
     }
 
     /**
      * Get total directory removed.
      */
     public int getTotalDirectoryRemoved() {
-        return rmdirCount.get();
+        return rmdirCount.intValue();
     }
 
     /**
      * Get total number of connections.
      */
     public int getTotalConnectionNumber() {
-        return totalConnections.get();
+        return totalConnections.intValue();
     }
 
     /**
@@ -198,14 +196,14 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get total number of logins.
      */
     public int getTotalLoginNumber() {
-        return totalLogins.get();
+        return totalLogins.intValue();
     }
 
     /**
      * Get total failed login number.
      */
     public int getTotalFailedLoginNumber() {
-        return totalFailedLogins.get();
+        return totalFailedLogins.intValue();
     }
 
     /**
@@ -219,7 +217,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get total number of anonymous logins.
      */
     public int getTotalAnonymousLoginNumber() {
-        return totalAnonLogins.get();
+        return totalAnonLogins.intValue();
     }
 
     /**
@@ -232,7 +230,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Get the login number for the specific user
      */
-    public synchronized int getCurrentUserLoginNumber(final User user) {
+    public int getCurrentUserLoginNumber(final User user) {
         UserLogins userLogins = userLoginTable.get(user.getName());
         if (userLogins == null) {// not found the login user's statistics info
             return 0;
@@ -249,13 +247,13 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * @param ipAddress
      *            the ip address of the remote user
      */
-    public synchronized int getCurrentUserLoginNumber(final User user,
+    public int getCurrentUserLoginNumber(final User user,
             final InetAddress ipAddress) {
         UserLogins userLogins = userLoginTable.get(user.getName());
         if (userLogins == null) {// not found the login user's statistics info
             return 0;
         } else {
-            return userLogins.loginsFromInetAddress(ipAddress).get();
+            return userLogins.loginsFromInetAddress(ipAddress);
         }
     }
 
@@ -264,107 +262,90 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Increment upload count.
      */
-    public synchronized void setUpload(final FtpIoSession session,
+    public void setUpload(final FtpIoSession session,
             final FtpFile file, final long size) {
-        uploadCount.incrementAndGet();
-        bytesUpload.addAndGet(size);
+        uploadCount.increment();
+        bytesUpload.add(size);
         notifyUpload(session, file, size);
     }
 
     /**
      * Increment download count.
      */
-    public synchronized void setDownload(final FtpIoSession session,
+    public void setDownload(final FtpIoSession session,
             final FtpFile file, final long size) {
-        downloadCount.incrementAndGet();
-        bytesDownload.addAndGet(size);
+        downloadCount.increment();
+        bytesDownload.add(size);
         notifyDownload(session, file, size);
     }
 
     /**
      * Increment delete count.
      */
-    public synchronized void setDelete(final FtpIoSession session,
+    public void setDelete(final FtpIoSession session,
             final FtpFile file) {
-        deleteCount.incrementAndGet();
+        deleteCount.increment();
         notifyDelete(session, file);
     }
 
     /**
      * Increment make directory count.
      */
-    public synchronized void setMkdir(final FtpIoSession session,
+    public void setMkdir(final FtpIoSession session,
             final FtpFile file) {
-        mkdirCount.incrementAndGet();
+        mkdirCount.increment();
         notifyMkdir(session, file);
     }
 
     /**
      * Increment remove directory count.
      */
-    public synchronized void setRmdir(final FtpIoSession session,
+    public void setRmdir(final FtpIoSession session,
             final FtpFile file) {
-        rmdirCount.incrementAndGet();
+        rmdirCount.increment();
         notifyRmdir(session, file);
     }
 
     /**
      * Increment open connection count.
      */
-    public synchronized void setOpenConnection(final FtpIoSession session) {
+    public void setOpenConnection(final FtpIoSession session) {
         currConnections.incrementAndGet();
-        totalConnections.incrementAndGet();
+        totalConnections.increment();
         notifyOpenConnection(session);
     }
 
     /**
      * Decrement open connection count.
      */
-    public synchronized void setCloseConnection(final FtpIoSession session) {
-        if (currConnections.get() > 0) {
-            currConnections.decrementAndGet();
-        }
+    public void setCloseConnection(final FtpIoSession session) {
+        currConnections.updateAndGet(current -> current > 0 ? current - 1 : 0);
         notifyCloseConnection(session);
     }
 
     /**
      * New login.
      */
-    public synchronized void setLogin(final FtpIoSession session) {
+    public void setLogin(final FtpIoSession session) {
         currLogins.incrementAndGet();
-        totalLogins.incrementAndGet();
+        totalLogins.increment();
         User user = session.getUser();
         if ("anonymous".equals(user.getName())) {
             currAnonLogins.incrementAndGet();
-            totalAnonLogins.incrementAndGet();
+            totalAnonLogins.increment();
         }
 
-        synchronized (user) {// thread safety is needed. Since the login occurrs
-            // at low frequency, this overhead is endurable
-            UserLogins statisticsTable = userLoginTable.get(user.getName());
-            if (statisticsTable == null) {
-                // the hash table that records the login information of the user
-                // and its ip address.
-
-                InetAddress address = null;
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    address = ((InetSocketAddress) session.getRemoteAddress())
-                            .getAddress();
-                }
-                statisticsTable = new UserLogins(address);
-                userLoginTable.put(user.getName(), statisticsTable);
-            } else {
-                statisticsTable.totalLogins.incrementAndGet();
-
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    InetAddress address = ((InetSocketAddress) session
-                            .getRemoteAddress()).getAddress();
-                    statisticsTable.loginsFromInetAddress(address)
-                            .incrementAndGet();
-                }
-
+        final InetAddress address = getInetAddress(session);
+        userLoginTable.compute(user.getName(), (name, current) -> {
+            UserLogins userLogins = current == null ? new UserLogins()
+                    : current;
+            userLogins.totalLogins.incrementAndGet();
+            if (address != null) {
+                userLogins.perAddress.computeIfAbsent(address,
+                        a -> new AtomicInteger(0)).incrementAndGet();
             }
-        }
+            return userLogins;
+        });
 
         notifyLogin(session);
     }
@@ -372,15 +353,15 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Increment failed login count.
      */
-    public synchronized void setLoginFail(final FtpIoSession session) {
-        totalFailedLogins.incrementAndGet();
+    public void setLoginFail(final FtpIoSession session) {
+        totalFailedLogins.increment();
         notifyLoginFail(session);
     }
 
     /**
      * User logout
      */
-    public synchronized void setLogout(final FtpIoSession session) {
+    public void setLogout(final FtpIoSession session) {
         User user = session.getUser();
         if (user == null) {
             return;
@@ -392,19 +373,18 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
             currAnonLogins.decrementAndGet();
         }
 
-        synchronized (user) {
-            UserLogins userLogins = userLoginTable.get(user.getName());
-
-            if (userLogins != null) {
-                userLogins.totalLogins.decrementAndGet();
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    InetAddress address = ((InetSocketAddress) session
-                            .getRemoteAddress()).getAddress();
-                    userLogins.loginsFromInetAddress(address).decrementAndGet();
-                }
+        final InetAddress address = getInetAddress(session);
+        userLoginTable.computeIfPresent(user.getName(), (name, userLogins) -> {
+            if (address != null) {
+                userLogins.perAddress.computeIfPresent(address,
+                        (a, logins) -> logins.decrementAndGet() > 0 ? logins
+                                : null);
             }
-
-        }
+            // drop users without logins so that the table does not grow
+            // with every user that has ever logged in
+            return userLogins.totalLogins.decrementAndGet() > 0 ? userLogins
+                    : null;
+        });
 
         notifyLogout(session);
     }
@@ -560,22 +540,30 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Reset the cumulative counters.
      */
-    public synchronized void resetStatisticsCounters() {
+    public void resetStatisticsCounters() {
         startTime = new Date();
 
-        uploadCount.set(0);
-        downloadCount.set(0);
-        deleteCount.set(0);
+        uploadCount.reset();
+        downloadCount.reset();
+        deleteCount.reset();
 
-        mkdirCount.set(0);
-        rmdirCount.set(0);
+        mkdirCount.reset();
+        rmdirCount.reset();
 
-        totalLogins.set(0);
-        totalFailedLogins.set(0);
-        totalAnonLogins.set(0);
-        totalConnections.set(0);
+        totalLogins.reset();
+        totalFailedLogins.reset();
+        totalAnonLogins.reset();
+        totalConnections.reset();
 
-        bytesUpload.set(0);
-        bytesDownload.set(0);
+        bytesUpload.reset();
+        bytesDownload.reset();
+    }
+
+    private static InetAddress getInetAddress(final FtpIoSession session) {
+        if (session.getRemoteAddress() instanceof InetSocketAddress) {
+            return ((InetSocketAddress) session.getRemoteAddress())
+                    .getAddress();
+        }
+        return null;
     }
 }
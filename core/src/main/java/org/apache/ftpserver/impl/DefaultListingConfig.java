@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import org.apache.ftpserver.ListingConfig;
+import org.apache.ftpserver.ListingConfigFactory;
+import org.apache.ftpserver.ListingOrder;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ *
+ */
+public class DefaultListingConfig implements ListingConfig {
+
+    private final ListingOrder order;
+
+    private final int maxRecursionDepth;
+
+    private final int maxRecursiveEntries;
+
+    private final int recursiveListingTimeout;
+
+    private final int recursiveListingThreads;
+
+    private final int largeDirectoryThreshold;
+
+    private final boolean archiveDownloadEnabled;
+
+    private final int archiveReadAhead;
+
+    public DefaultListingConfig() {
+        this(ListingOrder.DIRECTORIES_FIRST);
+    }
+
+    /**
+     * Internal constructor, do not use directly. Use {@link ListingConfigFactory} instead
+     */
+    public DefaultListingConfig(ListingOrder order) {
+        this(order, 16, 100000, 60000, 4, 0, false, 4);
+    }
+
+    /**
+     * Internal constructor, do not use directly. Use {@link ListingConfigFactory} instead
+     */
+    public DefaultListingConfig(ListingOrder order, int maxRecursionDepth,
+            int maxRecursiveEntries, int recursiveListingTimeout,
+            int recursiveListingThreads, int largeDirectoryThreshold,
+            boolean archiveDownloadEnabled, int archiveReadAhead) {
+        this.order = order;
+        this.maxRecursionDepth = maxRecursionDepth;
+        this.maxRecursiveEntries = maxRecursiveEntries;
+        this.recursiveListingTimeout = recursiveListingTimeout;
+        this.recursiveListingThreads = recursiveListingThreads;
+        this.largeDirectoryThreshold = largeDirectoryThreshold;
+        this.archiveDownloadEnabled = archiveDownloadEnabled;
+        this.archiveReadAhead = archiveReadAhead;
+    }
+
+    public ListingOrder getOrder() {
+        return order;
+    }
+
+    public int getMaxRecursionDepth() {
+        return maxRecursionDepth;
+    }
+
+    public int getMaxRecursiveEntries() {
+        return maxRecursiveEntries;
+    }
+
+    public int getRecursiveListingTimeout() {
+        return recursiveListingTimeout;
+    }
+
+    public int getRecursiveListingThreads() {
+        return recursiveListingThreads;
+    }
+
+    public int getLargeDirectoryThreshold() {
+        return largeDirectoryThreshold;
+    }
+
+    public boolean isArchiveDownloadEnabled() {
+        return archiveDownloadEnabled;
+    }
+
+    public int getArchiveReadAhead() {
+        return archiveReadAhead;
+    }
+}
@@ -61,42 +61,13 @@ import org.slf4j.LoggerFactory;
 public class FtpIoSession implements IoSession {
 
     /**
-     * Contains user name between USER and PASS commands
+     * Prefix of the internal attributes, which can not be accessed by ftplets
      */
     public static final String ATTRIBUTE_PREFIX = "org.apache.ftpserver.";
-    private static final String ATTRIBUTE_USER_ARGUMENT = ATTRIBUTE_PREFIX
-            + "user-argument";
-    private static final String ATTRIBUTE_SESSION_ID = ATTRIBUTE_PREFIX
-            + "session-id";
-    private static final String ATTRIBUTE_USER = ATTRIBUTE_PREFIX + "user";
-    private static final String ATTRIBUTE_LANGUAGE = ATTRIBUTE_PREFIX
-            + "language";
-    private static final String ATTRIBUTE_LOGIN_TIME = ATTRIBUTE_PREFIX
-            + "login-time";
-    private static final String ATTRIBUTE_DATA_CONNECTION = ATTRIBUTE_PREFIX
-            + "data-connection";
-    private static final String ATTRIBUTE_FILE_SYSTEM = ATTRIBUTE_PREFIX
-            + "file-system";
-    private static final String ATTRIBUTE_RENAME_FROM = ATTRIBUTE_PREFIX
-            + "rename-from";
-    private static final String ATTRIBUTE_FILE_OFFSET = ATTRIBUTE_PREFIX
-            + "file-offset";
-    private static final String ATTRIBUTE_DATA_TYPE = ATTRIBUTE_PREFIX
-            + "data-type";
-    private static final String ATTRIBUTE_STRUCTURE = ATTRIBUTE_PREFIX
-            + "structure";
-    private static final String ATTRIBUTE_FAILED_LOGINS = ATTRIBUTE_PREFIX
-            + "failed-logins";
-    private static final String ATTRIBUTE_LISTENER = ATTRIBUTE_PREFIX
-            + "listener";
-    private static final String ATTRIBUTE_MAX_IDLE_TIME = ATTRIBUTE_PREFIX
-            + "max-idle-time";
-    private static final String ATTRIBUTE_LAST_ACCESS_TIME = ATTRIBUTE_PREFIX
-            + "last-access-time";
-    private static final String ATTRIBUTE_CACHED_REMOTE_ADDRESS = ATTRIBUTE_PREFIX
-            + "cached-remote-address";
+    private static final String ATTRIBUTE_STATE = ATTRIBUTE_PREFIX + "state";
     private final IoSession wrappedSession;
     private final FtpServerContext context;
+    private final FtpSessionState state;
     /**
      * Last reply that was sent to the client, if any.
      */
@@ -324,11 +295,10 @@ public class FtpIoSession implements IoSession {
         // therefore, we attempt to keep a cached copy around
 
         SocketAddress address = wrappedSession.getRemoteAddress();
-        if (address == null
-                && containsAttribute(ATTRIBUTE_CACHED_REMOTE_ADDRESS)) {
-            return (SocketAddress) getAttribute(ATTRIBUTE_CACHED_REMOTE_ADDRESS);
+        if (address == null) {
+            return state.cachedRemoteAddress;
         } else {
-            setAttribute(ATTRIBUTE_CACHED_REMOTE_ADDRESS, address);
+            state.cachedRemoteAddress = address;
             return address;
         }
     }
@@ -543,44 +513,49 @@ public class FtpIoSession implements IoSession {
 
     /* End wrapped IoSession methods */
     public void resetState() {
-        removeAttribute(ATTRIBUTE_RENAME_FROM);
-        removeAttribute(ATTRIBUTE_FILE_OFFSET);
-    }
-
-    public synchronized ServerDataConnectionFactory getDataConnection() {
-        if (containsAttribute(ATTRIBUTE_DATA_CONNECTION)) {
-            return (ServerDataConnectionFactory) getAttribute(ATTRIBUTE_DATA_CONNECTION);
-        } else {
-            IODataConnectionFactory dataCon = new IODataConnectionFactory(
-                    context, this);
-            dataCon.setServerControlAddress(((InetSocketAddress) getLocalAddress()).getAddress());
-            setAttribute(ATTRIBUTE_DATA_CONNECTION, dataCon);
-
-            return dataCon;
+        state.renameFrom = null;
+        state.copyFrom = null;
+        state.fileOffset = 0;
+    }
+
+    public ServerDataConnectionFactory getDataConnection() {
+        ServerDataConnectionFactory dataCon = state.dataConnection;
+        if (dataCon == null) {
+            synchronized (state) {
+                dataCon = state.dataConnection;
+                if (dataCon == null) {
+                    IODataConnectionFactory ioDataCon = new IODataConnectionFactory(
+                            context, this);
+                    ioDataCon.setServerControlAddress(((InetSocketAddress) getLocalAddress()).getAddress());
+                    dataCon = ioDataCon;
+                    state.dataConnection = dataCon;
+                }
+            }
         }
+        return dataCon;
     }
 
     public FileSystemView getFileSystemView() {
-        return (FileSystemView) getAttribute(ATTRIBUTE_FILE_SYSTEM);
+        return state.fileSystemView;
     }
 
     public User getUser() {
-        return (User) getAttribute(ATTRIBUTE_USER);
+        return state.user;
     }
 
     /**
      * Is logged-in
      */
     public boolean isLoggedIn() {
-        return containsAttribute(ATTRIBUTE_USER);
+        return state.user != null;
     }
 
     public Listener getListener() {
-        return (Listener) getAttribute(ATTRIBUTE_LISTENER);
+        return state.listener;
     }
 
     public void setListener(Listener listener) {
-        setAttribute(ATTRIBUTE_LISTENER, listener);
+        state.listener = listener;
     }
 
     public FtpSession getFtpletSession() {
@@ -588,34 +563,31 @@ public class FtpIoSession implements IoSession {
     }
 
     public String getLanguage() {
-        return (String) getAttribute(ATTRIBUTE_LANGUAGE);
+        return state.language;
     }
 
     public void setLanguage(String language) {
-        setAttribute(ATTRIBUTE_LANGUAGE, language);
-
+        state.language = language;
     }
 
     public String getUserArgument() {
-        return (String) getAttribute(ATTRIBUTE_USER_ARGUMENT);
+        return state.userArgument;
     }
 
     public void setUser(User user) {
-        setAttribute(ATTRIBUTE_USER, user);
-
+        state.user = user;
     }
 
     public void setUserArgument(String userArgument) {
-        setAttribute(ATTRIBUTE_USER_ARGUMENT, userArgument);
-
+        state.userArgument = userArgument;
     }
 
     public int getMaxIdleTime() {
-        return (Integer) getAttribute(ATTRIBUTE_MAX_IDLE_TIME, 0);
+        return state.maxIdleTime;
     }
 
     public void setMaxIdleTime(int maxIdleTime) {
-        setAttribute(ATTRIBUTE_MAX_IDLE_TIME, maxIdleTime);
+        state.maxIdleTime = maxIdleTime;
 
         int listenerTimeout = getListener().getIdleTimeout();
 
@@ -629,32 +601,34 @@ public class FtpIoSession implements IoSession {
         }
     }
 
-    public synchronized void increaseFailedLogins() {
-        int failedLogins = (Integer) getAttribute(ATTRIBUTE_FAILED_LOGINS, 0);
-        failedLogins++;
-        setAttribute(ATTRIBUTE_FAILED_LOGINS, failedLogins);
+    public void increaseFailedLogins() {
+        state.increaseFailedLogins();
     }
 
     public int getFailedLogins() {
-        return (Integer) getAttribute(ATTRIBUTE_FAILED_LOGINS, 0);
+        return state.failedLogins;
     }
 
     public void setLogin(FileSystemView fsview) {
-        setAttribute(ATTRIBUTE_LOGIN_TIME, new Date());
-        setAttribute(ATTRIBUTE_FILE_SYSTEM, fsview);
+        state.loginTime = System.currentTimeMillis();
+        state.fileSystemView = fsview;
     }
 
     public void reinitialize() {
         logoutUser();
-        removeAttribute(ATTRIBUTE_USER);
-        removeAttribute(ATTRIBUTE_USER_ARGUMENT);
-        removeAttribute(ATTRIBUTE_LOGIN_TIME);
-        removeAttribute(ATTRIBUTE_FILE_SYSTEM);
-        removeAttribute(ATTRIBUTE_RENAME_FROM);
-        removeAttribute(ATTRIBUTE_FILE_OFFSET);
+        state.user = null;
+        state.userArgument = null;
+        state.loginTime = 0;
+        state.fileSystemView = null;
+        state.renameFrom = null;
+        state.copyFrom = null;
+        state.extractTo = null;
+        state.fileOffset = 0;
     }
 
     public void logoutUser() {
+        context.getSessionRegistry().logout(this);
+
         ServerFtpStatistics stats = ((ServerFtpStatistics) context.getFtpStatistics());
         if (stats != null) {
             stats.setLogout(this);
@@ -665,63 +639,104 @@ public class FtpIoSession implements IoSession {
     }
 
     public void setFileOffset(long fileOffset) {
-        setAttribute(ATTRIBUTE_FILE_OFFSET, fileOffset);
-
+        state.fileOffset = fileOffset;
     }
 
     public void setRenameFrom(FtpFile renFr) {
-        setAttribute(ATTRIBUTE_RENAME_FROM, renFr);
-
+        state.renameFrom = renFr;
     }
 
     public FtpFile getRenameFrom() {
-        return (FtpFile) getAttribute(ATTRIBUTE_RENAME_FROM);
+        return state.renameFrom;
+    }
+
+    public void setCopyFrom(FtpFile copyFrom) {
+        state.copyFrom = copyFrom;
+    }
+
+    public FtpFile getCopyFrom() {
+        return state.copyFrom;
+    }
+
+    /**
+     * Set the directory the next STOR extracts an archive into. Unlike the
+     * other transfer state it is kept by {@link #resetState()}, so that the
+     * data connection can be set up after it. It is cleared by the next STOR,
+     * by any command other than those setting up the transfer, and when the
+     * session is reinitialized.
+     * @param extractTo The directory, null for a plain STOR
+     */
+    public void setExtractTo(FtpFile extractTo) {
+        state.extractTo = extractTo;
+    }
+
+    public FtpFile getExtractTo() {
+        return state.extractTo;
     }
 
     public long getFileOffset() {
-        return (Long) getAttribute(ATTRIBUTE_FILE_OFFSET, 0L);
+        return state.fileOffset;
     }
 
     public void setStructure(Structure structure) {
-        setAttribute(ATTRIBUTE_STRUCTURE, structure);
+        state.structure = structure;
     }
 
     public void setDataType(DataType dataType) {
-        setAttribute(ATTRIBUTE_DATA_TYPE, dataType);
-
+        state.dataType = dataType;
     }
 
     /**
      * @see FtpSession#getSessionId()
      */
     public UUID getSessionId() {
-        synchronized (wrappedSession) {
-            if (!wrappedSession.containsAttribute(ATTRIBUTE_SESSION_ID)) {
-                wrappedSession.setAttribute(ATTRIBUTE_SESSION_ID, UUID.randomUUID());
-            }
-            return (UUID) wrappedSession.getAttribute(ATTRIBUTE_SESSION_ID);
-        }
+        return state.getSessionId();
     }
 
     public FtpIoSession(IoSession wrappedSession, FtpServerContext context) {
         this.wrappedSession = wrappedSession;
         this.context = context;
+        this.state = getState(wrappedSession);
+    }
+
+    /**
+     * Get the FTP state attached to a MINA session, attaching a new one if
+     * the session does not have one yet
+     */
+    private static FtpSessionState getState(IoSession session) {
+        if (session == null) {
+            return new FtpSessionState();
+        }
+
+        FtpSessionState state = (FtpSessionState) session
+                .getAttribute(ATTRIBUTE_STATE);
+        if (state == null) {
+            FtpSessionState newState = new FtpSessionState();
+            state = (FtpSessionState) session.setAttributeIfAbsent(
+                    ATTRIBUTE_STATE, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
     }
 
     public Structure getStructure() {
-        return (Structure) getAttribute(ATTRIBUTE_STRUCTURE, Structure.FILE);
+        return state.structure;
     }
 
     public DataType getDataType() {
-        return (DataType) getAttribute(ATTRIBUTE_DATA_TYPE, DataType.ASCII);
+        return state.dataType;
     }
 
     public Date getLoginTime() {
-        return (Date) getAttribute(ATTRIBUTE_LOGIN_TIME);
+        long loginTime = state.loginTime;
+        return loginTime == 0 ? null : new Date(loginTime);
     }
 
     public Date getLastAccessTime() {
-        return (Date) getAttribute(ATTRIBUTE_LAST_ACCESS_TIME);
+        long lastAccessTime = state.lastAccessTime;
+        return lastAccessTime == 0 ? null : new Date(lastAccessTime);
     }
 
     public Certificate[] getClientCertificates() {
@@ -747,8 +762,7 @@ public class FtpIoSession implements IoSession {
     }
 
     public void updateLastAccessTime() {
-        setAttribute(ATTRIBUTE_LAST_ACCESS_TIME, new Date());
-
+        state.lastAccessTime = System.currentTimeMillis();
     }
 
     /**
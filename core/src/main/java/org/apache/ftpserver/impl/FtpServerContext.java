@@ -20,9 +20,11 @@
 package org.apache.ftpserver.impl;
 
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.ftpserver.ConnectionConfig;
+import org.apache.ftpserver.ListingConfig;
 import org.apache.ftpserver.command.CommandFactory;
 import org.apache.ftpserver.ftplet.FtpletContext;
 import org.apache.ftpserver.ftpletcontainer.FtpletContainer;
@@ -41,6 +43,11 @@ public interface FtpServerContext extends FtpletContext {
 
     ConnectionConfig getConnectionConfig();
 
+    /**
+     * Get the directory listing configuration.
+     */
+    ListingConfig getListingConfig();
+
     /**
      * Get message resource.
      */
@@ -70,4 +77,24 @@ public interface FtpServerContext extends FtpletContext {
      * @return the thread pool executor for this context.
      */
     ThreadPoolExecutor getThreadPoolExecutor();
+
+    /**
+     * Returns the pool, shared by all sessions, walking the directories of
+     * recursive listings.
+     * @return the listing pool for this context.
+     */
+    ForkJoinPool getListingPool();
+
+    /**
+     * Returns the monitor deciding when connections and transfers are shed
+     * because the thread pool executor queue is backed up.
+     * @return the overload monitor for this context.
+     */
+    OverloadMonitor getOverloadMonitor();
+
+    /**
+     * Returns the registry of the sessions connected to the server.
+     * @return the session registry for this context.
+     */
+    SessionRegistry getSessionRegistry();
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.SocketAddress;
+import java.util.UUID;
+
+import org.apache.ftpserver.ftplet.DataType;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.Structure;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.listener.Listener;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * The FTP state of a session. One instance is attached to the MINA session
+ * when the session is created and is shared by all the {@link FtpIoSession}
+ * wrappers of that session, which read and write its fields directly.
+ *
+ * Commands of a session are executed one at a time, but not always by the same
+ * thread, and the state is also read by other threads (for example SITE WHO or
+ * the idle handling), so all fields are volatile.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FtpSessionState {
+
+    volatile String userArgument;
+
+    volatile User user;
+
+    volatile String language;
+
+    volatile long loginTime;
+
+    volatile ServerDataConnectionFactory dataConnection;
+
+    volatile FileSystemView fileSystemView;
+
+    volatile FtpFile renameFrom;
+
+    volatile FtpFile copyFrom;
+
+    volatile FtpFile extractTo;
+
+    volatile long fileOffset;
+
+    volatile DataType dataType = DataType.ASCII;
+
+    volatile Structure structure = Structure.FILE;
+
+    volatile int failedLogins;
+
+    volatile Listener listener;
+
+    volatile int maxIdleTime;
+
+    volatile long lastAccessTime;
+
+    volatile SocketAddress cachedRemoteAddress;
+
+    private volatile UUID sessionId;
+
+    synchronized void increaseFailedLogins() {
+        failedLogins++;
+    }
+
+    UUID getSessionId() {
+        UUID id = sessionId;
+        if (id == null) {
+            synchronized (this) {
+                id = sessionId;
+                if (id == null) {
+                    id = UUID.randomUUID();
+                    sessionId = id;
+                }
+            }
+        }
+        return id;
+    }
+}
@@ -21,18 +21,28 @@ package org.apache.ftpserver.impl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
 
-import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataType;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpReply;
 import org.apache.ftpserver.ftplet.FtpSession;
 import org.apache.ftpserver.usermanager.impl.TransferRateRequest;
 import org.apache.ftpserver.util.IoUtils;
@@ -44,16 +54,35 @@ import org.slf4j.LoggerFactory;
  * 
  * An active open data connection, used for transfering data over the data
  * connection.
+ * 
+ * In block mode the data is sent in blocks ending with an end of file block,
+ * and the connection is left open for the next transfer if that block has
+ * been sent or received. Binary file transfers then also carry restart
+ * markers, holding the file offset to give to <code>REST</code>: the
+ * markers sent by the client are acknowledged with a <code>110</code>
+ * reply, and markers are sent to the client every
+ * {@link #RESTART_MARKER_INTERVAL} bytes.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
-public class IODataConnection implements DataConnection {
+public class IODataConnection implements ServerDataConnection {
 
     private final Logger LOG = LoggerFactory
     .getLogger(IODataConnection.class);
 
     
     private static final byte[] EOL = System.getProperty("line.separator").getBytes();
+
+    /**
+     * The size of the buffer and of the file channel transfers of binary
+     * channel transfers
+     */
+    private static final int CHANNEL_TRANSFER_SIZE = 64 * 1024;
+
+    /**
+     * The number of bytes between the restart markers sent in block mode
+     */
+    public static final int RESTART_MARKER_INTERVAL = 1024 * 1024;
     
     private final FtpIoSession session;
 
@@ -61,6 +90,11 @@ public class IODataConnection implements DataConnection {
 
     private final ServerDataConnectionFactory factory;
 
+    // the block mode streams of the transfer, if any
+    private BlockInputStream blockIn;
+
+    private BlockOutputStream blockOut;
+
     public IODataConnection(final Socket socket, final FtpIoSession session,
             final ServerDataConnectionFactory factory) {
         this.session = session;
@@ -68,10 +102,47 @@ public class IODataConnection implements DataConnection {
         this.factory = factory;
     }
 
+    /**
+     * Can the connection be used for another transfer, as the transfer over
+     * it ended with an end of file block
+     */
+    boolean isReusable() {
+        if (socket == null || socket.isClosed()) {
+            return false;
+        }
+        return (blockIn != null && blockIn.isFinished())
+                || (blockOut != null && blockOut.isFinished());
+    }
+
+    /**
+     * Get the offset in the file of the binary transfer of a file, given to
+     * <code>REST</code>
+     * 
+     * @return The offset, -1 if restart markers do not apply
+     */
+    private long getRestartOffset(final FtpSession session) {
+        if (session.getDataType() != DataType.BINARY) {
+            return -1;
+        }
+        return this.session.getFileOffset();
+    }
+
     /**
      * Get data input stream. The return value will never be null.
      */
     private InputStream getDataInputStream() throws IOException {
+        return getDataInputStream(-1);
+    }
+
+    /**
+     * Get data input stream. The return value will never be null.
+     * 
+     * @param restartOffset
+     *            The offset in the file acknowledged restart markers are
+     *            relative to, -1 to ignore the markers
+     */
+    private InputStream getDataInputStream(final long restartOffset)
+            throws IOException {
         try {
 
             // get data socket
@@ -84,6 +155,14 @@ public class IODataConnection implements DataConnection {
             InputStream is = dataSoc.getInputStream();
             if (factory.isZipMode()) {
                 is = new InflaterInputStream(is);
+            } else if (factory.isBlockMode()) {
+                BlockInputStream.RestartMarkerListener listener = null;
+                if (restartOffset >= 0) {
+                    listener = (marker, count) -> session.write(new DefaultFtpReply(
+                            FtpReply.REPLY_110_RESTART_MARKER_REPLY, "MARK "
+                                    + marker + " = " + (restartOffset + count)));
+                }
+                is = blockIn = new BlockInputStream(is, listener);
             }
             return is;
         } catch (IOException ex) {
@@ -96,6 +175,18 @@ public class IODataConnection implements DataConnection {
      * Get data output stream. The return value will never be null.
      */
     private OutputStream getDataOutputStream() throws IOException {
+        return getDataOutputStream(-1);
+    }
+
+    /**
+     * Get data output stream. The return value will never be null.
+     * 
+     * @param restartOffset
+     *            The offset in the file of the first byte sent, which the
+     *            restart markers are relative to, -1 for no markers
+     */
+    private OutputStream getDataOutputStream(final long restartOffset)
+            throws IOException {
         try {
 
             // get data socket
@@ -108,6 +199,13 @@ public class IODataConnection implements DataConnection {
             OutputStream os = dataSoc.getOutputStream();
             if (factory.isZipMode()) {
                 os = new DeflaterOutputStream(os);
+            } else if (factory.isBlockMode()) {
+                if (restartOffset >= 0) {
+                    os = blockOut = new BlockOutputStream(os,
+                            RESTART_MARKER_INTERVAL, restartOffset);
+                } else {
+                    os = blockOut = new BlockOutputStream(os);
+                }
             }
             return os;
         } catch (IOException ex) {
@@ -124,15 +222,9 @@ public class IODataConnection implements DataConnection {
      */
     public final long transferFromClient(FtpSession session,
             final OutputStream out) throws IOException {
-        TransferRateRequest transferRateRequest = new TransferRateRequest();
-        transferRateRequest = (TransferRateRequest) session.getUser()
-                .authorize(transferRateRequest);
-        int maxRate = 0;
-        if (transferRateRequest != null) {
-            maxRate = transferRateRequest.getMaxUploadRate();
-        }
+        int maxRate = getMaxRate(session, false);
 
-        InputStream is = getDataInputStream();
+        InputStream is = getDataInputStream(getRestartOffset(session));
         try {
             return transfer(session, false, is, out, maxRate);
         } finally {
@@ -149,22 +241,187 @@ public class IODataConnection implements DataConnection {
      */
     public final long transferToClient(FtpSession session, final InputStream in)
             throws IOException {
-        TransferRateRequest transferRateRequest = new TransferRateRequest();
-        transferRateRequest = (TransferRateRequest) session.getUser()
-                .authorize(transferRateRequest);
-        int maxRate = 0;
-        if (transferRateRequest != null) {
-            maxRate = transferRateRequest.getMaxDownloadRate();
+        int maxRate = getMaxRate(session, true);
+
+        OutputStream out = getDataOutputStream(getRestartOffset(session));
+        try {
+            return transfer(session, true, in, out, maxRate);
+        } finally {
+            IoUtils.close(out);
+        }
+    }
+
+    /**
+     * @see ServerDataConnection#transferFromClient(FtpSession, WritableByteChannel)
+     */
+    public final long transferFromClient(final FtpSession session,
+            final WritableByteChannel out) throws IOException {
+        int maxRate = getMaxRate(session, false);
+        if (!isChannelTransfer(session, maxRate)) {
+            return transferFromClient(session, Channels.newOutputStream(out));
+        }
+
+        InputStream is = getDataInputStream();
+        try {
+            SocketChannel source = socket.getChannel();
+            if (out instanceof FileChannel && source != null) {
+                return transferFrom(session, source, (FileChannel) out);
+            }
+            return transferFrom(session, is, out);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Exception during data transfer, closing data connection socket", e);
+            factory.closeDataConnection();
+            throw e;
+        } finally {
+            IoUtils.close(is);
+        }
+    }
+
+    /**
+     * @see ServerDataConnection#transferToClient(FtpSession, ReadableByteChannel)
+     */
+    public final long transferToClient(final FtpSession session,
+            final ReadableByteChannel in) throws IOException {
+        int maxRate = getMaxRate(session, true);
+        if (!isChannelTransfer(session, maxRate)) {
+            return transferToClient(session, Channels.newInputStream(in));
         }
 
         OutputStream out = getDataOutputStream();
         try {
-            return transfer(session, true, in, out, maxRate);
+            SocketChannel target = socket.getChannel();
+            if (in instanceof FileChannel && target != null) {
+                return transferTo(session, (FileChannel) in, target);
+            }
+            return transferTo(session, in, out);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Exception during data transfer, closing data connection socket", e);
+            factory.closeDataConnection();
+            throw e;
         } finally {
             IoUtils.close(out);
         }
     }
 
+    /**
+     * Get the maximum transfer rate of the user of the session
+     * 
+     * @return The rate in bytes per second, 0 if unlimited
+     */
+    private int getMaxRate(final FtpSession session, final boolean download) {
+        TransferRateRequest transferRateRequest = new TransferRateRequest();
+        transferRateRequest = (TransferRateRequest) session.getUser()
+                .authorize(transferRateRequest);
+        if (transferRateRequest == null) {
+            return 0;
+        }
+        return download ? transferRateRequest.getMaxDownloadRate()
+                : transferRateRequest.getMaxUploadRate();
+    }
+
+    /**
+     * Channels are only used for the data as it is, ASCII conversion,
+     * compression, blocks and rate limiting go through the stream transfer
+     */
+    private boolean isChannelTransfer(final FtpSession session,
+            final int maxRate) {
+        return session.getDataType() != DataType.ASCII
+                && !factory.isZipMode() && !factory.isBlockMode()
+                && maxRate <= 0;
+    }
+
+    /**
+     * Send a file without copying it through the JVM, with sendfile where
+     * the platform supports it
+     */
+    private long transferTo(final FtpSession session, final FileChannel in,
+            final SocketChannel out) throws IOException {
+        long position = in.position();
+        long transferredSize = 0L;
+        long count;
+        while ((count = in.transferTo(position, CHANNEL_TRANSFER_SIZE, out)) > 0) {
+            position += count;
+            transferredSize += count;
+            increaseDataBytes(session, true, count);
+        }
+        in.position(position);
+        return transferredSize;
+    }
+
+    /**
+     * Receive a file without copying it through the JVM
+     */
+    private long transferFrom(final FtpSession session,
+            final SocketChannel in, final FileChannel out) throws IOException {
+        long position = out.position();
+        long transferredSize = 0L;
+        long count;
+        while ((count = out.transferFrom(in, position, CHANNEL_TRANSFER_SIZE)) > 0) {
+            position += count;
+            transferredSize += count;
+            increaseDataBytes(session, false, count);
+        }
+        out.position(position);
+        return transferredSize;
+    }
+
+    /**
+     * Copy from a channel to the socket stream through a single buffer,
+     * without the intermediate buffered streams of the stream transfer
+     */
+    private long transferTo(final FtpSession session,
+            final ReadableByteChannel in, final OutputStream out)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_TRANSFER_SIZE);
+        long transferredSize = 0L;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            if (count == 0) {
+                continue;
+            }
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+            transferredSize += count;
+            increaseDataBytes(session, true, count);
+        }
+        out.flush();
+        return transferredSize;
+    }
+
+    /**
+     * Copy from the socket stream to a channel through a single buffer
+     */
+    private long transferFrom(final FtpSession session, final InputStream in,
+            final WritableByteChannel out) throws IOException {
+        byte[] buff = new byte[CHANNEL_TRANSFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(buff);
+        long transferredSize = 0L;
+        int count;
+        while ((count = in.read(buff)) != -1) {
+            buffer.limit(count);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+            transferredSize += count;
+            increaseDataBytes(session, false, count);
+        }
+        return transferredSize;
+    }
+
+    private void increaseDataBytes(final FtpSession session,
+            final boolean isWrite, final long count) {
+        if (session instanceof DefaultFtpSession) {
+            DefaultFtpSession defaultFtpSession = (DefaultFtpSession) session;
+            if (isWrite) {
+                defaultFtpSession.increaseWrittenDataBytes((int) count);
+            } else {
+                defaultFtpSession.increaseReadDataBytes((int) count);
+            }
+        }
+        notifyObserver();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -174,24 +431,293 @@ public class IODataConnection implements DataConnection {
      */
     public final void transferToClient(FtpSession session, final String str)
             throws IOException {
-        OutputStream out = getDataOutputStream();
+        transferToClient(session, writer -> writer.write(str));
+    }
+
+    /**
+     * @see ServerDataConnection#transferToClient(FtpSession, TextSource)
+     */
+    public final long transferToClient(final FtpSession session,
+            final TextSource source) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(
+                getDataOutputStream(), session);
         Writer writer = null;
         try {
+            // the writer encodes through its own fixed size buffer, which is
+            // flushed to the socket whenever it fills up
             writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            writer.write(str);
+            source.writeTo(writer);
+            writer.flush();
+        } catch(IOException e) {
+            LOG.warn("Exception during data transfer, closing data connection socket", e);
+            factory.closeDataConnection();
+            throw e;
+        } finally {
+            IoUtils.close(writer);
+        }
 
-            // update session
-            if (session instanceof DefaultFtpSession) {
-                ((DefaultFtpSession) session).increaseWrittenDataBytes(str
-                        .getBytes(StandardCharsets.UTF_8).length);
+        notifyObserver();
+        return out.count;
+    }
+
+    /**
+     * @see ServerDataConnection#writeToClient(FtpSession, BinarySource)
+     */
+    public final long writeToClient(final FtpSession session,
+            final BinarySource source) throws IOException {
+        int maxRate = getMaxRate(session, true);
+        CountingOutputStream out = new CountingOutputStream(
+                getDataOutputStream(), session);
+        OutputStream bos = null;
+        try {
+            OutputStream target = out;
+            if (maxRate > 0) {
+                target = new RateLimitedOutputStream(out, maxRate);
             }
+            bos = new BufferedOutputStream(target, CHANNEL_TRANSFER_SIZE);
+            source.writeTo(bos);
+            bos.flush();
+        } catch(IOException e) {
+            LOG.warn("Exception during data transfer, closing data connection socket", e);
+            factory.closeDataConnection();
+            throw e;
         } finally {
-            if (writer != null) {
-                writer.flush();
+            IoUtils.close(bos);
+        }
+
+        notifyObserver();
+        return out.count;
+    }
+
+    /**
+     * @see ServerDataConnection#readFromClient(FtpSession, BinarySink)
+     */
+    public final long readFromClient(final FtpSession session,
+            final BinarySink sink) throws IOException {
+        int maxRate = getMaxRate(session, false);
+        CountingInputStream in = new CountingInputStream(
+                getDataInputStream(), session);
+        InputStream bis = null;
+        try {
+            InputStream source = in;
+            if (maxRate > 0) {
+                source = new RateLimitedInputStream(in, maxRate);
             }
-            IoUtils.close(writer);
+            bis = new BufferedInputStream(source, CHANNEL_TRANSFER_SIZE);
+            sink.readFrom(bis);
+
+            // read up to the end of file block, for the connection to be
+            // used again
+            if (blockIn != null) {
+                byte[] buff = new byte[4096];
+                while (bis.read(buff) != -1) {
+                    // discard what follows the data the sink read
+                }
+            }
+        } catch(IOException e) {
+            LOG.warn("Exception during data transfer, closing data connection socket", e);
+            factory.closeDataConnection();
+            throw e;
+        } finally {
+            IoUtils.close(bis);
+        }
+
+        notifyObserver();
+        return in.count;
+    }
+
+    /**
+     * Holds back the writes which would exceed a transfer rate
+     */
+    private static class RateLimitedOutputStream extends FilterOutputStream {
+
+        private final int maxRate;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private long count;
+
+        public RateLimitedOutputStream(OutputStream out, int maxRate) {
+            super(out);
+            this.maxRate = maxRate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            await();
+            out.write(b);
+            count++;
         }
 
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            await();
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private void await() throws IOException {
+            awaitRate(startTime, count, maxRate);
+        }
+    }
+
+    /**
+     * Holds back the reads which would exceed a transfer rate
+     */
+    private static class RateLimitedInputStream extends FilterInputStream {
+
+        private final int maxRate;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private long count;
+
+        public RateLimitedInputStream(InputStream in, int maxRate) {
+            super(in);
+            this.maxRate = maxRate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            awaitRate(startTime, count, maxRate);
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            awaitRate(startTime, count, maxRate);
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Sleep until the bytes transferred since the start time are within the
+     * rate, as the stream transfer does
+     */
+    private static void awaitRate(final long startTime, final long count,
+            final int maxRate) throws IOException {
+        while (true) {
+            // prevent "divide by zero" exception
+            long interval = Math.max(1, System.currentTimeMillis()
+                    - startTime);
+            if ((count * 1000L) / interval <= maxRate) {
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read, and adds them to the read data bytes of the
+     * session
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final DefaultFtpSession session;
+
+        private long count;
+
+        public CountingInputStream(InputStream in, FtpSession session) {
+            super(in);
+            if (session instanceof DefaultFtpSession) {
+                this.session = (DefaultFtpSession) session;
+            } else {
+                this.session = null;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                count += skipped;
+                if (session != null) {
+                    session.increaseReadDataBytes((int) skipped);
+                }
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(int len) {
+            count += len;
+            if (session != null) {
+                session.increaseReadDataBytes(len);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written, and adds them to the written data bytes of the
+     * session
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private final DefaultFtpSession session;
+
+        private long count;
+
+        public CountingOutputStream(OutputStream out, FtpSession session) {
+            super(out);
+            if (session instanceof DefaultFtpSession) {
+                this.session = (DefaultFtpSession) session;
+            } else {
+                this.session = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count(len);
+        }
+
+        private void count(int len) {
+            count += len;
+            if (session != null) {
+                session.increaseWrittenDataBytes(len);
+            }
+        }
     }
 
     private final long transfer(FtpSession session, boolean isWrite,
@@ -31,7 +31,6 @@ import javax.net.ssl.SSLSocketFactory;
 
 import org.apache.ftpserver.DataConnectionConfiguration;
 import org.apache.ftpserver.DataConnectionException;
-import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ssl.ClientAuth;
 import org.apache.ftpserver.ssl.SslConfiguration;
@@ -42,6 +41,12 @@ import org.slf4j.LoggerFactory;
  * <strong>Internal class, do not use directly.</strong>
  * 
  * We can get the FTP data connection using this class. It uses either PORT or PASV command.
+ * 
+ * In block mode, a data connection over which a transfer completed is kept
+ * open when the transfer closes it, and is used by the next transfer instead
+ * of a new one. It is closed by {@link #dispose()}, by a new
+ * <code>PORT</code> or <code>PASV</code>, after a failed transfer, or once it
+ * has been idle for the idle time of the data connections.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -67,6 +72,15 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
 
     private boolean isZip = false;
 
+    private boolean isBlock = false;
+
+    // the connection of the current transfer
+    private IODataConnection connection;
+
+    // when the data connection kept open in block mode was last used, 0 if
+    // none is kept
+    private long idleSince = 0L;
+
     InetAddress serverControlAddress;
 
     FtpIoSession session;
@@ -81,8 +95,37 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
 
     /**
      * Close data socket. This method must be idempotent as we might call it multiple times during disconnect.
+     * In block mode, the data connection is kept open if the transfer over it completed.
      */
     public synchronized void closeDataConnection() {
+        if (isKeptOpen()) {
+            LOG.debug("Keeping block mode data connection open");
+            connection = null;
+            idleSince = System.currentTimeMillis();
+            return;
+        }
+        if (isBlock && connection == null && idleSince != 0L
+                && dataSoc != null && !dataSoc.isClosed()) {
+            // no transfer since the connection was kept
+            return;
+        }
+        closeSockets();
+    }
+
+    /**
+     * @see org.apache.ftpserver.impl.ServerDataConnectionFactory#isKeptOpen()
+     */
+    public synchronized boolean isKeptOpen() {
+        return isBlock && dataSoc != null && !dataSoc.isClosed()
+                && connection != null && connection.isReusable();
+    }
+
+    /**
+     * Close the sockets, whatever the mode
+     */
+    private synchronized void closeSockets() {
+    connection = null;
+    idleSince = 0L;
 
     // close client socket if any
     if (dataSoc != null) {
@@ -121,7 +164,7 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
      */
     public synchronized void initActiveDataConnection(final InetSocketAddress address) {
         // close old sockets if any
-        closeDataConnection();
+        closeSockets();
     
         // set variables
         passive = false;
@@ -149,7 +192,7 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
     public synchronized InetSocketAddress initPassiveDataConnection() throws DataConnectionException {
         LOG.debug("Initiating passive data connection");
         // close old sockets if any
-        closeDataConnection();
+        closeSockets();
     
         // get the passive port
         int passivePort = session.getListener().getDataConnectionConfiguration().requestPassivePort();
@@ -227,8 +270,33 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
      * 
      * @see org.apache.ftpserver.FtpDataConnectionFactory2#openConnection()
      */
-    public DataConnection openConnection() throws Exception {
-        return new IODataConnection(createDataSocket(), session, this);
+    public ServerDataConnection openConnection() throws Exception {
+        Socket socket = reuseDataSocket();
+        if (socket == null) {
+            socket = createDataSocket();
+        }
+        IODataConnection dataConnection = new IODataConnection(socket, session, this);
+        synchronized (this) {
+            connection = dataConnection;
+        }
+        return dataConnection;
+    }
+
+    /**
+     * Get the data socket kept open in block mode
+     * 
+     * @return The socket, null if none is kept
+     */
+    private synchronized Socket reuseDataSocket() {
+        if (idleSince == 0L) {
+            return null;
+        }
+        idleSince = 0L;
+        if (dataSoc == null || dataSoc.isClosed()) {
+            return null;
+        }
+        LOG.debug("Reusing block mode data connection");
+        return dataSoc;
     }
 
     /**
@@ -410,6 +478,35 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
     isZip = zip;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.ftpserver.impl.ServerDataConnectionFactory#isBlockMode()
+     */
+    public boolean isBlockMode() {
+    return isBlock;
+    }
+
+    /**
+     * Set block mode.
+     */
+    public void setBlockMode(final boolean block) {
+    isBlock = block;
+    }
+
+    /**
+     * @see org.apache.ftpserver.impl.ServerDataConnectionFactory#isIdleTimeout(long)
+     */
+    public synchronized boolean isIdleTimeout(final long currTime) {
+    // no data connection kept open in block mode
+    if (idleSince == 0L) {
+        return false;
+    }
+
+    int maxIdleTime = session.getListener().getDataConnectionConfiguration().getIdleTime() * 1000;
+    return maxIdleTime != 0 && (currTime - idleSince) >= maxIdleTime;
+    }
+
     /**
      * Check the data connection idle status.
      */
@@ -443,7 +540,7 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
      * Dispose data connection - close all the sockets.
      */
     public void dispose() {
-    closeDataConnection();
+    closeSockets();
     }
 
     /**
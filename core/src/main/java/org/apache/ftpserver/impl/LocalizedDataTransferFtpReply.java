@@ -21,6 +21,7 @@ package org.apache.ftpserver.impl;
 
 import org.apache.ftpserver.ftplet.DataTransferFtpReply;
 import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
 import org.apache.ftpserver.ftplet.FtpRequest;
 
 /**
@@ -71,6 +72,20 @@ public class LocalizedDataTransferFtpReply extends LocalizedFtpReply implements
         return bytesTransferred;
     }
 
+    /**
+     * Returns the reply code of a completed data transfer, 250 if the data
+     * connection is kept open for the next transfer in block mode and 226 if
+     * it is closed.
+     * 
+     * @param session
+     *            the FTP session
+     * @return the reply code
+     */
+    public static int getTransferCompleteCode(FtpIoSession session) {
+        return session.getDataConnection().isKeptOpen() ? FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY
+                : FtpReply.REPLY_226_CLOSING_DATA_CONNECTION;
+    }
+
     /**
      * Returns the localized reply that contains all details about the data
      * transfer.
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.executor.IoEventQueueHandler;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * Tracks how long sessions wait for a free worker of the command executor
+ * and decides when the server should start shedding load. When a session
+ * has been waiting longer than the connection threshold, new connections are
+ * refused with a 421 reply. When it has been waiting longer than the
+ * transfer threshold, new data transfer commands are refused with a 450
+ * reply. Transfers already in progress are never interrupted.
+ *
+ * Only sessions with no command running count as waiting. The executor runs
+ * the events of a session in order, so the events of a session queued behind
+ * its own running command, such as a long transfer, wait for that command
+ * and not for a worker.
+ *
+ * The executor must report the end of each event with
+ * {@link #completed(Object, IoEvent)}.
+ *
+ * A threshold of 0 or less disables the corresponding check.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class OverloadMonitor implements IoEventQueueHandler {
+
+    /**
+     * Minimum number of milliseconds between two scans of the waiting
+     * sessions
+     */
+    private static final long DEFAULT_SCAN_INTERVAL = 100;
+
+    private final long connectionThreshold;
+
+    private final long transferThreshold;
+
+    private final long scanInterval;
+
+    /**
+     * The state of each session with queued or running events, only changed
+     * within the atomic map operations
+     */
+    private final Map<IoSession, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queuedEvents = new AtomicInteger(0);
+
+    private final AtomicLong shedConnections = new AtomicLong(0L);
+
+    private final AtomicLong shedTransfers = new AtomicLong(0L);
+
+    private volatile long lastScanTime;
+
+    private volatile long longestWait = 0L;
+
+    private static class SessionState {
+
+        private int queued;
+
+        private boolean running;
+
+        // when the session started waiting for a worker, in nano seconds, 0
+        // if it is not waiting
+        private volatile long waitingSince;
+    }
+
+    /**
+     * Create a monitor with the provided thresholds
+     *
+     * @param connectionThreshold
+     *            The time, in milliseconds, a session may wait for a worker
+     *            before new connections are refused
+     * @param transferThreshold
+     *            The time, in milliseconds, a session may wait for a worker
+     *            before new transfers are refused
+     */
+    public OverloadMonitor(long connectionThreshold, long transferThreshold) {
+        this(connectionThreshold, transferThreshold, DEFAULT_SCAN_INTERVAL);
+    }
+
+    OverloadMonitor(long connectionThreshold, long transferThreshold,
+            long scanInterval) {
+        this.connectionThreshold = connectionThreshold;
+        this.transferThreshold = transferThreshold;
+        this.scanInterval = scanInterval;
+        this.lastScanTime = System.nanoTime()
+                - TimeUnit.MILLISECONDS.toNanos(scanInterval);
+    }
+
+    /**
+     * Is any of the overload checks enabled
+     *
+     * @return true if connections or transfers might be shed
+     */
+    public boolean isEnabled() {
+        return connectionThreshold > 0 || transferThreshold > 0;
+    }
+
+    /**
+     * Record the event as queued. A session with no queued or running event
+     * starts waiting for a worker. The executor calls this before queueing
+     * the event, while {@link #offered(Object, IoEvent)} is only called once
+     * a worker may already have polled it.
+     * 
+     * @see IoEventQueueHandler#accept(Object, IoEvent)
+     */
+    public boolean accept(Object source, IoEvent event) {
+        final long now = System.nanoTime();
+        sessions.compute(event.getSession(), (session, state) -> {
+            if (state == null) {
+                state = new SessionState();
+            }
+            if (!state.running && state.queued == 0) {
+                state.waitingSince = now;
+            }
+            state.queued++;
+            return state;
+        });
+        queuedEvents.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @see IoEventQueueHandler#offered(Object, IoEvent)
+     */
+    public void offered(Object source, IoEvent event) {
+        // the event was recorded when accepted
+    }
+
+    /**
+     * Record the event as running, the session no longer waits for a worker
+     * 
+     * @see IoEventQueueHandler#polled(Object, IoEvent)
+     */
+    public void polled(Object source, IoEvent event) {
+        sessions.computeIfPresent(event.getSession(), (session, state) -> {
+            state.queued--;
+            state.running = true;
+            state.waitingSince = 0L;
+            return state;
+        });
+        queuedEvents.decrementAndGet();
+    }
+
+    /**
+     * Record the end of an event polled from the queue. The worker goes on
+     * with the next queued event of the session, if any.
+     * 
+     * @param source
+     *            The executor
+     * @param event
+     *            The event
+     */
+    public void completed(Object source, IoEvent event) {
+        sessions.computeIfPresent(event.getSession(), (session, state) -> {
+            state.running = false;
+            return state.queued == 0 ? null : state;
+        });
+    }
+
+    /**
+     * Get the number of events currently waiting in the executor queue
+     *
+     * @return The number of queued events
+     */
+    public int getQueuedEventCount() {
+        return queuedEvents.get();
+    }
+
+    /**
+     * Get the number of sessions with queued or running events
+     *
+     * @return The number of sessions
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Get the longest time a session with no running command has been
+     * waiting for a worker. The value is recalculated at most every 100
+     * milliseconds.
+     *
+     * @return The time in milliseconds, 0 if no session is waiting
+     */
+    public long getLongestWait() {
+        long now = System.nanoTime();
+        if (now - lastScanTime >= TimeUnit.MILLISECONDS.toNanos(scanInterval)) {
+            long oldest = now;
+            for (SessionState state : sessions.values()) {
+                long waitingSince = state.waitingSince;
+                if (waitingSince != 0L && waitingSince < oldest) {
+                    oldest = waitingSince;
+                }
+            }
+            longestWait = TimeUnit.NANOSECONDS.toMillis(now - oldest);
+            lastScanTime = now;
+        }
+        return longestWait;
+    }
+
+    /**
+     * Should a new connection be refused
+     *
+     * @return true if the connection threshold has been exceeded
+     */
+    public boolean isConnectionOverloaded() {
+        return connectionThreshold > 0
+                && getLongestWait() > connectionThreshold;
+    }
+
+    /**
+     * Should a new data transfer be refused
+     *
+     * @return true if the transfer threshold has been exceeded
+     */
+    public boolean isTransferOverloaded() {
+        return transferThreshold > 0
+                && getLongestWait() > transferThreshold;
+    }
+
+    /**
+     * Record that a connection has been refused
+     */
+    public void connectionShed() {
+        shedConnections.incrementAndGet();
+    }
+
+    /**
+     * Record that a transfer command has been refused
+     */
+    public void transferShed() {
+        shedTransfers.incrementAndGet();
+    }
+
+    /**
+     * Get the number of connections refused since the server started
+     *
+     * @return The number of refused connections
+     */
+    public long getShedConnectionNumber() {
+        return shedConnections.get();
+    }
+
+    /**
+     * Get the number of transfer commands refused since the server started
+     *
+     * @return The number of refused transfer commands
+     */
+    public long getShedTransferNumber() {
+        return shedTransfers.get();
+    }
+
+    /**
+     * Get the wait for a worker above which new connections are refused
+     *
+     * @return The threshold in milliseconds
+     */
+    public long getConnectionThreshold() {
+        return connectionThreshold;
+    }
+
+    /**
+     * Get the wait for a worker above which new transfers are refused
+     *
+     * @return The threshold in milliseconds
+     */
+    public long getTransferThreshold() {
+        return transferThreshold;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.ftpserver.ftplet.DataConnection;
+import org.apache.ftpserver.ftplet.FtpSession;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * Data connection with the additional transfer methods used by the built-in
+ * commands.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ *
+ */
+public interface ServerDataConnection extends DataConnection {
+
+    /**
+     * Produces text, such as a directory listing, piece by piece
+     */
+    interface TextSource {
+
+        /**
+         * Write the text
+         * 
+         * @param writer
+         *            The writer to write the text to, must not be closed
+         * @throws IOException
+         */
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Produces binary data, such as an archive, piece by piece
+     */
+    interface BinarySource {
+
+        /**
+         * Write the data
+         * 
+         * @param out
+         *            The stream to write the data to, must not be closed
+         * @throws IOException
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Consumes binary data, such as an archive, piece by piece
+     */
+    interface BinarySink {
+
+        /**
+         * Read the data
+         * 
+         * @param in
+         *            The stream to read the data from, must not be closed
+         * @throws IOException
+         */
+        void readFrom(InputStream in) throws IOException;
+    }
+
+    /**
+     * Transfer text to the client as it is produced, e.g. during LIST. Unlike
+     * {@link #transferToClient(FtpSession, String)} the text is never held in
+     * memory as a whole, it is encoded to UTF-8 through a fixed size buffer
+     * and sent while the source is still writing.
+     * 
+     * @param session
+     *            The current {@link FtpSession}
+     * @param source
+     *            The source of the text
+     * @return The number of bytes transferred
+     * @throws IOException
+     */
+    long transferToClient(FtpSession session, TextSource source)
+            throws IOException;
+
+    /**
+     * Transfer binary data to the client as it is produced, e.g. an archive
+     * of a directory. The data is sent as it is, whatever the data type, and
+     * is never held in memory as a whole. The download rate of the user is
+     * applied.
+     * 
+     * @param session
+     *            The current {@link FtpSession}
+     * @param source
+     *            The source of the data
+     * @return The number of bytes transferred
+     * @throws IOException
+     */
+    long writeToClient(FtpSession session, BinarySource source)
+            throws IOException;
+
+    /**
+     * Transfer binary data from the client to a consumer reading it as it
+     * arrives, e.g. an archive extracted while it is uploaded. The data is
+     * read as it is, whatever the data type. The upload rate of the user is
+     * applied.
+     * 
+     * @param session
+     *            The current {@link FtpSession}
+     * @param sink
+     *            The consumer of the data
+     * @return The number of bytes transferred
+     * @throws IOException
+     */
+    long readFromClient(FtpSession session, BinarySink sink)
+            throws IOException;
+
+    /**
+     * Transfer data from the client to a channel, e.g. STOR to a file system
+     * supporting {@link org.apache.ftpserver.ftplet.FtpFile#openWritableChannel(long)}.
+     * Binary transfers are written to the channel directly, or with
+     * {@link java.nio.channels.FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)}
+     * if possible, other transfers go through the same stream based path as
+     * {@link #transferFromClient(FtpSession, java.io.OutputStream)}.
+     * 
+     * @param session
+     *            The current {@link FtpSession}
+     * @param out
+     *            The channel to write the data from the client to
+     * @return The number of bytes transferred
+     * @throws IOException
+     */
+    long transferFromClient(FtpSession session, WritableByteChannel out)
+            throws IOException;
+
+    /**
+     * Transfer data from a channel to the client, e.g. RETR from a file system
+     * supporting {@link org.apache.ftpserver.ftplet.FtpFile#openReadableChannel(long)}.
+     * Binary transfers are read from the channel directly, or with
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * if possible, other transfers go through the same stream based path as
+     * {@link #transferToClient(FtpSession, java.io.InputStream)}.
+     * 
+     * @param session
+     *            The current {@link FtpSession}
+     * @param in
+     *            The channel to read the data for the client from
+     * @return The number of bytes transferred
+     * @throws IOException
+     */
+    long transferToClient(FtpSession session, ReadableByteChannel in)
+            throws IOException;
+}
@@ -33,6 +33,14 @@ import org.apache.ftpserver.ftplet.DataConnectionFactory;
  */
 public interface ServerDataConnectionFactory extends DataConnectionFactory {
 
+    /**
+     * Open an active data connection
+     * 
+     * @return The open data connection
+     * @throws Exception
+     */
+    ServerDataConnection openConnection() throws Exception;
+
     /**
      * Port command.
      */
@@ -59,13 +67,34 @@ public interface ServerDataConnectionFactory extends DataConnectionFactory {
 
     void setZipMode(boolean zip);
 
+    /**
+     * Set block mode. In block mode the data connection is kept open by
+     * {@link #closeDataConnection()} after a complete transfer, and used by
+     * the next transfer.
+     */
+    void setBlockMode(boolean block);
+
+    /**
+     * Will {@link #closeDataConnection()} keep the data connection open, as
+     * the transfer over it completed in block mode
+     */
+    boolean isKeptOpen();
+
     /**
      * Check the data connection idle status.
      */
     boolean isTimeout(long currTime);
 
     /**
-     * Dispose data connection - close all the sockets.
+     * Check whether the data connection kept open in block mode has been
+     * idle for longer than the data connection idle time. Always false if
+     * no connection is kept.
+     */
+    boolean isIdleTimeout(long currTime);
+
+    /**
+     * Dispose data connection - close all the sockets, including a data
+     * connection kept open in block mode.
      */
     void dispose();
 
@@ -79,6 +108,11 @@ public interface ServerDataConnectionFactory extends DataConnectionFactory {
      */
     boolean isZipMode();
 
+    /**
+     * Is block mode?
+     */
+    boolean isBlockMode();
+
     /**
      * Get client address.
      */
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.listener.Listener;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * Registry of the sessions connected to the server, indexed by listener, by
+ * remote IP address and, once logged in, by user name. The indexes are
+ * maintained when sessions are created, log in, log out and close, so that
+ * counting and iterating sessions never needs to walk the MINA managed sessions
+ * or to create new {@link FtpIoSession} wrappers.
+ *
+ * All lookups are lock free. The collections returned are unmodifiable. The
+ * one returned by {@link #getSessions()} is a live view of all later changes.
+ * The ones returned for a listener, an address or a user reflect later changes
+ * only while that key keeps at least one session: once its last session is
+ * removed, the key is dropped and sessions added for it later are not seen by
+ * the earlier views. Look the sessions up again instead of keeping them.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SessionRegistry {
+
+    /**
+     * What the registry remembers about a session, so that it can be removed
+     * from the indexes even if the session has changed since it was added
+     */
+    private static class Entry {
+        private final FtpIoSession session;
+
+        private final Listener listener;
+
+        private final InetAddress address;
+
+        private volatile String userName;
+
+        public Entry(FtpIoSession session, Listener listener,
+                InetAddress address) {
+            this.session = session;
+            this.listener = listener;
+            this.address = address;
+        }
+    }
+
+    /**
+     * The sessions of a logged in user
+     */
+    private static class UserSessions {
+        private final Map<Long, FtpIoSession> sessions = new ConcurrentHashMap<>();
+
+        private final Map<InetAddress, Integer> perAddress = new ConcurrentHashMap<>();
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<Long, FtpIoSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<Listener, Map<Long, FtpIoSession>> listenerSessions = new ConcurrentHashMap<>();
+
+    private final Map<InetAddress, Map<Long, FtpIoSession>> addressSessions = new ConcurrentHashMap<>();
+
+    private final Map<String, UserSessions> userSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Add a newly created session. The listener of the session must already
+     * be set.
+     *
+     * @param session
+     *            The session
+     */
+    public void register(final FtpIoSession session) {
+        Long id = session.getId();
+        Entry entry = new Entry(session, session.getListener(),
+                getInetAddress(session));
+        entries.put(id, entry);
+        sessions.put(id, session);
+
+        if (entry.listener != null) {
+            add(listenerSessions, entry.listener, id, session);
+        }
+        if (entry.address != null) {
+            add(addressSessions, entry.address, id, session);
+        }
+    }
+
+    /**
+     * Remove a closed session from all indexes
+     *
+     * @param session
+     *            The session
+     */
+    public void unregister(final FtpIoSession session) {
+        Long id = session.getId();
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        logout(entry);
+        sessions.remove(id);
+
+        if (entry.listener != null) {
+            remove(listenerSessions, entry.listener, id);
+        }
+        if (entry.address != null) {
+            remove(addressSessions, entry.address, id);
+        }
+    }
+
+    /**
+     * Index a session under the name of the user it just logged in as
+     *
+     * @param session
+     *            The session
+     */
+    public void login(final FtpIoSession session) {
+        tryLogin(session, 0, 0);
+    }
+
+    /**
+     * Index a session under the name of the user it logs in as, unless the
+     * user already has as many sessions as allowed. The limits are checked
+     * and the session added at once, so concurrent logins of the same user
+     * can not exceed them.
+     *
+     * @param session
+     *            The session, with its user set
+     * @param maxPerUser
+     *            The maximum number of sessions of the user, 0 for no limit
+     * @param maxPerAddress
+     *            The maximum number of sessions of the user from the remote
+     *            IP address of the session, 0 for no limit
+     * @return false if a limit was reached
+     */
+    public boolean tryLogin(final FtpIoSession session, final int maxPerUser,
+            final int maxPerAddress) {
+        User user = session.getUser();
+        final Entry entry = entries.get(session.getId());
+        if (user == null || entry == null) {
+            // nothing to count the session against
+            return true;
+        }
+
+        // a session can only be logged in as one user at a time
+        logout(entry);
+
+        final Long id = session.getId();
+        final boolean[] added = new boolean[1];
+        userSessions.compute(user.getName(), (name, current) -> {
+            UserSessions logins = current == null ? new UserSessions() : current;
+            if (maxPerUser != 0 && logins.sessions.size() >= maxPerUser) {
+                return current;
+            }
+            if (maxPerAddress != 0 && entry.address != null) {
+                Integer count = logins.perAddress.get(entry.address);
+                if (count != null && count >= maxPerAddress) {
+                    return current;
+                }
+            }
+
+            logins.sessions.put(id, entry.session);
+            if (entry.address != null) {
+                logins.perAddress.merge(entry.address, 1, Integer::sum);
+            }
+            added[0] = true;
+            return logins;
+        });
+        if (added[0]) {
+            entry.userName = user.getName();
+        }
+        return added[0];
+    }
+
+    /**
+     * Remove a session from the user index, the session is still registered
+     *
+     * @param session
+     *            The session
+     */
+    public void logout(final FtpIoSession session) {
+        Entry entry = entries.get(session.getId());
+        if (entry != null) {
+            logout(entry);
+        }
+    }
+
+    private void logout(final Entry entry) {
+        String userName = entry.userName;
+        if (userName == null) {
+            return;
+        }
+        entry.userName = null;
+
+        final Long id = entry.session.getId();
+        userSessions.computeIfPresent(userName, (name, logins) -> {
+            if (logins.sessions.remove(id) != null && entry.address != null) {
+                logins.perAddress.computeIfPresent(entry.address,
+                        (address, count) -> count > 1 ? count - 1 : null);
+            }
+            return logins.sessions.isEmpty() ? null : logins;
+        });
+    }
+
+    /**
+     * Get all registered sessions
+     *
+     * @return The sessions, never null
+     */
+    public Collection<FtpIoSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Get the sessions accepted by a listener
+     *
+     * @param listener
+     *            The listener
+     * @return The sessions, never null, see the class documentation for how
+     *         long they reflect changes
+     */
+    public Collection<FtpIoSession> getSessions(final Listener listener) {
+        return values(listenerSessions.get(listener));
+    }
+
+    /**
+     * Get the sessions connected from a remote IP address
+     *
+     * @param address
+     *            The remote address
+     * @return The sessions, never null, see the class documentation for how
+     *         long they reflect changes
+     */
+    public Collection<FtpIoSession> getSessions(final InetAddress address) {
+        return values(addressSessions.get(address));
+    }
+
+    /**
+     * Get the sessions logged in as a user
+     *
+     * @param userName
+     *            The user name
+     * @return The sessions, never null, see the class documentation for how
+     *         long they reflect changes
+     */
+    public Collection<FtpIoSession> getUserSessions(final String userName) {
+        UserSessions logins = userSessions.get(userName);
+        return logins == null ? Collections.<FtpIoSession> emptyList()
+                : values(logins.sessions);
+    }
+
+    /**
+     * Get the number of registered sessions
+     *
+     * @return The number of sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Get the number of sessions connected from a remote IP address
+     *
+     * @param address
+     *            The remote address
+     * @return The number of sessions
+     */
+    public int getSessionCount(final InetAddress address) {
+        Map<Long, FtpIoSession> addressMap = addressSessions.get(address);
+        return addressMap == null ? 0 : addressMap.size();
+    }
+
+    /**
+     * Get the number of sessions logged in as a user
+     *
+     * @param userName
+     *            The user name
+     * @return The number of sessions
+     */
+    public int getUserLoginCount(final String userName) {
+        UserSessions logins = userSessions.get(userName);
+        return logins == null ? 0 : logins.sessions.size();
+    }
+
+    /**
+     * Get the number of sessions logged in as a user from a remote IP address
+     *
+     * @param userName
+     *            The user name
+     * @param address
+     *            The remote address
+     * @return The number of sessions
+     */
+    public int getUserLoginCount(final String userName,
+            final InetAddress address) {
+        UserSessions logins = userSessions.get(userName);
+        if (logins == null || address == null) {
+            return 0;
+        }
+        Integer count = logins.perAddress.get(address);
+        return count == null ? 0 : count;
+    }
+
+    private static <K> void add(Map<K, Map<Long, FtpIoSession>> index, K key,
+            final Long id, final FtpIoSession session) {
+        index.compute(key, (k, keySessions) -> {
+            Map<Long, FtpIoSession> updated = keySessions == null
+                    ? new ConcurrentHashMap<>() : keySessions;
+            updated.put(id, session);
+            return updated;
+        });
+    }
+
+    private static <K> void remove(Map<K, Map<Long, FtpIoSession>> index,
+            K key, final Long id) {
+        index.computeIfPresent(key, (k, keySessions) -> {
+            keySessions.remove(id);
+            return keySessions.isEmpty() ? null : keySessions;
+        });
+    }
+
+    private static Collection<FtpIoSession> values(
+            Map<Long, FtpIoSession> map) {
+        if (map == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(map.values());
+    }
+
+    private static InetAddress getInetAddress(FtpIoSession session) {
+        SocketAddress address = session.getRemoteAddress();
+        if (address instanceof InetSocketAddress) {
+            return ((InetSocketAddress) address).getAddress();
+        }
+        return null;
+    }
+}
@@ -25,6 +25,9 @@ import java.net.InetAddress;
  * <strong>Internal class, do not use directly.</strong>
  * 
  * FTP statistics observer interface.
+ * 
+ * Notifications are sent once the statistics have been updated, from the
+ * thread executing the command, so implementations must be thread safe.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -27,6 +27,7 @@ import org.apache.ftpserver.DataConnectionConfiguration;
 import org.apache.ftpserver.DataConnectionConfigurationFactory;
 import org.apache.ftpserver.FtpServerConfigurationException;
 import org.apache.ftpserver.ipfilter.SessionFilter;
+import org.apache.ftpserver.listener.nio.AbstractListener;
 import org.apache.ftpserver.listener.nio.NioListener;
 import org.apache.ftpserver.ssl.SslConfiguration;
 import org.apache.mina.filter.firewall.Subnet;
@@ -61,6 +62,11 @@ public class ListenerFactory {
      */
     private SessionFilter sessionFilter = null;
 
+    /**
+     * The number of acceptors bound to the listener port
+     */
+    private int acceptorCount = 1;
+
     /**
      * Default constructor
      */
@@ -84,6 +90,9 @@ public class ListenerFactory {
         blockedAddresses = listener.getBlockedAddresses();
         blockedSubnets = listener.getBlockedSubnets();
         this.sessionFilter = listener.getSessionFilter();
+        if (listener instanceof AbstractListener) {
+            acceptorCount = ((AbstractListener) listener).getAcceptorCount();
+        }
     }
 
     /**
@@ -104,12 +113,17 @@ public class ListenerFactory {
             }
         }
         if (blockedAddresses != null || blockedSubnets != null) {
+            if (acceptorCount > 1) {
+                throw new IllegalStateException(
+                        "Usage of multiple acceptors in combination with blockedAddesses/subnets is not supported. ");
+            }
             return new NioListener(serverAddress, port, implicitSsl, ssl,
                     dataConnectionConfig, idleTimeout, blockedAddresses,
                     blockedSubnets);
         } else {
             return new NioListener(serverAddress, port, implicitSsl, ssl,
-                    dataConnectionConfig, idleTimeout, sessionFilter);
+                    dataConnectionConfig, idleTimeout, sessionFilter,
+                    acceptorCount);
         }
     }
 
@@ -300,4 +314,31 @@ public class ListenerFactory {
     public void setSessionFilter(SessionFilter sessionFilter) {
         this.sessionFilter = sessionFilter;
     }
+
+    /**
+     * Get the number of acceptors the listener will bind to its port
+     * 
+     * @return The number of acceptors
+     */
+    public int getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    /**
+     * Set the number of acceptors the listener will bind to its port. When
+     * more than one, each acceptor gets its own selector and I/O processors
+     * and the acceptors share the port using <code>SO_REUSEPORT</code>, so
+     * that the kernel spreads incoming connections between them. Requires
+     * Java 9 or later on a platform supporting <code>SO_REUSEPORT</code>
+     * (e.g. Linux), otherwise a single acceptor is used.
+     * 
+     * @param acceptorCount
+     *            The number of acceptors, defaults to 1
+     */
+    public void setAcceptorCount(int acceptorCount) {
+        if (acceptorCount < 1) {
+            throw new IllegalArgumentException("Acceptor count must be at least 1");
+        }
+        this.acceptorCount = acceptorCount;
+    }
 }
\ No newline at end of file
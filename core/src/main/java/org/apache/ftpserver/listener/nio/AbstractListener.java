@@ -58,6 +58,8 @@ public abstract class AbstractListener implements Listener {
 
     private final DataConnectionConfiguration dataConnectionConfig;
 
+    private final int acceptorCount;
+
     /**
      * @deprecated Use the constructor with IpFilter instead. 
      * Constructor for internal use, do not use directly. Instead use {@link ListenerFactory}
@@ -75,6 +77,7 @@ public abstract class AbstractListener implements Listener {
         this.sessionFilter = createBlackListFilter(blockedAddresses, blockedSubnets);
         this.blockedAddresses = blockedAddresses;
         this.blockedSubnets = blockedSubnets;
+        this.acceptorCount = 1;
     }
     
     /**
@@ -84,6 +87,17 @@ public abstract class AbstractListener implements Listener {
             boolean implicitSsl, SslConfiguration sslConfiguration,
             DataConnectionConfiguration dataConnectionConfig, int idleTimeout,
             SessionFilter sessionFilter) {
+        this(serverAddress, port, implicitSsl, sslConfiguration,
+                dataConnectionConfig, idleTimeout, sessionFilter, 1);
+    }
+
+    /**
+     * Constructor for internal use, do not use directly. Instead use {@link ListenerFactory}
+     */
+    public AbstractListener(String serverAddress, int port,
+            boolean implicitSsl, SslConfiguration sslConfiguration,
+            DataConnectionConfiguration dataConnectionConfig, int idleTimeout,
+            SessionFilter sessionFilter, int acceptorCount) {
         this.serverAddress = serverAddress;
         this.port = port;
         this.implicitSsl = implicitSsl;
@@ -93,6 +107,7 @@ public abstract class AbstractListener implements Listener {
         this.sessionFilter = sessionFilter;
         this.blockedAddresses = null;
         this.blockedSubnets = null;
+        this.acceptorCount = acceptorCount;
     }
     
     /**
@@ -195,6 +210,16 @@ public abstract class AbstractListener implements Listener {
         return blockedSubnets;
     }
 
+    /**
+     * Get the number of acceptors bound to the listener port. When more than
+     * one, the acceptors share the port using <code>SO_REUSEPORT</code>.
+     * 
+     * @return The number of acceptors
+     */
+    public int getAcceptorCount() {
+        return acceptorCount;
+    }
+
     public SessionFilter getSessionFilter() {
         return sessionFilter;
     }
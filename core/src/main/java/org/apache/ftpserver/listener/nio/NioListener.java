@@ -23,9 +23,9 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ftpserver.DataConnectionConfiguration;
@@ -41,13 +41,11 @@ import org.apache.ftpserver.listener.ListenerFactory;
 import org.apache.ftpserver.ssl.ClientAuth;
 import org.apache.ftpserver.ssl.SslConfiguration;
 import org.apache.mina.core.session.IdleStatus;
-import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
 import org.apache.mina.filter.executor.ExecutorFilter;
 import org.apache.mina.filter.firewall.Subnet;
 import org.apache.mina.filter.logging.MdcInjectionFilter;
 import org.apache.mina.filter.ssl.SslFilter;
-import org.apache.mina.transport.socket.SocketAcceptor;
 import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,7 +61,7 @@ public class NioListener extends AbstractListener {
 
     private final Logger LOG = LoggerFactory.getLogger(NioListener.class);
 
-    private SocketAcceptor acceptor;
+    private List<NioSocketAcceptor> acceptors;
 
     private InetSocketAddress address;
 
@@ -89,6 +87,13 @@ public class NioListener extends AbstractListener {
     super(serverAddress, port, implicitSsl, sslConfiguration, dataConnectionConfig, idleTimeout, sessionFilter);
     }
 
+    /**
+     * Constructor for internal use, do not use directly. Instead use {@link ListenerFactory}
+     */
+    public NioListener(String serverAddress, int port, boolean implicitSsl, SslConfiguration sslConfiguration, DataConnectionConfiguration dataConnectionConfig, int idleTimeout, SessionFilter sessionFilter, int acceptorCount) {
+    super(serverAddress, port, implicitSsl, sslConfiguration, dataConnectionConfig, idleTimeout, sessionFilter, acceptorCount);
+    }
+
     /**
      * @see Listener#start(FtpServerContext)
      */
@@ -102,7 +107,13 @@ public class NioListener extends AbstractListener {
 
         this.context = context;
 
-        acceptor = new NioSocketAcceptor(Runtime.getRuntime().availableProcessors());
+        int acceptorCount = getAcceptorCount();
+        if (acceptorCount > 1 && !ReusePortNioSocketAcceptor.isReusePortSupported()) {
+        LOG.warn("SO_REUSEPORT is not supported on this platform, using a single acceptor instead of {}", acceptorCount);
+        acceptorCount = 1;
+        }
+
+        acceptors = new ArrayList<>(acceptorCount);
 
         if (getServerAddress() != null) {
         address = new InetSocketAddress(getServerAddress(), getPort());
@@ -110,75 +121,114 @@ public class NioListener extends AbstractListener {
         address = new InetSocketAddress(getPort());
         }
 
-        acceptor.setReuseAddress(true);
-        acceptor.getSessionConfig().setReadBufferSize(2048);
-        acceptor.getSessionConfig().setIdleTime(IdleStatus.BOTH_IDLE, getIdleTimeout());
-        // Decrease the default receiver buffer size
-        acceptor.getSessionConfig().setReceiveBufferSize(512);
+        handler.init(context, this);
+
+        if (acceptorCount == 1) {
+        acceptors.add(createAcceptor(new NioSocketAcceptor(Runtime.getRuntime().availableProcessors())));
+        } else {
+        // share the available processors between the acceptors
+        int processorCount = Math.max(1, Runtime.getRuntime().availableProcessors() / acceptorCount);
+        for (int i = 0; i < acceptorCount; i++) {
+            acceptors.add(createAcceptor(new ReusePortNioSocketAcceptor(processorCount)));
+        }
+        }
+
+        bind();
+
+    } catch (RuntimeException e) {
+        // clean up if we fail to start
+        stop();
+
+        throw e;
+    }
+    }
 
-        MdcInjectionFilter mdcFilter = new MdcInjectionFilter();
+    private NioSocketAcceptor createAcceptor(NioSocketAcceptor acceptor) {
+    acceptor.setReuseAddress(true);
+    acceptor.getSessionConfig().setReadBufferSize(2048);
+    acceptor.getSessionConfig().setIdleTime(IdleStatus.BOTH_IDLE, getIdleTimeout());
+    // Decrease the default receiver buffer size
+    acceptor.getSessionConfig().setReceiveBufferSize(512);
 
-        acceptor.getFilterChain().addLast("mdcFilter", mdcFilter);
+    MdcInjectionFilter mdcFilter = new MdcInjectionFilter();
 
-        SessionFilter sessionFilter = getSessionFilter();
-        if (sessionFilter != null) {
+    acceptor.getFilterChain().addLast("mdcFilter", mdcFilter);
+
+    SessionFilter sessionFilter = getSessionFilter();
+    if (sessionFilter != null) {
         // add and IP filter to the filter chain.
         acceptor.getFilterChain().addLast("sessionFilter", new MinaSessionFilter(sessionFilter));
-        }
+    }
 
-        acceptor.getFilterChain().addLast("threadPool", new ExecutorFilter(context.getThreadPoolExecutor()));
-        acceptor.getFilterChain().addLast("codec", new ProtocolCodecFilter(new FtpServerProtocolCodecFactory()));
-        acceptor.getFilterChain().addLast("mdcFilter2", mdcFilter);
-        acceptor.getFilterChain().addLast("logger", new FtpLoggingFilter());
+    if (context.getOverloadMonitor().isEnabled()) {
+        // must run before the executor to be able to refuse connections right away
+        acceptor.getFilterChain().addLast("overloadFilter", new OverloadFilter(context));
+    }
+
+    acceptor.getFilterChain().addLast("threadPool", new ExecutorFilter(context.getThreadPoolExecutor()));
+    acceptor.getFilterChain().addLast("codec", new ProtocolCodecFilter(new FtpServerProtocolCodecFactory()));
+    acceptor.getFilterChain().addLast("mdcFilter2", mdcFilter);
+    acceptor.getFilterChain().addLast("logger", new FtpLoggingFilter());
 
-        if (isImplicitSsl()) {
+    if (isImplicitSsl()) {
         SslConfiguration ssl_conf = getSslConfiguration();
         SslFilter ssl_filter;
         try {
-            ssl_filter = new SslFilter(ssl_conf.getSSLContext());
+        ssl_filter = new SslFilter(ssl_conf.getSSLContext());
         } catch (GeneralSecurityException e) {
-            throw new FtpServerConfigurationException("SSL could not be initialized, check configuration");
+        throw new FtpServerConfigurationException("SSL could not be initialized, check configuration");
         }
 
         if (ssl_conf.getClientAuth() == ClientAuth.NEED) {
-            ssl_filter.setNeedClientAuth(true);
+        ssl_filter.setNeedClientAuth(true);
         } else if (ssl_conf.getClientAuth() == ClientAuth.WANT) {
-            ssl_filter.setWantClientAuth(true);
+        ssl_filter.setWantClientAuth(true);
         }
 
         if (ssl_conf.getEnabledProtocols() != null) {
-            ssl_filter.setEnabledProtocols(ssl_conf.getEnabledProtocols());
+        ssl_filter.setEnabledProtocols(ssl_conf.getEnabledProtocols());
         }
 
         if (ssl_conf.getEnabledCipherSuites() != null) {
-            ssl_filter.setEnabledCipherSuites(ssl_conf.getEnabledCipherSuites());
+        ssl_filter.setEnabledCipherSuites(ssl_conf.getEnabledCipherSuites());
         }
 
         acceptor.getFilterChain().addFirst("sslFilter", ssl_filter);
-        }
+    }
 
-        handler.init(context, this);
-        acceptor.setHandler(new FtpHandlerAdapter(context, handler));
+    acceptor.setHandler(new FtpHandlerAdapter(context, handler));
+
+    return acceptor;
+    }
 
+    /**
+     * Bind all acceptors. The first acceptor binds the configured address, the
+     * others bind the port it ended up on so that a listener configured with
+     * port 0 still has all its acceptors on the same port.
+     */
+    private void bind() {
+    InetSocketAddress bindAddress = address;
+    for (NioSocketAcceptor acceptor : acceptors) {
         try {
-        acceptor.bind(address);
+        acceptor.bind(bindAddress);
         } catch (IOException e) {
-        throw new FtpServerConfigurationException("Failed to bind to address " + address + ", check configuration", e);
+        throw new FtpServerConfigurationException("Failed to bind to address " + bindAddress + ", check configuration", e);
         }
+        bindAddress = new InetSocketAddress(address.getAddress(), acceptor.getLocalAddress().getPort());
+    }
 
-        updatePort();
-
-    } catch (RuntimeException e) {
-        // clean up if we fail to start
-        stop();
+    updatePort();
+    }
 
-        throw e;
+    private void unbind() {
+    for (NioSocketAcceptor acceptor : acceptors) {
+        acceptor.unbind();
     }
     }
 
     private void updatePort() {
     // update the port to the real port bound by the listener
-    setPort(acceptor.getLocalAddress().getPort());
+    setPort(acceptors.get(0).getLocalAddress().getPort());
     }
 
     /**
@@ -186,10 +236,12 @@ public class NioListener extends AbstractListener {
      */
     public synchronized void stop() {
     // close server socket
-    if (acceptor != null) {
+    if (acceptors != null) {
+        for (NioSocketAcceptor acceptor : acceptors) {
         acceptor.unbind();
         acceptor.dispose();
-        acceptor = null;
+        }
+        acceptors = null;
     }
     context = null;
     }
@@ -198,7 +250,7 @@ public class NioListener extends AbstractListener {
      * @see Listener#isStopped()
      */
     public boolean isStopped() {
-    return acceptor == null;
+    return acceptors == null;
     }
 
     /**
@@ -213,16 +265,16 @@ public class NioListener extends AbstractListener {
      * @see Listener#resume()
      */
     public synchronized void resume() {
-    if (acceptor != null && suspended) {
+    if (acceptors != null && suspended) {
         try {
         LOG.debug("Resuming listener");
-        acceptor.bind(address);
+        bind();
         LOG.debug("Listener resumed");
 
-        updatePort();
-
         suspended = false;
-        } catch (IOException e) {
+        } catch (FtpServerConfigurationException e) {
+        // roll back any acceptors that did bind
+        unbind();
         LOG.error("Failed to resume listener", e);
         }
     }
@@ -232,9 +284,9 @@ public class NioListener extends AbstractListener {
      * @see Listener#suspend()
      */
     public synchronized void suspend() {
-    if (acceptor != null && !suspended) {
+    if (acceptors != null && !suspended) {
         LOG.debug("Suspending listener");
-        acceptor.unbind();
+        unbind();
 
         suspended = true;
         LOG.debug("Listener suspended");
@@ -244,13 +296,7 @@ public class NioListener extends AbstractListener {
     /**
      * @see Listener#getActiveSessions()
      */
-    public synchronized Set<FtpIoSession> getActiveSessions() {
-    Map<Long, IoSession> sessions = acceptor.getManagedSessions();
-
-    Set<FtpIoSession> ftpSessions = new HashSet<>();
-    for (IoSession session : sessions.values()) {
-        ftpSessions.add(new FtpIoSession(session, context));
-    }
-    return ftpSessions;
+    public Set<FtpIoSession> getActiveSessions() {
+        return new HashSet<>(context.getSessionRegistry().getSessions(this));
     }
 }
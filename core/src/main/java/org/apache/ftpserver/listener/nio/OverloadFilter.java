@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.listener.nio;
+
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.OverloadMonitor;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * Refuses new connections with a 421 reply while sessions wait too long for a
+ * free worker of the command executor. Must be added to the filter chain in front of the executor filter
+ * so that the reply is sent from the I/O thread without waiting in the queue.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class OverloadFilter extends IoFilterAdapter {
+
+    private final Logger LOG = LoggerFactory.getLogger(OverloadFilter.class);
+
+    private final FtpServerContext context;
+
+    public OverloadFilter(FtpServerContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void sessionOpened(NextFilter nextFilter, IoSession session)
+            throws Exception {
+        OverloadMonitor monitor = context.getOverloadMonitor();
+        if (monitor.isConnectionOverloaded()) {
+            monitor.connectionShed();
+            LOG.debug("Command queue is backed up, refusing connection from {}",
+                    session.getRemoteAddress());
+
+            FtpIoSession ftpSession = new FtpIoSession(session, context);
+            ftpSession.write(LocalizedFtpReply.translate(ftpSession, null,
+                    context,
+                    FtpReply.REPLY_421_SERVICE_NOT_AVAILABLE_CLOSING_CONTROL_CONNECTION,
+                    "overload", null));
+            session.closeOnFlush();
+        } else {
+            nextFilter.sessionOpened(session);
+        }
+    }
+}
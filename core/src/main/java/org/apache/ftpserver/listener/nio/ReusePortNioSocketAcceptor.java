@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.listener.nio;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * A {@link NioSocketAcceptor} which sets <code>SO_REUSEPORT</code> on the
+ * server socket before binding it, allowing several acceptors to bind the same
+ * port and let the kernel spread incoming connections between them.
+ *
+ * <code>SO_REUSEPORT</code> is only available from Java 9 and on some
+ * platforms, use {@link #isReusePortSupported()} to find out if this acceptor
+ * can be used.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ReusePortNioSocketAcceptor extends NioSocketAcceptor {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ReusePortNioSocketAcceptor.class);
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = lookupReusePort();
+
+    public ReusePortNioSocketAcceptor(int processorCount) {
+        super(processorCount);
+    }
+
+    /**
+     * Is <code>SO_REUSEPORT</code> supported for server sockets by the
+     * current JVM and platform
+     *
+     * @return true if several acceptors can be bound to the same port
+     */
+    public static boolean isReusePortSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+
+        ServerSocketChannel channel = null;
+        try {
+            channel = ServerSocketChannel.open();
+            return channel.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> lookupReusePort() {
+        try {
+            // the field only exists from Java 9
+            return (SocketOption<Boolean>) StandardSocketOptions.class
+                    .getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            LOG.debug("SO_REUSEPORT is not available in this JVM");
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link NioSocketAcceptor#open(SocketAddress)} but with
+     * <code>SO_REUSEPORT</code> enabled on the channel.
+     */
+    @Override
+    protected ServerSocketChannel open(SocketAddress localAddress)
+            throws Exception {
+        ServerSocketChannel channel;
+        if (selectorProvider != null) {
+            channel = selectorProvider.openServerSocketChannel();
+        } else {
+            channel = ServerSocketChannel.open();
+        }
+
+        boolean success = false;
+        try {
+            channel.configureBlocking(false);
+
+            ServerSocket socket = channel.socket();
+            socket.setReuseAddress(isReuseAddress());
+            channel.setOption(SO_REUSEPORT, Boolean.TRUE);
+
+            try {
+                socket.bind(localAddress, getBacklog());
+            } catch (IOException ioe) {
+                throw new IOException("Error while binding on "
+                        + localAddress, ioe);
+            }
+
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+            success = true;
+        } finally {
+            if (!success) {
+                close(channel);
+            }
+        }
+        return channel;
+    }
+}
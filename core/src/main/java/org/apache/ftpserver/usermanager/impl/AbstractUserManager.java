@@ -53,6 +53,8 @@ public abstract class AbstractUserManager implements UserManager {
 
     public static final String ATTR_MAX_LOGIN_PER_IP = "maxloginperip";
 
+    public static final String ATTR_MAX_STORAGE = "maxstorage";
+
     private final String adminName;
     
     private final PasswordEncryptor passwordEncryptor;
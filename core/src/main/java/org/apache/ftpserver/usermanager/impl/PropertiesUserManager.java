@@ -282,6 +282,16 @@ public class PropertiesUserManager extends AbstractUserManager {
             userDataProp.remove(thisPrefix + ATTR_MAX_DOWNLOAD_RATE);
         }
 
+        QuotaRequest quotaRequest = (QuotaRequest) usr
+                .authorize(new QuotaRequest());
+
+        if (quotaRequest != null && quotaRequest.getMaxBytes() > 0) {
+            userDataProp.setProperty(thisPrefix + ATTR_MAX_STORAGE,
+                    quotaRequest.getMaxBytes());
+        } else {
+            userDataProp.remove(thisPrefix + ATTR_MAX_STORAGE);
+        }
+
         // request that always will succeed
         ConcurrentLoginRequest concurrentLoginRequest = new ConcurrentLoginRequest(
                 0, 0);
@@ -443,6 +453,11 @@ public class PropertiesUserManager extends AbstractUserManager {
 
         authorities.add(new TransferRatePermission(downloadRate, uploadRate));
 
+        long maxStorage = userDataProp.getLong(baseKey + ATTR_MAX_STORAGE, 0);
+        if (maxStorage > 0) {
+            authorities.add(new QuotaPermission(maxStorage));
+        }
+
         user.setAuthorities(authorities);
 
         user.setMaxIdleTime(userDataProp.getInteger(baseKey
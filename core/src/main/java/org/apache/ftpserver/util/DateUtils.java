@@ -57,56 +57,81 @@ public class DateUtils {
         
     };
     
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    private static final long SIX_MONTHS = 15811200000L; // 183L * 24L * 60L * 60L * 1000L;
+
+    /*
+     * The start of the Gregorian calendar, GregorianCalendar uses the Julian
+     * calendar before
+     */
+    private static final long GREGORIAN_CUTOVER = -12219292800000L;
+
     /**
      * Get unix style date string.
      */
     public final static String getUnixDate(long millis) {
+        StringBuilder sb = new StringBuilder(12);
+        appendUnixDate(sb, millis, System.currentTimeMillis(), TimeZone
+                .getDefault());
+        return sb.toString();
+    }
+
+    /**
+     * Append a unix style date, the time for dates within six months of now
+     * and the year otherwise.
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date
+     * @param now
+     *            The current time
+     * @param zone
+     *            The time zone to show the date in
+     */
+    public final static void appendUnixDate(StringBuilder sb, long millis,
+            long now, TimeZone zone) {
         if (millis < 0) {
-            return "------------";
+            sb.append("------------");
+            return;
         }
 
-        StringBuilder sb = new StringBuilder(16);
-        Calendar cal = new GregorianCalendar();
-        cal.setTimeInMillis(millis);
+        long local = millis + zone.getOffset(millis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int date = civilFromDays(days);
 
-        // month
-        sb.append(MONTHS[cal.get(Calendar.MONTH)]);
-        sb.append(' ');
-
-        // day
-        int day = cal.get(Calendar.DATE);
-        if (day < 10) {
+        appendUnixDay(sb, date);
+        if (isRecent(millis, now)) {
+            appendTime(sb, (int) (local - days * MILLIS_PER_DAY), false);
+        } else {
             sb.append(' ');
+            sb.append(getYear(date));
         }
-        sb.append(day);
-        sb.append(' ');
+    }
 
-        long sixMonth = 15811200000L; // 183L * 24L * 60L * 60L * 1000L;
-        long nowTime = System.currentTimeMillis();
-        if (Math.abs(nowTime - millis) > sixMonth) {
+    /**
+     * Is the date shown with the time rather than the year in unix style dates
+     */
+    static boolean isRecent(long millis, long now) {
+        return Math.abs(now - millis) <= SIX_MONTHS;
+    }
 
-            // year
-            int year = cal.get(Calendar.YEAR);
+    /**
+     * Append the month and day of a unix style date, followed by a space
+     * 
+     * @param date
+     *            The date as returned by {@link #civilFromDays(long)}
+     */
+    static void appendUnixDay(StringBuilder sb, int date) {
+        sb.append(MONTHS[getMonth(date) - 1]);
+        sb.append(' ');
+        int day = getDay(date);
+        if (day < 10) {
             sb.append(' ');
-            sb.append(year);
-        } else {
-
-            // hour
-            int hh = cal.get(Calendar.HOUR_OF_DAY);
-            if (hh < 10) {
-                sb.append('0');
-            }
-            sb.append(hh);
-            sb.append(':');
-
-            // minute
-            int mm = cal.get(Calendar.MINUTE);
-            if (mm < 10) {
-                sb.append('0');
-            }
-            sb.append(mm);
         }
-        return sb.toString();
+        sb.append(day);
+        sb.append(' ');
     }
 
     /**
@@ -114,116 +139,175 @@ public class DateUtils {
      */
     public final static String getISO8601Date(long millis) {
         StringBuilder sb = new StringBuilder(19);
-        Calendar cal = new GregorianCalendar();
-        cal.setTimeInMillis(millis);
-
-        // year
-        sb.append(cal.get(Calendar.YEAR));
+        appendISO8601Date(sb, millis, TimeZone.getDefault());
+        return sb.toString();
+    }
 
-        // month
-        sb.append('-');
-        int month = cal.get(Calendar.MONTH) + 1;
-        if (month < 10) {
-            sb.append('0');
+    /**
+     * Append an ISO 8601 timestamp, without the time zone
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date
+     * @param zone
+     *            The time zone to show the date in
+     */
+    public final static void appendISO8601Date(StringBuilder sb, long millis,
+            TimeZone zone) {
+        if (millis < GREGORIAN_CUTOVER) {
+            appendCalendarDate(sb, millis, zone, true);
+            return;
         }
-        sb.append(month);
 
-        // date
+        long local = millis + zone.getOffset(millis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int date = civilFromDays(days);
+
+        sb.append(getYear(date));
         sb.append('-');
-        int date = cal.get(Calendar.DATE);
-        if (date < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, getMonth(date));
+        sb.append('-');
+        appendTwoDigits(sb, getDay(date));
+        sb.append('T');
+        appendTime(sb, (int) (local - days * MILLIS_PER_DAY), true);
+    }
+
+    /**
+     * Get FTP date.
+     */
+    public final static String getFtpDate(long millis) {
+        StringBuilder sb = new StringBuilder(18);
+        appendFtpDate(sb, millis);
+        return sb.toString();
+    }
+
+    /**
+     * Append an FTP date (YYYYMMDDHHMMSS.sss), always in UTC
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date
+     */
+    public final static void appendFtpDate(StringBuilder sb, long millis) {
+        if (millis < GREGORIAN_CUTOVER) {
+            // MLST should use UTC
+            appendCalendarDate(sb, millis, TIME_ZONE_UTC, false);
+            return;
         }
-        sb.append(date);
 
-        // hour
-        sb.append('T');
-        int hour = cal.get(Calendar.HOUR_OF_DAY);
-        if (hour < 10) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int date = civilFromDays(days);
+        int time = (int) (millis - days * MILLIS_PER_DAY);
+
+        sb.append(getYear(date));
+        appendTwoDigits(sb, getMonth(date));
+        appendTwoDigits(sb, getDay(date));
+        appendTwoDigits(sb, time / 3600000);
+        appendTwoDigits(sb, time / 60000 % 60);
+        appendTwoDigits(sb, time / 1000 % 60);
+        sb.append('.');
+        int milli = time % 1000;
+        if (milli < 100) {
             sb.append('0');
         }
-        sb.append(hour);
+        appendTwoDigits(sb, milli);
+    }
+
+    /**
+     * Convert a number of days since 1970-01-01 into a date of the proleptic
+     * Gregorian calendar, packed into an int as year * 512 + month * 32 + day
+     */
+    static int civilFromDays(long days) {
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra
+                - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        // the month, starting from March
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
 
-        // minute
+    static int getYear(int date) {
+        return date >> 9;
+    }
+
+    static int getMonth(int date) {
+        return (date >> 5) & 0xF;
+    }
+
+    static int getDay(int date) {
+        return date & 0x1F;
+    }
+
+    /**
+     * Append HH:MM, and :SS if seconds is true
+     */
+    static void appendTime(StringBuilder sb, int millisOfDay,
+            boolean seconds) {
+        appendTwoDigits(sb, millisOfDay / 3600000);
         sb.append(':');
-        int min = cal.get(Calendar.MINUTE);
-        if (min < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, millisOfDay / 60000 % 60);
+        if (seconds) {
+            sb.append(':');
+            appendTwoDigits(sb, millisOfDay / 1000 % 60);
         }
-        sb.append(min);
+    }
 
-        // second
-        sb.append(':');
-        int sec = cal.get(Calendar.SECOND);
-        if (sec < 10) {
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) {
             sb.append('0');
         }
-        sb.append(sec);
-
-        return sb.toString();
+        sb.append(value);
     }
 
     /**
-     * Get FTP date.
+     * Append an ISO 8601 or FTP date of the Julian calendar using
+     * {@link GregorianCalendar}
      */
-    public final static String getFtpDate(long millis) {
-        StringBuilder sb = new StringBuilder(20);
-        
-        // MLST should use UTC
-        Calendar cal = new GregorianCalendar(TIME_ZONE_UTC);
+    private static void appendCalendarDate(StringBuilder sb, long millis,
+            TimeZone zone, boolean iso8601) {
+        Calendar cal = new GregorianCalendar(zone);
         cal.setTimeInMillis(millis);
-        
 
-        // year
         sb.append(cal.get(Calendar.YEAR));
-
-        // month
-        int month = cal.get(Calendar.MONTH) + 1;
-        if (month < 10) {
-            sb.append('0');
+        if (iso8601) {
+            sb.append('-');
         }
-        sb.append(month);
-
-        // date
-        int date = cal.get(Calendar.DATE);
-        if (date < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, cal.get(Calendar.MONTH) + 1);
+        if (iso8601) {
+            sb.append('-');
         }
-        sb.append(date);
-
-        // hour
-        int hour = cal.get(Calendar.HOUR_OF_DAY);
-        if (hour < 10) {
-            sb.append('0');
-        }
-        sb.append(hour);
-
-        // minute
-        int min = cal.get(Calendar.MINUTE);
-        if (min < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, cal.get(Calendar.DATE));
+        if (iso8601) {
+            sb.append('T');
         }
-        sb.append(min);
-
-        // second
-        int sec = cal.get(Calendar.SECOND);
-        if (sec < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, cal.get(Calendar.HOUR_OF_DAY));
+        if (iso8601) {
+            sb.append(':');
         }
-        sb.append(sec);
-
-        // millisecond
-        sb.append('.');
-        int milli = cal.get(Calendar.MILLISECOND);
-        if (milli < 100) {
-            sb.append('0');
+        appendTwoDigits(sb, cal.get(Calendar.MINUTE));
+        if (iso8601) {
+            sb.append(':');
         }
-        if (milli < 10) {
-            sb.append('0');
+        appendTwoDigits(sb, cal.get(Calendar.SECOND));
+        if (!iso8601) {
+            sb.append('.');
+            int milli = cal.get(Calendar.MILLISECOND);
+            if (milli < 100) {
+                sb.append('0');
+            }
+            appendTwoDigits(sb, milli);
         }
-        sb.append(milli);
-        return sb.toString();
     }
+
     /*
      *  Parses a date in the format used by the FTP commands 
      *  involving dates(MFMT, MDTM)
@@ -31,7 +31,7 @@ import java.io.FilenameFilter;
  */
 public class FileRegularFilter implements FilenameFilter {
 
-    private RegularExpr regularExpr = null;
+    private GlobMatcher regularExpr = null;
 
     /**
      * Constructor.
@@ -43,7 +43,7 @@ public class FileRegularFilter implements FilenameFilter {
         if ((pattern == null) || pattern.isEmpty() || pattern.equals("*")) {
             regularExpr = null;
         } else {
-            regularExpr = new RegularExpr(pattern);
+            regularExpr = GlobMatcher.compile(pattern);
         }
     }
 
@@ -59,6 +59,6 @@ public class FileRegularFilter implements FilenameFilter {
         if (regularExpr == null) {
             return true;
         }
-        return regularExpr.isMatch(name);
+        return regularExpr.matches(name);
     }
 }
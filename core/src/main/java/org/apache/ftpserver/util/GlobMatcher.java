@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file name pattern compiled for matching many names, with the same syntax
+ * and results as {@link RegularExpr}: <code>*</code> matches any number of
+ * characters, <code>?</code> any single character and <code>[...]</code> a
+ * single character of a set, which may contain ranges and be negated with a
+ * leading <code>^</code>.
+ * 
+ * The literal characters at the start and at the end of the pattern are
+ * compared directly, and the names too short to match rejected, before the
+ * rest of the pattern is matched. That part is matched without recursion, in
+ * at most a number of steps proportional to the length of the name times the
+ * length of the pattern.
+ * 
+ * The few patterns where a range ends with <code>]</code>, for which
+ * {@link RegularExpr} finds the end of the set depending on the name matched,
+ * are matched by a {@link RegularExpr}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class GlobMatcher implements Predicate<String> {
+
+    private static final int LITERAL = 0;
+
+    private static final int ANY = 1;
+
+    private static final int SET = 2;
+
+    private static final int STAR = 3;
+
+    private final String pattern;
+
+    // not null for the patterns which can not be compiled
+    private final RegularExpr fallback;
+
+    // a pattern with an unterminated set, matches nothing
+    private final boolean never;
+
+    private final String prefix;
+
+    private final String suffix;
+
+    private final boolean hasStar;
+
+    // the number of characters a name must at least have
+    private final int minLength;
+
+    // the tokens between the prefix and the suffix
+    private final int[] types;
+
+    private final char[] chars;
+
+    private final CharSet[] sets;
+
+    // true if the tokens between the prefix and the suffix are all stars
+    private final boolean starsOnly;
+
+    /**
+     * A set of characters, the ranges are inclusive
+     */
+    private static class CharSet {
+        private final char[] ranges;
+
+        private final boolean negate;
+
+        public CharSet(char[] ranges, boolean negate) {
+            this.ranges = ranges;
+            this.negate = negate;
+        }
+
+        public boolean contains(char c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c >= ranges[i] && c <= ranges[i + 1]) {
+                    return !negate;
+                }
+            }
+            return negate;
+        }
+    }
+
+    /**
+     * Thrown while parsing a pattern which must be matched by a
+     * {@link RegularExpr}
+     */
+    private static class NotCompilableException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Thrown while parsing a pattern which matches nothing
+     */
+    private static class UnterminatedSetException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Compile a pattern
+     * 
+     * @param pattern
+     *            The pattern
+     * @return The compiled pattern
+     */
+    public static GlobMatcher compile(final String pattern) {
+        return new GlobMatcher(pattern);
+    }
+
+    private GlobMatcher(final String pattern) {
+        this.pattern = pattern;
+
+        List<Integer> tokenTypes = new ArrayList<>();
+        StringBuilder tokenChars = new StringBuilder();
+        List<CharSet> tokenSets = new ArrayList<>();
+        RegularExpr fallback = null;
+        boolean never = false;
+        try {
+            parse(pattern, tokenTypes, tokenChars, tokenSets);
+        } catch (NotCompilableException e) {
+            fallback = new RegularExpr(pattern);
+        } catch (UnterminatedSetException e) {
+            never = true;
+        }
+        this.fallback = fallback;
+        this.never = never;
+
+        int count = fallback != null || never ? 0 : tokenTypes.size();
+        boolean hasStar = false;
+        int minLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (tokenTypes.get(i) == STAR) {
+                hasStar = true;
+            } else {
+                minLength++;
+            }
+        }
+        this.hasStar = hasStar;
+        this.minLength = minLength;
+
+        // the literal characters at the start
+        int start = 0;
+        while (start < count && tokenTypes.get(start) == LITERAL) {
+            start++;
+        }
+        // and at the end, after the last star
+        int end = count;
+        while (end > start && tokenTypes.get(end - 1) == LITERAL) {
+            end--;
+        }
+        prefix = tokenChars.substring(0, start);
+        suffix = tokenChars.substring(end, count);
+
+        types = new int[end - start];
+        chars = new char[end - start];
+        sets = new CharSet[end - start];
+        boolean starsOnly = true;
+        for (int i = start; i < end; i++) {
+            types[i - start] = tokenTypes.get(i);
+            chars[i - start] = tokenChars.charAt(i);
+            sets[i - start] = tokenSets.get(i);
+            starsOnly &= types[i - start] == STAR;
+        }
+        this.starsOnly = starsOnly;
+    }
+
+    /**
+     * Parse the pattern into tokens, one per pattern element, with the
+     * character of the literal tokens and the set of the set tokens
+     */
+    private static void parse(String pattern, List<Integer> types,
+            StringBuilder chars, List<CharSet> sets)
+            throws NotCompilableException, UnterminatedSetException {
+        int length = pattern.length();
+        int index = 0;
+        while (index < length) {
+            char pc = pattern.charAt(index++);
+            if (pc == '*') {
+                add(types, chars, sets, STAR, pc, null);
+            } else if (pc == '?') {
+                add(types, chars, sets, ANY, pc, null);
+            } else if (pc != '[') {
+                add(types, chars, sets, LITERAL, pc, null);
+            } else {
+                // parsed as RegularExpr does for a character not in the set
+                StringBuilder ranges = new StringBuilder();
+                boolean first = true;
+                boolean negate = false;
+                char last = 0;
+                while (true) {
+                    if (index >= length) {
+                        throw new UnterminatedSetException();
+                    }
+                    pc = pattern.charAt(index++);
+
+                    if (pc == ']') {
+                        if (first) {
+                            // [] matches any character, [^] none
+                            ranges.setLength(0);
+                            if (!negate) {
+                                ranges.append(Character.MIN_VALUE).append(
+                                        Character.MAX_VALUE);
+                            }
+                            negate = false;
+                        }
+                        break;
+                    }
+
+                    if (pc == '^' && first) {
+                        negate = true;
+                        continue;
+                    }
+                    first = false;
+
+                    if (pc == '-') {
+                        if (index >= length) {
+                            throw new UnterminatedSetException();
+                        }
+                        pc = pattern.charAt(index++);
+                        if (pc == ']') {
+                            // RegularExpr ends the set here only once the
+                            // character matched
+                            throw new NotCompilableException();
+                        }
+                        ranges.append(last).append(pc);
+                    } else {
+                        ranges.append(pc).append(pc);
+                    }
+                    last = pc;
+                }
+
+                char[] rangeChars = new char[ranges.length()];
+                ranges.getChars(0, rangeChars.length, rangeChars, 0);
+                add(types, chars, sets, SET, '[', new CharSet(rangeChars,
+                        negate));
+            }
+        }
+    }
+
+    private static void add(List<Integer> types, StringBuilder chars,
+            List<CharSet> sets, int type, char c, CharSet set) {
+        types.add(type);
+        chars.append(c);
+        sets.add(set);
+    }
+
+    /**
+     * Get the pattern
+     * 
+     * @return The pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Does the name match the pattern
+     * 
+     * @param name
+     *            The name
+     * @return true if the name matches
+     */
+    public boolean matches(final String name) {
+        if (fallback != null) {
+            return fallback.isMatch(name);
+        } else if (never) {
+            return false;
+        }
+
+        int length = name.length();
+        if (length < minLength || (!hasStar && length != minLength)) {
+            return false;
+        }
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return false;
+        }
+        if (starsOnly) {
+            return true;
+        }
+        return matchTokens(name, prefix.length(), length - suffix.length());
+    }
+
+    /**
+     * @see #matches(String)
+     */
+    public boolean test(final String name) {
+        return matches(name);
+    }
+
+    /**
+     * Match the tokens between the prefix and the suffix. On a mismatch, the
+     * last star is made to match one more character and the tokens after it
+     * are matched again.
+     */
+    private boolean matchTokens(String name, int from, int to) {
+        int count = types.length;
+        int nameIndex = from;
+        int tokenIndex = 0;
+        int starToken = -1;
+        int starName = from;
+        while (nameIndex < to) {
+            if (tokenIndex < count && types[tokenIndex] == STAR) {
+                starToken = tokenIndex++;
+                starName = nameIndex;
+            } else if (tokenIndex < count
+                    && matches(tokenIndex, name.charAt(nameIndex))) {
+                tokenIndex++;
+                nameIndex++;
+            } else if (starToken >= 0) {
+                tokenIndex = starToken + 1;
+                nameIndex = ++starName;
+            } else {
+                return false;
+            }
+        }
+
+        // the remaining tokens can only match the empty string if stars
+        while (tokenIndex < count && types[tokenIndex] == STAR) {
+            tokenIndex++;
+        }
+        return tokenIndex == count;
+    }
+
+    private boolean matches(int token, char c) {
+        switch (types[token]) {
+        case LITERAL:
+            return chars[token] == c;
+        case SET:
+            return sets[token].contains(c);
+        default:
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
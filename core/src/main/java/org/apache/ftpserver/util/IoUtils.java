@@ -32,6 +32,7 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.Channel;
 import java.util.Random;
 
 /**
@@ -171,6 +172,18 @@ public class IoUtils {
         }
     }
 
+    /**
+     * No exception <code>java.nio.channels.Channel</code> close method.
+     */
+    public final static void close(Channel ch) {
+        if (ch != null) {
+            try {
+                ch.close();
+            } catch (Exception ex) {
+            }
+        }
+    }
+
     /**
      * Get exception stack trace.
      */
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ *
+ * Utility methods for the virtual paths of file systems which are not backed
+ * by a directory of the native file system, and for the physical paths of
+ * file systems which are.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public final class PathUtils {
+    private PathUtils() {
+        // Nothing to do
+    }
+
+    /**
+     * Resolve a file name against the current directory, replacing ., .. and
+     * ~. The result never goes above the root.
+     * 
+     * @param currDir
+     *            The current directory
+     * @param fileName
+     *            The file name, absolute or relative
+     * @return The absolute path, '/' for the root, without a trailing '/'
+     *         otherwise
+     */
+    public static String resolve(final String currDir, final String fileName) {
+        String name = fileName.replace('\\', '/');
+        StringBuilder result = new StringBuilder();
+        if (!name.startsWith("/")) {
+            result.append(currDir);
+            if (result.length() > 0
+                    && result.charAt(result.length() - 1) == '/') {
+                result.setLength(result.length() - 1);
+            }
+        }
+
+        for (String token : name.split("/")) {
+            if (token.isEmpty() || token.equals(".")) {
+                continue;
+            } else if (token.equals("..")) {
+                result.setLength(Math.max(0, result.lastIndexOf("/")));
+            } else if (token.equals("~")) {
+                result.setLength(0);
+            } else {
+                result.append('/').append(token);
+            }
+        }
+        return result.length() == 0 ? "/" : result.toString();
+    }
+
+    /**
+     * Get the physical path of a file, normalized so that it can be used as
+     * a key
+     * 
+     * @param file
+     *            The file
+     * @return The path, or null if the physical file is neither a
+     *         {@link File} nor a {@link Path}
+     */
+    public static Path getPhysicalPath(final FtpFile file) {
+        Object physicalFile = file.getPhysicalFile();
+        try {
+            if (physicalFile instanceof File) {
+                return ((File) physicalFile).toPath().toAbsolutePath()
+                        .normalize();
+            } else if (physicalFile instanceof Path) {
+                return ((Path) physicalFile).toAbsolutePath().normalize();
+            }
+        } catch (InvalidPathException e) {
+            // can not be encoded as a path
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.util.TimeZone;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Formats the unix style dates of a listing, as
+ * {@link DateUtils#getUnixDate(long)} does but appending to a buffer. The
+ * current time, which decides between showing the time and the year, and the
+ * time zone are read once for the whole listing. The month and day of the
+ * last formated day are kept, as the files of a listing are often modified on
+ * the same days.
+ * 
+ * Can be used by several threads.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class UnixDateFormatter {
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    private final long now;
+
+    private final TimeZone zone;
+
+    // the last formated day, replaced rather than updated
+    private Day lastDay;
+
+    /**
+     * A day in the time zone of the listing
+     */
+    private static class Day {
+        // the start of the day in local time
+        private final long start;
+
+        // the month and day followed by a space
+        private final String prefix;
+
+        // a space then the year
+        private final String year;
+
+        public Day(long start, String prefix, String year) {
+            this.start = start;
+            this.prefix = prefix;
+            this.year = year;
+        }
+    }
+
+    /**
+     * Create a formatter for dates shown in the default time zone
+     * 
+     * @param now
+     *            The current time
+     */
+    public UnixDateFormatter(long now) {
+        this(now, TimeZone.getDefault());
+    }
+
+    /**
+     * Create a formatter
+     * 
+     * @param now
+     *            The current time
+     * @param zone
+     *            The time zone to show the dates in
+     */
+    public UnixDateFormatter(long now, TimeZone zone) {
+        this.now = now;
+        this.zone = zone;
+    }
+
+    /**
+     * Append a unix style date
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date
+     */
+    public void format(StringBuilder sb, long millis) {
+        if (millis < 0) {
+            sb.append("------------");
+            return;
+        }
+
+        long local = millis + zone.getOffset(millis);
+        Day day = lastDay;
+        if (day == null || local < day.start
+                || local - day.start >= MILLIS_PER_DAY) {
+            long days = Math.floorDiv(local, MILLIS_PER_DAY);
+            int date = DateUtils.civilFromDays(days);
+            StringBuilder prefix = new StringBuilder(7);
+            DateUtils.appendUnixDay(prefix, date);
+            day = new Day(days * MILLIS_PER_DAY, prefix.toString(), " "
+                    + DateUtils.getYear(date));
+            lastDay = day;
+        }
+
+        sb.append(day.prefix);
+        if (DateUtils.isRecent(millis, now)) {
+            DateUtils.appendTime(sb, (int) (local - day.start), false);
+        } else {
+            sb.append(day.year);
+        }
+    }
+}
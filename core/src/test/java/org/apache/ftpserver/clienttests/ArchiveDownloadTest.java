@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ListingConfigFactory;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class ArchiveDownloadTest extends ClientTestTemplate {
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_DIR2 = new File(TEST_DIR1, "dir2");
+
+    private static final byte[] TEST_DATA = "TESTDATA".getBytes();
+
+    private boolean archiveDownloadEnabled = true;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        ListingConfigFactory listingConfig = new ListingConfigFactory();
+        listingConfig.setArchiveDownloadEnabled(archiveDownloadEnabled);
+        server.setListingConfig(listingConfig.createListingConfig());
+
+        return server;
+    }
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        TEST_DIR2.mkdirs();
+        for (int i = 0; i < 20; i++) {
+            FileOutputStream out = new FileOutputStream(new File(
+                    i % 2 == 0 ? TEST_DIR1 : TEST_DIR2, "file" + i + ".txt"));
+            out.write(TEST_DATA);
+            out.close();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+    }
+
+    public void testRetrieveZip() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile("dir1.zip", baos));
+
+        List<String> names = new ArrayList<>();
+        ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(baos
+                .toByteArray()));
+        ZipEntry entry;
+        while ((entry = in.getNextEntry()) != null) {
+            names.add(entry.getName());
+            if (!entry.isDirectory()) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                IoUtils.copy(in, content, 1024);
+                assertTrue(Arrays.equals(TEST_DATA, content.toByteArray()));
+            }
+        }
+        assertEquals(22, names.size());
+        assertEquals("dir1/", names.get(0));
+        assertEquals("dir1/dir2/", names.get(1));
+        assertTrue(names.contains("dir1/dir2/file19.txt"));
+        assertTrue(names.contains("dir1/file0.txt"));
+
+        assertFalse(new File(ROOT_DIR, "dir1.zip").exists());
+        assertEquals(1, server.getServerContext().getFtpStatistics()
+                .getTotalDownloadNumber());
+    }
+
+    public void testRetrieveTar() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile("dir1/dir2.tar", baos));
+
+        // 10 files, each a header and a block, the directory and the end
+        assertEquals((10 * 2 + 1 + 2) * 512, baos.size());
+    }
+
+    public void testRetrieveMissingDirectory() throws Exception {
+        assertFalse(client.retrieveFile("nosuchdir.tar",
+                new ByteArrayOutputStream()));
+        assertEquals(550, client.getReplyCode());
+    }
+
+    public void testExistingFileIsRetrieved() throws Exception {
+        FileOutputStream out = new FileOutputStream(new File(ROOT_DIR,
+                "dir1.tar"));
+        out.write(TEST_DATA);
+        out.close();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile("dir1.tar", baos));
+        assertTrue(Arrays.equals(TEST_DATA, baos.toByteArray()));
+    }
+
+    public void testDisabled() throws Exception {
+        archiveDownloadEnabled = false;
+        server.stop();
+        initServer();
+        connectClient();
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertFalse(client.retrieveFile("dir1.zip",
+                new ByteArrayOutputStream()));
+        assertEquals(550, client.getReplyCode());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.ArchiveOutput;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class ArchiveUploadTest extends ClientTestTemplate {
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final byte[] TEST_DATA = "TESTDATA".getBytes();
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        TEST_DIR1.mkdirs();
+    }
+
+    private static byte[] createArchive(ArchiveFormat format)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArchiveOutput out = format.createOutput(bytes);
+        out.putDirectory("dir2/", 0);
+        for (int i = 0; i < 20; i++) {
+            out.putFile((i % 2 == 0 ? "" : "dir2/") + "file" + i + ".txt",
+                    TEST_DATA.length, 0, new ByteArrayInputStream(TEST_DATA));
+        }
+        out.finish();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            IoUtils.copy(in, out, 1024);
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    private void assertExtracted() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            File file = new File(i % 2 == 0 ? TEST_DIR1 : new File(TEST_DIR1,
+                    "dir2"), "file" + i + ".txt");
+            assertTrue(Arrays.equals(TEST_DATA, read(file)));
+        }
+        assertFalse(new File(TEST_DIR1, "upload").exists());
+        assertFalse(new File(ROOT_DIR, "upload").exists());
+    }
+
+    private void upload(ArchiveFormat format) throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertEquals(200, client.sendCommand("SITE UNTAR dir1"));
+        assertTrue(client.storeFile("upload", new ByteArrayInputStream(
+                createArchive(format))));
+    }
+
+    public void testExtractTar() throws Exception {
+        upload(ArchiveFormat.TAR);
+
+        assertExtracted();
+        assertEquals(20, server.getServerContext().getFtpStatistics()
+                .getTotalUploadNumber());
+        assertEquals(1, server.getServerContext().getFtpStatistics()
+                .getTotalDirectoryCreated());
+    }
+
+    public void testExtractZip() throws Exception {
+        upload(ArchiveFormat.ZIP);
+
+        assertExtracted();
+    }
+
+    public void testOnlyNextStoreIsExtracted() throws Exception {
+        upload(ArchiveFormat.TAR);
+
+        assertTrue(client.storeFile("upload", new ByteArrayInputStream(
+                TEST_DATA)));
+        assertTrue(Arrays.equals(TEST_DATA, read(new File(ROOT_DIR, "upload"))));
+    }
+
+    public void testTransferSetupKeepsExtract() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(200, client.sendCommand("SITE UNTAR dir1"));
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        assertTrue(client.storeFile("upload", new ByteArrayInputStream(
+                createArchive(ArchiveFormat.ZIP))));
+
+        assertExtracted();
+    }
+
+    public void testOtherCommandCancelsExtract() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertEquals(200, client.sendCommand("SITE UNTAR dir1"));
+        assertTrue(client.changeWorkingDirectory("dir1"));
+        assertTrue(client.storeFile("upload", new ByteArrayInputStream(
+                TEST_DATA)));
+
+        assertTrue(Arrays.equals(TEST_DATA, read(new File(TEST_DIR1, "upload"))));
+    }
+
+    public void testInvalidArchive() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(200, client.sendCommand("SITE UNTAR dir1"));
+        assertFalse(client.storeFile("upload", new ByteArrayInputStream(
+                TEST_DATA)));
+        assertEquals(551, client.getReplyCode());
+        assertEquals(0, TEST_DIR1.list().length);
+    }
+
+    public void testMissingDirectory() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(550, client.sendCommand("SITE UNTAR nosuchdir"));
+        assertEquals(501, client.sendCommand("SITE UNTAR"));
+    }
+
+    public void testWithoutWritePermission() throws Exception {
+        client.login(ANONYMOUS_USERNAME, ANONYMOUS_PASSWORD);
+
+        assertEquals(550, client.sendCommand("SITE UNTAR dir1"));
+    }
+}
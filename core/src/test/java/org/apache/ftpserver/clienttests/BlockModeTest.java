@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.ftpserver.DataConnectionConfigurationFactory;
+import org.apache.ftpserver.impl.BlockInputStream;
+import org.apache.ftpserver.impl.BlockOutputStream;
+import org.apache.ftpserver.impl.IODataConnection;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class BlockModeTest extends ClientTestTemplate {
+
+    private static final Pattern PASV_REPLY = Pattern
+            .compile("\\((\\d+),(\\d+),(\\d+),(\\d+),(\\d+),(\\d+)\\)");
+
+    private static final byte[] TEST_DATA = "TESTDATA".getBytes();
+
+    private Socket dataSocket;
+
+    @Override
+    protected DataConnectionConfigurationFactory createDataConnectionConfigurationFactory() {
+        DataConnectionConfigurationFactory factory = super
+                .createDataConnectionConfigurationFactory();
+        factory.setIdleTime(1);
+        return factory;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        assertEquals(200, client.sendCommand("MODE B"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (dataSocket != null) {
+            dataSocket.close();
+        }
+        super.tearDown();
+    }
+
+    private Socket openPassive() throws Exception {
+        assertEquals(227, client.pasv());
+        Matcher matcher = PASV_REPLY.matcher(client.getReplyString());
+        assertTrue(matcher.find());
+        int port = Integer.parseInt(matcher.group(5)) * 256
+                + Integer.parseInt(matcher.group(6));
+        dataSocket = new Socket("localhost", port);
+        dataSocket.setSoTimeout(10000);
+        return dataSocket;
+    }
+
+    private void store(String fileName, byte[] data, long markerInterval)
+            throws IOException {
+        assertEquals(150, client.sendCommand("STOR " + fileName));
+        BlockOutputStream out = new BlockOutputStream(dataSocket
+                .getOutputStream(), markerInterval, 0);
+        out.write(data);
+        out.close();
+    }
+
+    private byte[] read(String command, List<String> markers)
+            throws IOException {
+        assertEquals(150, client.sendCommand(command));
+        BlockInputStream in = new BlockInputStream(dataSocket
+                .getInputStream(), (marker, count) -> markers.add(marker
+                + "=" + count));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IoUtils.copy(in, out, 1024);
+        assertTrue(in.isFinished());
+        assertEquals(250, client.getReply());
+        return out.toByteArray();
+    }
+
+    private static byte[] read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            IoUtils.copy(in, out, 1024);
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    public void testFeat() throws Exception {
+        assertEquals(211, client.sendCommand("FEAT"));
+        assertTrue(client.getReplyString().contains(" MODE B"));
+    }
+
+    public void testConnectionKeptOpen() throws Exception {
+        openPassive();
+
+        store("test1.txt", TEST_DATA, 0);
+        assertEquals(250, client.getReply());
+        assertTrue(client.getReplyString().contains("kept open"));
+        store("test2.txt", new byte[0], 0);
+        assertEquals(250, client.getReply());
+
+        List<String> markers = new ArrayList<>();
+        assertTrue(Arrays.equals(TEST_DATA, read("RETR test1.txt", markers)));
+        String listing = new String(read("NLST", markers));
+        assertTrue(listing.contains("test1.txt"));
+        assertTrue(listing.contains("test2.txt"));
+        assertTrue(markers.isEmpty());
+
+        assertTrue(Arrays.equals(TEST_DATA, read(new File(ROOT_DIR,
+                "test1.txt"))));
+        assertEquals(0, new File(ROOT_DIR, "test2.txt").length());
+    }
+
+    public void testRestartMarkersAreAcknowledged() throws Exception {
+        openPassive();
+
+        store("test1.txt", "0123456789012345678901234".getBytes(), 10);
+        assertEquals(110, client.getReply());
+        assertEquals("110 MARK 10 = 10", client.getReplyString().trim());
+        assertEquals(110, client.getReply());
+        assertEquals("110 MARK 20 = 20", client.getReplyString().trim());
+        assertEquals(250, client.getReply());
+        assertEquals(25, new File(ROOT_DIR, "test1.txt").length());
+    }
+
+    public void testRestartMarkersAreSent() throws Exception {
+        byte[] data = new byte[IODataConnection.RESTART_MARKER_INTERVAL + 10];
+        openPassive();
+        store("test1.txt", data, 0);
+        assertEquals(250, client.getReply());
+
+        List<String> markers = new ArrayList<>();
+        assertEquals(350, client.sendCommand("REST 5"));
+        assertEquals(data.length - 5, read("RETR test1.txt", markers).length);
+        assertEquals(1, markers.size());
+        assertEquals((IODataConnection.RESTART_MARKER_INTERVAL + 5) + "="
+                + IODataConnection.RESTART_MARKER_INTERVAL, markers.get(0));
+    }
+
+    public void testAborClosesConnection() throws Exception {
+        openPassive();
+        store("test1.txt", TEST_DATA, 0);
+        assertEquals(250, client.getReply());
+
+        assertEquals(226, client.sendCommand("ABOR"));
+        assertEquals(-1, dataSocket.getInputStream().read());
+    }
+
+    public void testPasvClosesConnection() throws Exception {
+        openPassive();
+        store("test1.txt", TEST_DATA, 0);
+        assertEquals(250, client.getReply());
+        Socket first = dataSocket;
+
+        openPassive();
+        assertEquals(-1, first.getInputStream().read());
+        first.close();
+
+        store("test2.txt", TEST_DATA, 0);
+        assertEquals(250, client.getReply());
+    }
+
+    public void testIdleConnectionIsClosed() throws Exception {
+        openPassive();
+        store("test1.txt", TEST_DATA, 0);
+        assertEquals(250, client.getReply());
+
+        Thread.sleep(1500);
+        assertEquals(200, client.sendCommand("NOOP"));
+        assertEquals(-1, dataSocket.getInputStream().read());
+    }
+
+    public void testIdlePassiveStreamModeIsKept() throws Exception {
+        assertEquals(200, client.sendCommand("MODE S"));
+        assertEquals(227, client.pasv());
+        Matcher matcher = PASV_REPLY.matcher(client.getReplyString());
+        assertTrue(matcher.find());
+
+        // a pending passive connection is not closed by later commands
+        Thread.sleep(1500);
+        assertEquals(200, client.sendCommand("NOOP"));
+
+        dataSocket = new Socket("localhost", Integer.parseInt(matcher
+                .group(5))
+                * 256 + Integer.parseInt(matcher.group(6)));
+        assertEquals(150, client.sendCommand("STOR test1.txt"));
+        dataSocket.getOutputStream().write(TEST_DATA);
+        dataSocket.close();
+        dataSocket = null;
+        assertEquals(226, client.getReply());
+        assertTrue(Arrays.equals(TEST_DATA, read(new File(ROOT_DIR,
+                "test1.txt"))));
+    }
+}
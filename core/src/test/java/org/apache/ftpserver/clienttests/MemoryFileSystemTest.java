@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFileSystemTest extends ClientTestTemplate {
+
+    private static final String TEST_FILENAME = "test.bin";
+
+    private static final int SKIP_LEN = 100000;
+
+    private MemoryFileSystemFactory fileSystem;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        fileSystem = new MemoryFileSystemFactory();
+        fileSystem.setChunkSize(4096);
+        server.setFileSystem(fileSystem);
+
+        return server;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+    }
+
+    private byte[] createData(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private byte[] retrieve(String fileName) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(fileName, baos));
+        return baos.toByteArray();
+    }
+
+    public void testStoreAndRetrieve() throws Exception {
+        byte[] data = createData(300000);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        // nothing is written to disk
+        assertFalse(new File(ROOT_DIR, TEST_FILENAME).exists());
+        assertTrue(Arrays.equals(data, retrieve(TEST_FILENAME)));
+        assertEquals(300000 + 4096 - 300000 % 4096, fileSystem.getUsedSpace());
+    }
+
+    public void testRetrieveWithRestart() throws Exception {
+        byte[] data = createData(300000);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        client.setRestartOffset(SKIP_LEN);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, SKIP_LEN,
+                data.length), retrieve(TEST_FILENAME)));
+    }
+
+    public void testStoreWithRestart() throws Exception {
+        byte[] data = createData(300000);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        byte[] tail = createData(1000);
+        client.setRestartOffset(SKIP_LEN);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                tail)));
+
+        byte[] expected = Arrays.copyOf(data, SKIP_LEN + tail.length);
+        System.arraycopy(tail, 0, expected, SKIP_LEN, tail.length);
+        assertTrue(Arrays.equals(expected, retrieve(TEST_FILENAME)));
+    }
+
+    public void testDirectoriesAndRename() throws Exception {
+        assertTrue(client.makeDirectory("dir1"));
+        assertTrue(client.changeWorkingDirectory("dir1"));
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                createData(10))));
+        assertTrue(client.changeToParentDirectory());
+
+        assertTrue(client.rename("dir1/" + TEST_FILENAME, "moved.bin"));
+        FTPFile[] files = client.listFiles();
+        assertEquals(2, files.length);
+        assertEquals("dir1", files[0].getName());
+        assertTrue(files[0].isDirectory());
+        assertEquals("moved.bin", files[1].getName());
+        assertEquals(10, files[1].getSize());
+
+        assertTrue(client.removeDirectory("dir1"));
+        assertTrue(client.deleteFile("moved.bin"));
+        assertEquals(0, client.listFiles().length);
+        assertEquals(0, fileSystem.getUsedSpace());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.mirror.MirrorFileSystemFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MirrorFileSystemTest extends ClientTestTemplate {
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(TEST_DIR1, "file1.txt");
+
+    private MirrorFileSystemFactory fileSystem;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        fileSystem = new MirrorFileSystemFactory();
+        fileSystem.setRootDirectory(ROOT_DIR);
+        fileSystem.setRescanInterval(0);
+        server.setFileSystem(fileSystem);
+
+        return server;
+    }
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        TEST_DIR1.mkdirs();
+        FileOutputStream out = new FileOutputStream(TEST_FILE1);
+        out.write("hello world".getBytes("UTF-8"));
+        out.close();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fileSystem.dispose();
+        super.tearDown();
+    }
+
+    public void testListAndRetrieve() throws Exception {
+        assertTrue(client.changeWorkingDirectory("dir1"));
+        assertFalse(client.changeWorkingDirectory("missing"));
+
+        FTPFile[] files = client.listFiles();
+        assertEquals(1, files.length);
+        assertEquals("file1.txt", files[0].getName());
+        assertEquals(11, files[0].getSize());
+
+        assertEquals(FTPReply.FILE_STATUS, client.sendCommand("SIZE file1.txt"));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile("file1.txt", baos));
+        assertEquals("hello world", baos.toString("UTF-8"));
+    }
+
+    public void testReadOnly() throws Exception {
+        assertFalse(client.storeFile("new.txt", new ByteArrayInputStream(
+                new byte[10])));
+        assertFalse(client.makeDirectory("dir2"));
+        assertFalse(client.deleteFile("dir1/file1.txt"));
+        assertFalse(client.rename("dir1", "dir2"));
+
+        assertFalse(new File(ROOT_DIR, "new.txt").exists());
+        assertTrue(TEST_FILE1.exists());
+    }
+
+    public void testNewFilesSeenAfterRescan() throws Exception {
+        new File(ROOT_DIR, "dir2").mkdirs();
+        assertTrue(ROOT_DIR.setLastModified(ROOT_DIR.lastModified() + 10000));
+        assertFalse(client.changeWorkingDirectory("dir2"));
+
+        fileSystem.rescan();
+        assertTrue(client.changeWorkingDirectory("dir2"));
+    }
+}
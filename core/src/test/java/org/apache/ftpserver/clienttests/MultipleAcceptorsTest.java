@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.listener.ListenerFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MultipleAcceptorsTest extends ClientTestTemplate {
+
+    private static final int CLIENT_COUNT = 8;
+
+    @Override
+    protected boolean isConnectClient() {
+        return false;
+    }
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        ListenerFactory factory = new ListenerFactory(server.getListener("default"));
+        factory.setAcceptorCount(4);
+
+        server.addListener("default", factory.createListener());
+
+        return server;
+    }
+
+    private List<FTPClient> connectClients() throws Exception {
+        List<FTPClient> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            FTPClient c = createFTPClient();
+            c.connect("localhost", getListenerPort());
+            assertTrue(c.login(ADMIN_USERNAME, ADMIN_PASSWORD));
+            clients.add(c);
+        }
+        return clients;
+    }
+
+    private void disconnectClients(List<FTPClient> clients) throws Exception {
+        for (FTPClient c : clients) {
+            c.quit();
+            c.disconnect();
+        }
+    }
+
+    public void testActiveSessions() throws Exception {
+        List<FTPClient> clients = connectClients();
+        try {
+            assertEquals(CLIENT_COUNT, server.getListener("default")
+                    .getActiveSessions().size());
+        } finally {
+            disconnectClients(clients);
+        }
+    }
+
+    public void testSuspendResume() throws Exception {
+        server.getListener("default").suspend();
+
+        try {
+            client.connect("localhost", getListenerPort());
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        } finally {
+            client.disconnect();
+        }
+
+        server.getListener("default").resume();
+
+        disconnectClients(connectClients());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.nio.NioFileSystemFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioRenameTest extends ClientTestTemplate {
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "test1.txt");
+
+    private static final File TEST_FILE2 = new File(ROOT_DIR, "test2.txt");
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+        server.setFileSystem(new NioFileSystemFactory());
+        return server;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testRename() throws Exception {
+        write(TEST_FILE1, "hello");
+
+        assertTrue(client.rename(TEST_FILE1.getName(), TEST_FILE2.getName()));
+
+        assertFalse(TEST_FILE1.exists());
+        assertEquals(5, TEST_FILE2.length());
+    }
+
+    public void testRenameReplacesExistingFile() throws Exception {
+        write(TEST_FILE1, "hello");
+        write(TEST_FILE2, "old content");
+
+        assertTrue(client.rename(TEST_FILE1.getName(), TEST_FILE2.getName()));
+
+        assertFalse(TEST_FILE1.exists());
+        assertEquals(5, TEST_FILE2.length());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.ftpserver.ConnectionConfigFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class OverloadSheddingTest extends ClientTestTemplate {
+
+    private static final Pattern PASV_REPLY = Pattern
+            .compile("\\((\\d+),(\\d+),(\\d+),(\\d+),(\\d+),(\\d+)\\)");
+
+    private static final int THRESHOLD = 200;
+
+    private Socket dataSocket;
+
+    @Override
+    protected ConnectionConfigFactory createConnectionConfigFactory() {
+        ConnectionConfigFactory factory = new ConnectionConfigFactory();
+        factory.setConnectionSheddingThreshold(THRESHOLD);
+        factory.setTransferSheddingThreshold(THRESHOLD);
+        // a single worker, which the blocked upload keeps busy
+        factory.setMaxThreads(getName().equals("testLongTransferDoesNotShed") ? 2
+                : 1);
+        return factory;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (dataSocket != null) {
+            dataSocket.close();
+        }
+        super.tearDown();
+    }
+
+    private FTPClient login() throws Exception {
+        FTPClient other = createFTPClient();
+        other.connect("localhost", getListenerPort());
+        assertTrue(other.login(ADMIN_USERNAME, ADMIN_PASSWORD));
+        return other;
+    }
+
+    /**
+     * Start an upload which keeps a worker busy until the data socket is
+     * closed
+     */
+    private void startUpload() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        assertEquals(227, client.pasv());
+        Matcher matcher = PASV_REPLY.matcher(client.getReplyString());
+        assertTrue(matcher.find());
+        int port = Integer.parseInt(matcher.group(5)) * 256
+                + Integer.parseInt(matcher.group(6));
+        dataSocket = new Socket("localhost", port);
+        assertEquals(150, client.sendCommand("STOR test1.txt"));
+        dataSocket.getOutputStream().write(1);
+    }
+
+    private void finishUpload() throws Exception {
+        dataSocket.close();
+        dataSocket = null;
+        assertEquals(226, client.getReply());
+    }
+
+    private String connectRaw() throws Exception {
+        Socket socket = new Socket("localhost", getListenerPort());
+        try {
+            socket.setSoTimeout(10000);
+            return new BufferedReader(new InputStreamReader(socket
+                    .getInputStream(), "ASCII")).readLine();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Send a command from another thread, as it waits for the worker
+     */
+    private static class CommandThread extends Thread {
+
+        private final FTPClient ftpClient;
+
+        private final String command;
+
+        private volatile int reply;
+
+        CommandThread(FTPClient ftpClient, String command) {
+            this.ftpClient = ftpClient;
+            this.command = command;
+            start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                reply = ftpClient.sendCommand(command);
+            } catch (Exception e) {
+                reply = -1;
+            }
+        }
+
+        int getReply() throws InterruptedException {
+            join(10000);
+            return reply;
+        }
+    }
+
+    public void testSheddingWhileSessionsWaitForWorker() throws Exception {
+        FTPClient retrClient = login();
+        FTPClient noopClient = login();
+        startUpload();
+
+        // both sessions wait for the busy worker, the first one to run sees
+        // the other one waiting
+        CommandThread retr = new CommandThread(retrClient, "RETR test1.txt");
+        Thread.sleep(100);
+        CommandThread noop = new CommandThread(noopClient, "NOOP");
+        Thread.sleep(2 * THRESHOLD);
+
+        assertTrue(connectRaw().startsWith("421"));
+
+        finishUpload();
+        assertEquals(450, retr.getReply());
+        assertEquals(200, noop.getReply());
+        assertEquals(1, server.getServerContext().getOverloadMonitor()
+                .getShedConnectionNumber());
+        assertEquals(1, server.getServerContext().getOverloadMonitor()
+                .getShedTransferNumber());
+
+        retrClient.disconnect();
+        noopClient.disconnect();
+    }
+
+    public void testLongTransferDoesNotShed() throws Exception {
+        FTPClient other = login();
+        startUpload();
+        Thread.sleep(2 * THRESHOLD);
+
+        assertTrue(connectRaw().startsWith("220"));
+        assertEquals(200, other.sendCommand("NOOP"));
+        assertEquals(550, other.sendCommand("RETR nosuchfile.txt"));
+
+        finishUpload();
+        assertEquals(0, server.getServerContext().getOverloadMonitor()
+                .getShedConnectionNumber());
+        assertEquals(0, server.getServerContext().getOverloadMonitor()
+                .getShedTransferNumber());
+
+        other.disconnect();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.quota.QuotaFileSystemFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.QuotaPermission;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class QuotaTest extends ClientTestTemplate {
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1.txt");
+
+    private static final int MAX_BYTES = 1000;
+
+    private QuotaFileSystemFactory fileSystem;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        fileSystem = new QuotaFileSystemFactory();
+        fileSystem.setScanThreads(1);
+
+        // give the users a quota without changing the shared users file
+        server.setFileSystem(new FileSystemFactory() {
+            public FileSystemView createFileSystemView(User user)
+                    throws FtpException {
+                BaseUser limitedUser = new BaseUser(user);
+                List<Authority> authorities = new ArrayList<>(user
+                        .getAuthorities());
+                authorities.add(new QuotaPermission(MAX_BYTES));
+                limitedUser.setAuthorities(authorities);
+                return fileSystem.createFileSystemView(limitedUser);
+            }
+        });
+
+        return server;
+    }
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        FileOutputStream out = new FileOutputStream(TEST_FILE1);
+        out.write(new byte[600]);
+        out.close();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        assertTrue(fileSystem.awaitScans(10000));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fileSystem.dispose();
+        super.tearDown();
+    }
+
+    private long getUsage() {
+        return fileSystem.getUsages().get(
+                ROOT_DIR.getAbsoluteFile().toPath().normalize().toString());
+    }
+
+    public void testStoreWithinQuota() throws Exception {
+        assertEquals(600, getUsage());
+
+        assertTrue(client.storeFile("file2.txt", new ByteArrayInputStream(
+                new byte[300])));
+        assertEquals(900, getUsage());
+    }
+
+    public void testStoreBeyondQuota() throws Exception {
+        assertFalse(client.storeFile("file2.txt", new ByteArrayInputStream(
+                new byte[500])));
+        assertEquals(552, client.getReplyCode());
+        assertTrue(getUsage() <= MAX_BYTES);
+    }
+
+    public void testDeleteFreesSpace() throws Exception {
+        assertTrue(client.deleteFile("file1.txt"));
+        assertEquals(0, getUsage());
+
+        assertTrue(client.storeFile("file2.txt", new ByteArrayInputStream(
+                new byte[900])));
+        assertEquals(900, getUsage());
+    }
+
+    public void testOverwriteReusesSpace() throws Exception {
+        assertTrue(client.storeFile("file1.txt", new ByteArrayInputStream(
+                new byte[800])));
+        assertEquals(800, getUsage());
+    }
+
+    public void testCopyBeyondQuota() throws Exception {
+        assertEquals(350, client.sendCommand("SITE CPFR file1.txt"));
+        assertEquals(552, client.sendCommand("SITE CPTO file2.txt"));
+        assertTrue(getUsage() <= MAX_BYTES);
+    }
+}
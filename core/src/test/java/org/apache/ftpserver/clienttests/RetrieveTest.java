@@ -22,7 +22,10 @@ package org.apache.ftpserver.clienttests;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 
+import org.apache.commons.net.ftp.FTP;
 import org.apache.ftpserver.test.TestUtil;
 
 /**
@@ -117,6 +120,36 @@ public class RetrieveTest extends ClientTestTemplate {
         TestUtil.assertArraysEqual(expected, baos.toByteArray());
     }
 
+    /**
+     * Binary transfers from the native file system go through file channels
+     */
+    public void testRetrieveBinary() throws Exception {
+        // larger than a channel transfer, with line endings to not convert
+        byte[] data = new byte[200 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        TestUtil.writeDataToFile(TEST_FILE, data);
+
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILENAME, baos));
+
+        TestUtil.assertArraysEqual(data, baos.toByteArray());
+    }
+
+    public void testRetrieveBinaryWithRestart() throws Exception {
+        byte[] data = new byte[100 * 1024];
+        new Random(42).nextBytes(data);
+        TestUtil.writeDataToFile(TEST_FILE, data);
+
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        client.setRestartOffset(70000);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILENAME, baos));
+
+        TestUtil.assertArraysEqual(Arrays.copyOfRange(data, 70000,
+                data.length), baos.toByteArray());
+    }
+
     public void testRetrieveWithPath() throws Exception {
         File dir = new File(ROOT_DIR, "foo/bar");
         dir.mkdirs();
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class SiteCopyTest extends ClientTestTemplate {
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "test1.txt");
+
+    private static final File TEST_FILE2 = new File(ROOT_DIR, "test2.txt");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE_IN_DIR1 = new File(TEST_DIR1,
+            "test3.txt");
+
+    private static final byte[] TEST_DATA = createData(200000);
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        FileOutputStream out = new FileOutputStream(TEST_FILE1);
+        out.write(TEST_DATA);
+        out.close();
+    }
+
+    private static byte[] read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IoUtils.copy(in, baos, 4096);
+            return baos.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testCopy() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(350, client.sendCommand("SITE CPFR test1.txt"));
+        assertEquals(250, client.sendCommand("SITE CPTO test2.txt"));
+
+        assertTrue(Arrays.equals(TEST_DATA, read(TEST_FILE1)));
+        assertTrue(Arrays.equals(TEST_DATA, read(TEST_FILE2)));
+        assertEquals(1, server.getServerContext().getFtpStatistics()
+                .getTotalUploadNumber());
+        assertEquals(TEST_DATA.length, server.getServerContext()
+                .getFtpStatistics().getTotalUploadSize());
+    }
+
+    public void testCopyIntoDirectoryReplacingFile() throws Exception {
+        TEST_DIR1.mkdirs();
+        FileOutputStream out = new FileOutputStream(TEST_FILE_IN_DIR1);
+        out.write(new byte[TEST_DATA.length * 2]);
+        out.close();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(350, client.sendCommand("SITE CPFR test1.txt"));
+        assertEquals(250, client.sendCommand("SITE CPTO dir1/test3.txt"));
+
+        assertTrue(Arrays.equals(TEST_DATA, read(TEST_FILE_IN_DIR1)));
+    }
+
+    public void testCopyMissingFile() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(550, client.sendCommand("SITE CPFR nosuch.txt"));
+        assertEquals(503, client.sendCommand("SITE CPTO test2.txt"));
+        assertFalse(TEST_FILE2.exists());
+    }
+
+    public void testCopyToWithoutCopyFrom() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(503, client.sendCommand("SITE CPTO test2.txt"));
+        assertFalse(TEST_FILE2.exists());
+    }
+
+    public void testCopyOntoItself() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(350, client.sendCommand("SITE CPFR test1.txt"));
+        assertEquals(553, client.sendCommand("SITE CPTO /test1.txt"));
+        assertTrue(Arrays.equals(TEST_DATA, read(TEST_FILE1)));
+    }
+
+    public void testCopyWithoutWritePermission() throws Exception {
+        client.login(ANONYMOUS_USERNAME, ANONYMOUS_PASSWORD);
+
+        assertEquals(350, client.sendCommand("SITE CPFR test1.txt"));
+        assertEquals(553, client.sendCommand("SITE CPTO test2.txt"));
+        assertFalse(TEST_FILE2.exists());
+    }
+}
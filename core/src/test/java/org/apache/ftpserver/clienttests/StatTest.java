@@ -61,6 +61,24 @@ public class StatTest extends ClientTestTemplate {
         assertTrue(reply[1], Pattern.matches(PATTERN, reply[1]));
     }
 
+    public void testStatDirRecursive() throws Exception {
+        File subDir = new File(TEST_DIR, "sub");
+        assertTrue(subDir.mkdirs());
+        assertTrue(TEST_FILE1.createNewFile());
+        assertTrue(new File(subDir, "test2.txt").createNewFile());
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        assertEquals(212, client.stat("-R " + TEST_DIR.getName()));
+        String[] reply = client.getReplyString().split("\r\n");
+        assertEquals("test:", reply[1]);
+        assertTrue(reply[2], reply[2].endsWith(" sub"));
+        assertTrue(reply[3], Pattern.matches(PATTERN, reply[3]));
+        assertEquals("", reply[4]);
+        assertEquals("test/sub:", reply[5]);
+        assertTrue(reply[6], Pattern.matches(PATTERN, reply[6]));
+    }
+
     public void testStat() throws Exception {
         client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
 
@@ -22,6 +22,8 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
@@ -144,6 +146,53 @@ public class StoreTest extends ClientTestTemplate {
         TestUtil.assertFileEqual(oneAndAHalfTestData, testFile);
     }
 
+    /**
+     * Binary transfers to the native file system go through file channels
+     */
+    public void testStoreBinary() throws Exception {
+        File testFile = new File(ROOT_DIR, TEST_FILENAME);
+        byte[] data = new byte[200 * 1024 + 17];
+        new Random(42).nextBytes(data);
+
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        TestUtil.assertFileEqual(data, testFile);
+    }
+
+    public void testStoreBinaryWithRestart() throws Exception {
+        File testFile = new File(ROOT_DIR, TEST_FILENAME);
+        byte[] data = new byte[100 * 1024];
+        new Random(42).nextBytes(data);
+        TestUtil.writeDataToFile(testFile, data);
+
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        client.setRestartOffset(SKIP_LEN);
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        byte[] expected = new byte[SKIP_LEN + data.length];
+        System.arraycopy(data, 0, expected, 0, SKIP_LEN);
+        System.arraycopy(data, 0, expected, SKIP_LEN, data.length);
+        TestUtil.assertFileEqual(expected, testFile);
+    }
+
+    public void testAppendBinary() throws Exception {
+        File testFile = new File(ROOT_DIR, TEST_FILENAME);
+        byte[] data = new byte[100 * 1024];
+        new Random(42).nextBytes(data);
+        TestUtil.writeDataToFile(testFile, data);
+
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        assertTrue(client.appendFile(TEST_FILENAME, new ByteArrayInputStream(
+                data)));
+
+        byte[] expected = Arrays.copyOf(data, 2 * data.length);
+        System.arraycopy(data, 0, expected, data.length, data.length);
+        TestUtil.assertFileEqual(expected, testFile);
+    }
+
     public void testStoreEmptyFile() throws Exception {
         File testFile = new File(ROOT_DIR, TEST_FILENAME);
 
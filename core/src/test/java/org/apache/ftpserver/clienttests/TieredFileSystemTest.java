@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.tiered.TieredFileSystemFactory;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class TieredFileSystemTest extends ClientTestTemplate {
+
+    private static final File CACHE_DIR = new File(ROOT_DIR.getParentFile(),
+            "tiercache");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1.txt");
+
+    private static final byte[] TEST_DATA = createData(100000);
+
+    private TieredFileSystemFactory fileSystem;
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        fileSystem = new TieredFileSystemFactory();
+        fileSystem.setCacheDirectory(CACHE_DIR);
+        server.setFileSystem(fileSystem);
+
+        return server;
+    }
+
+    @Override
+    protected void initDirs() throws IOException {
+        super.initDirs();
+
+        FileOutputStream out = new FileOutputStream(TEST_FILE1);
+        out.write(TEST_DATA);
+        out.close();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fileSystem.dispose();
+        super.tearDown();
+    }
+
+    private byte[] retrieve(String fileName) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(fileName, baos));
+        return baos.toByteArray();
+    }
+
+    public void testRetrieveFromLocalCopy() throws Exception {
+        assertTrue(Arrays.equals(TEST_DATA, retrieve("file1.txt")));
+        assertEquals(1, fileSystem.getStatistics().getMissCount());
+        assertEquals(TEST_DATA.length, fileSystem.getStatistics().getSize());
+
+        assertTrue(Arrays.equals(TEST_DATA, retrieve("file1.txt")));
+        assertEquals(1, fileSystem.getStatistics().getHitCount());
+    }
+
+    public void testStoreListAndDelete() throws Exception {
+        assertTrue(client.storeFile("file2.txt", new ByteArrayInputStream(
+                TEST_DATA)));
+
+        FTPFile[] files = client.listFiles();
+        assertEquals(2, files.length);
+        assertEquals("file2.txt", files[1].getName());
+        assertEquals(TEST_DATA.length, files[1].getSize());
+        assertTrue(Arrays.equals(TEST_DATA, retrieve("file2.txt")));
+
+        assertTrue(fileSystem.flush());
+        File backing = new File(ROOT_DIR, "file2.txt");
+        FileInputStream in = new FileInputStream(backing);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IoUtils.copy(in, baos, 4096);
+            assertTrue(Arrays.equals(TEST_DATA, baos.toByteArray()));
+        } finally {
+            in.close();
+        }
+
+        assertTrue(client.deleteFile("file2.txt"));
+        assertFalse(backing.exists());
+        assertEquals(1, client.listFiles().length);
+    }
+}
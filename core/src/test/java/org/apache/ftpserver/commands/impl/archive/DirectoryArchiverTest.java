@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.DirectoryArchiver;
+import org.apache.ftpserver.command.impl.archive.TarArchiveOutput;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DirectoryArchiverTest extends TestCase {
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final byte[] LARGE_DATA = createData(DirectoryArchiver.SMALL_FILE_SIZE * 3 + 17);
+
+    private ForkJoinPool pool;
+
+    private FileSystemView fileSystemView;
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        BaseUser baseUser = new BaseUser();
+        baseUser.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        fileSystemView = new NativeFileSystemView(baseUser) {
+        };
+        pool = new ForkJoinPool(2);
+
+        mkdirs("dir/a/aa");
+        mkdirs("dir/b");
+        mkdirs("dir/.hidden");
+        createFile("dir/f1.txt", "hello".getBytes(StandardCharsets.UTF_8));
+        createFile("dir/a/f2.txt", new byte[0]);
+        createFile("dir/a/aa/f3.bin", LARGE_DATA);
+        createFile("dir/.hidden/f4.txt", new byte[1]);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdownNow();
+        cleanTmpDirs();
+    }
+
+    private void mkdirs(String path) {
+        assertTrue(new File(ROOT_DIR, path).mkdirs());
+    }
+
+    private void createFile(String path, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(ROOT_DIR, path));
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] archive(ArchiveFormat format, int readAhead, int maxDepth)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DirectoryArchiver(pool, readAhead, maxDepth).write(
+                fileSystemView.getFile("dir"), format.createOutput(out));
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the entries of a tar archive, checking the header checksums
+     */
+    private static Map<String, byte[]> readTar(byte[] tar) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        int offset = 0;
+        String paxPath = null;
+        while (true) {
+            byte[] header = Arrays.copyOfRange(tar, offset, offset + 512);
+            offset += 512;
+            if (header[0] == 0) {
+                break;
+            }
+            long checksum = 0;
+            for (int i = 0; i < 512; i++) {
+                checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+            }
+            assertEquals(checksum, Long.parseLong(field(header, 148, 7), 8));
+            assertEquals("ustar", field(header, 257, 6));
+
+            String name = field(header, 0, 100);
+            int size = Integer.parseInt(field(header, 124, 11), 8);
+            byte[] content = Arrays.copyOfRange(tar, offset, offset + size);
+            offset += (size + 511) / 512 * 512;
+
+            if (header[156] == 'x') {
+                String records = new String(content, StandardCharsets.UTF_8);
+                int start = records.indexOf(" path=") + 6;
+                paxPath = records.substring(start, records.indexOf('\n', start));
+                continue;
+            }
+            entries.put(paxPath != null ? paxPath : name, content);
+            assertEquals(name.endsWith("/") || paxPath != null
+                    && paxPath.endsWith("/") ? '5' : '0', header[156]);
+            paxPath = null;
+        }
+        assertEquals(0, tar.length % 512);
+        return entries;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset,
+                StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, byte[]> readZip(byte[] zip) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip));
+        ZipEntry entry;
+        while ((entry = in.getNextEntry()) != null) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            IoUtils.copy(in, content, 4096);
+            entries.put(entry.getName(), content.toByteArray());
+        }
+        return entries;
+    }
+
+    private void assertEntries(Map<String, byte[]> entries) {
+        assertEquals(Arrays.asList("dir/", "dir/a/", "dir/a/aa/",
+                "dir/a/aa/f3.bin", "dir/a/f2.txt", "dir/b/", "dir/f1.txt"),
+                Arrays.asList(entries.keySet().toArray()));
+        assertEquals("hello", new String(entries.get("dir/f1.txt"),
+                StandardCharsets.UTF_8));
+        assertEquals(0, entries.get("dir/a/f2.txt").length);
+        assertTrue(Arrays.equals(LARGE_DATA, entries.get("dir/a/aa/f3.bin")));
+    }
+
+    public void testTar() throws Exception {
+        assertEntries(readTar(archive(ArchiveFormat.TAR, 0, 16)));
+    }
+
+    public void testTarWithReadAhead() throws Exception {
+        assertEntries(readTar(archive(ArchiveFormat.TAR, 2, 16)));
+    }
+
+    public void testZip() throws Exception {
+        assertEntries(readZip(archive(ArchiveFormat.ZIP, 0, 16)));
+    }
+
+    public void testZipWithReadAhead() throws Exception {
+        assertEntries(readZip(archive(ArchiveFormat.ZIP, 4, 16)));
+    }
+
+    public void testMaxDepth() throws Exception {
+        Map<String, byte[]> entries = readZip(archive(ArchiveFormat.ZIP, 2, 1));
+        assertEquals(Arrays.asList("dir/", "dir/a/", "dir/a/aa/",
+                "dir/a/f2.txt", "dir/b/", "dir/f1.txt"), Arrays
+                .asList(entries.keySet().toArray()));
+    }
+
+    public void testTarLongName() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            name.append("long");
+        }
+        name.append("-\u00e9t\u00e9.txt");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TarArchiveOutput tar = new TarArchiveOutput(out);
+        tar.putFile(name.toString(), 3, 0, new ByteArrayInputStream(
+                new byte[] { 1, 2, 3 }));
+        tar.finish();
+
+        Map<String, byte[]> entries = readTar(out.toByteArray());
+        assertEquals(1, entries.size());
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, entries.get(name
+                .toString())));
+    }
+
+    public void testTarTruncatedFileIsPadded() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TarArchiveOutput tar = new TarArchiveOutput(out);
+        tar.putFile("f", 5, 0, new ByteArrayInputStream(new byte[] { 1, 2 }));
+        tar.finish();
+
+        Map<String, byte[]> entries = readTar(out.toByteArray());
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 0, 0, 0 }, entries
+                .get("f")));
+    }
+
+    public void testFormatForFileName() {
+        assertEquals(ArchiveFormat.TAR, ArchiveFormat.forFileName("dir.tar"));
+        assertEquals(ArchiveFormat.ZIP, ArchiveFormat.forFileName("dir.ZIP"));
+        assertNull(ArchiveFormat.forFileName(".tar"));
+        assertNull(ArchiveFormat.forFileName("dir.txt"));
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
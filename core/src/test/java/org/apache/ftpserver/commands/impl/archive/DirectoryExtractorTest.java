@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.ArchiveOutput;
+import org.apache.ftpserver.command.impl.archive.DirectoryExtractor;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+import org.apache.mina.core.session.DummySession;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DirectoryExtractorTest extends TestCase {
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR = new File(ROOT_DIR, "dir");
+
+    private static final byte[] LARGE_DATA = createData(100 * 1024 + 17);
+
+    private static final long LAST_MODIFIED = 1234567890000L;
+
+    private FtpIoSession session;
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        assertTrue(TEST_DIR.mkdirs());
+        session = createSession(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    private FtpIoSession createSession(boolean writable) throws FtpException {
+        BaseUser baseUser = new BaseUser();
+        baseUser.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        if (writable) {
+            List<Authority> authorities = new ArrayList<>();
+            authorities.add(new WritePermission());
+            baseUser.setAuthorities(authorities);
+        }
+        FtpIoSession ftpSession = new FtpIoSession(new DummySession(), null);
+        ftpSession.setLogin(new NativeFileSystemView(baseUser) {
+        });
+        return ftpSession;
+    }
+
+    private static void putFile(ArchiveOutput out, String path, byte[] data)
+            throws IOException {
+        out.putFile(path, data.length, LAST_MODIFIED, new ByteArrayInputStream(
+                data));
+    }
+
+    private static byte[] createArchive(ArchiveFormat format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArchiveOutput out = format.createOutput(bytes);
+        out.putDirectory("empty/", LAST_MODIFIED);
+        putFile(out, "f1.txt", "hello".getBytes(StandardCharsets.UTF_8));
+        putFile(out, "a/aa/f2.bin", LARGE_DATA);
+        putFile(out, "a/f3.txt", new byte[0]);
+        out.finish();
+        return bytes.toByteArray();
+    }
+
+    private DirectoryExtractor extract(FtpIoSession ftpSession, byte[] archive)
+            throws Exception {
+        DirectoryExtractor extractor = new DirectoryExtractor(ftpSession, null,
+                ftpSession.getFileSystemView().getFile("/dir"));
+        extractor.extract(ArchiveFormat.openInput(new ByteArrayInputStream(
+                archive)));
+        return extractor;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IoUtils.copy(in, out, 1024);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private void assertExtracted(DirectoryExtractor extractor) throws Exception {
+        assertEquals(3, extractor.getFileCount());
+        assertEquals(1, extractor.getDirectoryCount());
+        assertEquals(0, extractor.getSkippedCount());
+
+        assertTrue(new File(TEST_DIR, "empty").isDirectory());
+        assertEquals("hello", new String(read(new File(TEST_DIR, "f1.txt")),
+                StandardCharsets.UTF_8));
+        assertTrue(Arrays.equals(LARGE_DATA, read(new File(TEST_DIR,
+                "a/aa/f2.bin"))));
+        assertEquals(0, new File(TEST_DIR, "a/f3.txt").length());
+        assertEquals(LAST_MODIFIED / 1000, new File(TEST_DIR, "f1.txt")
+                .lastModified() / 1000);
+    }
+
+    public void testTar() throws Exception {
+        assertExtracted(extract(session, createArchive(ArchiveFormat.TAR)));
+    }
+
+    public void testZip() throws Exception {
+        assertExtracted(extract(session, createArchive(ArchiveFormat.ZIP)));
+    }
+
+    public void testTarLongName() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 15; i++) {
+            name.append("directory").append(i).append('/');
+        }
+        name.append("file.txt");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArchiveOutput out = ArchiveFormat.TAR.createOutput(bytes);
+        putFile(out, name.toString(), new byte[] { 1, 2, 3 });
+        out.finish();
+
+        DirectoryExtractor extractor = extract(session, bytes.toByteArray());
+        assertEquals(1, extractor.getFileCount());
+        assertEquals(3, new File(TEST_DIR, name.toString()).length());
+    }
+
+    public void testEntriesOutsideDirectoryAreSkipped() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArchiveOutput out = ArchiveFormat.TAR.createOutput(bytes);
+        putFile(out, "../escaped.txt", new byte[1]);
+        putFile(out, "a/../../escaped2.txt", new byte[1]);
+        putFile(out, "..\\escaped3.txt", new byte[1]);
+        putFile(out, "/absolute.txt", new byte[1]);
+        putFile(out, "./relative.txt", new byte[1]);
+        out.finish();
+
+        DirectoryExtractor extractor = extract(session, bytes.toByteArray());
+        assertEquals(2, extractor.getFileCount());
+        assertEquals(3, extractor.getSkippedCount());
+        assertFalse(new File(ROOT_DIR, "escaped.txt").exists());
+        assertFalse(new File(ROOT_DIR, "escaped2.txt").exists());
+        assertFalse(new File(ROOT_DIR, "escaped3.txt").exists());
+        assertTrue(new File(TEST_DIR, "absolute.txt").isFile());
+        assertTrue(new File(TEST_DIR, "relative.txt").isFile());
+    }
+
+    public void testFileReplacingDirectoryIsSkipped() throws Exception {
+        assertTrue(new File(TEST_DIR, "f1.txt").mkdir());
+
+        DirectoryExtractor extractor = extract(session,
+                createArchive(ArchiveFormat.TAR));
+        assertEquals(2, extractor.getFileCount());
+        assertEquals(1, extractor.getSkippedCount());
+        assertTrue(new File(TEST_DIR, "f1.txt").isDirectory());
+    }
+
+    public void testWithoutWritePermission() throws Exception {
+        DirectoryExtractor extractor = extract(createSession(false),
+                createArchive(ArchiveFormat.ZIP));
+        assertEquals(0, extractor.getFileCount());
+        assertEquals(0, extractor.getDirectoryCount());
+        assertEquals(4, extractor.getSkippedCount());
+        assertEquals(0, TEST_DIR.list().length);
+    }
+
+    public void testTruncatedTar() throws Exception {
+        byte[] tar = createArchive(ArchiveFormat.TAR);
+        try {
+            extract(session, Arrays.copyOf(tar, 2048));
+            fail("Must throw EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Create a tar with one file whose size field is replaced, with a valid
+     * header checksum
+     */
+    private static byte[] createTarWithSize(byte[] size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArchiveOutput out = ArchiveFormat.TAR.createOutput(bytes);
+        putFile(out, "f1.txt", "hello".getBytes(StandardCharsets.UTF_8));
+        out.finish();
+        byte[] tar = bytes.toByteArray();
+
+        System.arraycopy(size, 0, tar, 124, 12);
+        long checksum = 0;
+        for (int i = 0; i < 512; i++) {
+            checksum += (i >= 148 && i < 156) ? ' ' : tar[i] & 0xff;
+        }
+        byte[] field = String.format("%06o\0 ", checksum).getBytes(
+                StandardCharsets.US_ASCII);
+        System.arraycopy(field, 0, tar, 148, 8);
+        return tar;
+    }
+
+    public void testHostileTarSize() throws Exception {
+        // base 256 sizes overflowing a long, or negative
+        byte[] overflowing = new byte[12];
+        overflowing[0] = (byte) 0x80;
+        overflowing[3] = (byte) 0x80;
+        byte[] negative = new byte[12];
+        Arrays.fill(negative, (byte) 0xff);
+
+        for (byte[] size : new byte[][] { overflowing, negative }) {
+            try {
+                extract(session, createTarWithSize(size));
+                fail("Must throw IOException");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+        assertEquals(0, TEST_DIR.list().length);
+    }
+
+    public void testBase256TarSize() throws Exception {
+        byte[] size = new byte[12];
+        size[0] = (byte) 0x80;
+        size[11] = 5;
+
+        DirectoryExtractor extractor = extract(session, createTarWithSize(size));
+        assertEquals(1, extractor.getFileCount());
+        assertEquals(5, new File(TEST_DIR, "f1.txt").length());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
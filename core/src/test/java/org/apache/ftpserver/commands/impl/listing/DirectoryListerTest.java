@@ -20,9 +20,13 @@
 package org.apache.ftpserver.commands.impl.listing;
 
 import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.ftpserver.ListingOrder;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.FileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
@@ -90,6 +94,35 @@ public class DirectoryListerTest extends TestCase {
         assertEquals("dir3\r\ntest3.txt\r\ntest4.txt\r\n", actual);
     }
 
+    private String listRoot(ListingOrder order) throws Exception {
+        TestUtil.writeDataToFile(new File(ROOT_DIR, "a.txt"), TEST_DATA);
+
+        ListArgument arg = new ListArgument("/", null, null);
+        StringWriter writer = new StringWriter();
+        directoryLister.listFiles(arg, fileSystemView,
+                new NLSTFileFormater(), order, writer);
+        return writer.toString();
+    }
+
+    public void testListFilesDirectoriesFirst() throws Exception {
+        assertEquals("dir1\r\ndir2\r\na.txt\r\ntest1.txt\r\n",
+                listRoot(ListingOrder.DIRECTORIES_FIRST));
+    }
+
+    public void testListFilesByName() throws Exception {
+        assertEquals("a.txt\r\ndir1\r\ndir2\r\ntest1.txt\r\n",
+                listRoot(ListingOrder.NAME));
+    }
+
+    public void testListFilesUnordered() throws Exception {
+        List<String> actual = Arrays.asList(listRoot(ListingOrder.NONE).split(
+                "\r\n"));
+
+        assertEquals(4, actual.size());
+        assertTrue(actual.containsAll(Arrays.asList("a.txt", "dir1", "dir2",
+                "test1.txt")));
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.listing;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ListingOrder;
+import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.LargeDirectoryLister;
+import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.command.impl.listing.NLSTFileFormater;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class LargeDirectoryListerTest extends TestCase {
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private FileSystemView fileSystemView;
+
+    @Override
+    protected void setUp() throws Exception {
+        BaseUser baseUser = new BaseUser();
+        baseUser.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        fileSystemView = new NativeFileSystemView(baseUser) {
+        };
+
+        assertTrue(ROOT_DIR.mkdirs());
+        // created out of order, files and directories mixed
+        for (int i = 99; i >= 0; i--) {
+            File file = new File(ROOT_DIR, "e" + (i * 37 % 100));
+            if (i % 3 == 0) {
+                assertTrue(file.mkdir());
+            } else {
+                assertTrue(file.createNewFile());
+            }
+        }
+        assertTrue(new File(ROOT_DIR, ".hidden").createNewFile());
+    }
+
+    private String list(String argument, ListingOrder order,
+            LargeDirectoryLister lister) throws Exception {
+        StringWriter writer = new StringWriter();
+        new DirectoryLister().listFiles(ListArgumentParser.parse(argument),
+                fileSystemView, new NLSTFileFormater(), order, null, lister,
+                writer);
+        return writer.toString();
+    }
+
+    private String sortedByName(boolean directoriesFirst) {
+        String[] names = ROOT_DIR.list();
+        Arrays.sort(names);
+        StringBuilder sb = new StringBuilder();
+        for (int pass = 0; pass < 2; pass++) {
+            for (String name : names) {
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                boolean dir = new File(ROOT_DIR, name).isDirectory();
+                // one pass for all names, or the directories then the files
+                if (directoriesFirst ? (pass == 0) == dir : pass == 0) {
+                    sb.append(name).append("\r\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    public void testNameOrderInMemory() throws Exception {
+        assertEquals(sortedByName(false), list("", ListingOrder.NAME,
+                new LargeDirectoryLister(1000)));
+    }
+
+    public void testNameOrderMerged() throws Exception {
+        String expected = sortedByName(false);
+        assertEquals(expected, list("", ListingOrder.NAME, null));
+        assertEquals(expected, list("", ListingOrder.NAME,
+                new LargeDirectoryLister(7)));
+        assertEquals(expected, list("", ListingOrder.NAME,
+                new LargeDirectoryLister(1)));
+    }
+
+    public void testMergedInSeveralPasses() throws Exception {
+        // 100 runs merged 3 at a time, in 4 passes before the final merge
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        int before = countListingFiles(tmpDir);
+        assertEquals(sortedByName(false), list("", ListingOrder.NAME,
+                new LargeDirectoryLister(1, 3)));
+        assertEquals(sortedByName(true), list("",
+                ListingOrder.DIRECTORIES_FIRST, new LargeDirectoryLister(2, 2)));
+        assertEquals(before, countListingFiles(tmpDir));
+    }
+
+    public void testDirectoriesFirstMerged() throws Exception {
+        assertEquals(sortedByName(true), list("", ListingOrder.DIRECTORIES_FIRST,
+                new LargeDirectoryLister(10)));
+    }
+
+    public void testNoOrder() throws Exception {
+        String listing = list("", ListingOrder.NONE,
+                new LargeDirectoryLister(10));
+        String[] lines = listing.split("\r\n");
+        Arrays.sort(lines);
+        String[] expected = sortedByName(false).split("\r\n");
+        Arrays.sort(expected);
+        assertEquals(Arrays.asList(expected),
+                Arrays.asList(lines));
+    }
+
+    public void testAllFiles() throws Exception {
+        assertTrue(list("-a", ListingOrder.NAME, new LargeDirectoryLister(10))
+                .startsWith(".hidden\r\ne0\r\n"));
+    }
+
+    public void testPattern() throws Exception {
+        assertEquals("e1\r\ne10\r\ne11\r\ne12\r\ne13\r\ne14\r\ne15\r\n"
+                + "e16\r\ne17\r\ne18\r\ne19\r\n", list("e1*",
+                ListingOrder.NAME, new LargeDirectoryLister(3)));
+    }
+
+    public void testFile() throws Exception {
+        assertEquals("e1\r\n", list("e1", ListingOrder.NAME,
+                new LargeDirectoryLister(3)));
+    }
+
+    public void testNoTemporaryFilesLeft() throws Exception {
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        int before = countListingFiles(tmpDir);
+        list("", ListingOrder.NAME, new LargeDirectoryLister(5));
+        assertEquals(before, countListingFiles(tmpDir));
+    }
+
+    private int countListingFiles(File dir) {
+        String[] names = dir.list((d, name) -> name
+                .startsWith("ftpserver-listing"));
+        return names == null ? 0 : names.length;
+    }
+
+    public void testInvalidThreshold() {
+        try {
+            new LargeDirectoryLister(0);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            new LargeDirectoryLister(10, 1);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
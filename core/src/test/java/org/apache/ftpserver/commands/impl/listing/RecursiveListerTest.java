@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.listing;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ListingConfigFactory;
+import org.apache.ftpserver.ListingOrder;
+import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.command.impl.listing.MLSTFileFormater;
+import org.apache.ftpserver.command.impl.listing.NLSTFileFormater;
+import org.apache.ftpserver.command.impl.listing.RecursiveLister;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class RecursiveListerTest extends TestCase {
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private ForkJoinPool pool;
+
+    private FileSystemView fileSystemView;
+
+    private ListingConfigFactory config;
+
+    @Override
+    protected void setUp() throws Exception {
+        BaseUser baseUser = new BaseUser();
+        baseUser.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        fileSystemView = new NativeFileSystemView(baseUser) {
+        };
+        pool = new ForkJoinPool(4);
+        config = new ListingConfigFactory();
+
+        mkdirs("a/aa/aaa");
+        mkdirs("a/ab");
+        mkdirs("b");
+        mkdirs(".hidden");
+        createFile("f1.txt");
+        createFile("a/f2.txt");
+        createFile("a/aa/f3.txt");
+        createFile("a/aa/aaa/f4.txt");
+        createFile("b/f5.txt");
+        createFile(".hidden/f6.txt");
+    }
+
+    private void mkdirs(String path) {
+        assertTrue(new File(ROOT_DIR, path).mkdirs());
+    }
+
+    private void createFile(String path) throws Exception {
+        assertTrue(new File(ROOT_DIR, path).createNewFile());
+    }
+
+    private String list(String argument, boolean pathNames) throws Exception {
+        StringWriter writer = new StringWriter();
+        new DirectoryLister().listFiles(ListArgumentParser.parse(argument),
+                fileSystemView, new NLSTFileFormater(), ListingOrder.NAME,
+                new RecursiveLister(config.createListingConfig(), pool,
+                        pathNames), writer);
+        return writer.toString();
+    }
+
+    public void testListWithHeaders() throws Exception {
+        assertEquals(".:\r\na\r\nb\r\nf1.txt\r\n"
+                + "\r\n./a:\r\naa\r\nab\r\nf2.txt\r\n"
+                + "\r\n./a/aa:\r\naaa\r\nf3.txt\r\n"
+                + "\r\n./a/aa/aaa:\r\nf4.txt\r\n"
+                + "\r\n./a/ab:\r\n"
+                + "\r\n./b:\r\nf5.txt\r\n", list("-R", false));
+    }
+
+    public void testListDirectoryWithHeaders() throws Exception {
+        assertEquals("a:\r\naa\r\nab\r\nf2.txt\r\n"
+                + "\r\na/aa:\r\naaa\r\nf3.txt\r\n"
+                + "\r\na/aa/aaa:\r\nf4.txt\r\n"
+                + "\r\na/ab:\r\n", list("-R a/", false));
+    }
+
+    public void testListWithPathNames() throws Exception {
+        assertEquals("a\r\nb\r\nf1.txt\r\n"
+                + "a/aa\r\na/ab\r\na/f2.txt\r\n"
+                + "a/aa/aaa\r\na/aa/f3.txt\r\n"
+                + "a/aa/aaa/f4.txt\r\n"
+                + "b/f5.txt\r\n", list("-R", true));
+    }
+
+    public void testListWithPathNamesMlst() throws Exception {
+        StringWriter writer = new StringWriter();
+        new DirectoryLister().listFiles(ListArgumentParser.parse("-R b"),
+                fileSystemView, new MLSTFileFormater(new String[] { "type" }),
+                ListingOrder.NAME, new RecursiveLister(config
+                        .createListingConfig(), pool, true), writer);
+        assertEquals("Type=file; f5.txt\r\n", writer.toString());
+    }
+
+    public void testListHidden() throws Exception {
+        String listing = list("-aR", false);
+        assertTrue(listing, listing.contains("\r\n./.hidden:\r\nf6.txt\r\n"));
+        assertFalse(list("-R", false).contains(".hidden"));
+    }
+
+    public void testMaxDepth() throws Exception {
+        config.setMaxRecursionDepth(1);
+        assertEquals("a\r\nb\r\nf1.txt\r\n"
+                + "a/aa\r\na/ab\r\na/f2.txt\r\n"
+                + "b/f5.txt\r\n", list("-R", true));
+    }
+
+    public void testMaxEntries() throws Exception {
+        config.setMaxRecursiveEntries(5);
+        assertEquals("a\r\nb\r\nf1.txt\r\n"
+                + "a/aa\r\na/ab\r\n", list("-R", true));
+    }
+
+    public void testTimeout() throws Exception {
+        config.setRecursiveListingTimeout(1);
+
+        // keep the only thread of the pool busy past the deadline
+        pool.shutdownNow();
+        pool = new ForkJoinPool(1);
+        pool.execute(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+            }
+        });
+
+        assertEquals("", list("-R", true));
+    }
+
+    public void testDeterministicOrder() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            mkdirs("c/d" + i + "/e");
+            createFile("c/d" + i + "/e/f.txt");
+        }
+        String expected = list("-R", false);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(expected, list("-R", false));
+        }
+    }
+
+    public void testNotRecursiveWithoutOption() throws Exception {
+        assertEquals("a\r\nb\r\nf1.txt\r\n", list("", false));
+    }
+
+    public void testDisabled() throws Exception {
+        config.setMaxRecursionDepth(0);
+        assertFalse(new RecursiveLister(config.createListingConfig(), pool,
+                false).isEnabled());
+        assertEquals("a\r\nb\r\nf1.txt\r\n", list("-R", false));
+    }
+
+    public void testListFile() throws Exception {
+        assertEquals("f1.txt\r\n", list("-R f1.txt", false));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdownNow();
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
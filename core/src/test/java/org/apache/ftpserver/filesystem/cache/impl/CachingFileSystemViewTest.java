@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.cache.CachingFileSystemFactory;
+import org.apache.ftpserver.filesystem.cache.ListingCacheRevalidation;
+import org.apache.ftpserver.filesystem.cache.ListingCacheStatistics;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class CachingFileSystemViewTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private CachingFileSystemFactory factory;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        TEST_FILE1.createNewFile();
+
+        factory = new CachingFileSystemFactory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    private FileSystemView createView(String userName) throws Exception {
+        BaseUser user = new BaseUser();
+        user.setName(userName);
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+        return factory.createFileSystemView(user);
+    }
+
+    private List<? extends FtpFile> list(FileSystemView view) throws Exception {
+        return view.getFile("/").listFiles();
+    }
+
+    private void assertNames(List<? extends FtpFile> files, String... names) {
+        assertEquals(names.length, files.size());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], files.get(i).getName());
+        }
+    }
+
+    public void testListingIsCached() throws Exception {
+        FileSystemView view = createView("user1");
+
+        List<? extends FtpFile> files = list(view);
+        assertNames(files, "dir1", "file1");
+        assertSame(files, list(view));
+
+        ListingCacheStatistics statistics = factory.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(0.5, statistics.getHitRate(), 0.001);
+        assertEquals(1, statistics.getListingCount());
+        assertEquals(2, statistics.getFileCount());
+        assertTrue(statistics.getEstimatedMemory() > 0);
+    }
+
+    public void testListingIsSharedBetweenSessions() throws Exception {
+        assertSame(list(createView("user1")), list(createView("user1")));
+    }
+
+    public void testListingIsNotSharedBetweenUsers() throws Exception {
+        assertNotSame(list(createView("user1")), list(createView("user2")));
+        assertEquals(2, factory.getStatistics().getListingCount());
+    }
+
+    public void testCachedAttributes() throws Exception {
+        List<? extends FtpFile> files = list(createView("user1"));
+        assertTrue(files.get(0).isDirectory());
+        assertTrue(files.get(1).isFile());
+        assertEquals(0, files.get(1).getSize());
+        assertEquals("/file1", files.get(1).getAbsolutePath());
+    }
+
+    public void testExternalChangeNotDetected() throws Exception {
+        FileSystemView view = createView("user1");
+        list(view);
+
+        new File(ROOT_DIR, "file2").createNewFile();
+        assertNames(list(view), "dir1", "file1");
+
+        factory.clear();
+        assertNames(list(view), "dir1", "file1", "file2");
+        assertEquals(1, factory.getStatistics().getInvalidationCount());
+    }
+
+    public void testInvalidatedByMkdir() throws Exception {
+        FileSystemView view = createView("user1");
+        list(view);
+
+        assertTrue(view.getFile("dir2").mkdir());
+        assertNames(list(view), "dir1", "dir2", "file1");
+        assertEquals(1, factory.getStatistics().getInvalidationCount());
+    }
+
+    public void testInvalidatedByDelete() throws Exception {
+        FileSystemView view = createView("user1");
+        list(view);
+
+        assertTrue(view.getFile("file1").delete());
+        assertNames(list(view), "dir1");
+    }
+
+    public void testInvalidatedByDeleteOfListedFile() throws Exception {
+        FileSystemView view = createView("user1");
+        FtpFile file = list(view).get(1);
+        assertTrue(file.doesExist());
+
+        assertTrue(file.delete());
+        assertFalse(file.doesExist());
+        assertNames(list(view), "dir1");
+    }
+
+    public void testInvalidatedByMove() throws Exception {
+        FileSystemView view = createView("user1");
+        list(view);
+        assertEquals(0, view.getFile("dir1").listFiles().size());
+
+        assertTrue(view.getFile("file1").move(view.getFile("dir1/file2")));
+        assertNames(list(view), "dir1");
+        assertNames(view.getFile("dir1").listFiles(), "file2");
+    }
+
+    public void testInvalidatedByWrite() throws Exception {
+        FileSystemView view = createView("user1");
+        assertEquals(0, list(view).get(1).getSize());
+
+        OutputStream out = view.getFile("file1").createOutputStream(0);
+        // listed while the file is being written
+        list(view);
+        out.write(new byte[10]);
+        out.close();
+
+        assertEquals(10, list(view).get(1).getSize());
+    }
+
+    public void testInvalidatedByChannelWrite() throws Exception {
+        FileSystemView view = createView("user1");
+        assertEquals(0, list(view).get(1).getSize());
+
+        WritableByteChannel out = view.getFile("file1").openWritableChannel(0);
+        // listed while the file is being written
+        list(view);
+        out.write(ByteBuffer.allocate(10));
+        out.close();
+
+        assertEquals(10, list(view).get(1).getSize());
+    }
+
+    public void testMtimeRevalidation() throws Exception {
+        factory.setRevalidation(ListingCacheRevalidation.MTIME);
+        FileSystemView view = createView("user1");
+        list(view);
+
+        new File(ROOT_DIR, "file2").createNewFile();
+        // make sure the time changes even with a coarse timestamp resolution
+        ROOT_DIR.setLastModified(ROOT_DIR.lastModified() + 2000);
+
+        assertNames(list(view), "dir1", "file1", "file2");
+        assertEquals(2, factory.getStatistics().getMissCount());
+    }
+
+    public void testWatchRevalidation() throws Exception {
+        factory.setRevalidation(ListingCacheRevalidation.WATCH);
+        FileSystemView view = createView("user1");
+        list(view);
+
+        new File(ROOT_DIR, "file2").createNewFile();
+
+        // events are delivered asynchronously
+        long timeout = System.currentTimeMillis() + 10000;
+        while (factory.getStatistics().getInvalidationCount() == 0
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertNames(list(view), "dir1", "file1", "file2");
+    }
+
+    public void testEviction() throws Exception {
+        factory.setMaxListings(1);
+        FileSystemView view = createView("user1");
+
+        List<? extends FtpFile> files = list(view);
+        view.getFile("dir1").listFiles();
+        assertEquals(1, factory.getStatistics().getEvictionCount());
+        assertEquals(1, factory.getStatistics().getListingCount());
+        assertEquals(0, factory.getStatistics().getFileCount());
+
+        assertNotSame(files, list(view));
+    }
+
+    public void testMaxFilesPerListing() throws Exception {
+        factory.setMaxFilesPerListing(1);
+        FileSystemView view = createView("user1");
+
+        assertNotSame(list(view), list(view));
+        assertEquals(0, factory.getStatistics().getListingCount());
+    }
+
+    private int iterate(FileSystemView view) throws Exception {
+        int count = 0;
+        FtpFileIterator files = view.getFile("/").iterateFiles(null);
+        try {
+            while (files.hasNext()) {
+                files.next();
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+        return count;
+    }
+
+    public void testIterationIsCached() throws Exception {
+        FileSystemView view = createView("user1");
+
+        assertEquals(2, iterate(view));
+        assertEquals(1, factory.getStatistics().getListingCount());
+        assertNames(list(view), "dir1", "file1");
+        assertEquals(1, factory.getStatistics().getHitCount());
+
+        assertEquals(2, iterate(view));
+        assertEquals(2, factory.getStatistics().getHitCount());
+    }
+
+    public void testIterationOfTooManyFilesIsNotCached() throws Exception {
+        factory.setMaxFilesPerListing(1);
+        FileSystemView view = createView("user1");
+
+        assertEquals(2, iterate(view));
+        assertEquals(0, factory.getStatistics().getListingCount());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
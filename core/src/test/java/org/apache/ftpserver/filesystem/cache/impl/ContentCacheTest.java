@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.cache.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.cache.CachingFileSystemFactory;
+import org.apache.ftpserver.filesystem.cache.ContentCacheStatistics;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class ContentCacheTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2 = new File(TEST_DIR1, "file2");
+
+    private CachingFileSystemFactory factory;
+
+    private FileSystemView view;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        writeFile(TEST_FILE1, "hello world");
+        writeFile(TEST_FILE2, "in dir1");
+
+        factory = new CachingFileSystemFactory();
+        factory.setContentCacheSize(100);
+        factory.setMaxCachedFileSize(20);
+        view = createView();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    private FileSystemView createView() throws Exception {
+        BaseUser user = new BaseUser();
+        user.setName("user1");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+        return factory.createFileSystemView(user);
+    }
+
+    private void writeFile(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private String read(String fileName, long offset) throws Exception {
+        InputStream in = view.getFile(fileName).createInputStream(offset);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testContentIsCached() throws Exception {
+        assertEquals("hello world", read("/file1", 0));
+
+        // same size and time, not detected
+        long lastModified = TEST_FILE1.lastModified();
+        writeFile(TEST_FILE1, "HELLO WORLD");
+        assertTrue(TEST_FILE1.setLastModified(lastModified));
+        assertEquals("hello world", read("/file1", 0));
+
+        ContentCacheStatistics statistics = factory
+                .getContentCacheStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(0.5, statistics.getHitRate(), 0.001);
+        assertEquals(1, statistics.getFileCount());
+        assertEquals(11, statistics.getSize());
+        // only the hit saved reading the file
+        assertEquals(11, statistics.getBytesSaved());
+    }
+
+    public void testReadWithOffset() throws Exception {
+        assertEquals("world", read("/file1", 6));
+        assertEquals("world", read("/file1", 6));
+        assertEquals("", read("/file1", 20));
+        assertEquals(5 + 0, factory.getContentCacheStatistics()
+                .getBytesSaved());
+    }
+
+    public void testReadChannel() throws Exception {
+        read("/file1", 0);
+
+        ReadableByteChannel channel = view.getFile("/file1")
+                .openReadableChannel(2);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            assertEquals(4, channel.read(buffer));
+            assertEquals("llo ", new String(buffer.array(), "UTF-8"));
+            buffer.clear();
+            assertEquals(4, channel.read(buffer));
+            buffer.clear();
+            assertEquals(1, channel.read(buffer));
+            assertEquals(-1, channel.read(buffer));
+        } finally {
+            channel.close();
+        }
+        assertEquals(1, factory.getContentCacheStatistics().getHitCount());
+    }
+
+    public void testExternalChangeDetected() throws Exception {
+        read("/file1", 0);
+        writeFile(TEST_FILE1, "changed");
+
+        assertEquals("changed", read("/file1", 0));
+        assertEquals(1, factory.getContentCacheStatistics()
+                .getInvalidationCount());
+        assertEquals(7, factory.getContentCacheStatistics().getSize());
+    }
+
+    public void testInvalidatedByServerWrite() throws Exception {
+        read("/file1", 0);
+
+        OutputStream out = view.getFile("/file1").createOutputStream(0);
+        out.write("HELLO WORLD".getBytes("UTF-8"));
+        out.close();
+
+        assertEquals(0, factory.getContentCacheStatistics().getFileCount());
+        assertEquals("HELLO WORLD", read("/file1", 0));
+    }
+
+    public void testInvalidatedByDirectoryMove() throws Exception {
+        read("/dir1/file2", 0);
+        read("/file1", 0);
+        assertEquals(2, factory.getContentCacheStatistics().getFileCount());
+
+        assertTrue(view.getFile("/dir1").move(view.getFile("/dir2")));
+        assertEquals(1, factory.getContentCacheStatistics().getFileCount());
+    }
+
+    public void testLargeFileNotCached() throws Exception {
+        writeFile(TEST_FILE1, "a file larger than 20 bytes");
+        read("/file1", 0);
+        read("/file1", 0);
+
+        ContentCacheStatistics statistics = factory
+                .getContentCacheStatistics();
+        assertEquals(0, statistics.getHitCount());
+        assertEquals(0, statistics.getMissCount());
+        assertEquals(0, statistics.getFileCount());
+    }
+
+    public void testEviction() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            writeFile(new File(ROOT_DIR, "file" + i), "0123456789abcdef");
+            read("/file" + i, 0);
+        }
+
+        // 6 files of 16 bytes fit in 100 bytes
+        ContentCacheStatistics statistics = factory
+                .getContentCacheStatistics();
+        assertEquals(6, statistics.getFileCount());
+        assertEquals(96, statistics.getSize());
+        assertEquals(4, statistics.getEvictionCount());
+
+        read("/file9", 0);
+        read("/file0", 0);
+        assertEquals(1, statistics.getHitCount());
+    }
+
+    public void testOffHeap() throws Exception {
+        factory = new CachingFileSystemFactory();
+        factory.setContentCacheSize(100);
+        factory.setContentCacheOffHeap(true);
+        view = createView();
+
+        assertEquals("hello world", read("/file1", 0));
+        assertEquals("world", read("/file1", 6));
+        assertEquals(1, factory.getContentCacheStatistics().getHitCount());
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        factory = new CachingFileSystemFactory();
+        view = createView();
+
+        assertEquals("hello world", read("/file1", 0));
+        assertNull(factory.getContentCacheStatistics());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
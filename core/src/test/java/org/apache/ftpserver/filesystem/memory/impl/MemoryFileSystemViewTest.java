@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.OutputStream;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFileSystemViewTest extends TestCase {
+
+    private MemoryFileSystemFactory factory;
+
+    @Override
+    protected void setUp() throws Exception {
+        factory = new MemoryFileSystemFactory();
+        factory.setCapacity(1024 * 1024);
+        factory.setChunkSize(1024);
+    }
+
+    private FileSystemView createView(String name, String home)
+            throws FtpException {
+        BaseUser user = new BaseUser();
+        user.setName(name);
+        user.setHomeDirectory(home);
+        user.setAuthorities(Collections
+                .<Authority> singletonList(new WritePermission()));
+        return factory.createFileSystemView(user);
+    }
+
+    public void testRootPath() {
+        assertEquals("", MemoryFileSystemView.getRootPath("/"));
+        assertEquals("/home/user", MemoryFileSystemView
+                .getRootPath("/home/user/"));
+        assertEquals("/home/user", MemoryFileSystemView
+                .getRootPath("./home//user"));
+    }
+
+    public void testChangeWorkingDirectory() throws Exception {
+        FileSystemView view = createView("user1", "/home/user1");
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.getFile("dir").mkdir());
+        assertTrue(view.changeWorkingDirectory("dir"));
+        assertEquals("/dir", view.getWorkingDirectory().getAbsolutePath());
+        assertEquals("/dir/file", view.getFile("file").getAbsolutePath());
+
+        assertFalse(view.changeWorkingDirectory("missing"));
+        assertTrue(view.changeWorkingDirectory(".."));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        // can not go above the home directory
+        assertTrue(view.changeWorkingDirectory("../.."));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+    }
+
+    public void testUsersHaveTheirOwnRoots() throws Exception {
+        FileSystemView view1 = createView("user1", "/home/user1");
+        FileSystemView view2 = createView("user2", "/home/user2");
+        FileSystemView admin = createView("admin", "/");
+
+        OutputStream out = view1.getFile("file").createOutputStream(0);
+        out.write(new byte[10]);
+        out.close();
+
+        assertFalse(view2.getFile("file").doesExist());
+        assertFalse(view2.getFile("../user1/file").doesExist());
+        FtpFile file = admin.getFile("/home/user1/file");
+        assertTrue(file.isFile());
+        assertEquals(10, file.getSize());
+
+        assertEquals(1024, factory.getUsedSpace());
+    }
+
+    public void testHomeIsAFile() throws Exception {
+        FileSystemView admin = createView("admin", "/");
+        OutputStream out = admin.getFile("home").createOutputStream(0);
+        out.close();
+
+        try {
+            createView("user1", "/home/user1");
+            fail("Must throw FtpException");
+        } catch (FtpException e) {
+            // OK
+        }
+    }
+}
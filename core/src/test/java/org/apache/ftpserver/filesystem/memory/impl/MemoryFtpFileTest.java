@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.FtpFileTestTemplate;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFtpFileTest extends FtpFileTestTemplate {
+
+    private static final int CHUNK_SIZE = 16;
+
+    private ChunkStore store;
+
+    private MemoryFileSystem fileSystem;
+
+    @Override
+    protected void setUp() throws Exception {
+        store = new ChunkStore(10 * CHUNK_SIZE, CHUNK_SIZE);
+        fileSystem = new MemoryFileSystem(store);
+
+        assertTrue(fileSystem.mkdir(DIR1_PATH));
+        assertNotNull(fileSystem.createFile(FILE1_PATH));
+        assertNotNull(fileSystem.createFile(FILE2_PATH));
+        assertNotNull(fileSystem.createFile(FILE3_PATH));
+    }
+
+    @Override
+    protected FtpFile createFileObject(String fileName, User user) {
+        return new MemoryFtpFile(fileName, fileName, fileSystem, user);
+    }
+
+    private void write(FtpFile file, long offset, byte[] data)
+            throws IOException {
+        OutputStream out = file.createOutputStream(offset);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] read(FtpFile file, long offset) throws IOException {
+        InputStream in = file.createInputStream(offset);
+        try {
+            byte[] data = new byte[(int) file.getSize()];
+            int length = 0;
+            int count;
+            while ((count = in.read(data, length, data.length - length)) > 0) {
+                length += count;
+            }
+            assertEquals(-1, in.read());
+            return Arrays.copyOf(data, length);
+        } finally {
+            in.close();
+        }
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    public void testAttributes() {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertFalse(file.isDirectory());
+        assertEquals(0, file.getSize());
+        assertTrue(file.getLastModified() > 0);
+
+        FtpFile dir = createFileObject(DIR1_WITH_SLASH_PATH, USER);
+        assertTrue(dir.isDirectory());
+        assertEquals(3, dir.getLinkCount());
+
+        assertFalse(createFileObject("/missing", USER).doesExist());
+        assertTrue(createFileObject("/.hidden", USER).isHidden());
+    }
+
+    public void testWriteAcrossChunks() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        byte[] data = randomBytes(5 * CHUNK_SIZE + 3);
+        write(file, 0, data);
+
+        assertEquals(data.length, file.getSize());
+        assertTrue(Arrays.equals(data, read(file, 0)));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, 20, data.length),
+                read(file, 20)));
+        assertEquals(6 * CHUNK_SIZE, store.getUsedSpace());
+    }
+
+    public void testWriteWithOffset() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        byte[] data = randomBytes(3 * CHUNK_SIZE);
+        write(file, 0, data);
+
+        // the file is cut at the offset, as with the native file system
+        write(file, 20, new byte[] { 1, 2 });
+        assertEquals(22, file.getSize());
+        byte[] expected = Arrays.copyOf(data, 22);
+        expected[20] = 1;
+        expected[21] = 2;
+        assertTrue(Arrays.equals(expected, read(file, 0)));
+        assertEquals(2 * CHUNK_SIZE, store.getUsedSpace());
+    }
+
+    public void testGrownFileIsZeroFilled() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, randomBytes(2 * CHUNK_SIZE));
+        write(file, 5, new byte[0]);
+
+        // the released chunk and the end of the kept one hold stale data
+        SeekableByteChannel channel = (SeekableByteChannel) file
+                .openWritableChannel(5);
+        try {
+            channel.position(40);
+            channel.write(ByteBuffer.wrap(new byte[] { 9 }));
+        } finally {
+            channel.close();
+        }
+
+        byte[] data = read(file, 5);
+        assertEquals(36, data.length);
+        for (int i = 0; i < 35; i++) {
+            assertEquals(0, data[i]);
+        }
+        assertEquals(9, data[35]);
+    }
+
+    public void testCapacity() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, randomBytes(8 * CHUNK_SIZE));
+        try {
+            write(createFileObject(FILE3_PATH, USER), 0,
+                    randomBytes(3 * CHUNK_SIZE));
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+
+        // the chunks of the failed write are given back
+        assertEquals(8 * CHUNK_SIZE, store.getUsedSpace());
+        assertTrue(file.delete());
+        assertEquals(0, store.getUsedSpace());
+        write(createFileObject(FILE3_PATH, USER), 0,
+                randomBytes(10 * CHUNK_SIZE));
+    }
+
+    public void testWriteToDeletedFile() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        WritableByteChannel channel = file.openWritableChannel(0);
+        try {
+            channel.write(ByteBuffer.wrap(randomBytes(CHUNK_SIZE)));
+            assertTrue(file.delete());
+            assertEquals(0, store.getUsedSpace());
+            channel.write(ByteBuffer.wrap(randomBytes(CHUNK_SIZE)));
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        } finally {
+            channel.close();
+        }
+        assertEquals(0, store.getUsedSpace());
+    }
+
+    public void testReadWhileWriting() throws Exception {
+        final FtpFile file = createFileObject(FILE1_PATH, USER);
+        final byte[] data = randomBytes(10 * CHUNK_SIZE);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // readers only ever see bytes that were written
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        byte[] buffer = new byte[data.length];
+                        while (done.getCount() > 0) {
+                            InputStream in = file.createInputStream(0);
+                            int length = 0;
+                            int count;
+                            while ((count = in.read(buffer, length,
+                                    buffer.length - length)) > 0) {
+                                length += count;
+                            }
+                            in.close();
+                            for (int j = 0; j < length; j++) {
+                                if (buffer[j] != data[j]) {
+                                    throw new AssertionError("Byte " + j);
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        for (int round = 0; round < 200; round++) {
+            WritableByteChannel channel = file.openWritableChannel(0);
+            try {
+                for (int offset = 0; offset < data.length; offset += 7) {
+                    channel.write(ByteBuffer.wrap(data, offset, Math.min(7,
+                            data.length - offset)));
+                }
+            } finally {
+                channel.close();
+            }
+        }
+        done.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(String.valueOf(error.get()), error.get());
+    }
+
+    public void testReadChannel() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, new byte[] { 1, 2, 3 });
+
+        ReadableByteChannel channel = file.openReadableChannel(1);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            assertEquals(2, channel.read(buffer));
+            assertEquals(-1, channel.read(buffer));
+        } finally {
+            channel.close();
+        }
+
+        try {
+            createFileObject(DIR1_PATH, USER).openReadableChannel(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    public void testMkdirAndDelete() {
+        FtpFile dir = createFileObject("/dir2", USER);
+        assertTrue(dir.mkdir());
+        assertFalse(dir.mkdir());
+        assertTrue(dir.isDirectory());
+        assertFalse(createFileObject("/missing/dir3", USER).mkdir());
+
+        // not empty
+        assertFalse(createFileObject(DIR1_PATH, USER).delete());
+        assertTrue(dir.delete());
+        assertFalse(dir.doesExist());
+        assertFalse(createFileObject("/", USER).delete());
+    }
+
+    public void testMove() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, new byte[] { 1, 2, 3 });
+
+        FtpFile dest = createFileObject("/dir1/moved", USER);
+        assertTrue(file.move(dest));
+        assertFalse(file.doesExist());
+        assertEquals(3, dest.getSize());
+
+        // the destination must not exist
+        assertFalse(createFileObject(FILE3_PATH, USER).move(dest));
+        assertTrue(createFileObject(FILE3_PATH, USER).doesExist());
+    }
+
+    public void testMoveDirectory() {
+        FtpFile dir = createFileObject(DIR1_PATH, USER);
+        assertFalse(dir.move(createFileObject("/dir1/sub", USER)));
+
+        FtpFile dest = createFileObject("/dir2", USER);
+        assertTrue(dir.move(dest));
+        assertTrue(createFileObject("/dir2/file2", USER).isFile());
+        assertFalse(createFileObject(FILE2_PATH, USER).doesExist());
+    }
+
+    public void testEquals() {
+        assertEquals(createFileObject(FILE1_PATH, USER), createFileObject(
+                FILE1_PATH, USER));
+        assertFalse(createFileObject(FILE1_PATH, USER).equals(
+                createFileObject(FILE3_PATH, USER)));
+    }
+}
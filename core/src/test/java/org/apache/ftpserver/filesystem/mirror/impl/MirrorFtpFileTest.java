@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.FtpFileTestTemplate;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MirrorFtpFileTest extends FtpFileTestTemplate {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2 = new File(TEST_DIR1, "file2");
+
+    private static final File TEST_FILE3 = new File(ROOT_DIR, "file3");
+
+    private MirrorIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        writeFile(TEST_FILE1, "hello world");
+        TEST_FILE2.createNewFile();
+        TEST_FILE3.createNewFile();
+
+        index = MirrorIndex.build(ROOT_DIR, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    @Override
+    protected FtpFile createFileObject(String fileName, User user) {
+        return new MirrorFtpFile(fileName, index);
+    }
+
+    private void writeFile(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testAttributes() {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertFalse(file.isDirectory());
+        assertTrue(file.isReadable());
+        assertEquals(11, file.getSize());
+        assertEquals(TEST_FILE1.lastModified(), file.getLastModified());
+        assertEquals(TEST_FILE1, file.getPhysicalFile());
+
+        FtpFile dir = createFileObject(DIR1_WITH_SLASH_PATH, USER);
+        assertTrue(dir.isDirectory());
+        assertEquals(TEST_DIR1.lastModified(), dir.getLastModified());
+
+        FtpFile missing = createFileObject("/dir1/missing", USER);
+        assertFalse(missing.doesExist());
+        assertFalse(missing.isReadable());
+        assertNull(missing.listFiles());
+    }
+
+    public void testReadOnly() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertFalse(file.isWritable());
+        assertFalse(file.isRemovable());
+        assertFalse(file.delete());
+        assertFalse(file.move(createFileObject("/moved", USER)));
+        assertFalse(createFileObject("/dir2", USER).mkdir());
+        assertFalse(file.setLastModified(0));
+        try {
+            file.createOutputStream(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+        assertTrue(TEST_FILE1.exists());
+    }
+
+    public void testReadWithOffset() throws IOException {
+        InputStream in = createFileObject(FILE1_PATH, USER)
+                .createInputStream(6);
+        try {
+            byte[] buffer = new byte[20];
+            assertEquals(5, in.read(buffer));
+            assertEquals("world", new String(buffer, 0, 5, "UTF-8"));
+        } finally {
+            in.close();
+        }
+
+        ReadableByteChannel channel = createFileObject(FILE1_PATH, USER)
+                .openReadableChannel(6);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(20);
+            assertEquals(5, channel.read(buffer));
+        } finally {
+            channel.close();
+        }
+
+        try {
+            createFileObject(DIR1_PATH, USER).createInputStream(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    public void testChangesNotSeenUntilRescan() throws IOException {
+        writeFile(new File(ROOT_DIR, "file4"), "new");
+        assertFalse(createFileObject("/file4", USER).doesExist());
+
+        index = MirrorIndex.build(ROOT_DIR, index);
+        assertTrue(createFileObject("/file4", USER).doesExist());
+        assertEquals(3, createFileObject("/file4", USER).getSize());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.mirror.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MirrorIndexTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        ROOT_DIR.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    private void writeFile(String path, String content) throws IOException {
+        File file = new File(ROOT_DIR, path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testEmptyDirectory() {
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+        assertEquals(1, index.getEntryCount());
+        assertEquals(MirrorIndex.ROOT, index.find("/"));
+        assertTrue(index.isDirectory(MirrorIndex.ROOT));
+        assertEquals(0, index.getChildCount(MirrorIndex.ROOT));
+        assertEquals(-1, index.find("/missing"));
+    }
+
+    public void testFind() throws IOException {
+        writeFile("a/b/c/file", "content");
+        writeFile("a/b/file", "");
+        writeFile("b", "");
+        new File(ROOT_DIR, "a/empty").mkdirs();
+
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+        assertEquals(8, index.getEntryCount());
+
+        int file = index.find("/a/b/c/file");
+        assertEquals("file", index.getName(file));
+        assertFalse(index.isDirectory(file));
+        assertEquals(7, index.getSize(file));
+
+        int empty = index.find("/a/empty");
+        assertTrue(index.isDirectory(empty));
+        assertEquals(0, index.getChildCount(empty));
+        assertEquals(-1, index.find("/a/empty/file"));
+
+        assertEquals(-1, index.find("/b/file"));
+        assertEquals(-1, index.find("/a/c"));
+    }
+
+    public void testChildrenAreSorted() throws IOException {
+        for (String name : new String[] { "c", "a", "B", "b", "A" }) {
+            writeFile(name, "");
+        }
+
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+        int first = index.getFirstChild(MirrorIndex.ROOT);
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < index.getChildCount(MirrorIndex.ROOT); i++) {
+            names.append(index.getName(first + i));
+        }
+        assertEquals("ABabc", names.toString());
+    }
+
+    public void testNamesAreShared() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            writeFile("dir" + i + "/index.html", "");
+            writeFile("dir" + i + "/README", "");
+        }
+
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+        assertEquals(31, index.getEntryCount());
+        // the root, the directories, index.html and README
+        assertEquals(13, index.getNameCount());
+    }
+
+    public void testUnmodifiedDirectoryIsNotListed() throws IOException {
+        writeFile("dir1/file1", "1");
+        writeFile("dir2/file2", "2");
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+
+        // changed in place, the directory is not modified
+        File dir1 = new File(ROOT_DIR, "dir1");
+        long dir1Modified = dir1.lastModified();
+        writeFile("dir1/file1", "changed");
+        assertTrue(dir1.setLastModified(dir1Modified));
+
+        // a new file, the directory is modified
+        File dir2 = new File(ROOT_DIR, "dir2");
+        writeFile("dir2/file3", "3");
+        assertTrue(dir2.setLastModified(dir2.lastModified() + 10000));
+
+        index = MirrorIndex.build(ROOT_DIR, index);
+        assertEquals(1, index.getSize(index.find("/dir1/file1")));
+        assertTrue(index.find("/dir2/file3") != -1);
+        assertEquals(dir2.lastModified(), index.getLastModified(index
+                .find("/dir2")));
+
+        // once the directory is modified the file is read again
+        assertTrue(dir1.setLastModified(dir1Modified + 10000));
+        index = MirrorIndex.build(ROOT_DIR, index);
+        assertEquals(7, index.getSize(index.find("/dir1/file1")));
+    }
+
+    public void testDeletedDirectory() throws IOException {
+        writeFile("dir1/dir2/file", "");
+        MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+
+        IoUtils.delete(new File(ROOT_DIR, "dir1/dir2"));
+        File dir1 = new File(ROOT_DIR, "dir1");
+        assertTrue(dir1.setLastModified(dir1.lastModified() + 10000));
+
+        index = MirrorIndex.build(ROOT_DIR, index);
+        assertEquals(-1, index.find("/dir1/dir2"));
+        assertEquals(2, index.getEntryCount());
+    }
+
+    public void testSymbolicLinks() throws IOException {
+        writeFile("dir/file", "content");
+        Path loop = new File(ROOT_DIR, "dir/loop").toPath();
+        Path link = new File(ROOT_DIR, "link").toPath();
+        try {
+            try {
+                Files.createSymbolicLink(loop, ROOT_DIR.getAbsoluteFile()
+                        .toPath());
+                Files.createSymbolicLink(link, new File(ROOT_DIR, "dir/file")
+                        .getAbsoluteFile().toPath());
+            } catch (UnsupportedOperationException e) {
+                return;
+            } catch (IOException e) {
+                // not allowed on this platform
+                return;
+            }
+
+            MirrorIndex index = MirrorIndex.build(ROOT_DIR, null);
+            assertEquals(-1, index.find("/dir/loop"));
+            int linkEntry = index.find("/link");
+            assertFalse(index.isDirectory(linkEntry));
+            assertEquals(7, index.getSize(linkEntry));
+        } finally {
+            // the links must not be followed when cleaning up
+            Files.deleteIfExists(loop);
+            Files.deleteIfExists(link);
+        }
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
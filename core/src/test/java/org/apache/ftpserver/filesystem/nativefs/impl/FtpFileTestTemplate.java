@@ -19,12 +19,15 @@
 
 package org.apache.ftpserver.filesystem.nativefs.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.ftpserver.ftplet.AuthorizationRequest;
 import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpFileIterator;
 import org.apache.ftpserver.ftplet.User;
 import org.apache.ftpserver.usermanager.impl.BaseUser;
 
@@ -124,4 +127,48 @@ public abstract class FtpFileTestTemplate extends TestCase {
         assertEquals("file3", files.get(2).getName());
     }
 
-}
\ No newline at end of file
+    public void testListFilesWithFilter() {
+        FtpFile root = createFileObject("/", USER);
+
+        List<? extends FtpFile> files = root.listFiles(name -> name
+                .startsWith("file"));
+        assertEquals(2, files.size());
+        assertEquals("file1", files.get(0).getName());
+        assertEquals("file3", files.get(1).getName());
+
+        assertNull(createFileObject(FILE2_PATH, USER).listFiles(
+                name -> true));
+    }
+
+    public void testIterateFiles() {
+        FtpFile root = createFileObject("/", USER);
+
+        List<String> names = new ArrayList<>();
+        FtpFileIterator files = root.iterateFiles(null);
+        try {
+            while (files.hasNext()) {
+                names.add(files.next().getName());
+            }
+        } finally {
+            files.close();
+        }
+        Collections.sort(names);
+        assertEquals("[dir1, file1, file3]", names.toString());
+
+        names.clear();
+        files = root.iterateFiles(name -> name.startsWith("file"));
+        try {
+            while (files.hasNext()) {
+                FtpFile file = files.next();
+                assertTrue(file.isFile());
+                names.add(file.getName());
+            }
+        } finally {
+            files.close();
+        }
+        Collections.sort(names);
+        assertEquals("[file1, file3]", names.toString());
+
+        assertNull(createFileObject(FILE2_PATH, USER).iterateFiles(null));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NameIndexCacheTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private NameIndexCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        new File(ROOT_DIR, "File1").createNewFile();
+        new File(ROOT_DIR, "ABC").createNewFile();
+        new File(ROOT_DIR, "abc").createNewFile();
+
+        cache = new NameIndexCache();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    public void testFold() {
+        assertEquals("file1", NameIndexCache.fold("FiLe1"));
+
+        String folded = "file1";
+        assertSame(folded, NameIndexCache.fold(folded));
+    }
+
+    public void testResolve() {
+        assertEquals("File1", cache.resolve(ROOT_DIR, "FILE1"));
+        assertEquals("File1", cache.resolve(ROOT_DIR, "file1"));
+        assertEquals("File1", cache.resolve(ROOT_DIR, "File1"));
+        assertEquals("dir1", cache.resolve(ROOT_DIR, "DIR1"));
+        assertEquals(1, cache.getDirectoryCount());
+    }
+
+    public void testExactNameTakesPrecedence() {
+        assertEquals("ABC", cache.resolve(ROOT_DIR, "ABC"));
+        assertEquals("abc", cache.resolve(ROOT_DIR, "abc"));
+
+        String resolved = cache.resolve(ROOT_DIR, "Abc");
+        assertTrue("ABC".equals(resolved) || "abc".equals(resolved));
+    }
+
+    public void testUnknownName() {
+        assertEquals("Unknown", cache.resolve(ROOT_DIR, "Unknown"));
+    }
+
+    public void testMissingDirectory() {
+        assertEquals("Foo", cache.resolve(new File(ROOT_DIR, "missing"), "Foo"));
+        assertEquals(0, cache.getDirectoryCount());
+    }
+
+    public void testInvalidate() throws IOException {
+        cache.resolve(ROOT_DIR, "file1");
+
+        new File(ROOT_DIR, "NewFile").createNewFile();
+        cache.invalidate(ROOT_DIR);
+        assertEquals(0, cache.getDirectoryCount());
+
+        assertEquals("NewFile", cache.resolve(ROOT_DIR, "newfile"));
+    }
+
+    public void testExternalChangeDetected() throws IOException {
+        cache.resolve(ROOT_DIR, "file1");
+
+        new File(ROOT_DIR, "NewFile").createNewFile();
+        // make sure the time changes even with a coarse timestamp resolution
+        ROOT_DIR.setLastModified(ROOT_DIR.lastModified() + 2000);
+
+        assertEquals("NewFile", cache.resolve(ROOT_DIR, "newfile"));
+    }
+
+    public void testMaxDirectories() {
+        cache = new NameIndexCache(1, 100);
+
+        cache.resolve(ROOT_DIR, "file1");
+        cache.resolve(TEST_DIR1, "file1");
+        assertEquals(1, cache.getDirectoryCount());
+    }
+
+    public void testMaxNames() {
+        cache = new NameIndexCache(10, 1);
+
+        // the latest index is kept even if above the limit
+        cache.resolve(ROOT_DIR, "file1");
+        assertEquals(1, cache.getDirectoryCount());
+
+        cache.resolve(TEST_DIR1, "file1");
+        assertEquals(1, cache.getDirectoryCount());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
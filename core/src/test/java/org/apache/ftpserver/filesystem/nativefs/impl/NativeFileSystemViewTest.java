@@ -21,8 +21,11 @@ package org.apache.ftpserver.filesystem.nativefs.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
+import org.apache.ftpserver.ftplet.Authority;
 import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
 import org.apache.ftpserver.util.IoUtils;
 
 /**
@@ -159,6 +162,42 @@ public class NativeFileSystemViewTest extends FileSystemViewTemplate {
 
     }
 
+    public void testGetPhysicalNameCaseInsensitiveDeepPath()
+            throws FtpException {
+        new File(TEST_DIR1, "Dir2").mkdirs();
+        NativeFileSystemView view = new NativeFileSystemView(user, true);
+
+        assertEquals(ROOT_DIR_PATH + "/dir1/Dir2/file3", view.getPhysicalName(
+                ROOT_DIR.getAbsolutePath(), "/", "DIR1/dir2/file3", true));
+    }
+
+    public void testGetPhysicalNameEmptyAndDotSegments() throws FtpException {
+        NativeFileSystemView view = new NativeFileSystemView(user);
+
+        assertEquals(FULL_PATH, view.getPhysicalName(ROOT_DIR_PATH, "/",
+                "//" + TEST_DIR1.getName() + "/.//" + TEST_FILE2_IN_DIR1
+                        .getName(), false));
+        assertEquals(ROOT_DIR_PATH + "/", view.getPhysicalName(ROOT_DIR_PATH,
+                "/" + TEST_DIR1.getName() + "/", "..", false));
+        assertEquals(ROOT_DIR_PATH + "/", view.getPhysicalName(ROOT_DIR_PATH,
+                "/", "../..", false));
+        assertEquals(ROOT_DIR_PATH + "/", view.getPhysicalName(ROOT_DIR_PATH,
+                "/" + TEST_DIR1.getName() + "/", "~", false));
+        assertEquals(ROOT_DIR_PATH + "/...", view.getPhysicalName(
+                ROOT_DIR_PATH, "/", "...", false));
+    }
+
+    public void testCaseInsensitiveAfterMkdir() throws FtpException {
+        NativeFileSystemView view = new NativeFileSystemView(user, true);
+        assertFalse(view.getFile("/dir1/NewDir").doesExist());
+
+        user.setAuthorities(Arrays.asList(new Authority[] { new WritePermission() }));
+        assertTrue(view.getFile("/dir1/NewDir").mkdir());
+
+        assertEquals("/dir1/NewDir", view.getFile("/DIR1/newdir")
+                .getAbsolutePath());
+    }
+
     /*
      * (non-Javadoc)
      * 
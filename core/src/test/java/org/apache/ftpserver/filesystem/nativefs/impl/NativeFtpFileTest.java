@@ -20,8 +20,14 @@
 package org.apache.ftpserver.filesystem.nativefs.impl;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ftpserver.ftplet.FtpFile;
@@ -102,6 +108,113 @@ public class NativeFtpFileTest extends FtpFileTestTemplate {
         assertTrue(physicalFile.delete());
     }
 
+    public void testChannelsWithOffset() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file.openWritableChannel(0), new byte[] { 1, 2, 3, 4, 5 });
+        assertEquals(5, TEST_FILE1.length());
+
+        WritableByteChannel out = file.openWritableChannel(2);
+        assertTrue(out instanceof FileChannel);
+        write(out, new byte[] { 6, 7 });
+        assertEquals(4, TEST_FILE1.length());
+
+        ReadableByteChannel in = file.openReadableChannel(1);
+        try {
+            assertTrue(in instanceof FileChannel);
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            assertEquals(3, in.read(buffer));
+            assertEquals(-1, in.read(buffer));
+            assertEquals(2, buffer.get(0));
+            assertEquals(6, buffer.get(1));
+            assertEquals(7, buffer.get(2));
+        } finally {
+            in.close();
+        }
+    }
+
+    private void write(WritableByteChannel out, byte[] data) throws IOException {
+        try {
+            out.write(ByteBuffer.wrap(data));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testSnapshot() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER).snapshot();
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertEquals(0, file.getSize());
+
+        writeFile(TEST_FILE1, new byte[10]);
+        assertEquals("Snapshot must not change", 0, file.getSize());
+
+        file.refresh();
+        assertEquals(10, file.getSize());
+    }
+
+    public void testSnapshotOfSnapshot() {
+        FtpFile file = createFileObject(FILE1_PATH, USER).snapshot();
+        assertSame(file, file.snapshot());
+    }
+
+    public void testNotSnapshotted() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertEquals(0, file.getSize());
+
+        writeFile(TEST_FILE1, new byte[10]);
+        assertEquals(10, file.getSize());
+    }
+
+    public void testSnapshotOfMissingFile() {
+        FtpFile file = new NativeFtpFile("/missing",
+                new File(ROOT_DIR, "missing"), USER).snapshot();
+        assertFalse(file.doesExist());
+        assertFalse(file.isFile());
+        assertFalse(file.isDirectory());
+        assertEquals(0, file.getSize());
+        assertEquals(0, file.getLastModified());
+    }
+
+    public void testSnapshotRefreshedByMkdir() {
+        FtpFile dir = new NativeFtpFile("/dir2", new File(ROOT_DIR, "dir2"),
+                USER).snapshot();
+        assertFalse(dir.doesExist());
+
+        assertTrue(dir.mkdir());
+        assertTrue(dir.doesExist());
+        assertTrue(dir.isDirectory());
+    }
+
+    public void testSnapshotRefreshedByDelete() {
+        FtpFile file = createFileObject(FILE1_PATH, USER).snapshot();
+        assertTrue(file.doesExist());
+
+        assertTrue(file.delete());
+        assertFalse(file.doesExist());
+    }
+
+    public void testListedFilesAreSnapshotted() throws IOException {
+        List<? extends FtpFile> files = createFileObject("/", USER)
+                .listFiles();
+        FtpFile file = files.get(1);
+        assertEquals("file1", file.getName());
+        assertEquals(0, file.getSize());
+
+        writeFile(TEST_FILE1, new byte[10]);
+        assertEquals(0, file.getSize());
+        assertSame(file, file.snapshot());
+    }
+
+    private void writeFile(File file, byte[] data) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+
     @Override
     protected void tearDown() throws Exception {
         cleanTmpDirs();
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+ * Measures the time to resolve a path three directories deep, where every
+ * directory holds many files, with a case sensitive view, with a case
+ * insensitive view scanning the directories as
+ * {@link NativeFileSystemView} used to, and with a case insensitive view
+ * using a {@link NameIndexCache}.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath. The number of files per directory can be given as the first
+ * argument.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class PathResolutionBenchmark {
+
+    private static final File ROOT_DIR = new File(
+            "test-tmp/path-resolution-benchmark");
+
+    private static final String PATH = "Level1/LEVEL2/level3/File";
+
+    private static long sink;
+
+    /**
+     * A case insensitive view without a name cache, listing the directory
+     * for every path component
+     */
+    private static class ScanningFileSystemView extends NativeFileSystemView {
+        public ScanningFileSystemView(BaseUser user) throws Exception {
+            super(user, true, null);
+        }
+    }
+
+    private static long resolve(NativeFileSystemView view, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += view.getFile(PATH).getAbsolutePath().length();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static void createFiles(File dir, int fileCount) throws IOException {
+        dir.mkdirs();
+        for (int i = 0; i < fileCount; i++) {
+            if (!new File(dir, "file" + i).createNewFile()) {
+                throw new IOException("Failed to create file " + i);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        if (ROOT_DIR.exists()) {
+            IoUtils.delete(ROOT_DIR);
+        }
+        try {
+            File level1 = new File(ROOT_DIR, "level1");
+            File level2 = new File(level1, "level2");
+            File level3 = new File(level2, "level3");
+            createFiles(ROOT_DIR, fileCount);
+            createFiles(level1, fileCount);
+            createFiles(level2, fileCount);
+            createFiles(level3, fileCount);
+
+            BaseUser user = new BaseUser();
+            user.setName("benchmark");
+            user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+
+            NativeFileSystemView sensitiveView = new NativeFileSystemView(
+                    user, false);
+            NativeFileSystemView scanningView = new ScanningFileSystemView(
+                    user);
+            NativeFileSystemView indexedView = new NativeFileSystemView(user,
+                    true);
+
+            for (int round = 0; round < 3; round++) {
+                System.out.printf("%d files per directory, round %d: "
+                        + "case sensitive %8d ns, scanning %10d ns, "
+                        + "indexed %8d ns%n", fileCount, round, resolve(
+                        sensitiveView, 200000), resolve(scanningView, 20),
+                        resolve(indexedView, 200000));
+            }
+            System.out.println("(" + sink + ")");
+        } finally {
+            IoUtils.delete(ROOT_DIR);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.FtpFileTestTemplate;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioFtpFileTest extends FtpFileTestTemplate {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2_IN_DIR1 = new File(TEST_DIR1, "file2");
+
+    private static final File TEST_FILE3 = new File(ROOT_DIR, "file3");
+
+    private static final Map<String, File> FILE_MAPPINGS = new HashMap<>();
+
+    private static final FileAttributesReader READER = new FileAttributesReader(
+            FileSystems.getDefault());
+
+    static {
+        FILE_MAPPINGS.put("/", ROOT_DIR);
+        FILE_MAPPINGS.put(DIR1_PATH, TEST_DIR1);
+        FILE_MAPPINGS.put(FILE1_PATH, TEST_FILE1);
+        FILE_MAPPINGS.put(FILE2_PATH, TEST_FILE3);
+        FILE_MAPPINGS.put(DIR1_WITH_SLASH_PATH, TEST_DIR1);
+        FILE_MAPPINGS.put(" \t", TEST_FILE2_IN_DIR1);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        initDirs();
+
+        TEST_DIR1.mkdirs();
+        TEST_FILE1.createNewFile();
+        TEST_FILE2_IN_DIR1.createNewFile();
+        TEST_FILE3.createNewFile();
+    }
+
+    @Override
+    protected FtpFile createFileObject(String fileName, User user) {
+        File file = FILE_MAPPINGS.get(fileName);
+        return new NioFtpFile(fileName, file == null ? null : file.toPath(),
+                user, READER);
+    }
+
+    public void testConstructorWithNullPath() {
+        try {
+            new NioFtpFile("foo", null, USER, READER);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testAttributes() throws IOException {
+        writeFile(TEST_FILE1, new byte[10]);
+
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertFalse(file.isDirectory());
+        assertEquals(10, file.getSize());
+        assertEquals(TEST_FILE1.lastModified(), file.getLastModified());
+        assertEquals(1, file.getLinkCount());
+        assertNotNull(file.getOwnerName());
+        assertNotNull(file.getGroupName());
+
+        FtpFile dir = createFileObject(DIR1_PATH, USER);
+        assertTrue(dir.doesExist());
+        assertTrue(dir.isDirectory());
+        assertFalse(dir.isFile());
+    }
+
+    public void testAttributesOfMissingFile() {
+        FtpFile file = new NioFtpFile("/missing", new File(ROOT_DIR, "missing")
+                .toPath(), USER, READER);
+        assertFalse(file.doesExist());
+        assertFalse(file.isFile());
+        assertFalse(file.isDirectory());
+        assertEquals(0, file.getSize());
+    }
+
+    public void testListedAttributes() throws IOException {
+        writeFile(TEST_FILE1, new byte[10]);
+
+        List<? extends FtpFile> files = createFileObject("/", USER).listFiles();
+        assertEquals(3, files.size());
+
+        assertEquals("dir1", files.get(0).getName());
+        assertEquals("/dir1", files.get(0).getAbsolutePath());
+        assertTrue(files.get(0).isDirectory());
+
+        assertEquals("file1", files.get(1).getName());
+        assertTrue(files.get(1).isFile());
+        assertEquals(10, files.get(1).getSize());
+
+        assertEquals("file3", files.get(2).getName());
+        assertEquals(0, files.get(2).getSize());
+    }
+
+    public void testListFilesOfFile() {
+        assertNull(createFileObject(FILE1_PATH, USER).listFiles());
+    }
+
+    public void testAttributesRefreshedAfterMkdir() {
+        FtpFile dir = new NioFtpFile("/dir2", new File(ROOT_DIR, "dir2")
+                .toPath(), USER, READER);
+        assertFalse(dir.doesExist());
+
+        assertTrue(dir.mkdir());
+        assertTrue(dir.doesExist());
+        assertTrue(dir.isDirectory());
+    }
+
+    public void testAttributesRefreshedAfterDelete() {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertTrue(file.doesExist());
+
+        assertTrue(file.delete());
+        assertFalse(file.doesExist());
+        assertFalse(TEST_FILE1.exists());
+    }
+
+    public void testMove() {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        FtpFile dest = new NioFtpFile("/file4", new File(ROOT_DIR, "file4")
+                .toPath(), USER, READER);
+        assertFalse(dest.doesExist());
+
+        assertTrue(file.move(dest));
+        assertFalse(file.doesExist());
+        assertTrue(dest.doesExist());
+    }
+
+    public void testMoveToExistingFile() throws IOException {
+        writeFile(TEST_FILE1, new byte[] { 1, 2, 3 });
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        FtpFile dest = createFileObject(FILE2_PATH, USER);
+        assertTrue(dest.doesExist());
+
+        assertTrue(file.move(dest));
+        assertFalse(TEST_FILE1.exists());
+        assertEquals(3, dest.getSize());
+    }
+
+    public void testWriteWithOffset() throws IOException {
+        writeFile(TEST_FILE1, new byte[] { 1, 2, 3, 4, 5 });
+
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertEquals(5, file.getSize());
+
+        OutputStream out = file.createOutputStream(2);
+        try {
+            out.write(new byte[] { 6, 7 });
+        } finally {
+            out.close();
+        }
+        assertEquals(4, file.getSize());
+
+        InputStream in = file.createInputStream(1);
+        try {
+            assertEquals(2, in.read());
+            assertEquals(6, in.read());
+            assertEquals(7, in.read());
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testChannelsWithOffset() throws IOException {
+        writeFile(TEST_FILE1, new byte[] { 1, 2, 3, 4, 5 });
+
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        WritableByteChannel out = file.openWritableChannel(2);
+        try {
+            assertTrue(out instanceof FileChannel);
+            out.write(ByteBuffer.wrap(new byte[] { 6, 7 }));
+        } finally {
+            out.close();
+        }
+        assertEquals(4, file.getSize());
+
+        ReadableByteChannel in = file.openReadableChannel(1);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            assertEquals(3, in.read(buffer));
+            assertEquals(-1, in.read(buffer));
+            assertEquals(2, buffer.get(0));
+            assertEquals(6, buffer.get(1));
+            assertEquals(7, buffer.get(2));
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testSetLastModified() {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        file.getLastModified();
+
+        assertTrue(file.setLastModified(1000000000000L));
+        assertEquals(1000000000000L, file.getLastModified());
+    }
+
+    public void testEquals() {
+        assertEquals(createFileObject(DIR1_PATH, USER), createFileObject(
+                DIR1_WITH_SLASH_PATH, USER));
+        assertFalse(createFileObject(DIR1_PATH, USER).equals(
+                createFileObject(FILE1_PATH, USER)));
+    }
+
+    private void writeFile(File file, byte[] data) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    /**
+     * @throws IOException
+     */
+    protected void initDirs() throws IOException {
+        cleanTmpDirs();
+
+        TEST_TMP_DIR.mkdirs();
+        ROOT_DIR.mkdirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.ftpserver.ListingOrder;
+import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
+import org.apache.ftpserver.command.impl.listing.ListArgument;
+import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
+import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
+import org.apache.ftpserver.filesystem.nio.NioFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+ * Measures the time to produce a LIST response for a large directory with the
+ * native file system, which reads every attribute of every file with a
+ * separate system call, and with the NIO.2 file system, which reads them in
+ * bulk while iterating the directory.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath. The number of files can be given as the first argument.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioListingBenchmark {
+
+    private static final File ROOT_DIR = new File("test-tmp/listing-benchmark");
+
+    private static long list(FileSystemView view) throws Exception {
+        ListArgument argument = ListArgumentParser.parse("-l");
+        StringWriter writer = new StringWriter();
+
+        long start = System.nanoTime();
+        new DirectoryLister().listFiles(argument, view,
+                new LISTFileFormater(), ListingOrder.DIRECTORIES_FIRST,
+                writer);
+        long time = System.nanoTime() - start;
+
+        if (writer.getBuffer().length() == 0) {
+            throw new IllegalStateException("Empty listing");
+        }
+        return time;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        if (ROOT_DIR.exists()) {
+            IoUtils.delete(ROOT_DIR);
+        }
+        ROOT_DIR.mkdirs();
+        try {
+            for (int i = 0; i < fileCount; i++) {
+                if (!new File(ROOT_DIR, "file" + i).createNewFile()) {
+                    throw new IOException("Failed to create file " + i);
+                }
+            }
+
+            BaseUser user = new BaseUser();
+            user.setName("benchmark");
+            user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+
+            FileSystemView nativeView = new NativeFileSystemView(user, false);
+            FileSystemView nioView = new NioFileSystemFactory()
+                    .createFileSystemView(user);
+
+            for (int round = 0; round < 5; round++) {
+                long nativeTime = list(nativeView);
+                long nioTime = list(nioView);
+                System.out.printf(
+                        "%d files, round %d: native %6d ms, nio %6d ms%n",
+                        fileCount, round, nativeTime / 1000000,
+                        nioTime / 1000000);
+            }
+        } finally {
+            IoUtils.delete(ROOT_DIR);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.quota.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class UsageTrackerTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File HOME_DIR = new File(TEST_TMP_DIR, "home");
+
+    private static final File CHECKPOINT_FILE = new File(TEST_TMP_DIR,
+            "usages.properties");
+
+    private UsageTracker tracker;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        new File(HOME_DIR, "dir1/dir2").mkdirs();
+        write(new File(HOME_DIR, "file1"), 10);
+        write(new File(HOME_DIR, "dir1/file2"), 20);
+        write(new File(HOME_DIR, "dir1/dir2/file3"), 30);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tracker != null) {
+            tracker.close();
+        }
+        cleanTmpDirs();
+    }
+
+    private static void write(File file, int length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Path path(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    public void testScan() throws Exception {
+        tracker = new UsageTracker(null, 1000, 2);
+
+        HomeUsage home = tracker.getHome(path(HOME_DIR));
+        assertTrue(tracker.awaitScans(10000));
+
+        assertTrue(home.isScanned());
+        assertEquals(60, home.getBytes());
+    }
+
+    public void testRescan() throws Exception {
+        tracker = new UsageTracker(null, 1000, 2);
+
+        HomeUsage home = tracker.getHome(path(HOME_DIR));
+        assertTrue(tracker.awaitScans(10000));
+
+        write(new File(HOME_DIR, "dir1/dir2/file4"), 40);
+        assertEquals(60, home.getBytes());
+
+        tracker.rescan();
+        assertTrue(tracker.awaitScans(10000));
+        assertEquals(100, home.getBytes());
+    }
+
+    public void testDeltaDuringScanIsKept() throws Exception {
+        HomeUsage home = new HomeUsage(path(HOME_DIR), 0);
+
+        assertTrue(home.startScan());
+        assertFalse(home.startScan());
+        home.add(5);
+        home.completeScan(60);
+
+        assertEquals(65, home.getBytes());
+        assertTrue(home.isScanned());
+    }
+
+    public void testUsageIsNeverNegative() throws Exception {
+        HomeUsage home = new HomeUsage(path(HOME_DIR), 10);
+        home.add(-20);
+        assertEquals(0, home.getBytes());
+    }
+
+    public void testHomesContaining() throws Exception {
+        tracker = new UsageTracker(null, 1000, 2);
+
+        HomeUsage outer = tracker.getHome(path(HOME_DIR));
+        HomeUsage inner = tracker.getHome(path(new File(HOME_DIR, "dir1")));
+        assertTrue(tracker.awaitScans(10000));
+        assertEquals(50, inner.getBytes());
+
+        List<HomeUsage> homes = tracker.getHomesContaining(path(new File(
+                HOME_DIR, "dir1/dir2/file3")));
+        assertEquals(2, homes.size());
+        assertTrue(homes.contains(outer));
+        assertTrue(homes.contains(inner));
+
+        homes = tracker.getHomesContaining(path(new File(HOME_DIR, "file1")));
+        assertEquals(1, homes.size());
+        assertSame(outer, homes.get(0));
+
+        assertTrue(tracker.getHomesContaining(path(TEST_TMP_DIR)).isEmpty());
+    }
+
+    public void testCheckpoint() throws Exception {
+        tracker = new UsageTracker(CHECKPOINT_FILE, 60000, 2);
+        tracker.getHome(path(HOME_DIR));
+        assertTrue(tracker.awaitScans(10000));
+        tracker.checkpoint();
+        tracker.close();
+
+        assertTrue(CHECKPOINT_FILE.exists());
+
+        // the saved usage is used until the home is scanned again
+        tracker = new UsageTracker(CHECKPOINT_FILE, 60000, 2);
+        Map<Path, Long> usages = tracker.getUsages();
+        assertEquals(1, usages.size());
+        assertTrue(usages.containsKey(path(HOME_DIR)));
+
+        assertTrue(tracker.awaitScans(10000));
+        assertEquals(Long.valueOf(60), tracker.getUsages().get(path(HOME_DIR)));
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.striped.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.striped.StripedFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class PlacementMapTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File VOLUME1 = new File(TEST_TMP_DIR, "volume1")
+            .getAbsoluteFile();
+
+    private static final File VOLUME2 = new File(TEST_TMP_DIR, "volume2")
+            .getAbsoluteFile();
+
+    private static final File PLACEMENT_FILE = new File(TEST_TMP_DIR,
+            "placement.properties");
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        VOLUME1.mkdirs();
+        VOLUME2.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    private List<Volume> createVolumes() {
+        List<Volume> volumes = new ArrayList<>();
+        volumes.add(new Volume(VOLUME1));
+        volumes.add(new Volume(VOLUME2));
+        return volumes;
+    }
+
+    /**
+     * Volume reporting a fixed latency instead of probing
+     */
+    private static class FixedLatencyVolume extends Volume {
+        private final double fixedLatency;
+
+        FixedLatencyVolume(File root, double fixedLatency) {
+            super(root);
+            this.fixedLatency = fixedLatency;
+        }
+
+        @Override
+        public synchronized void probe(long interval) {
+            record(fixedLatency);
+        }
+    }
+
+    public void testUsersAreSpread() throws Exception {
+        List<Volume> volumes = new ArrayList<>();
+        volumes.add(new FixedLatencyVolume(VOLUME1, 1));
+        volumes.add(new FixedLatencyVolume(VOLUME2, 1));
+        PlacementMap map = new PlacementMap(PLACEMENT_FILE, volumes, 0, 0);
+
+        assertNull(map.get("user1"));
+        File first = map.place("user1");
+        File second = map.place("user2");
+
+        // both volumes share the same disk, so the user count decides
+        assertFalse(first.equals(second));
+        assertEquals(1, volumes.get(0).getUserCount());
+        assertEquals(1, volumes.get(1).getUserCount());
+
+        assertEquals(first, map.place("user1"));
+        assertEquals(first, map.get("user1"));
+    }
+
+    public void testFasterVolumeIsPreferred() throws Exception {
+        List<Volume> volumes = new ArrayList<>();
+        volumes.add(new FixedLatencyVolume(VOLUME1, 50));
+        volumes.add(new FixedLatencyVolume(VOLUME2, 1));
+        PlacementMap map = new PlacementMap(PLACEMENT_FILE, volumes, 0, 0);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(VOLUME2, map.place("user" + i));
+        }
+        assertEquals(0, volumes.get(0).getUserCount());
+    }
+
+    public void testProbe() throws Exception {
+        Volume volume = new Volume(VOLUME1);
+        assertFalse(volume.isAvailable());
+        assertTrue(volume.getLatency() < 0);
+
+        volume.probe(0);
+        assertTrue(volume.isAvailable());
+        assertTrue(volume.getLatency() >= 0);
+        assertEquals(0, VOLUME1.list().length);
+    }
+
+    public void testPlacementIsPersisted() throws Exception {
+        PlacementMap map = new PlacementMap(PLACEMENT_FILE, createVolumes(),
+                0, 0);
+        File first = map.place("user1");
+        assertTrue(PLACEMENT_FILE.exists());
+
+        List<Volume> volumes = createVolumes();
+        map = new PlacementMap(PLACEMENT_FILE, volumes, 0, 0);
+        assertEquals(first, map.get("user1"));
+        assertEquals(1, volumes.get(0).getUserCount()
+                + volumes.get(1).getUserCount());
+    }
+
+    public void testMinFreeSpace() throws Exception {
+        PlacementMap map = new PlacementMap(PLACEMENT_FILE, createVolumes(),
+                Long.MAX_VALUE, 0);
+        try {
+            map.place("user1");
+            fail("Must throw FtpException");
+        } catch (FtpException e) {
+            // expected
+        }
+        assertNull(map.get("user1"));
+        assertFalse(PLACEMENT_FILE.exists());
+    }
+
+    public void testFactoryCreatesHomeOnVolume() throws Exception {
+        StripedFileSystemFactory factory = new StripedFileSystemFactory();
+        factory.setVolumes(Arrays.asList(VOLUME1, VOLUME2));
+        factory.setPlacementFile(PLACEMENT_FILE);
+        factory.setMinFreeSpace(0);
+
+        BaseUser user = new BaseUser();
+        user.setName("user1");
+        user.setHomeDirectory("/not/used");
+        FileSystemView view = factory.createFileSystemView(user);
+
+        File volume = factory.getVolume("user1");
+        File home = new File(volume, "user1");
+        assertTrue(home.isDirectory());
+        assertEquals(1, factory.getUserCount(volume));
+
+        FtpFile root = view.getHomeDirectory();
+        assertEquals("/", root.getAbsolutePath());
+        assertEquals(home.getAbsoluteFile(), ((File) root.getPhysicalFile())
+                .getAbsoluteFile());
+        assertEquals("/not/used", user.getHomeDirectory());
+    }
+
+    public void testFactoryRejectsPathInUserName() throws Exception {
+        StripedFileSystemFactory factory = new StripedFileSystemFactory();
+        factory.setVolumes(Arrays.asList(VOLUME1, VOLUME2));
+        factory.setPlacementFile(PLACEMENT_FILE);
+        factory.setMinFreeSpace(0);
+
+        BaseUser user = new BaseUser();
+        user.setName("..");
+        try {
+            factory.createFileSystemView(user);
+            fail("Must throw FtpException");
+        } catch (FtpException e) {
+            // expected
+        }
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tiered.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.filesystem.tiered.TieredFileSystemFactory;
+import org.apache.ftpserver.filesystem.tiered.TieredStorageStatistics;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class TieredFileSystemViewTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File CACHE_DIR = new File(TEST_TMP_DIR, "tiercache");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2 = new File(TEST_DIR1, "file2");
+
+    private TieredFileSystemFactory factory;
+
+    // write backs wait for this latch
+    private CountDownLatch writeBackAllowed;
+
+    private FileSystemView view;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        write(TEST_FILE1, "hello");
+        write(TEST_FILE2, "world!");
+
+        writeBackAllowed = new CountDownLatch(0);
+        factory = new TieredFileSystemFactory();
+        factory.setFileSystem(new BlockingFileSystemFactory());
+        factory.setCacheDirectory(CACHE_DIR);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        writeBackAllowed.countDown();
+        factory.dispose();
+        cleanTmpDirs();
+    }
+
+    private FileSystemView createView() throws Exception {
+        BaseUser user = new BaseUser();
+        user.setName("user1");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+        view = factory.createFileSystemView(user);
+        return view;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IoUtils.copy(in, out, 1024);
+            return new String(out.toByteArray(), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private String read(String fileName) throws Exception {
+        return read(view.getFile(fileName).createInputStream(0));
+    }
+
+    private void upload(String fileName, long offset, String content)
+            throws Exception {
+        OutputStream out = view.getFile(fileName).createOutputStream(offset);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private TieredStorageStatistics getStatistics() {
+        return factory.getStatistics();
+    }
+
+    public void testReadThrough() throws Exception {
+        createView();
+
+        assertEquals("hello", read("/file1"));
+        assertEquals(0, getStatistics().getHitCount());
+        assertEquals(1, getStatistics().getMissCount());
+        assertEquals(1, getStatistics().getFileCount());
+        assertEquals(5, getStatistics().getSize());
+
+        assertEquals("hello", read("/file1"));
+        assertEquals(1, getStatistics().getHitCount());
+        assertEquals(0.5, getStatistics().getHitRate(), 0.001);
+    }
+
+    public void testReadFromOffset() throws Exception {
+        createView();
+
+        assertEquals("llo", read(view.getFile("/file1").createInputStream(2)));
+        assertEquals(0, getStatistics().getFileCount());
+
+        assertEquals("hello", read("/file1"));
+        assertEquals("llo", read(view.getFile("/file1").createInputStream(2)));
+        assertEquals(1, getStatistics().getHitCount());
+    }
+
+    public void testPartialReadIsNotKept() throws Exception {
+        createView();
+
+        InputStream in = view.getFile("/file1").createInputStream(0);
+        assertEquals('h', in.read());
+        in.close();
+
+        assertEquals(0, getStatistics().getFileCount());
+        assertEquals(0, getStatistics().getSize());
+    }
+
+    public void testChangedBackingFileIsReadAgain() throws Exception {
+        createView();
+
+        assertEquals("hello", read("/file1"));
+        write(TEST_FILE1, "hello again");
+
+        assertEquals("hello again", read("/file1"));
+        assertEquals(0, getStatistics().getHitCount());
+        assertEquals(2, getStatistics().getMissCount());
+        assertEquals(11, getStatistics().getSize());
+    }
+
+    public void testEviction() throws Exception {
+        factory.setCacheSize(10);
+        createView();
+
+        assertEquals("hello", read("/file1"));
+        assertEquals("world!", read("/dir1/file2"));
+
+        assertEquals(1, getStatistics().getEvictionCount());
+        assertEquals(1, getStatistics().getFileCount());
+        assertEquals(6, getStatistics().getSize());
+    }
+
+    public void testUploadIsWrittenBack() throws Exception {
+        writeBackAllowed = new CountDownLatch(1);
+        createView();
+
+        upload("/dir1/file3", 0, "uploaded");
+
+        File backing = new File(TEST_DIR1, "file3");
+        assertFalse(backing.exists());
+        assertEquals(8, getStatistics().getDirtyBytes());
+        assertEquals(1, getStatistics().getPendingWriteBackCount());
+
+        // visible before it is written back
+        FtpFile file = view.getFile("/dir1/file3");
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertEquals(8, file.getSize());
+        assertEquals("uploaded", read("/dir1/file3"));
+
+        List<? extends FtpFile> files = view.getFile("/dir1").listFiles();
+        assertEquals(2, files.size());
+        assertEquals("file2", files.get(0).getName());
+        assertEquals("file3", files.get(1).getName());
+
+        writeBackAllowed.countDown();
+        assertTrue(factory.flush());
+
+        assertEquals("uploaded", read(new FileInputStream(backing)));
+        assertEquals(0, getStatistics().getDirtyBytes());
+        assertEquals(0, getStatistics().getPendingWriteBackCount());
+        assertEquals(8, getStatistics().getWrittenBackBytes());
+
+        // kept as a clean copy
+        assertEquals("uploaded", read("/dir1/file3"));
+        assertEquals(1, getStatistics().getFileCount());
+    }
+
+    public void testUploadIsWrittenBackAfterRestart() throws Exception {
+        writeBackAllowed = new CountDownLatch(1);
+        createView();
+
+        upload("/dir1/file3", 0, "uploaded");
+
+        // the local directory as left by a crash before the write back
+        File crashed = new File(TEST_TMP_DIR, "crashed");
+        crashed.mkdirs();
+        for (File file : CACHE_DIR.listFiles()) {
+            InputStream in = new FileInputStream(file);
+            OutputStream out = new FileOutputStream(new File(crashed, file
+                    .getName()));
+            try {
+                IoUtils.copy(in, out, 1024);
+            } finally {
+                IoUtils.close(in);
+                IoUtils.close(out);
+            }
+        }
+        assertEquals(2, crashed.list().length);
+
+        TierCache restarted = new TierCache(crashed, 1024, 1024, 1000);
+        try {
+            assertTrue(restarted.flush(null, 10000));
+            assertEquals(8, restarted.getWrittenBackBytes());
+            assertEquals("uploaded", read(new FileInputStream(new File(
+                    TEST_DIR1, "file3"))));
+
+            assertEquals(0, restarted.getPendingWriteBackCount());
+        } finally {
+            restarted.close(0);
+        }
+
+        // nothing left to write back on the next start
+        restarted = new TierCache(crashed, 1024, 1024, 1000);
+        try {
+            assertEquals(0, restarted.getPendingWriteBackCount());
+            assertEquals(0, crashed.list().length);
+        } finally {
+            restarted.close(0);
+        }
+    }
+
+    public void testAppendToUpload() throws Exception {
+        writeBackAllowed = new CountDownLatch(1);
+        createView();
+
+        upload("/file3", 0, "abc");
+        upload("/file3", 3, "def");
+        assertEquals("abcdef", read("/file3"));
+
+        writeBackAllowed.countDown();
+        assertTrue(factory.flush());
+        assertEquals("abcdef", read(new FileInputStream(new File(ROOT_DIR,
+                "file3"))));
+    }
+
+    public void testWriteThroughAboveMaxDirtyBytes() throws Exception {
+        factory.setMaxDirtyBytes(0);
+        createView();
+
+        upload("/file3", 0, "direct");
+
+        assertEquals("direct", read(new FileInputStream(new File(ROOT_DIR,
+                "file3"))));
+        assertEquals(1, getStatistics().getWriteThroughCount());
+        assertEquals(0, getStatistics().getPendingWriteBackCount());
+    }
+
+    public void testDeleteWaitsForWriteBack() throws Exception {
+        writeBackAllowed = new CountDownLatch(1);
+        factory.setFlushTimeout(0);
+        createView();
+
+        upload("/dir1/file3", 0, "uploaded");
+
+        // neither the file nor its directory can be removed yet
+        assertFalse(view.getFile("/dir1/file3").delete());
+        assertFalse(view.getFile("/dir1").delete());
+
+        writeBackAllowed.countDown();
+        factory.setFlushTimeout(10);
+        assertTrue(factory.flush());
+
+        assertTrue(view.getFile("/dir1/file3").delete());
+        assertFalse(new File(TEST_DIR1, "file3").exists());
+        assertFalse(view.getFile("/dir1/file3").doesExist());
+        assertEquals(0, getStatistics().getFileCount());
+    }
+
+    public void testRenameWaitsForWriteBack() throws Exception {
+        writeBackAllowed = new CountDownLatch(1);
+        factory.setFlushTimeout(0);
+        createView();
+
+        upload("/file3", 0, "uploaded");
+        assertFalse(view.getFile("/file3").move(view.getFile("/file4")));
+
+        writeBackAllowed.countDown();
+        factory.setFlushTimeout(10);
+        assertTrue(factory.flush());
+
+        assertTrue(view.getFile("/file3").move(view.getFile("/file4")));
+        assertFalse(view.getFile("/file3").doesExist());
+        assertEquals("uploaded", read("/file4"));
+        assertEquals("uploaded", read(new FileInputStream(new File(ROOT_DIR,
+                "file4"))));
+    }
+
+    public void testDeleteRemovesLocalCopy() throws Exception {
+        createView();
+
+        assertEquals("hello", read("/file1"));
+        assertEquals(1, getStatistics().getFileCount());
+
+        assertTrue(view.getFile("/file1").delete());
+        assertEquals(0, getStatistics().getFileCount());
+        assertFalse(view.getFile("/file1").doesExist());
+    }
+
+    private void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+    /**
+     * Native file system which writes wait for {@link #writeBackAllowed}
+     */
+    private class BlockingFileSystemFactory implements FileSystemFactory {
+
+        private final FileSystemFactory delegate = new NativeFileSystemFactory();
+
+        public FileSystemView createFileSystemView(User user)
+                throws FtpException {
+            return (FileSystemView) wrap(delegate.createFileSystemView(user),
+                    FileSystemView.class);
+        }
+
+        private Object wrap(final Object target, Class<?> type) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { type }, new Handler(target));
+        }
+
+        private class Handler implements InvocationHandler {
+
+            private final Object target;
+
+            Handler(Object target) {
+                this.target = target;
+            }
+
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if (method.getName().equals("createOutputStream")) {
+                    assertTrue(writeBackAllowed.await(10, TimeUnit.SECONDS));
+                }
+                if (args != null) {
+                    for (int i = 0; i < args.length; i++) {
+                        if (args[i] != null
+                                && Proxy.isProxyClass(args[i].getClass())) {
+                            args[i] = ((Handler) Proxy
+                                    .getInvocationHandler(args[i])).target;
+                        }
+                    }
+                }
+
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof FtpFile) {
+                    return wrap(result, FtpFile.class);
+                }
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class BlockStreamTest extends TestCase {
+
+    private static final byte[] DATA = createData(3 * BlockOutputStream.MAX_BLOCK_SIZE + 17);
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static byte[] write(byte[] data, long markerInterval,
+            long markerOffset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BlockOutputStream out = new BlockOutputStream(bytes, markerInterval,
+                markerOffset);
+        out.write(data, 0, 10);
+        out.write(data[10]);
+        out.write(data, 11, data.length - 11);
+        assertFalse(out.isFinished());
+        out.close();
+        assertTrue(out.isFinished());
+        assertEquals(data.length, out.getCount());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] read(BlockInputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IoUtils.copy(in, out, 4096);
+        assertTrue(in.isFinished());
+        return out.toByteArray();
+    }
+
+    public void testRoundTrip() throws Exception {
+        byte[] blocks = write(DATA, 0, 0);
+
+        // full blocks, then the rest in the end of file block
+        assertEquals(DATA.length + 4 * 3, blocks.length);
+        assertEquals(0, blocks[0]);
+        assertEquals((byte) 0xff, blocks[1]);
+        assertEquals((byte) 0xff, blocks[2]);
+        int last = 3 * (3 + BlockOutputStream.MAX_BLOCK_SIZE);
+        assertEquals(BlockOutputStream.DESCRIPTOR_EOF, blocks[last]);
+        assertEquals(0, blocks[last + 1]);
+        assertEquals(17, blocks[last + 2]);
+
+        BlockInputStream in = new BlockInputStream(new ByteArrayInputStream(
+                blocks), null);
+        assertTrue(Arrays.equals(DATA, read(in)));
+        assertEquals(DATA.length, in.getCount());
+    }
+
+    public void testEmptyFile() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BlockOutputStream(bytes).close();
+        assertTrue(Arrays.equals(new byte[] {
+                BlockOutputStream.DESCRIPTOR_EOF, 0, 0 }, bytes.toByteArray()));
+
+        BlockInputStream in = new BlockInputStream(new ByteArrayInputStream(
+                bytes.toByteArray()), null);
+        assertEquals(-1, in.read());
+        assertTrue(in.isFinished());
+    }
+
+    public void testRestartMarkers() throws Exception {
+        byte[] blocks = write(DATA, 100000, 1000);
+
+        final List<String> markers = new ArrayList<>();
+        BlockInputStream in = new BlockInputStream(new ByteArrayInputStream(
+                blocks), (marker, count) -> markers.add(marker + "=" + count));
+        assertTrue(Arrays.equals(DATA, read(in)));
+
+        // the marker holds the offset, after the data before it
+        assertEquals(1, markers.size());
+        assertEquals("101000=100000", markers.get(0));
+    }
+
+    public void testConsecutiveFiles() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(write(DATA, 0, 0));
+        bytes.write(write("the second file".getBytes(), 0, 0));
+
+        ByteArrayInputStream source = new ByteArrayInputStream(bytes
+                .toByteArray());
+        BlockInputStream in = new BlockInputStream(source, null);
+        assertTrue(Arrays.equals(DATA, read(in)));
+        in.close();
+        assertEquals("the second file", new String(read(new BlockInputStream(source,
+                null))));
+        assertEquals(0, source.available());
+    }
+
+    public void testTruncated() throws Exception {
+        byte[] blocks = write(DATA, 0, 0);
+
+        BlockInputStream in = new BlockInputStream(new ByteArrayInputStream(
+                Arrays.copyOf(blocks, blocks.length - 1)), null);
+        try {
+            read(in);
+            fail("Must throw EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertFalse(in.isFinished());
+    }
+}
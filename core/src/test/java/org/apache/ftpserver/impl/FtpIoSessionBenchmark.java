@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Date;
+
+import org.apache.ftpserver.ftplet.DataType;
+import org.apache.ftpserver.ftplet.Structure;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+
+/**
+ * Measures the per command overhead and the per session memory of the FTP
+ * session state, comparing the typed {@link FtpSessionState} used by
+ * {@link FtpIoSession} with the string keyed <code>IoSession</code>
+ * attributes it replaced.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FtpIoSessionBenchmark {
+
+    private static final int ITERATIONS = 5000000;
+
+    private static final int SESSIONS = 20000;
+
+    private static final String PREFIX = FtpIoSession.ATTRIBUTE_PREFIX;
+
+    private static final BaseUser USER = new BaseUser();
+
+    private static long sink;
+
+    /**
+     * The accessors a typical command goes through, using the typed state
+     */
+    private static void stateCommand(IoSession ioSession) {
+        FtpIoSession session = new FtpIoSession(ioSession, null);
+        session.updateLastAccessTime();
+        if (session.isLoggedIn() && session.getUser() != null) {
+            sink += session.getFileOffset();
+            sink += session.getDataType().ordinal();
+            sink += session.getStructure().ordinal();
+            sink += session.getFailedLogins();
+            if (session.getRenameFrom() == null) {
+                sink++;
+            }
+        }
+        session.resetState();
+    }
+
+    /**
+     * The same accessors, using string keyed attributes as FtpIoSession used to
+     */
+    private static void attributeCommand(IoSession session) {
+        session.setAttribute(PREFIX + "last-access-time", new Date());
+        if (session.containsAttribute(PREFIX + "user")
+                && session.getAttribute(PREFIX + "user") != null) {
+            sink += (Long) session.getAttribute(PREFIX + "file-offset", 0L);
+            sink += ((DataType) session.getAttribute(PREFIX + "data-type",
+                    DataType.ASCII)).ordinal();
+            sink += ((Structure) session.getAttribute(PREFIX + "structure",
+                    Structure.FILE)).ordinal();
+            sink += (Integer) session.getAttribute(PREFIX + "failed-logins", 0);
+            if (session.getAttribute(PREFIX + "rename-from") == null) {
+                sink++;
+            }
+        }
+        session.removeAttribute(PREFIX + "rename-from");
+        session.removeAttribute(PREFIX + "file-offset");
+    }
+
+    private static void stateLogin(IoSession ioSession) {
+        FtpIoSession session = new FtpIoSession(ioSession, null);
+        session.setUser(USER);
+        session.setLogin(null);
+        session.setDataType(DataType.BINARY);
+        session.setFileOffset(100);
+        session.increaseFailedLogins();
+        session.updateLastAccessTime();
+    }
+
+    private static void attributeLogin(IoSession session) {
+        session.setAttribute(PREFIX + "user", USER);
+        session.setAttribute(PREFIX + "login-time", new Date());
+        session.setAttribute(PREFIX + "data-type", DataType.BINARY);
+        session.setAttribute(PREFIX + "file-offset", 100L);
+        session.setAttribute(PREFIX + "failed-logins", 1);
+        session.setAttribute(PREFIX + "last-access-time", new Date());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void benchmarkCommands(boolean typed) {
+        DummySession ioSession = new DummySession();
+        if (typed) {
+            stateLogin(ioSession);
+        } else {
+            attributeLogin(ioSession);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (typed) {
+                    stateCommand(ioSession);
+                } else {
+                    attributeCommand(ioSession);
+                }
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("%-10s round %d: %6.1f ns/command%n",
+                    typed ? "typed" : "attributes", round, (double) time
+                            / ITERATIONS);
+        }
+    }
+
+    private static void benchmarkMemory(boolean typed) {
+        DummySession[] sessions = new DummySession[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions[i] = new DummySession();
+        }
+
+        long before = usedMemory();
+        for (int i = 0; i < SESSIONS; i++) {
+            if (typed) {
+                stateLogin(sessions[i]);
+            } else {
+                attributeLogin(sessions[i]);
+            }
+        }
+        long after = usedMemory();
+
+        System.out.printf("%-10s %6d bytes/session%n", typed ? "typed"
+                : "attributes", (after - before) / SESSIONS);
+        sink += sessions.length;
+    }
+
+    public static void main(String[] args) {
+        USER.setName("benchmark");
+
+        benchmarkCommands(false);
+        benchmarkCommands(true);
+
+        benchmarkMemory(false);
+        benchmarkMemory(true);
+
+        System.out.println("(" + sink + ")");
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.DataType;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.Structure;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class FtpIoSessionTest extends TestCase {
+
+    private DummySession dummySession = new DummySession();
+
+    public void testDefaults() {
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+
+        assertNull(session.getUser());
+        assertFalse(session.isLoggedIn());
+        assertNull(session.getLoginTime());
+        assertNull(session.getLastAccessTime());
+        assertEquals(DataType.ASCII, session.getDataType());
+        assertEquals(Structure.FILE, session.getStructure());
+        assertEquals(0, session.getFileOffset());
+        assertEquals(0, session.getFailedLogins());
+        assertEquals(0, session.getMaxIdleTime());
+    }
+
+    public void testStateSharedBetweenWrappers() {
+        FtpIoSession session1 = new FtpIoSession(dummySession, null);
+        FtpIoSession session2 = new FtpIoSession(dummySession, null);
+
+        BaseUser user = new BaseUser();
+        session1.setUser(user);
+        session1.setDataType(DataType.BINARY);
+        session1.setFileOffset(123);
+        session1.increaseFailedLogins();
+        session1.updateLastAccessTime();
+
+        assertSame(user, session2.getUser());
+        assertTrue(session2.isLoggedIn());
+        assertEquals(DataType.BINARY, session2.getDataType());
+        assertEquals(123, session2.getFileOffset());
+        assertEquals(1, session2.getFailedLogins());
+        assertNotNull(session2.getLastAccessTime());
+        assertEquals(session1.getSessionId(), session2.getSessionId());
+    }
+
+    public void testResetState() {
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+        session.setFileOffset(123);
+        FtpFile renameFrom = (FtpFile) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class<?>[] { FtpFile.class },
+                (proxy, method, args) -> null);
+        session.setRenameFrom(renameFrom);
+        assertSame(renameFrom, session.getRenameFrom());
+
+        session.resetState();
+
+        assertEquals(0, session.getFileOffset());
+        assertNull(session.getRenameFrom());
+    }
+
+    public void testInternalStateHiddenFromFtplets() {
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+
+        for (Object key : session.getAttributeKeys()) {
+            try {
+                session.getFtpletSession().getAttribute((String) key);
+                fail("Must throw IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // OK
+            }
+        }
+    }
+}
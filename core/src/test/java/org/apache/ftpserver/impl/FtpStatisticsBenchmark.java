@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+
+/**
+ * Measures the throughput of {@link DefaultFtpStatistics} updated from
+ * several threads, the same mix of calls as {@link FtpStatisticsImplTest}
+ * but in a loop. The statistics are compared with a subclass which
+ * synchronizes every update on the statistics instance, as
+ * {@link DefaultFtpStatistics} used to.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FtpStatisticsBenchmark {
+
+    private static final int OPERATIONS_PER_THREAD = 2000000;
+
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16 };
+
+    /**
+     * The statistics with a global monitor
+     */
+    private static class SynchronizedFtpStatistics extends DefaultFtpStatistics {
+        @Override
+        public synchronized void setUpload(FtpIoSession session, FtpFile file,
+                long size) {
+            super.setUpload(session, file, size);
+        }
+
+        @Override
+        public synchronized void setDownload(FtpIoSession session,
+                FtpFile file, long size) {
+            super.setDownload(session, file, size);
+        }
+
+        @Override
+        public synchronized void setOpenConnection(FtpIoSession session) {
+            super.setOpenConnection(session);
+        }
+
+        @Override
+        public synchronized void setCloseConnection(FtpIoSession session) {
+            super.setCloseConnection(session);
+        }
+
+        @Override
+        public synchronized void setLogin(FtpIoSession session) {
+            super.setLogin(session);
+        }
+
+        @Override
+        public synchronized void setLogout(FtpIoSession session) {
+            super.setLogout(session);
+        }
+    }
+
+    private static FtpIoSession createSession(int thread) throws Exception {
+        DummySession dummySession = new DummySession();
+        dummySession.setRemoteAddress(new InetSocketAddress(InetAddress
+                .getByName("10.0.0." + (thread + 1)), 1234));
+
+        BaseUser user = new BaseUser();
+        user.setName("user" + (thread % 4));
+
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+        session.setUser(user);
+        return session;
+    }
+
+    private static long run(final DefaultFtpStatistics stats, int threadCount)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final FtpIoSession session = createSession(i);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        // mostly transfers, with the occasional connection
+                        // and login
+                        if (j % 16 == 0) {
+                            stats.setOpenConnection(session);
+                            stats.setLogin(session);
+                            stats.setLogout(session);
+                            stats.setCloseConnection(session);
+                        } else if (j % 2 == 0) {
+                            stats.setUpload(session, null, 1024);
+                        } else {
+                            stats.setDownload(session, null, 1024);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 2; round++) {
+            for (int threadCount : THREAD_COUNTS) {
+                long locked = run(new SynchronizedFtpStatistics(), threadCount);
+                long lockFree = run(new DefaultFtpStatistics(), threadCount);
+
+                long operations = (long) OPERATIONS_PER_THREAD * threadCount;
+                System.out.printf(
+                        "%2d threads: synchronized %6.1f ns/op, lock free %6.1f ns/op%n",
+                        threadCount, (double) locked / operations,
+                        (double) lockFree / operations);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import junit.framework.TestCase;
+
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoEventType;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class OverloadMonitorTest extends TestCase {
+
+    private IoEvent createEvent(DummySession session) {
+        return new IoEvent(IoEventType.MESSAGE_RECEIVED, session, null);
+    }
+
+    public void testDisabled() throws Exception {
+        OverloadMonitor monitor = new OverloadMonitor(0, 0, 0);
+        assertFalse(monitor.isEnabled());
+
+        monitor.accept(null, createEvent(new DummySession()));
+        Thread.sleep(20);
+
+        assertFalse(monitor.isConnectionOverloaded());
+        assertFalse(monitor.isTransferOverloaded());
+    }
+
+    public void testNoWaitingSession() {
+        OverloadMonitor monitor = new OverloadMonitor(1, 1, 0);
+        assertTrue(monitor.isEnabled());
+
+        assertEquals(0, monitor.getQueuedEventCount());
+        assertEquals(0, monitor.getLongestWait());
+        assertFalse(monitor.isConnectionOverloaded());
+        assertFalse(monitor.isTransferOverloaded());
+    }
+
+    public void testLongestWait() throws Exception {
+        OverloadMonitor monitor = new OverloadMonitor(10, 10000, 0);
+
+        IoEvent event1 = createEvent(new DummySession());
+        IoEvent event2 = createEvent(new DummySession());
+        monitor.accept(null, event1);
+        monitor.offered(null, event1);
+        Thread.sleep(20);
+        monitor.accept(null, event2);
+        monitor.offered(null, event2);
+
+        assertEquals(2, monitor.getQueuedEventCount());
+        assertTrue(monitor.getLongestWait() >= 20);
+        assertTrue(monitor.isConnectionOverloaded());
+        assertFalse(monitor.isTransferOverloaded());
+
+        monitor.polled(null, event1);
+        monitor.polled(null, event2);
+
+        assertEquals(0, monitor.getQueuedEventCount());
+        assertEquals(0, monitor.getLongestWait());
+        assertFalse(monitor.isConnectionOverloaded());
+
+        monitor.completed(null, event1);
+        monitor.completed(null, event2);
+        assertEquals(0, monitor.getActiveSessionCount());
+    }
+
+    public void testPolledBeforeOffered() throws Exception {
+        OverloadMonitor monitor = new OverloadMonitor(10, 10, 0);
+
+        // a worker can poll the event before the executor calls offered()
+        IoEvent event = createEvent(new DummySession());
+        monitor.accept(null, event);
+        monitor.polled(null, event);
+        monitor.offered(null, event);
+        monitor.completed(null, event);
+        Thread.sleep(20);
+
+        assertEquals(0, monitor.getQueuedEventCount());
+        assertEquals(0, monitor.getActiveSessionCount());
+        assertEquals(0, monitor.getLongestWait());
+        assertFalse(monitor.isConnectionOverloaded());
+        assertFalse(monitor.isTransferOverloaded());
+    }
+
+    public void testEventsBehindRunningCommandDoNotWait() throws Exception {
+        OverloadMonitor monitor = new OverloadMonitor(10, 10, 0);
+        DummySession session = new DummySession();
+
+        // a long command is running, the events of its session queue up
+        IoEvent command = createEvent(session);
+        monitor.accept(null, command);
+        monitor.polled(null, command);
+        IoEvent sent = createEvent(session);
+        monitor.accept(null, sent);
+        Thread.sleep(20);
+
+        assertEquals(1, monitor.getQueuedEventCount());
+        assertEquals(0, monitor.getLongestWait());
+        assertFalse(monitor.isConnectionOverloaded());
+        assertFalse(monitor.isTransferOverloaded());
+
+        // the same worker goes on with the queued event
+        monitor.completed(null, command);
+        monitor.polled(null, sent);
+        monitor.completed(null, sent);
+        assertEquals(0, monitor.getActiveSessionCount());
+    }
+
+    public void testIdleSessionWaitsAgain() throws Exception {
+        OverloadMonitor monitor = new OverloadMonitor(10, 10, 0);
+        DummySession session = new DummySession();
+
+        IoEvent event1 = createEvent(session);
+        monitor.accept(null, event1);
+        monitor.polled(null, event1);
+        monitor.completed(null, event1);
+
+        IoEvent event2 = createEvent(session);
+        monitor.accept(null, event2);
+        Thread.sleep(20);
+
+        assertTrue(monitor.getLongestWait() >= 20);
+        assertTrue(monitor.isTransferOverloaded());
+    }
+
+    public void testShedCounts() {
+        OverloadMonitor monitor = new OverloadMonitor(10, 10);
+
+        monitor.connectionShed();
+        monitor.transferShed();
+        monitor.transferShed();
+
+        assertEquals(1, monitor.getShedConnectionNumber());
+        assertEquals(2, monitor.getShedTransferNumber());
+    }
+}
@@ -19,10 +19,16 @@
 
 package org.apache.ftpserver.impl;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.Date;
 
 import junit.framework.TestCase;
 
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+
 /**
 *
 * @author <a href="http://mina.apache.org">Apache MINA Project</a>
@@ -58,6 +64,79 @@ public abstract class ServerFtpStatisticsTestTemplate extends TestCase {
         assertEquals(0, stats.getCurrentConnectionNumber());
     }
 
+    private FtpIoSession createLoggedInSession(String userName,
+            InetAddress address) {
+        DummySession dummySession = new DummySession();
+        dummySession.setRemoteAddress(new InetSocketAddress(address, 1234));
+
+        BaseUser user = new BaseUser();
+        user.setName(userName);
+
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+        session.setUser(user);
+        return session;
+    }
+
+    public void testUserLoginCount() throws Exception {
+        ServerFtpStatistics stats = createStatistics();
+        InetAddress address1 = InetAddress.getByName("10.0.0.1");
+        InetAddress address2 = InetAddress.getByName("10.0.0.2");
+
+        FtpIoSession session1 = createLoggedInSession("user", address1);
+        FtpIoSession session2 = createLoggedInSession("user", address1);
+        FtpIoSession session3 = createLoggedInSession("user", address2);
+        FtpIoSession anonSession = createLoggedInSession("anonymous", address2);
+
+        stats.setLogin(session1);
+        stats.setLogin(session2);
+        stats.setLogin(session3);
+        stats.setLogin(anonSession);
+
+        User user = session1.getUser();
+        assertEquals(4, stats.getCurrentLoginNumber());
+        assertEquals(1, stats.getCurrentAnonymousLoginNumber());
+        assertEquals(3, stats.getCurrentUserLoginNumber(user));
+        assertEquals(2, stats.getCurrentUserLoginNumber(user, address1));
+        assertEquals(1, stats.getCurrentUserLoginNumber(user, address2));
+
+        stats.setLogout(session1);
+        stats.setLogout(anonSession);
+
+        assertEquals(2, stats.getCurrentLoginNumber());
+        assertEquals(0, stats.getCurrentAnonymousLoginNumber());
+        assertEquals(4, stats.getTotalLoginNumber());
+        assertEquals(1, stats.getTotalAnonymousLoginNumber());
+        assertEquals(2, stats.getCurrentUserLoginNumber(user));
+        assertEquals(1, stats.getCurrentUserLoginNumber(user, address1));
+
+        stats.setLogout(session2);
+        stats.setLogout(session3);
+
+        assertEquals(0, stats.getCurrentUserLoginNumber(user));
+        assertEquals(0, stats.getCurrentUserLoginNumber(user, address1));
+        assertEquals(0, stats.getCurrentUserLoginNumber(user, address2));
+    }
+
+    public void testTransferCounts() {
+        ServerFtpStatistics stats = createStatistics();
+
+        stats.setUpload(null, null, 100);
+        stats.setUpload(null, null, 50);
+        stats.setDownload(null, null, 10);
+
+        assertEquals(2, stats.getTotalUploadNumber());
+        assertEquals(150, stats.getTotalUploadSize());
+        assertEquals(1, stats.getTotalDownloadNumber());
+        assertEquals(10, stats.getTotalDownloadSize());
+
+        stats.resetStatisticsCounters();
+
+        assertEquals(0, stats.getTotalUploadNumber());
+        assertEquals(0, stats.getTotalUploadSize());
+        assertEquals(0, stats.getTotalDownloadNumber());
+        assertEquals(0, stats.getTotalDownloadSize());
+    }
+
     @SuppressWarnings("deprecation")
     public void testStartDateImmutable() {
         ServerFtpStatistics stats = createStatistics();
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.listener.Listener;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class SessionRegistryTest extends TestCase {
+
+    private static final InetAddress ADDRESS1;
+
+    private static final InetAddress ADDRESS2;
+
+    static {
+        try {
+            ADDRESS1 = InetAddress.getByName("10.0.0.1");
+            ADDRESS2 = InetAddress.getByName("10.0.0.2");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private SessionRegistry registry = new SessionRegistry();
+
+    private Listener listener1 = new ListenerFactory().createListener();
+
+    private Listener listener2 = new ListenerFactory().createListener();
+
+    private FtpIoSession createSession(Listener listener, InetAddress address) {
+        DummySession dummySession = new DummySession();
+        dummySession.setRemoteAddress(new InetSocketAddress(address, 1234));
+
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+        session.setListener(listener);
+        registry.register(session);
+        return session;
+    }
+
+    private void login(FtpIoSession session, String name) {
+        setUser(session, name);
+        registry.login(session);
+    }
+
+    private void setUser(FtpIoSession session, String name) {
+        BaseUser user = new BaseUser();
+        user.setName(name);
+        session.setUser(user);
+    }
+
+    public void testRegister() {
+        FtpIoSession session1 = createSession(listener1, ADDRESS1);
+        FtpIoSession session2 = createSession(listener1, ADDRESS2);
+        FtpIoSession session3 = createSession(listener2, ADDRESS1);
+
+        assertEquals(3, registry.getSessionCount());
+        assertEquals(2, registry.getSessions(listener1).size());
+        assertTrue(registry.getSessions(listener1).contains(session1));
+        assertTrue(registry.getSessions(listener1).contains(session2));
+        assertEquals(1, registry.getSessions(listener2).size());
+        assertTrue(registry.getSessions(listener2).contains(session3));
+        assertEquals(2, registry.getSessionCount(ADDRESS1));
+        assertEquals(1, registry.getSessionCount(ADDRESS2));
+    }
+
+    public void testUnregister() {
+        FtpIoSession session1 = createSession(listener1, ADDRESS1);
+        FtpIoSession session2 = createSession(listener1, ADDRESS1);
+
+        registry.unregister(session1);
+
+        assertEquals(1, registry.getSessionCount());
+        assertEquals(1, registry.getSessions(listener1).size());
+        assertEquals(1, registry.getSessionCount(ADDRESS1));
+
+        registry.unregister(session2);
+
+        assertEquals(0, registry.getSessionCount());
+        assertTrue(registry.getSessions(listener1).isEmpty());
+        assertEquals(0, registry.getSessionCount(ADDRESS1));
+
+        // unregistering twice must be harmless
+        registry.unregister(session2);
+        assertEquals(0, registry.getSessionCount());
+    }
+
+    public void testUserLoginCount() {
+        FtpIoSession session1 = createSession(listener1, ADDRESS1);
+        FtpIoSession session2 = createSession(listener1, ADDRESS1);
+        FtpIoSession session3 = createSession(listener2, ADDRESS2);
+        createSession(listener2, ADDRESS2);
+
+        login(session1, "user1");
+        login(session2, "user1");
+        login(session3, "user1");
+
+        assertEquals(3, registry.getUserLoginCount("user1"));
+        assertEquals(2, registry.getUserLoginCount("user1", ADDRESS1));
+        assertEquals(1, registry.getUserLoginCount("user1", ADDRESS2));
+        assertEquals(0, registry.getUserLoginCount("user2"));
+        assertEquals(3, registry.getUserSessions("user1").size());
+    }
+
+    public void testLogout() {
+        FtpIoSession session1 = createSession(listener1, ADDRESS1);
+        FtpIoSession session2 = createSession(listener1, ADDRESS1);
+
+        login(session1, "user1");
+        login(session2, "user1");
+
+        registry.logout(session1);
+
+        assertEquals(1, registry.getUserLoginCount("user1"));
+        assertEquals(1, registry.getUserLoginCount("user1", ADDRESS1));
+        assertEquals(2, registry.getSessionCount());
+
+        // closing a logged in session also logs it out
+        registry.unregister(session2);
+
+        assertEquals(0, registry.getUserLoginCount("user1"));
+        assertEquals(0, registry.getUserLoginCount("user1", ADDRESS1));
+        assertTrue(registry.getUserSessions("user1").isEmpty());
+    }
+
+    public void testReLoginAsOtherUser() {
+        FtpIoSession session = createSession(listener1, ADDRESS1);
+
+        login(session, "user1");
+        login(session, "user2");
+
+        assertEquals(0, registry.getUserLoginCount("user1"));
+        assertEquals(1, registry.getUserLoginCount("user2"));
+        assertEquals(1, registry.getUserLoginCount("user2", ADDRESS1));
+    }
+
+    public void testTryLoginLimits() {
+        FtpIoSession session1 = createSession(listener1, ADDRESS1);
+        FtpIoSession session2 = createSession(listener1, ADDRESS1);
+        FtpIoSession session3 = createSession(listener1, ADDRESS2);
+        FtpIoSession session4 = createSession(listener1, ADDRESS2);
+        setUser(session1, "user1");
+        setUser(session2, "user1");
+        setUser(session3, "user1");
+        setUser(session4, "user1");
+
+        assertTrue(registry.tryLogin(session1, 3, 1));
+        assertFalse(registry.tryLogin(session2, 3, 1));
+        assertTrue(registry.tryLogin(session3, 3, 1));
+        assertTrue(registry.tryLogin(session2, 3, 0));
+        assertFalse(registry.tryLogin(session4, 3, 0));
+
+        assertEquals(3, registry.getUserLoginCount("user1"));
+        assertEquals(2, registry.getUserLoginCount("user1", ADDRESS1));
+
+        // a refused session is not counted
+        registry.logout(session4);
+        assertEquals(3, registry.getUserLoginCount("user1"));
+    }
+
+    public void testConcurrentTryLogin() throws Exception {
+        final List<FtpIoSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            FtpIoSession session = createSession(listener1, i % 2 == 0
+                    ? ADDRESS1 : ADDRESS2);
+            setUser(session, "user1");
+            sessions.add(session);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger loggedIn = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    int index;
+                    while ((index = next.getAndIncrement()) < sessions.size()) {
+                        if (registry.tryLogin(sessions.get(index), 5, 3)) {
+                            loggedIn.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(5, loggedIn.get());
+        assertEquals(5, registry.getUserLoginCount("user1"));
+        assertTrue(registry.getUserLoginCount("user1", ADDRESS1) <= 3);
+        assertTrue(registry.getUserLoginCount("user1", ADDRESS2) <= 3);
+    }
+}
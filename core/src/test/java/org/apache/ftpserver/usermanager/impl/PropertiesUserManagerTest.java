@@ -24,8 +24,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import org.apache.ftpserver.ftplet.Authority;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.User;
 import org.apache.ftpserver.usermanager.ClearTextPasswordEncryptor;
@@ -58,6 +61,7 @@ public class PropertiesUserManagerTest extends UserManagerTestTemplate {
         users.setProperty("ftpserver.user.user2.downloadrate", "1");
         users.setProperty("ftpserver.user.user2.maxloginnumber", "3");
         users.setProperty("ftpserver.user.user2.maxloginperip", "4");
+        users.setProperty("ftpserver.user.user2.maxstorage", "1000");
 
         users.setProperty("ftpserver.user.user3.userpassword", "");
         users.setProperty("ftpserver.user.user3.homedirectory", "home");
@@ -115,4 +119,27 @@ public class PropertiesUserManagerTest extends UserManagerTestTemplate {
         modifiedUser = pum.getUserByName("user1");
         assertEquals("Home directory should have reset back to \""+originalSetting+"\" after second call to refresh().",originalSetting,modifiedUser.getHomeDirectory());
     }
+
+    private long getMaxBytes(User user) {
+        QuotaRequest quotaRequest = (QuotaRequest) user
+                .authorize(new QuotaRequest());
+        return quotaRequest == null ? 0 : quotaRequest.getMaxBytes();
+    }
+
+    public void testQuota() throws Exception {
+        assertEquals(1000, getMaxBytes(userManager.getUserByName("user2")));
+        assertNull(userManager.getUserByName("user1").authorize(
+                new QuotaRequest()));
+
+        BaseUser user = new BaseUser();
+        user.setName("newuser");
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new QuotaPermission(2000));
+        user.setAuthorities(authorities);
+        userManager.save(user);
+
+        User actualUser = createUserManagerFactory().createUserManager()
+                .getUserByName("newuser");
+        assertEquals(2000, getMaxBytes(actualUser));
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.TimeZone;
+
+/**
+ * Measures the time and the memory allocated to format the dates of a
+ * listing, comparing {@link DateUtils} and {@link UnixDateFormatter} with the
+ * {@link java.util.Calendar} based formatting they replaced. The dates are
+ * spread over two years, mostly a few hours apart as the files of a directory
+ * often are.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DateUtilsBenchmark {
+
+    private static final int DATES = 1000000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static long sink;
+
+    private interface Formatter {
+        void format(StringBuilder sb, long millis);
+    }
+
+    private static void run(String name, long[] dates, Formatter formatter) {
+        StringBuilder sb = new StringBuilder(32);
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (long date : dates) {
+            sb.setLength(0);
+            formatter.format(sb, date);
+            sink += sb.length();
+        }
+        long time = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId)
+                - allocatedBefore;
+        System.out.printf("%-24s %6.1f ns/date %6.1f bytes/date%n", name,
+                (double) time / dates.length, (double) allocated
+                        / dates.length);
+    }
+
+    public static void main(String[] args) {
+        final long now = System.currentTimeMillis();
+        final TimeZone zone = TimeZone.getDefault();
+
+        long[] dates = new long[DATES];
+        long date = now;
+        for (int i = 0; i < DATES; i++) {
+            date -= (i * 7919L) % 10800000L;
+            if (date < now - 2 * 365 * 86400000L) {
+                date = now;
+            }
+            dates[i] = date;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("round " + round);
+            run("unix, Calendar", dates, (sb, millis) -> sb
+                    .append(CalendarDateUtils.getUnixDate(millis, now, zone)));
+            run("unix, DateUtils", dates, (sb, millis) -> DateUtils
+                    .appendUnixDate(sb, millis, now, zone));
+            final UnixDateFormatter formatter = new UnixDateFormatter(now, zone);
+            run("unix, UnixDateFormatter", dates, formatter::format);
+            run("ftp, Calendar", dates, (sb, millis) -> sb
+                    .append(CalendarDateUtils.getFtpDate(millis)));
+            run("ftp, DateUtils", dates, DateUtils::appendFtpDate);
+            run("iso8601, Calendar", dates, (sb, millis) -> sb
+                    .append(CalendarDateUtils.getISO8601Date(millis, zone)));
+            run("iso8601, DateUtils", dates, (sb, millis) -> DateUtils
+                    .appendISO8601Date(sb, millis, zone));
+        }
+        System.out.println("(" + sink + ")");
+    }
+}
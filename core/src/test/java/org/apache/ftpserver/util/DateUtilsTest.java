@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DateUtilsTest extends TestCase {
+
+    private static final String[] ZONES = { "UTC", "Europe/Stockholm",
+            "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe",
+            "Pacific/Kiritimati", "America/St_Johns" };
+
+    // 1970 to 2100
+    private static final long MAX_MILLIS = 4102444800000L;
+
+    private static final long SIX_MONTHS = 15811200000L;
+
+    private final Random random = new Random(4321);
+
+    private long randomMillis(long min, long max) {
+        return min + (long) (random.nextDouble() * (max - min));
+    }
+
+    public void testUnixDateSameAsCalendar() {
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            for (int i = 0; i < 20000; i++) {
+                long now = randomMillis(0, MAX_MILLIS);
+                // around the six months limit half of the time
+                long millis = i % 2 == 0 ? randomMillis(0, MAX_MILLIS)
+                        : Math.max(0, now + (i % 4 == 1 ? 1 : -1)
+                                * (SIX_MONTHS - 2000 + random.nextInt(4000)));
+
+                String expected = CalendarDateUtils.getUnixDate(millis, now,
+                        zone);
+                StringBuilder sb = new StringBuilder();
+                DateUtils.appendUnixDate(sb, millis, now, zone);
+                assertEquals(zoneId + " " + millis + " " + now, expected, sb
+                        .toString());
+            }
+        }
+    }
+
+    public void testUnixDateFormatterSameAsCalendar() {
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            long now = randomMillis(0, MAX_MILLIS);
+            UnixDateFormatter formatter = new UnixDateFormatter(now, zone);
+            long millis = randomMillis(0, MAX_MILLIS);
+            for (int i = 0; i < 20000; i++) {
+                // mostly close to the previous date, as in a listing
+                millis = i % 10 == 0 ? randomMillis(0, MAX_MILLIS) : Math.max(
+                        0, millis + random.nextInt(7200000) - 3600000);
+
+                StringBuilder sb = new StringBuilder();
+                formatter.format(sb, millis);
+                assertEquals(zoneId + " " + millis + " " + now,
+                        CalendarDateUtils.getUnixDate(millis, now, zone), sb
+                                .toString());
+            }
+        }
+    }
+
+    public void testUnixDateNegative() {
+        assertEquals("------------", DateUtils.getUnixDate(-1));
+        StringBuilder sb = new StringBuilder();
+        new UnixDateFormatter(0).format(sb, -1);
+        assertEquals("------------", sb.toString());
+    }
+
+    public void testISO8601DateSameAsCalendar() {
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            for (int i = 0; i < 20000; i++) {
+                // before 1970 and before the Gregorian calendar too
+                long millis = randomMillis(-20000000000000L, MAX_MILLIS);
+                StringBuilder sb = new StringBuilder();
+                DateUtils.appendISO8601Date(sb, millis, zone);
+                assertEquals(zoneId + " " + millis, CalendarDateUtils
+                        .getISO8601Date(millis, zone), sb.toString());
+            }
+        }
+    }
+
+    public void testFtpDateSameAsCalendar() {
+        for (int i = 0; i < 100000; i++) {
+            long millis = randomMillis(-20000000000000L, MAX_MILLIS);
+            assertEquals(Long.toString(millis), CalendarDateUtils
+                    .getFtpDate(millis), DateUtils.getFtpDate(millis));
+        }
+    }
+
+    public void testFtpDate() {
+        assertEquals("19700101000000.000", DateUtils.getFtpDate(0));
+        assertEquals("20240229235959.005", DateUtils
+                .getFtpDate(1709251199005L));
+        assertEquals("19691231235959.999", DateUtils.getFtpDate(-1));
+    }
+
+    public void testISO8601Date() {
+        StringBuilder sb = new StringBuilder();
+        DateUtils.appendISO8601Date(sb, 1709251199005L, TimeZone
+                .getTimeZone("UTC"));
+        assertEquals("2024-02-29T23:59:59", sb.toString());
+    }
+
+    public void testUnixDate() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        long millis = 1709251199005L;
+
+        StringBuilder sb = new StringBuilder();
+        DateUtils.appendUnixDate(sb, millis, millis + 1000, utc);
+        assertEquals("Feb 29 23:59", sb.toString());
+
+        sb.setLength(0);
+        DateUtils.appendUnixDate(sb, millis, millis + SIX_MONTHS + 1, utc);
+        assertEquals("Feb 29  2024", sb.toString());
+    }
+}
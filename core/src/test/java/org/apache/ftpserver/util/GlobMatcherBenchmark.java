@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+/**
+ * Measures matching a directory of names against listing patterns with
+ * {@link GlobMatcher}, compared with {@link RegularExpr} as the listings used
+ * to.
+ *
+ * Not run as part of the test suite, run the main method with the test
+ * classpath.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class GlobMatcherBenchmark {
+
+    private static final int NAMES = 1000000;
+
+    private static final String[] PATTERNS = { "*.csv", "data-*-2024*.csv",
+            "file?[0-9]*.txt", "*a*b*c*d*" };
+
+    private static final String[] EXTENSIONS = { ".csv", ".txt", ".log",
+            ".dat" };
+
+    private static long run(String pattern, String[] names, boolean compiled) {
+        int matches = 0;
+        long start = System.nanoTime();
+        if (compiled) {
+            GlobMatcher matcher = GlobMatcher.compile(pattern);
+            for (String name : names) {
+                if (matcher.matches(name)) {
+                    matches++;
+                }
+            }
+        } else {
+            RegularExpr expr = new RegularExpr(pattern);
+            for (String name : names) {
+                if (expr.isMatch(name)) {
+                    matches++;
+                }
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (matches < 0) {
+            throw new IllegalStateException();
+        }
+        return time;
+    }
+
+    public static void main(String[] args) {
+        String[] names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = (i % 2 == 0 ? "data-" : "file") + i + "-"
+                    + (2000 + i % 30) + "-report" + EXTENSIONS[i % 4];
+        }
+
+        for (int round = 0; round < 3; round++) {
+            for (String pattern : PATTERNS) {
+                long regularExpr = run(pattern, names, false);
+                long compiled = run(pattern, names, true);
+                System.out.printf(
+                        "%-20s RegularExpr %6.1f ns/name, compiled %6.1f ns/name%n",
+                        pattern, (double) regularExpr / NAMES,
+                        (double) compiled / NAMES);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class GlobMatcherTest extends TestCase {
+
+    public void testMatchText() {
+        GlobMatcher matcher = GlobMatcher.compile("foo");
+        assertTrue(matcher.matches("foo"));
+        assertFalse(matcher.matches("bar"));
+        assertFalse(matcher.matches("xfoo"));
+        assertFalse(matcher.matches("foox"));
+        assertFalse(matcher.matches("fo"));
+    }
+
+    public void testMatchStar() {
+        GlobMatcher matcher = GlobMatcher.compile("*");
+        assertTrue(matcher.matches("foo"));
+        assertTrue(matcher.matches(""));
+    }
+
+    public void testMatchPrefixAndSuffix() {
+        GlobMatcher matcher = GlobMatcher.compile("data*.csv");
+        assertTrue(matcher.matches("data.csv"));
+        assertTrue(matcher.matches("data-2024.csv"));
+        assertFalse(matcher.matches("data.cs"));
+        assertFalse(matcher.matches("dat.csv"));
+        // the prefix and suffix can not overlap
+        assertFalse(GlobMatcher.compile("ab*ba").matches("aba"));
+    }
+
+    public void testMatchStars() {
+        GlobMatcher matcher = GlobMatcher.compile("*a*b?c*");
+        assertTrue(matcher.matches("abxc"));
+        assertTrue(matcher.matches("xxaxxbxcxx"));
+        assertTrue(matcher.matches("aababbbcc"));
+        assertFalse(matcher.matches("abc"));
+        assertFalse(matcher.matches("bxca"));
+    }
+
+    public void testMatchSet() {
+        GlobMatcher matcher = GlobMatcher.compile("file[0-9a].txt");
+        assertTrue(matcher.matches("file1.txt"));
+        assertTrue(matcher.matches("filea.txt"));
+        assertFalse(matcher.matches("fileb.txt"));
+        assertFalse(matcher.matches("file.txt"));
+
+        matcher = GlobMatcher.compile("file[^0-9].txt");
+        assertFalse(matcher.matches("file1.txt"));
+        assertTrue(matcher.matches("fileb.txt"));
+    }
+
+    public void testMatchEmptySets() {
+        assertTrue(GlobMatcher.compile("a[]b").matches("axb"));
+        assertFalse(GlobMatcher.compile("a[]b").matches("ab"));
+        assertFalse(GlobMatcher.compile("a[^]b").matches("axb"));
+    }
+
+    public void testUnterminatedSet() {
+        assertFalse(GlobMatcher.compile("a[bc").matches("ab"));
+        assertFalse(GlobMatcher.compile("*[b-").matches("ab"));
+    }
+
+    public void testSetEndingWithRange() {
+        // the end of the set depends on the matched character
+        GlobMatcher matcher = GlobMatcher.compile("[a-]x]");
+        RegularExpr expr = new RegularExpr("[a-]x]");
+        for (String name : new String[] { "a", "ax]", "x", "]" }) {
+            assertEquals(name, expr.isMatch(name), matcher.matches(name));
+        }
+    }
+
+    public void testSameAsRegularExpr() {
+        char[] patternChars = { 'a', 'b', 'c', '*', '?', '[', ']', '^', '-' };
+        char[] nameChars = { 'a', 'b', 'c', '-', ']', '^' };
+        Random random = new Random(1234);
+        for (int i = 0; i < 20000; i++) {
+            String pattern = randomString(random, patternChars, 8);
+            GlobMatcher matcher = GlobMatcher.compile(pattern);
+            RegularExpr expr = new RegularExpr(pattern);
+            for (int j = 0; j < 20; j++) {
+                String name = randomString(random, nameChars, 8);
+                assertEquals(pattern + " " + name, expr.isMatch(name), matcher
+                        .matches(name));
+            }
+        }
+    }
+
+    private static String randomString(Random random, char[] chars,
+            int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(chars[random.nextInt(chars.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -22,7 +22,14 @@ package org.apache.ftpserver.ftplet;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * This is the file abstraction used by the server.
@@ -159,6 +166,66 @@ public interface FtpFile {
      */
     List<? extends FtpFile> listFiles();
 
+    /**
+     * List the files of this directory whose names are accepted by a filter.
+     * If not a directory or does not exist, null will be returned.
+     * 
+     * The default implementation filters the result of {@link #listFiles()},
+     * implementations which can skip the rejected names before creating file
+     * objects for them should override it.
+     * @param nameFilter The filter for the names of the files
+     * @return The {@link List} of accepted {@link FtpFile}s
+     */
+    default List<? extends FtpFile> listFiles(Predicate<String> nameFilter) {
+        List<? extends FtpFile> files = listFiles();
+        if (files == null) {
+            return null;
+        }
+        List<FtpFile> accepted = new ArrayList<>();
+        for (FtpFile file : files) {
+            if (nameFilter.test(file.getName())) {
+                accepted.add(file);
+            }
+        }
+        return Collections.unmodifiableList(accepted);
+    }
+
+    /**
+     * Iterate over the files of this directory whose names are accepted by a
+     * filter, in no particular order. Unlike {@link #listFiles()}, the files
+     * do not need to be held in memory all at once, which matters for very
+     * large directories. If not a directory or does not exist, null will be
+     * returned.
+     * 
+     * The default implementation iterates over the result of
+     * {@link #listFiles(Predicate)}, implementations which can read the
+     * directory lazily should override it.
+     * @param nameFilter The filter for the names of the files, null to
+     *      accept all files
+     * @return The {@link FtpFileIterator}, which must be closed
+     */
+    default FtpFileIterator iterateFiles(Predicate<String> nameFilter) {
+        List<? extends FtpFile> files = nameFilter == null ? listFiles()
+                : listFiles(nameFilter);
+        if (files == null) {
+            return null;
+        }
+        final Iterator<? extends FtpFile> iterator = files.iterator();
+        return new FtpFileIterator() {
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public FtpFile next() {
+                return iterator.next();
+            }
+
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
     /**
      * Create output stream for writing.
      * @param offset The number of bytes at where to start writing.
@@ -178,4 +245,65 @@ public interface FtpFile {
      * @throws IOException
      */
     InputStream createInputStream(long offset) throws IOException;
+
+    /**
+     * Open a channel for writing, for file systems which can transfer data
+     * without going through an {@link OutputStream}. When the channel is a
+     * {@link FileChannel} the server may write to it with
+     * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}.
+     * The default implementation returns null, in which case the server uses
+     * {@link #createOutputStream(long)}.
+     * @param offset The number of bytes at where to start writing.
+     *      If the file is not random accessible,
+     *      any offset other than zero will throw an exception.
+     * @return The channel, positioned at the offset, or null if the file
+     *      system only supports streams
+     * @throws IOException
+     */
+    default WritableByteChannel openWritableChannel(long offset)
+            throws IOException {
+        return null;
+    }
+
+    /**
+     * Open a channel for reading, for file systems which can transfer data
+     * without going through an {@link InputStream}. When the channel is a
+     * {@link FileChannel} the server may read it with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     * The default implementation returns null, in which case the server uses
+     * {@link #createInputStream(long)}.
+     * @param offset The number of bytes of where to start reading.
+     *          If the file is not random accessible,
+     *          any offset other than zero will throw an exception.
+     * @return The channel, positioned at the offset, or null if the file
+     *      system only supports streams
+     * @throws IOException
+     */
+    default ReadableByteChannel openReadableChannel(long offset)
+            throws IOException {
+        return null;
+    }
+
+    /**
+     * Get a file object for the same file which reads the attributes of the
+     * file at most once and then keeps them, until {@link #refresh()} is
+     * called or the file is changed through the returned object. Use when the
+     * same attributes are needed several times, for example to check a file
+     * and then format it.
+     * 
+     * The default implementation returns this file, which reads the
+     * attributes each time they are requested.
+     * @return The snapshotted {@link FtpFile}
+     */
+    default FtpFile snapshot() {
+        return this;
+    }
+
+    /**
+     * Read the attributes of a snapshotted file again. Does nothing for files
+     * which are not snapshotted.
+     */
+    default void refresh() {
+        // not snapshotted
+    }
 }